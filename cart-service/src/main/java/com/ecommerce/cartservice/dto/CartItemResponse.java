@@ -22,4 +22,6 @@ public class CartItemResponse {
     private int quantity;
 
     private BigDecimal subtotal;
+
+    private boolean available = true;
 }
\ No newline at end of file
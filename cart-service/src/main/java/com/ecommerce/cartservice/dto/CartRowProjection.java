@@ -0,0 +1,35 @@
+package com.ecommerce.cartservice.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat cart-plus-item row read straight from the carts/cart_items join.
+ * Item columns are null for a cart without items.
+ */
+public interface CartRowProjection {
+
+    String getCartId();
+
+    Long getUserId();
+
+    BigDecimal getTotalPrice();
+
+    Integer getTotalItems();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Long getProductId();
+
+    String getProductName();
+
+    String getProductImage();
+
+    BigDecimal getPrice();
+
+    Integer getQuantity();
+
+    Boolean getAvailable();
+}
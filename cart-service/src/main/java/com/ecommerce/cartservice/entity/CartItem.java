@@ -35,4 +35,8 @@ public class CartItem {
 
     @Column(nullable = false)
     private int quantity;
+
+    // Cleared when the product is deactivated, deleted or out of stock
+    @Column(nullable = false)
+    private boolean available = true;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.ecommerce.cartservice.event.listener;
+
+import com.ecommerce.cartservice.event.ProductEvent;
+import com.ecommerce.cartservice.service.CartService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductEventListener {
+
+    private final CartService cartService;
+
+    @KafkaListener(topics = "${kafka.topics.product-events}", groupId = "${spring.kafka.consumer.group-id}")
+    public void handleProductEvent(ProductEvent event) {
+        log.debug("Received product event: {} for productId: {}", event.getEventType(), event.getProductId());
+
+        if (event.getProductId() == null) {
+            log.warn("Ignoring product event without product ID: {}", event.getEventId());
+            return;
+        }
+
+        int patched = cartService.refreshProductDetails(event);
+        log.debug("Refreshed product {} in {} cart(s)", event.getProductId(), patched);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecommerce.cartservice.repository;
+
+import com.ecommerce.cartservice.entity.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    /**
+     * Find the IDs of all carts containing a product
+     *
+     * @param productId The ID of the product
+     * @return The matching cart IDs
+     */
+    @Query("SELECT DISTINCT i.cart.id FROM CartItem i WHERE i.productId = :productId")
+    List<String> findCartIdsByProductId(@Param("productId") Long productId);
+
+    /**
+     * Overwrite the denormalized product details of a product's items in the given carts.
+     * Null name, image or price keep the current value.
+     *
+     * @return The number of cart items updated
+     */
+    @Modifying
+    @Query("UPDATE CartItem i SET " +
+            "i.productName = COALESCE(:name, i.productName), " +
+            "i.productImage = COALESCE(:image, i.productImage), " +
+            "i.price = COALESCE(:price, i.price), " +
+            "i.available = :available " +
+            "WHERE i.productId = :productId AND i.cart.id IN :cartIds")
+    int updateProductDetails(@Param("productId") Long productId,
+                             @Param("cartIds") Collection<String> cartIds,
+                             @Param("name") String name,
+                             @Param("image") String image,
+                             @Param("price") BigDecimal price,
+                             @Param("available") boolean available);
+}
@@ -1,9 +1,15 @@
 package com.ecommerce.cartservice.repository;
 
+import com.ecommerce.cartservice.dto.CartRowProjection;
 import com.ecommerce.cartservice.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +22,43 @@ public interface CartRepository extends JpaRepository<Cart, String> {
      * @return Optional containing the cart if found
      */
     Optional<Cart> findByUserId(Long userId);
+
+    /**
+     * Read a user's cart and its items as flat rows in a single join, without loading entities
+     *
+     * @param userId The ID of the user
+     * @return One row per item, a single row with null item columns for an empty cart,
+     *         or no rows if the user has no cart
+     */
+    @Query("SELECT c.id AS cartId, c.userId AS userId, c.totalPrice AS totalPrice, " +
+            "c.totalItems AS totalItems, c.createdAt AS createdAt, c.updatedAt AS updatedAt, " +
+            "i.productId AS productId, i.productName AS productName, i.productImage AS productImage, " +
+            "i.price AS price, i.quantity AS quantity, i.available AS available " +
+            "FROM Cart c LEFT JOIN c.items i WHERE c.userId = :userId")
+    List<CartRowProjection> findCartRowsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find the owners of the given carts
+     *
+     * @param cartIds The IDs of the carts
+     * @return The user IDs
+     */
+    @Query("SELECT c.userId FROM Cart c WHERE c.id IN :cartIds")
+    List<Long> findUserIdsByIdIn(@Param("cartIds") Collection<String> cartIds);
+
+    /**
+     * Recompute the stored totals of the given carts from their available items
+     *
+     * @param cartIds The IDs of the carts to recompute
+     * @return The number of carts updated
+     */
+    @Modifying
+    @Query(value = "UPDATE carts c SET " +
+            "total_price = COALESCE((SELECT SUM(i.price * i.quantity) FROM cart_items i " +
+            "WHERE i.cart_id = c.id AND i.available), 0), " +
+            "total_items = COALESCE((SELECT SUM(i.quantity) FROM cart_items i " +
+            "WHERE i.cart_id = c.id AND i.available), 0), " +
+            "updated_at = now() " +
+            "WHERE c.id IN (:cartIds)", nativeQuery = true)
+    int recalculateTotals(@Param("cartIds") Collection<String> cartIds);
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.ecommerce.cartservice.service;
+
+import com.ecommerce.cartservice.config.CacheConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Per-user version of the cached cart, part of the "carts" cache key.
+ * <p>
+ * Evicting on a mutation isn't enough: a read that missed the cache before the mutation
+ * committed may still write its stale result back afterwards. Instead a mutation bumps the
+ * version once it has committed, so reads from then on use a new key and a late write-back
+ * lands under a key no one reads again, where it expires.
+ */
+@Component("cartCacheVersions")
+@RequiredArgsConstructor
+@Slf4j
+public class CartCacheVersions {
+
+    private static final String KEY_PREFIX = "cart:cache-version:";
+
+    // Outlives every entry cached under an older version, so a version that expires back to 0 finds none
+    private static final long VERSION_TTL_SECONDS = CacheConfig.CART_TTL.multipliedBy(2).toSeconds();
+
+    private final StringRedisTemplate redisTemplate;
+
+    public long current(Long userId) {
+        String version = redisTemplate.opsForValue().get(key(userId));
+        return version != null ? Long.parseLong(version) : 0;
+    }
+
+    /**
+     * Bumps the versions of the given users' carts after the current transaction commits,
+     * or right away outside a transaction
+     */
+    public void bumpAfterCommit(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(userIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump(userIds);
+            }
+        });
+    }
+
+    public void bumpAfterCommit(Long userId) {
+        bumpAfterCommit(List.of(userId));
+    }
+
+    private void bump(Collection<Long> userIds) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (Long userId : userIds) {
+                    stringConnection.incr(key(userId));
+                    stringConnection.expire(key(userId), VERSION_TTL_SECONDS);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to bump cached cart version for user(s) {}: {}", userIds, e.getMessage());
+        }
+    }
+
+    private String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ecommerce.cartservice.service;
+
+import com.ecommerce.cartservice.repository.CartItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Redis reverse index of productId to the IDs of the carts holding that product,
+ * so a product change only touches the carts that actually contain it.
+ * <p>
+ * The index may hold stale cart IDs (a patch against them is a no-op) but must not miss any.
+ * Carts are added as items are, but carts that held a product before it was indexed are only
+ * found in the database, so a product's set is trusted only once it carries the {@link #COMPLETE}
+ * marker, which the rebuild from the database adds. The marker lives in the set itself, so an
+ * evicted or deleted key loses it too and gets rebuilt.
+ * <p>
+ * To keep that guarantee, carts are added before their transaction commits (a rollback only
+ * leaves a stale ID) but removed only after it has committed (a rollback would otherwise lose
+ * a cart that still holds the product), and a failed add drops the product's set for a rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartProductIndex {
+
+    private static final String KEY_PREFIX = "cart:product-index:";
+
+    // Member marking a set rebuilt from the database; never a cart ID (those are UUIDs)
+    private static final String COMPLETE = "*";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CartItemRepository cartItemRepository;
+
+    public void add(Long productId, String cartId) {
+        try {
+            redisTemplate.opsForSet().add(key(productId), cartId);
+        } catch (Exception e) {
+            log.warn("Failed to index cart {} for product {}: {}", cartId, productId, e.getMessage());
+            // The set would miss this cart but still look complete; without it the next read rebuilds
+            invalidate(productId);
+        }
+    }
+
+    /**
+     * Unindexes the cart for the given products after the current transaction commits,
+     * or right away outside a transaction
+     */
+    public void removeAfterCommit(Collection<Long> productIds, String cartId) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(productIds, cartId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(productIds, cartId);
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long productId, String cartId) {
+        removeAfterCommit(List.of(productId), cartId);
+    }
+
+    private void remove(Collection<Long> productIds, String cartId) {
+        for (Long productId : productIds) {
+            try {
+                redisTemplate.opsForSet().remove(key(productId), cartId);
+            } catch (Exception e) {
+                // A stale cart ID only costs a no-op patch
+                log.warn("Failed to unindex cart {} for product {}: {}", cartId, productId, e.getMessage());
+            }
+        }
+    }
+
+    private void invalidate(Long productId) {
+        try {
+            redisTemplate.delete(key(productId));
+        } catch (Exception e) {
+            log.error("Failed to drop cart index for product {}; product updates may skip carts until it is deleted: {}",
+                    productId, e.getMessage());
+        }
+    }
+
+    public Set<String> getCartIds(Long productId) {
+        try {
+            Set<String> cartIds = redisTemplate.opsForSet().members(key(productId));
+            if (cartIds != null && cartIds.remove(COMPLETE)) {
+                return cartIds;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read cart index for product {}: {}", productId, e.getMessage());
+            return new HashSet<>(cartItemRepository.findCartIdsByProductId(productId));
+        }
+
+        return rebuild(productId);
+    }
+
+    // Carts added while the database is read go into the set through add() as well, so the union is complete
+    private Set<String> rebuild(Long productId) {
+        List<String> cartIds = cartItemRepository.findCartIdsByProductId(productId);
+        log.debug("Rebuilding cart index for product {} with {} cart(s)", productId, cartIds.size());
+
+        List<String> members = new ArrayList<>(cartIds);
+        members.add(COMPLETE);
+        redisTemplate.opsForSet().add(key(productId), members.toArray(new String[0]));
+        return new HashSet<>(cartIds);
+    }
+
+    private String key(Long productId) {
+        return KEY_PREFIX + productId;
+    }
+}
@@ -2,6 +2,7 @@ package com.ecommerce.cartservice.service;
 
 import com.ecommerce.cartservice.dto.CartItemRequest;
 import com.ecommerce.cartservice.dto.CartResponse;
+import com.ecommerce.cartservice.event.ProductEvent;
 
 public interface CartService {
 
@@ -47,4 +48,12 @@ public interface CartService {
      * @param userId The ID of the user
      */
     void clearCart(Long userId);
+
+    /**
+     * Patches the denormalized product details in every cart holding the product
+     *
+     * @param event The latest product snapshot
+     * @return The number of carts patched
+     */
+    int refreshProductDetails(ProductEvent event);
 }
\ No newline at end of file
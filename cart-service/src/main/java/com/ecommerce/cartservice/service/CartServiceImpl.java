@@ -3,19 +3,26 @@ package com.ecommerce.cartservice.service;
 import com.ecommerce.cartservice.dto.CartItemRequest;
 import com.ecommerce.cartservice.dto.CartItemResponse;
 import com.ecommerce.cartservice.dto.CartResponse;
+import com.ecommerce.cartservice.dto.CartRowProjection;
 import com.ecommerce.cartservice.entity.Cart;
 import com.ecommerce.cartservice.entity.CartItem;
+import com.ecommerce.cartservice.event.ProductEvent;
 import com.ecommerce.cartservice.exception.ResourceNotFoundException;
+import com.ecommerce.cartservice.repository.CartItemRepository;
 import com.ecommerce.cartservice.repository.CartRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -24,18 +31,28 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CartServiceImpl implements CartService {
 
+    private static final int REFRESH_CHUNK_SIZE = 500;
+
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
     private final ProductServiceClient productServiceClient;
+    private final CartProductIndex cartProductIndex;
+    private final CartCacheVersions cartCacheVersions;
 
     @Override
-    @Transactional(readOnly = true)
+    @Cacheable(value = "carts", key = "#userId + ':' + @cartCacheVersions.current(#userId)")
     public CartResponse getCartByUserId(Long userId) {
         log.debug("Getting cart for user ID: {}", userId);
 
-        // Find cart or create a new one if not exists
-        Cart cart = findOrCreateCart(userId);
+        // Flat projection read: no entities, no lazy items query, and no cart created on a miss
+        List<CartRowProjection> rows = cartRepository.findCartRowsByUserId(userId);
+
+        if (rows.isEmpty()) {
+            log.debug("No cart found for user ID: {}, returning an empty cart", userId);
+            return emptyCartResponse(userId);
+        }
 
-        return mapToCartResponse(cart);
+        return mapToCartResponse(rows);
     }
 
     @Override
@@ -43,6 +60,7 @@ public class CartServiceImpl implements CartService {
     public CartResponse addItemToCart(Long userId, CartItemRequest request) {
         log.debug("Adding item to cart for user ID: {} - Product ID: {}, Quantity: {}",
                 userId, request.getProductId(), request.getQuantity());
+        cartCacheVersions.bumpAfterCommit(userId);
 
         // Find cart or create a new one if not exists
         Cart cart = findOrCreateCart(userId);
@@ -71,6 +89,7 @@ public class CartServiceImpl implements CartService {
             newItem.setQuantity(request.getQuantity());
 
             cart.getItems().add(newItem);
+            cartProductIndex.add(request.getProductId(), cart.getId());
             log.debug("Added new item to cart: {}", newItem);
         }
 
@@ -89,6 +108,7 @@ public class CartServiceImpl implements CartService {
     public CartResponse updateItemQuantity(Long userId, Long productId, int quantity) {
         log.debug("Updating item quantity for user ID: {} - Product ID: {}, New Quantity: {}",
                 userId, productId, quantity);
+        cartCacheVersions.bumpAfterCommit(userId);
 
         // Validate quantity
         if (quantity <= 0) {
@@ -122,6 +142,7 @@ public class CartServiceImpl implements CartService {
     @Transactional
     public CartResponse removeItemFromCart(Long userId, Long productId) {
         log.debug("Removing item from cart for user ID: {} - Product ID: {}", userId, productId);
+        cartCacheVersions.bumpAfterCommit(userId);
 
         // Get user's cart
         Cart cart = getCartOrThrow(userId);
@@ -133,6 +154,7 @@ public class CartServiceImpl implements CartService {
             log.warn("Item with product ID {} not found in cart", productId);
             throw new ResourceNotFoundException("Item with product ID " + productId + " not found in cart");
         }
+        cartProductIndex.removeAfterCommit(productId, cart.getId());
 
         // Update cart totals
         updateCartTotals(cart);
@@ -148,6 +170,7 @@ public class CartServiceImpl implements CartService {
     @Transactional
     public void clearCart(Long userId) {
         log.debug("Clearing cart for user ID: {}", userId);
+        cartCacheVersions.bumpAfterCommit(userId);
 
         // Find the user's cart
         Optional<Cart> cartOptional = cartRepository.findByUserId(userId);
@@ -156,6 +179,8 @@ public class CartServiceImpl implements CartService {
             Cart cart = cartOptional.get();
 
             // Clear all items
+            cartProductIndex.removeAfterCommit(cart.getItems().stream().map(CartItem::getProductId).toList(),
+                    cart.getId());
             cart.getItems().clear();
 
             // Update totals
@@ -169,6 +194,33 @@ public class CartServiceImpl implements CartService {
         }
     }
 
+    @Override
+    @Transactional
+    public int refreshProductDetails(ProductEvent event) {
+        Long productId = event.getProductId();
+        Set<String> cartIds = cartProductIndex.getCartIds(productId);
+
+        if (cartIds.isEmpty()) {
+            return 0;
+        }
+
+        log.debug("Refreshing product {} in {} cart(s)", productId, cartIds.size());
+
+        boolean available = event.isAvailable() && !ProductEvent.PRODUCT_DELETED.equals(event.getEventType());
+
+        // Chunk the IN list so a popular product doesn't produce one enormous statement
+        List<String> ids = new ArrayList<>(cartIds);
+        for (int from = 0; from < ids.size(); from += REFRESH_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + REFRESH_CHUNK_SIZE, ids.size()));
+            cartItemRepository.updateProductDetails(productId, chunk,
+                    event.getName(), event.getImageUrl(), event.getPrice(), available);
+            cartRepository.recalculateTotals(chunk);
+            cartCacheVersions.bumpAfterCommit(cartRepository.findUserIdsByIdIn(chunk));
+        }
+
+        return cartIds.size();
+    }
+
     // Helper methods
 
     private Cart findOrCreateCart(Long userId) {
@@ -193,13 +245,15 @@ public class CartServiceImpl implements CartService {
     }
 
     private void updateCartTotals(Cart cart) {
-        // Calculate total price
+        // Calculate total price (unavailable items can't be checked out, so they don't count)
         BigDecimal totalPrice = cart.getItems().stream()
+                .filter(CartItem::isAvailable)
                 .map(item -> item.getPrice().multiply(new BigDecimal(item.getQuantity())))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         // Calculate total items
         int totalItems = cart.getItems().stream()
+                .filter(CartItem::isAvailable)
                 .mapToInt(CartItem::getQuantity)
                 .sum();
 
@@ -225,6 +279,47 @@ public class CartServiceImpl implements CartService {
         return response;
     }
 
+    private CartResponse mapToCartResponse(List<CartRowProjection> rows) {
+        CartRowProjection cart = rows.get(0);
+
+        CartResponse response = new CartResponse();
+        response.setId(cart.getCartId());
+        response.setUserId(cart.getUserId());
+        response.setTotalPrice(cart.getTotalPrice());
+        response.setTotalItems(cart.getTotalItems());
+        response.setCreatedAt(cart.getCreatedAt());
+        response.setUpdatedAt(cart.getUpdatedAt());
+
+        // An empty cart comes back as one row with null item columns
+        response.setItems(rows.stream()
+                .filter(row -> row.getProductId() != null)
+                .map(this::mapToCartItemResponse)
+                .collect(Collectors.toSet()));
+
+        return response;
+    }
+
+    private CartItemResponse mapToCartItemResponse(CartRowProjection row) {
+        CartItemResponse response = new CartItemResponse();
+        response.setProductId(row.getProductId());
+        response.setProductName(row.getProductName());
+        response.setProductImage(row.getProductImage());
+        response.setPrice(row.getPrice());
+        response.setQuantity(row.getQuantity());
+        response.setAvailable(Boolean.TRUE.equals(row.getAvailable()));
+        response.setSubtotal(row.getPrice().multiply(new BigDecimal(row.getQuantity())));
+        return response;
+    }
+
+    private CartResponse emptyCartResponse(Long userId) {
+        CartResponse response = new CartResponse();
+        response.setUserId(userId);
+        response.setItems(new HashSet<>());
+        response.setTotalPrice(BigDecimal.ZERO);
+        response.setTotalItems(0);
+        return response;
+    }
+
     private CartItemResponse mapToCartItemResponse(CartItem item) {
         CartItemResponse response = new CartItemResponse();
         response.setProductId(item.getProductId());
@@ -232,6 +327,7 @@ public class CartServiceImpl implements CartService {
         response.setProductImage(item.getProductImage());
         response.setPrice(item.getPrice());
         response.setQuantity(item.getQuantity());
+        response.setAvailable(item.isAvailable());
 
         // Calculate subtotal
         BigDecimal subtotal = item.getPrice().multiply(new BigDecimal(item.getQuantity()));
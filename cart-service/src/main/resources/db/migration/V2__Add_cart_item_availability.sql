@@ -0,0 +1,3 @@
+ALTER TABLE cart_items ADD COLUMN available BOOLEAN NOT NULL DEFAULT TRUE;
+
+CREATE INDEX idx_cart_items_product_id ON cart_items(product_id);
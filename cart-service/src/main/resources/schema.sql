@@ -15,5 +15,6 @@ CREATE TABLE IF NOT EXISTS cart_items (
   product_image VARCHAR(255),
   price NUMERIC(10, 2) NOT NULL,
   quantity INTEGER NOT NULL,
+  available BOOLEAN NOT NULL DEFAULT TRUE,
   CONSTRAINT fk_cart FOREIGN KEY (cart_id) REFERENCES carts(id)
 );
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.ecommerce.cartservice.service;
+
+import com.ecommerce.cartservice.repository.CartItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The product index may hold stale carts but must never miss one: a set is only trusted once it has
+ * been rebuilt from the database, a cart is only unindexed once the removal of its item has committed,
+ * and a cart that could not be indexed sends the next read back to the database.
+ */
+class CartProductIndexTest {
+
+    private static final String KEY = "cart:product-index:7";
+
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, String> setOperations = mock(SetOperations.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+    private final CartProductIndex index = new CartProductIndex(redisTemplate, cartItemRepository);
+
+    {
+        given(redisTemplate.opsForSet()).willReturn(setOperations);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void aCompleteSetIsTrusted() {
+        given(setOperations.members(KEY)).willReturn(new HashSet<>(Set.of("*", "cart-1", "cart-2")));
+
+        assertThat(index.getCartIds(7L)).containsExactlyInAnyOrder("cart-1", "cart-2");
+        verify(cartItemRepository, never()).findCartIdsByProductId(any());
+    }
+
+    @Test
+    void aSetWithoutTheMarkerIsRebuiltFromTheDatabase() {
+        // Indexed as an item was added, but cart-2 held the product before the index existed
+        given(setOperations.members(KEY)).willReturn(new HashSet<>(Set.of("cart-1")));
+        given(cartItemRepository.findCartIdsByProductId(7L)).willReturn(List.of("cart-1", "cart-2"));
+
+        assertThat(index.getCartIds(7L)).containsExactlyInAnyOrder("cart-1", "cart-2");
+        verify(setOperations).add(KEY, "cart-1", "cart-2", "*");
+    }
+
+    @Test
+    void aFailedAddDropsTheSetSoTheNextReadRebuildsIt() {
+        given(setOperations.add(KEY, "cart-3")).willThrow(new RedisConnectionFailureException("Connection lost"));
+
+        index.add(7L, "cart-3");
+
+        verify(redisTemplate).delete(KEY);
+    }
+
+    @Test
+    void removalsWaitForTheCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.removeAfterCommit(List.of(7L, 8L), "cart-1");
+
+        verify(setOperations, never()).remove(anyString(), any());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(setOperations).remove(KEY, "cart-1");
+        verify(setOperations).remove("cart:product-index:8", "cart-1");
+    }
+
+    @Test
+    void removalsAreDroppedOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.removeAfterCommit(7L, "cart-1");
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verify(setOperations, never()).remove(anyString(), any());
+    }
+
+    @Test
+    void removalsOutsideATransactionAreImmediate() {
+        index.removeAfterCommit(7L, "cart-1");
+
+        verify(setOperations).remove(KEY, "cart-1");
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.cartservice.service;
+
+import com.ecommerce.cartservice.event.ProductEvent;
+import com.ecommerce.cartservice.repository.CartItemRepository;
+import com.ecommerce.cartservice.repository.CartRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * A product change is patched only into the carts the product index lists, in chunks, with their
+ * totals recalculated and their cached carts invalidated once the patch commits.
+ */
+class CartServiceImplTest {
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+    private final CartProductIndex cartProductIndex = mock(CartProductIndex.class);
+    private final CartCacheVersions cartCacheVersions = mock(CartCacheVersions.class);
+    private final CartServiceImpl cartService = new CartServiceImpl(cartRepository, cartItemRepository,
+            mock(ProductServiceClient.class), cartProductIndex, cartCacheVersions);
+
+    @Test
+    void productChangesArePatchedIntoTheIndexedCarts() {
+        given(cartProductIndex.getCartIds(7L)).willReturn(Set.of("cart-1", "cart-2"));
+        given(cartRepository.findUserIdsByIdIn(anyCollection())).willReturn(List.of(11L, 12L));
+
+        int refreshed = cartService.refreshProductDetails(event(ProductEvent.PRODUCT_UPDATED, true));
+
+        assertThat(refreshed).isEqualTo(2);
+        ArgumentCaptor<Collection<String>> patched = chunkCaptor();
+        verify(cartItemRepository).updateProductDetails(eq(7L), patched.capture(),
+                eq("Desk Lamp"), eq("lamp.png"), eq(new BigDecimal("19.99")), eq(true));
+        assertThat(patched.getValue()).containsExactlyInAnyOrder("cart-1", "cart-2");
+        verify(cartRepository).recalculateTotals(patched.getValue());
+        verify(cartCacheVersions).bumpAfterCommit(List.of(11L, 12L));
+    }
+
+    @Test
+    void deletedProductsAreMarkedUnavailable() {
+        given(cartProductIndex.getCartIds(7L)).willReturn(Set.of("cart-1"));
+
+        cartService.refreshProductDetails(event(ProductEvent.PRODUCT_DELETED, true));
+
+        verify(cartItemRepository).updateProductDetails(eq(7L), anyCollection(), any(), any(), any(), eq(false));
+    }
+
+    @Test
+    void popularProductsArePatchedInChunks() {
+        Set<String> cartIds = IntStream.range(0, 1200).mapToObj(i -> "cart-" + i).collect(Collectors.toSet());
+        given(cartProductIndex.getCartIds(7L)).willReturn(cartIds);
+
+        assertThat(cartService.refreshProductDetails(event(ProductEvent.PRODUCT_UPDATED, true))).isEqualTo(1200);
+
+        ArgumentCaptor<Collection<String>> chunks = chunkCaptor();
+        verify(cartItemRepository, times(3)).updateProductDetails(eq(7L), chunks.capture(), any(), any(), any(), eq(true));
+        assertThat(chunks.getAllValues()).extracting(Collection::size).containsExactly(500, 500, 200);
+        assertThat(chunks.getAllValues().stream().flatMap(Collection::stream)).containsExactlyInAnyOrderElementsOf(cartIds);
+        verify(cartRepository, times(3)).recalculateTotals(anyCollection());
+    }
+
+    @Test
+    void productsInNoCartTouchNothing() {
+        given(cartProductIndex.getCartIds(7L)).willReturn(Set.of());
+
+        assertThat(cartService.refreshProductDetails(event(ProductEvent.PRODUCT_UPDATED, true))).isZero();
+
+        verify(cartItemRepository, never()).updateProductDetails(any(), anyCollection(), any(), any(), any(), eq(true));
+        verifyNoInteractions(cartRepository, cartCacheVersions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Collection<String>> chunkCaptor() {
+        return ArgumentCaptor.forClass(Collection.class);
+    }
+
+    private static ProductEvent event(String type, boolean available) {
+        return new ProductEvent("event-1", type, LocalDateTime.now(), 7L, "Desk Lamp", "lamp.png",
+                new BigDecimal("19.99"), 3, available);
+    }
+}
@@ -0,0 +1,143 @@
+package com.ecommerce.cartservice.service;
+
+import com.ecommerce.cartservice.config.WebClientConfig;
+import com.ecommerce.cartservice.dto.ProductResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Blocking product lookups against a product service that answers slowly, made from a
+ * Tomcat-sized pool of platform threads and from virtual threads, the two request thread
+ * modes of spring.threads.virtual.enabled. With virtual threads the calls only wait on the
+ * latency, not on a free request thread, and no platform thread is held per call.
+ */
+class ProductServiceClientLoadTest {
+
+    // Tomcat's default server.tomcat.threads.max
+    private static final int PLATFORM_REQUEST_THREADS = 200;
+
+    private static final int REQUESTS = 400;
+    private static final Duration DOWNSTREAM_LATENCY = Duration.ofSeconds(1);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private DisposableServer productService;
+    private ProductServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        // Answers after the latency without holding a thread, so the stub itself is never the bottleneck
+        productService = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/api/products/{id}", (request, response) -> {
+                    String id = request.param("id");
+                    String body = "{\"id\":" + id + ",\"name\":\"Stub " + id + "\",\"price\":9.99,"
+                            + "\"stockQuantity\":5,\"active\":true}";
+                    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.delay(DOWNSTREAM_LATENCY).thenReturn(body)
+                                    .doFinally(signal -> inFlight.decrementAndGet()));
+                }))
+                .bindNow();
+
+        WebClientConfig webClientConfig = new WebClientConfig();
+        ReflectionTestUtils.setField(webClientConfig, "connectTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(webClientConfig, "responseTimeout", Duration.ofSeconds(5));
+        ProductServiceClientImpl clientImpl = new ProductServiceClientImpl(webClientConfig.webClientBuilder());
+        ReflectionTestUtils.setField(clientImpl, "productServiceUrl",
+                "http://localhost:" + productService.port());
+        client = clientImpl;
+    }
+
+    @AfterEach
+    void tearDown() {
+        productService.disposeNow();
+    }
+
+    @Test
+    void aPlatformPoolCapsTheCallsWaitingOnTheDownstreamAndVirtualThreadsDoNot() throws Exception {
+        warmUp();
+
+        Result platform = run(Executors.newFixedThreadPool(PLATFORM_REQUEST_THREADS), REQUESTS);
+        Result virtual = run(Executors.newVirtualThreadPerTaskExecutor(), REQUESTS);
+
+        assertThat(platform.peakInFlight()).isLessThanOrEqualTo(PLATFORM_REQUEST_THREADS);
+        assertThat(virtual.peakInFlight()).isGreaterThan(PLATFORM_REQUEST_THREADS);
+    }
+
+    // Wall-clock and live thread counts depend on the machine, so this only runs with -Pbenchmark
+    @Test
+    @Tag("benchmark")
+    void virtualThreadsOutrunABoundedPlatformPoolUnderDownstreamLatency() throws Exception {
+        warmUp();
+
+        Result platform = run(Executors.newFixedThreadPool(PLATFORM_REQUEST_THREADS), REQUESTS);
+        Result virtual = run(Executors.newVirtualThreadPerTaskExecutor(), REQUESTS);
+
+        assertThat(virtual.throughput()).isGreaterThan(platform.throughput());
+        // Parked virtual threads don't hold platform threads
+        assertThat(virtual.peakThreads()).isLessThan(platform.peakThreads() - PLATFORM_REQUEST_THREADS / 2);
+    }
+
+    // Opens the connections and loads the codecs so neither mode pays for them
+    private void warmUp() throws Exception {
+        run(Executors.newVirtualThreadPerTaskExecutor(), PLATFORM_REQUEST_THREADS);
+    }
+
+    private Result run(ExecutorService requestThreads, int requests) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        AtomicInteger peakThreads = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        peakInFlight.set(0);
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (running.get()) {
+                peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long startedAt = System.nanoTime();
+        List<Future<ProductResponse>> calls = new ArrayList<>();
+        for (long id = 1; id <= requests; id++) {
+            long productId = id;
+            calls.add(requestThreads.submit(() -> client.getProductById(productId)));
+        }
+        for (int i = 0; i < calls.size(); i++) {
+            // The client falls back to a mock product on errors; only real answers count
+            assertThat(calls.get(i).get().getName()).isEqualTo("Stub " + (i + 1));
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        running.set(false);
+        sampler.join();
+        requestThreads.shutdown();
+        return new Result(requests * 1e9 / elapsedNanos, peakInFlight.get(), peakThreads.get());
+    }
+
+    private record Result(double throughput, int peakInFlight, int peakThreads) {
+    }
+}
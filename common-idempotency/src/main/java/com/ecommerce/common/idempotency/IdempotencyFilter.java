@@ -0,0 +1,309 @@
+package com.ecommerce.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Makes {@link Idempotent} endpoints safe to retry. For a request with an Idempotency-Key header:
+ * <ol>
+ *   <li>a stored response for the user and key is replayed if the request fingerprint (method,
+ *       path, query and body) matches, and rejected with 422 if it does not;</li>
+ *   <li>otherwise the key is locked in Redis while the handler runs, so a concurrent retry gets 409
+ *       instead of a second order or payment;</li>
+ *   <li>the handler's response replaces the lock unless it is a server error, which stays retryable.</li>
+ * </ol>
+ * Runs after Spring Security, so the user is known and unauthenticated requests never get here.
+ * If Redis is unavailable, requests go through without idempotency rather than failing.
+ * <p>
+ * Not a component: each service declares it with how to find the user ID in its principal and
+ * how to shape its error responses.
+ */
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final RequestMappingHandlerMapping handlerMapping;
+    private final ObjectMapper objectMapper;
+    private final Function<Authentication, Long> userIdResolver;
+    private final ErrorBodyFactory errorBodyFactory;
+
+    private final Counter replayedCounter;
+    private final Counter conflictCounter;
+
+    /**
+     * Builds the body of the errors this filter answers with, in the service's error format
+     */
+    @FunctionalInterface
+    public interface ErrorBodyFactory {
+        Object create(HttpStatus status, String message, String path);
+    }
+
+    /**
+     * @param handlerMapping Resolves the handler of a request; pass a lazy reference, since filters
+     *                       are created before the MVC infrastructure
+     * @param userIdResolver The user ID of an authenticated request, or null if it has none
+     */
+    public IdempotencyFilter(IdempotencyStore idempotencyStore,
+                             RequestMappingHandlerMapping handlerMapping,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             Function<Authentication, Long> userIdResolver,
+                             ErrorBodyFactory errorBodyFactory) {
+        this.idempotencyStore = idempotencyStore;
+        this.handlerMapping = handlerMapping;
+        this.objectMapper = objectMapper;
+        this.userIdResolver = userIdResolver;
+        this.errorBodyFactory = errorBodyFactory;
+
+        this.replayedCounter = Counter.builder("idempotency.replayed")
+                .description("Retried requests answered with the stored response")
+                .register(meterRegistry);
+        this.conflictCounter = Counter.builder("idempotency.conflict")
+                .description("Requests rejected because their key was in flight or reused with another request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(HEADER) == null || !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        if (!isIdempotentEndpoint(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String idempotencyKey = request.getHeader(HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST,
+                    HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        // 1. Buffer the body so it can be fingerprinted and still be read by the handler
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(cachedRequest);
+        String scope = IdempotencyStore.scope(currentUserId(), idempotencyKey);
+
+        // 2. Replay a completed request, or take the key; one atomic step, so a retry can't slip
+        // between the first attempt storing its response and releasing its lock
+        String lockToken = UUID.randomUUID().toString();
+        try {
+            IdempotencyStore.Claim claim = idempotencyStore.claim(scope, lockToken);
+            if (claim.storedResponse() != null) {
+                replay(request, response, claim.storedResponse(), fingerprint);
+                return;
+            }
+            if (!claim.lockAcquired()) {
+                conflictCounter.increment();
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                writeError(request, response, HttpStatus.CONFLICT,
+                        "A request with this " + HEADER + " is still being processed");
+                return;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Idempotency store unavailable, processing {} {} without it",
+                    request.getMethod(), request.getRequestURI(), e);
+            filterChain.doFilter(cachedRequest, response);
+            return;
+        }
+
+        // 3. Run the handler and keep its response for retries
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(cachedRequest, cachingResponse);
+            if (cachingResponse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                completed = idempotencyStore.complete(scope, lockToken, new IdempotencyStore.StoredResponse(
+                        fingerprint,
+                        cachingResponse.getStatus(),
+                        cachingResponse.getContentType(),
+                        cachingResponse.getHeader(HttpHeaders.LOCATION),
+                        cachingResponse.getContentAsByteArray()));
+                if (!completed) {
+                    log.warn("Idempotency lock for {} {} expired before the response was stored",
+                            request.getMethod(), request.getRequestURI());
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not store idempotent response for {} {}", request.getMethod(), request.getRequestURI(), e);
+        } finally {
+            // Server errors and failures stay retryable
+            if (!completed) {
+                try {
+                    idempotencyStore.release(scope, lockToken);
+                } catch (DataAccessException e) {
+                    log.warn("Could not release idempotency lock; it expires on its own", e);
+                }
+            }
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private void replay(HttpServletRequest request, HttpServletResponse response,
+                        IdempotencyStore.StoredResponse stored, String fingerprint) throws IOException {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            conflictCounter.increment();
+            writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used with a different request");
+            return;
+        }
+
+        replayedCounter.increment();
+        log.debug("Replaying stored response for {} {}", request.getMethod(), request.getRequestURI());
+        response.setStatus(stored.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private boolean isIdempotentEndpoint(HttpServletRequest request) {
+        try {
+            HandlerExecutionChain chain = handlerMapping.getHandler(request);
+            return chain != null && chain.getHandler() instanceof HandlerMethod handlerMethod
+                    && handlerMethod.hasMethodAnnotation(Idempotent.class);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response,
+                            HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                errorBodyFactory.create(status, message, request.getRequestURI()));
+    }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? userIdResolver.apply(authentication) : null;
+    }
+
+    private static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (request.getQueryString() != null) {
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            digest.update(request.body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Request whose body has been read into memory and can be read again
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The body is already in memory, so an async reader is told at once that all of it is available
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    if (!isAsyncStarted()) {
+                        throw new IllegalStateException("Non-blocking reads require an async request");
+                    }
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encoding)));
+        }
+    }
+}
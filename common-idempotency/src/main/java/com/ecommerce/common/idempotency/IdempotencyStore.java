@@ -0,0 +1,134 @@
+package com.ecommerce.common.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Redis storage for idempotent requests. One key per service, user and Idempotency-Key holds the
+ * lock of the attempt in flight, and is then overwritten with its response for replay. Claiming,
+ * completing and releasing are single scripts, so a retry either finds the lock, finds the response
+ * or takes the key: there is no gap in which it sees neither and runs the handler a second time.
+ * <p>
+ * Not a component: each service declares it with its own application name and TTLs.
+ */
+public class IdempotencyStore {
+
+    // Lock values carry the token of the attempt holding them; responses are JSON objects
+    private static final String LOCK_PREFIX = "in-flight:";
+
+    // Returns the current value, or takes the lock and returns nil if there is none
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('get', KEYS[1]) " +
+                    "if current then return current end " +
+                    "redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+                    "return nil",
+            String.class);
+
+    // Replaces the lock with the response only if this attempt still holds it, not a later one that took over after expiry
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "redis.call('set', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final Duration lockTtl;
+    private final Duration responseTtl;
+
+    public record StoredResponse(String fingerprint, int status, String contentType, String location, byte[] body) {
+    }
+
+    /**
+     * Outcome of claiming a key
+     *
+     * @param lockAcquired Whether this attempt took the lock and should run the handler
+     * @param storedResponse The response of the completed request with this key, or null
+     */
+    public record Claim(boolean lockAcquired, StoredResponse storedResponse) {
+
+        public static Claim acquired() {
+            return new Claim(true, null);
+        }
+
+        public static Claim inFlight() {
+            return new Claim(false, null);
+        }
+
+        public static Claim completed(StoredResponse storedResponse) {
+            return new Claim(false, storedResponse);
+        }
+    }
+
+    public IdempotencyStore(StringRedisTemplate redisTemplate,
+                            ObjectMapper objectMapper,
+                            String applicationName,
+                            Duration lockTtl,
+                            Duration responseTtl) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = "idempotency:" + applicationName + ":";
+        this.lockTtl = lockTtl;
+        this.responseTtl = responseTtl;
+    }
+
+    /**
+     * Takes the key for a request, unless another request with it is in flight or has completed
+     *
+     * @param scope The user and key, see {@link #scope(Long, String)}
+     * @param lockToken Random per attempt, so identical retries never release each other's lock
+     */
+    public Claim claim(String scope, String lockToken) {
+        String current = redisTemplate.execute(CLAIM_SCRIPT, List.of(keyPrefix + scope),
+                LOCK_PREFIX + lockToken, String.valueOf(lockTtl.toMillis()));
+        if (current == null) {
+            return Claim.acquired();
+        }
+        if (current.startsWith(LOCK_PREFIX)) {
+            return Claim.inFlight();
+        }
+        try {
+            return Claim.completed(objectMapper.readValue(current, StoredResponse.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable idempotent response for " + scope, e);
+        }
+    }
+
+    /**
+     * Stores the response of a claimed request in place of its lock
+     *
+     * @return false if the lock expired and the key was taken by another attempt meanwhile
+     */
+    public boolean complete(String scope, String lockToken, StoredResponse response) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store idempotent response for " + scope, e);
+        }
+        Long replaced = redisTemplate.execute(COMPLETE_SCRIPT, List.of(keyPrefix + scope),
+                LOCK_PREFIX + lockToken, json, String.valueOf(responseTtl.toMillis()));
+        return Long.valueOf(1).equals(replaced);
+    }
+
+    /**
+     * Frees the key of a claimed request that stored no response, so it can be retried
+     */
+    public void release(String scope, String lockToken) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(keyPrefix + scope), LOCK_PREFIX + lockToken);
+    }
+
+    public static String scope(Long userId, String idempotencyKey) {
+        return (userId != null ? userId : "anonymous") + ":" + idempotencyKey;
+    }
+}
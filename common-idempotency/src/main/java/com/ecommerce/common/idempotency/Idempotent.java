@@ -0,0 +1,18 @@
+package com.ecommerce.common.idempotency;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller method whose requests may carry an Idempotency-Key header. A retry with the
+ * same key and the same request gets the stored response of the first attempt instead of running
+ * the handler again. See {@link IdempotencyFilter}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+}
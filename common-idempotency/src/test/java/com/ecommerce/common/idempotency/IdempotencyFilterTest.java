@@ -0,0 +1,276 @@
+package com.ecommerce.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTest {
+
+    private static final String SCOPE = IdempotencyStore.scope(null, "key-1");
+
+    private IdempotencyStore idempotencyStore;
+    private RequestMappingHandlerMapping handlerMapping;
+    private IdempotencyFilter filter;
+
+    static class Handler {
+        @Idempotent
+        public void create() {
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        idempotencyStore = mock(IdempotencyStore.class);
+        handlerMapping = mock(RequestMappingHandlerMapping.class);
+        when(handlerMapping.getHandler(any()))
+                .thenReturn(new HandlerExecutionChain(new HandlerMethod(new Handler(), "create")));
+
+        filter = new IdempotencyFilter(idempotencyStore, handlerMapping, new ObjectMapper(), new SimpleMeterRegistry(),
+                authentication -> null,
+                (status, message, path) -> Map.of("status", status.value(), "message", message));
+    }
+
+    @Test
+    void storesTheFirstResponseAndReplaysItToARetry() throws Exception {
+        when(idempotencyStore.claim(eq(SCOPE), anyString())).thenReturn(IdempotencyStore.Claim.acquired());
+        when(idempotencyStore.complete(eq(SCOPE), anyString(), any())).thenReturn(true);
+        AtomicInteger handled = new AtomicInteger();
+        FilterChain handler = (request, response) -> {
+            handled.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(HttpStatus.CREATED.value());
+            response.getOutputStream().write("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request("{\"amount\":10}"), first, handler);
+
+        ArgumentCaptor<IdempotencyStore.StoredResponse> stored = ArgumentCaptor.forClass(IdempotencyStore.StoredResponse.class);
+        verify(idempotencyStore).complete(eq(SCOPE), anyString(), stored.capture());
+        verify(idempotencyStore, never()).release(any(), any());
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getContentAsString()).isEqualTo("{\"id\":1}");
+
+        when(idempotencyStore.claim(eq(SCOPE), anyString()))
+                .thenReturn(IdempotencyStore.Claim.completed(stored.getValue()));
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("{\"amount\":10}"), retry, handler);
+
+        assertThat(handled).hasValue(1);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getContentAsString()).isEqualTo("{\"id\":1}");
+    }
+
+    @Test
+    void rejectsTheKeyReusedWithAnotherBody() throws Exception {
+        when(idempotencyStore.claim(eq(SCOPE), anyString())).thenReturn(IdempotencyStore.Claim.completed(
+                new IdempotencyStore.StoredResponse("other-fingerprint", 201, null, null, new byte[0])));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("{\"amount\":99}"), response, (req, res) -> {
+            throw new AssertionError("handler must not run");
+        });
+
+        assertThat(response.getStatus()).isEqualTo(422);
+        assertThat(response.getContentAsString()).contains("already used with a different request");
+    }
+
+    @Test
+    void rejectsARetryWhileTheFirstAttemptIsInFlight() throws Exception {
+        when(idempotencyStore.claim(eq(SCOPE), anyString())).thenReturn(IdempotencyStore.Claim.inFlight());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("{\"amount\":10}"), response, (req, res) -> {
+            throw new AssertionError("handler must not run");
+        });
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        verify(idempotencyStore, never()).complete(any(), any(), any());
+        verify(idempotencyStore, never()).release(any(), any());
+    }
+
+    @Test
+    void serverErrorsReleaseTheKeyForARetry() throws Exception {
+        when(idempotencyStore.claim(eq(SCOPE), anyString())).thenReturn(IdempotencyStore.Claim.acquired());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("{\"amount\":10}"), response,
+                (req, res) -> ((HttpServletResponse) res).setStatus(HttpStatus.SERVICE_UNAVAILABLE.value()));
+
+        ArgumentCaptor<String> claimedWith = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyStore).claim(eq(SCOPE), claimedWith.capture());
+        verify(idempotencyStore).release(SCOPE, claimedWith.getValue());
+        verify(idempotencyStore, never()).complete(any(), any(), any());
+        assertThat(response.getStatus()).isEqualTo(503);
+    }
+
+    @Test
+    void identicalRetriesLockWithTheirOwnToken() throws Exception {
+        when(idempotencyStore.claim(eq(SCOPE), anyString())).thenReturn(IdempotencyStore.Claim.acquired());
+        FilterChain failing = (req, res) -> ((HttpServletResponse) res).setStatus(HttpStatus.BAD_GATEWAY.value());
+
+        filter.doFilter(request("{\"amount\":10}"), new MockHttpServletResponse(), failing);
+        filter.doFilter(request("{\"amount\":10}"), new MockHttpServletResponse(), failing);
+
+        // Same fingerprint, but an attempt whose lock expired can't release the next attempt's lock
+        ArgumentCaptor<String> claimedWith = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyStore, times(2)).claim(eq(SCOPE), claimedWith.capture());
+        assertThat(claimedWith.getAllValues()).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void aRetryArrivingAsTheFirstAttemptCompletesReplaysItsResponse() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore();
+        IdempotencyFilter filter = new IdempotencyFilter(store, handlerMapping, new ObjectMapper(),
+                new SimpleMeterRegistry(), authentication -> null, (status, message, path) -> Map.of());
+        AtomicInteger handled = new AtomicInteger();
+        FilterChain handler = (request, response) -> {
+            handled.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(HttpStatus.CREATED.value());
+            response.getOutputStream().write("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        // The retry has seen nothing yet when the first attempt stores its response and gives up the key
+        store.beforeNextClaim = () -> {
+            try {
+                filter.doFilter(request("{\"amount\":10}"), new MockHttpServletResponse(), handler);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("{\"amount\":10}"), retry, handler);
+
+        assertThat(handled).hasValue(1);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getContentAsString()).isEqualTo("{\"id\":1}");
+    }
+
+    @Test
+    void asyncReadersGetTheBufferedBody() throws Exception {
+        when(idempotencyStore.claim(eq(SCOPE), anyString())).thenReturn(IdempotencyStore.Claim.acquired());
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicInteger allDataRead = new AtomicInteger();
+
+        MockHttpServletRequest request = request("{\"amount\":10}");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.startAsync();
+            ServletInputStream input = req.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (input.isReady() && !input.isFinished()) {
+                        read.write(input.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+        });
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"amount\":10}");
+        assertThat(allDataRead).hasValue(1);
+    }
+
+    @Test
+    void blockingRequestsCannotRegisterAReadListener() {
+        when(idempotencyStore.claim(eq(SCOPE), anyString())).thenReturn(IdempotencyStore.Claim.acquired());
+
+        assertThatThrownBy(() -> filter.doFilter(request("{}"), new MockHttpServletResponse(),
+                (req, res) -> req.getInputStream().setReadListener(mock(ReadListener.class))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/payments");
+        request.addHeader(IdempotencyFilter.HEADER, "key-1");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    /**
+     * The store's scripts over a map: each call is atomic, like a script in Redis
+     */
+    private static class InMemoryIdempotencyStore extends IdempotencyStore {
+
+        private final Map<String, Object> values = new HashMap<>();
+        private Runnable beforeNextClaim;
+
+        InMemoryIdempotencyStore() {
+            super(null, new ObjectMapper(), "test", Duration.ofMinutes(1), Duration.ofHours(1));
+        }
+
+        @Override
+        public Claim claim(String scope, String lockToken) {
+            Runnable hook = beforeNextClaim;
+            beforeNextClaim = null;
+            if (hook != null) {
+                hook.run();
+            }
+            synchronized (values) {
+                Object current = values.putIfAbsent(scope, lockToken);
+                if (current == null) {
+                    return Claim.acquired();
+                }
+                return current instanceof StoredResponse stored ? Claim.completed(stored) : Claim.inFlight();
+            }
+        }
+
+        @Override
+        public boolean complete(String scope, String lockToken, StoredResponse response) {
+            synchronized (values) {
+                return values.replace(scope, lockToken, response);
+            }
+        }
+
+        @Override
+        public void release(String scope, String lockToken) {
+            synchronized (values) {
+                values.remove(scope, lockToken);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.common.idgen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Monotonic, node-aware 64-bit ID generator in the Snowflake layout, rendered in Crockford base32.
+ * <p>
+ * An ID is 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node ID and 12 bits of sequence.
+ * The last timestamp and sequence are packed into one AtomicLong and advanced by CAS, so callers
+ * never block. When a millisecond's sequence runs out or the wall clock steps backwards, the
+ * generator keeps counting on a logical clock just ahead of the wall clock instead of waiting.
+ * <p>
+ * Encoded IDs have a fixed width of 13 characters, so they sort in generation order.
+ */
+public final class IdGenerator {
+
+    // 2024-01-01T00:00:00Z; 41 bits of milliseconds from here last until 2093
+    public static final long EPOCH = 1704067200000L;
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] CROCKFORD_ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last issued ID
+    private final AtomicLong lastState = new AtomicLong();
+
+    public IdGenerator(long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    public IdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /**
+     * Issues the next ID. IDs from one generator are strictly increasing; IDs from generators with
+     * different node IDs never collide.
+     */
+    public long nextId() {
+        long candidate = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        // A new millisecond starts at sequence 0; otherwise the sequence is bumped, carrying into the timestamp
+        long state = lastState.accumulateAndGet(candidate, (last, now) -> Math.max(now, last + 1));
+
+        long timestamp = state >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (state & SEQUENCE_MASK);
+    }
+
+    /**
+     * Issues the next ID encoded as {@code PREFIX-XXXXXXXXXXXXX}.
+     *
+     * @param prefix The ID prefix, e.g. ORD
+     */
+    public String next(String prefix) {
+        char[] chars = new char[prefix.length() + 1 + ENCODED_LENGTH];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        chars[prefix.length()] = '-';
+        encode(nextId(), chars, prefix.length() + 1);
+        return new String(chars);
+    }
+
+    /**
+     * Encodes an ID as 13 Crockford base32 characters.
+     */
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        encode(id, chars, 0);
+        return new String(chars);
+    }
+
+    private static void encode(long id, char[] chars, int offset) {
+        for (int i = offset + ENCODED_LENGTH - 1; i >= offset; i--) {
+            chars[i] = CROCKFORD_ALPHABET[(int) (id & 0x1F)];
+            id >>>= 5;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.ecommerce.common.idgen;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdGeneratorTest {
+
+    private static final int THREADS_PER_NODE = 4;
+    private static final int IDS_PER_THREAD = 250_000;
+
+    @Test
+    void idsFromConcurrentThreadsOnTwoNodesNeverCollide() throws Exception {
+        // A frozen clock forces every ID through sequence exhaustion and the logical clock
+        AtomicLong frozen = new AtomicLong(IdGenerator.EPOCH + 1_000);
+        List<IdGenerator> nodes = List.of(new IdGenerator(1, frozen::get), new IdGenerator(2, frozen::get));
+
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.size() * THREADS_PER_NODE);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> batches = new ArrayList<>();
+        try {
+            for (IdGenerator node : nodes) {
+                for (int t = 0; t < THREADS_PER_NODE; t++) {
+                    batches.add(executor.submit(() -> {
+                        long[] ids = new long[IDS_PER_THREAD];
+                        start.await();
+                        for (int i = 0; i < ids.length; i++) {
+                            ids[i] = node.nextId();
+                        }
+                        return ids;
+                    }));
+                }
+            }
+            start.countDown();
+
+            Set<Long> unique = new HashSet<>(batches.size() * IDS_PER_THREAD * 2);
+            for (Future<long[]> batch : batches) {
+                long[] ids = batch.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < ids.length; i++) {
+                    // Strictly increasing within a thread, since each thread observes one generator in order
+                    if (i > 0) {
+                        assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+                    }
+                    unique.add(ids[i]);
+                }
+            }
+            assertThat(unique).hasSize(batches.size() * IDS_PER_THREAD);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsIncreasingWhenTheClockStepsBack() {
+        AtomicLong clock = new AtomicLong(IdGenerator.EPOCH + 10_000);
+        IdGenerator generator = new IdGenerator(7, clock::get);
+
+        long before = generator.nextId();
+        clock.addAndGet(-5_000);
+        long after = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(nodeOf(after)).isEqualTo(7);
+    }
+
+    @Test
+    void encodedIdsHaveFixedWidthAndSortInGenerationOrder() {
+        IdGenerator generator = new IdGenerator(IdGenerator.MAX_NODE_ID);
+
+        String first = generator.next("ORD");
+        String second = generator.next("ORD");
+
+        assertThat(first).matches("ORD-[0-9A-HJKMNP-TV-Z]{13}");
+        assertThat(second).hasSameSizeAs(first);
+        assertThat(second).isGreaterThan(first);
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTheNodeBits() {
+        assertThatThrownBy(() -> new IdGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IdGenerator(IdGenerator.MAX_NODE_ID + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Wall-clock rates depend on the machine, so this only runs with -Pbenchmark
+    @Test
+    @Tag("benchmark")
+    void benchmarkSustainsAtLeastOneMillionIdsPerSecond() {
+        IdGenerator generator = new IdGenerator(1);
+        int warmup = 500_000;
+        int measured = 5_000_000;
+
+        long sink = 0;
+        for (int i = 0; i < warmup; i++) {
+            sink += generator.next("ORD").length();
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < measured; i++) {
+            sink += generator.next("ORD").length();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        double perSecond = measured / seconds;
+
+        assertThat(sink).isPositive();
+        // Generous floor, well below a single core's rate, so only a real regression (a lock, a sleep) trips it
+        assertThat(perSecond).isGreaterThan(1_000_000);
+    }
+
+    private static long nodeOf(long id) {
+        return (id >>> IdGenerator.SEQUENCE_BITS) & IdGenerator.MAX_NODE_ID;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.common.outbox;
+
+/**
+ * Event written in the same transaction as the change it describes and relayed to Kafka afterwards.
+ */
+public interface OutboxEvent {
+
+    Long getId();
+
+    // Kafka message key; all events of one aggregate land on the same partition
+    String getAggregateId();
+
+    String getEventType();
+
+    String getPayload();
+}
@@ -0,0 +1,180 @@
+package com.ecommerce.common.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Polls a service's outbox and publishes pending events to Kafka (at-least-once).
+ * <p>
+ * One instance relays at a time, holding a lease row it renews on every poll, which keeps
+ * per-aggregate ordering intact across nodes. No transaction or connection is held while Kafka
+ * answers: a poll leases and reads a batch in one short transaction, publishes, then marks what
+ * was acknowledged in another.
+ * <p>
+ * Not a component: each service declares one for its outbox table and topic.
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private final String name;
+    private final String topic;
+    private final OutboxStore<? extends OutboxEvent> outboxStore;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    // Longer than one poll can take with the producer's max.block.ms and delivery.timeout.ms
+    @Value("${outbox.relay.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${outbox.relay.retention-hours:72}")
+    private long retentionHours;
+
+    /**
+     * @param name The kind of event relayed, e.g. "order"; prefixes the metric names and keys the lease
+     * @param topic The topic events are published to
+     */
+    public OutboxRelay(String name,
+                       String topic,
+                       OutboxStore<? extends OutboxEvent> outboxStore,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry) {
+        this.name = name;
+        this.topic = topic;
+        this.outboxStore = outboxStore;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+
+        this.publishedCounter = Counter.builder(name + ".outbox.published")
+                .description("Events published to Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder(name + ".outbox.failed")
+                .description("Event sends that failed and will be retried")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder(name + ".outbox.batch")
+                .description("Time to publish one outbox batch")
+                .register(meterRegistry);
+        Gauge.builder(name + ".outbox.pending", pendingEvents, AtomicLong::get)
+                .description("Unpublished events")
+                .register(meterRegistry);
+        Gauge.builder(name + ".outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest unpublished event")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        // 1. Lease the outbox and read a batch; another instance holding the lease is relaying,
+        // and publishing from two nodes would break per-aggregate ordering
+        List<? extends OutboxEvent> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (outboxStore.acquireRelayLease(name, instanceId, now, now.plus(Duration.ofMillis(leaseMs))) == 0) {
+                return List.<OutboxEvent>of();
+            }
+            updateBacklogMetrics();
+            return outboxStore.findUnpublished(batchSize);
+        });
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        // 2. Publish outside any transaction
+        List<Long> publishedIds = batchTimer.record(() -> publish(batch));
+
+        // 3. Mark the acknowledged events; a crash before this republishes them, which consumers tolerate
+        if (!publishedIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxStore.markPublished(publishedIds, LocalDateTime.now()));
+            publishedCounter.increment(publishedIds.size());
+            log.debug("Relayed {} of {} {} events", publishedIds.size(), batch.size(), name);
+        }
+    }
+
+    @Scheduled(cron = "${outbox.relay.cleanup-cron:0 0 * * * *}")
+    @Transactional
+    public void purgePublished() {
+        int deleted = outboxStore.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            log.info("Purged {} published {} outbox events", deleted, name);
+        }
+    }
+
+    /**
+     * Sends the batch without waiting between records, then collects acknowledgements in order.
+     * Only the acknowledged prefix is returned, so a failed event and everything after it are retried
+     * on the next poll and never overtaken by a later event for the same aggregate. Sending stops at
+     * the first send that has already failed, so a broker that is down costs one max.block.ms, not
+     * one per record.
+     */
+    private List<Long> publish(List<? extends OutboxEvent> batch) {
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            CompletableFuture<SendResult<String, String>> send;
+            try {
+                send = kafkaTemplate.send(topic, event.getAggregateId(), event.getPayload());
+            } catch (Exception e) {
+                send = CompletableFuture.failedFuture(e);
+            }
+            sends.add(send);
+            if (send.isCompletedExceptionally()) {
+                break;
+            }
+        }
+
+        List<Long> publishedIds = new ArrayList<>(sends.size());
+        for (int i = 0; i < sends.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                sends.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                publishedIds.add(event.getId());
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                failedCounter.increment(batch.size() - i);
+                log.warn("Failed to publish {} event ID: {} ({}), retrying from here on next poll",
+                        name, event.getId(), event.getEventType(), e);
+                break;
+            }
+        }
+        return publishedIds;
+    }
+
+    private void updateBacklogMetrics() {
+        pendingEvents.set(outboxStore.countByPublishedAtIsNull());
+        LocalDateTime oldest = outboxStore.findOldestUnpublishedCreatedAt();
+        lagMillis.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis());
+    }
+}
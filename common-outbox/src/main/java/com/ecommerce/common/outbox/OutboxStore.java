@@ -0,0 +1,44 @@
+package com.ecommerce.common.outbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The queries {@link OutboxRelay} runs against a service's outbox table; implemented by the
+ * service's Spring Data repository.
+ *
+ * @param <E> The outbox entity
+ */
+public interface OutboxStore<E extends OutboxEvent> {
+
+    /**
+     * Takes or renews the relay lease so only one instance publishes at a time, which keeps
+     * per-aggregate ordering intact across nodes. A lease is taken over once it has expired.
+     *
+     * @param relay The relay the lease is for
+     * @param owner The instance taking it
+     * @param now The current time
+     * @param leasedUntil When the lease expires if it isn't renewed
+     * @return 1 if the instance holds the lease, 0 if another instance does
+     */
+    int acquireRelayLease(String relay, String owner, LocalDateTime now, LocalDateTime leasedUntil);
+
+    /**
+     * Finds the oldest unpublished events by ID. IDs are assigned on insert, not on commit, so an
+     * event may commit after a later one was published; it is picked up by the next poll. Events
+     * of one aggregate are written under its row lock and so are in order.
+     *
+     * @param limit The maximum number of events to return
+     * @return Unpublished events ordered by ID
+     */
+    List<E> findUnpublished(int limit);
+
+    int markPublished(Collection<Long> ids, LocalDateTime publishedAt);
+
+    long countByPublishedAtIsNull();
+
+    LocalDateTime findOldestUnpublishedCreatedAt();
+
+    int deletePublishedBefore(LocalDateTime cutoff);
+}
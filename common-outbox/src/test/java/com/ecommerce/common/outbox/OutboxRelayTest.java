@@ -0,0 +1,154 @@
+package com.ecommerce.common.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The relay publishes the acknowledged prefix of each batch, only while it holds the lease, and
+ * never with a database transaction open while Kafka answers.
+ */
+class OutboxRelayTest {
+
+    private OutboxStore<TestEvent> outboxStore;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private RecordingTransactionManager transactionManager;
+    private OutboxRelay relay;
+
+    record TestEvent(Long getId, String getAggregateId, String getEventType, String getPayload) implements OutboxEvent {
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        outboxStore = mock(OutboxStore.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        transactionManager = new RecordingTransactionManager();
+        relay = new OutboxRelay("test", "test-events", outboxStore, kafkaTemplate,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "batchSize", 10);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(relay, "leaseMs", 30000L);
+        when(outboxStore.acquireRelayLease(eq("test"), anyString(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void marksOnlyTheAcknowledgedPrefixPublished() {
+        when(outboxStore.findUnpublished(10)).thenReturn(List.of(
+                new TestEvent(1L, "A", "CREATED", "{}"),
+                new TestEvent(2L, "B", "CREATED", "{}"),
+                new TestEvent(3L, "A", "PAID", "{}")));
+        when(kafkaTemplate.send("test-events", "A", "{}")).thenReturn(acked(), acked());
+        when(kafkaTemplate.send("test-events", "B", "{}"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relay();
+
+        // Event 3 was acknowledged but follows the failed event 2, so both are retried next poll
+        verify(outboxStore).markPublished(eq(List.of(1L)), any());
+    }
+
+    @Test
+    void publishesWithNoTransactionOpen() {
+        when(outboxStore.findUnpublished(10)).thenReturn(List.of(
+                new TestEvent(1L, "A", "CREATED", "{}"),
+                new TestEvent(2L, "B", "CREATED", "{}")));
+        List<Boolean> sentInTransaction = new ArrayList<>();
+        when(kafkaTemplate.send(eq("test-events"), anyString(), eq("{}"))).thenAnswer(invocation -> {
+            sentInTransaction.add(transactionManager.active);
+            return acked();
+        });
+        List<Boolean> markedInTransaction = new ArrayList<>();
+        doAnswer(invocation -> {
+            markedInTransaction.add(transactionManager.active);
+            return 2;
+        }).when(outboxStore).markPublished(any(), any());
+
+        relay.relay();
+
+        assertThat(sentInTransaction).containsExactly(false, false);
+        assertThat(markedInTransaction).containsExactly(true);
+        // Lease and read in one, mark in another
+        assertThat(transactionManager.committed).isEqualTo(2);
+    }
+
+    @Test
+    void stopsSendingAtTheFirstSendThatFailedRightAway() {
+        when(outboxStore.findUnpublished(10)).thenReturn(List.of(
+                new TestEvent(1L, "A", "CREATED", "{}"),
+                new TestEvent(2L, "B", "CREATED", "{}"),
+                new TestEvent(3L, "C", "CREATED", "{}")));
+        when(kafkaTemplate.send("test-events", "A", "{}")).thenReturn(acked());
+        // What the producer returns once max.block.ms ran out waiting for the broker
+        when(kafkaTemplate.send("test-events", "B", "{}"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("metadata timeout")));
+
+        relay.relay();
+
+        verify(kafkaTemplate, never()).send("test-events", "C", "{}");
+        verify(outboxStore).markPublished(eq(List.of(1L)), any());
+    }
+
+    @Test
+    void skipsThePollWhenAnotherInstanceHoldsTheLease() {
+        when(outboxStore.acquireRelayLease(eq("test"), anyString(), any(), any())).thenReturn(0);
+
+        relay.relay();
+
+        verify(outboxStore, never()).findUnpublished(10);
+        verify(kafkaTemplate, never()).send(any(String.class), any(), any());
+        assertThat(transactionManager.committed).isEqualTo(1);
+    }
+
+    private static CompletableFuture<SendResult<String, String>> acked() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Tracks whether a transaction is open, in place of a database
+     */
+    private static class RecordingTransactionManager implements PlatformTransactionManager {
+
+        private boolean active;
+        private int committed;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            active = true;
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            active = false;
+            committed++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            active = false;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.ecommerce.common.statemachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Table-driven state machine over an enum of states.
+ * <p>
+ * Permitted transitions, guards and actions are declared once through {@link Builder} and compiled
+ * into EnumMap tables, so a lookup at runtime is two array indexes instead of a switch per call site.
+ * A transition runs as: permission check, guards, state write, actions, listeners.
+ *
+ * @param <S> The state enum
+ * @param <C> The entity whose state is managed
+ */
+public final class StateMachine<S extends Enum<S>, C> {
+
+    /**
+     * Vetoes a permitted transition for a specific entity by throwing
+     */
+    @FunctionalInterface
+    public interface Guard<C> {
+        void check(C context);
+    }
+
+    /**
+     * Side effect of a transition, run after the new state is written
+     */
+    @FunctionalInterface
+    public interface Action<S, C> {
+        void execute(C context, S from, S to);
+    }
+
+    /**
+     * Notified after every completed transition, including bulk ones
+     */
+    @FunctionalInterface
+    public interface Listener<S, C> {
+        void onTransition(C context, S from, S to);
+    }
+
+    private record Transition<S, C>(List<Guard<C>> guards, List<Action<S, C>> actions) {
+    }
+
+    private final Map<S, Map<S, Transition<S, C>>> table;
+    private final Map<S, EnumSet<S>> sources;
+    private final Function<C, S> stateReader;
+    private final BiConsumer<C, S> stateWriter;
+    private final List<Listener<S, C>> listeners;
+    private final List<Listener<S, C>> fireListeners;
+    private final BiFunction<S, S, ? extends RuntimeException> rejection;
+
+    private StateMachine(Builder<S, C> builder) {
+        Class<S> stateType = builder.stateType;
+        this.stateReader = builder.stateReader;
+        this.stateWriter = builder.stateWriter;
+        this.listeners = List.copyOf(builder.listeners);
+        this.fireListeners = List.copyOf(builder.fireListeners);
+        this.rejection = builder.rejection;
+
+        // Compile the declarations into per-pair transitions and a reverse (target -> sources) index
+        Map<S, Map<S, Transition<S, C>>> compiled = new EnumMap<>(stateType);
+        Map<S, EnumSet<S>> reverse = new EnumMap<>(stateType);
+        for (S target : stateType.getEnumConstants()) {
+            reverse.put(target, EnumSet.noneOf(stateType));
+        }
+
+        builder.permitted.forEach((from, targets) -> {
+            Map<S, Transition<S, C>> row = new EnumMap<>(stateType);
+            for (S to : targets) {
+                List<Guard<C>> guards = new ArrayList<>(builder.guardsByTarget.getOrDefault(to, List.of()));
+                guards.addAll(pairHooks(builder.guardsByPair, from, to));
+
+                List<Action<S, C>> actions = new ArrayList<>(builder.actionsByTarget.getOrDefault(to, List.of()));
+                actions.addAll(pairHooks(builder.actionsByPair, from, to));
+
+                row.put(to, new Transition<>(List.copyOf(guards), List.copyOf(actions)));
+                reverse.get(to).add(from);
+            }
+            compiled.put(from, Collections.unmodifiableMap(row));
+        });
+
+        this.table = Collections.unmodifiableMap(compiled);
+        this.sources = reverse;
+    }
+
+    public static <S extends Enum<S>, C> Builder<S, C> builder(Class<S> stateType) {
+        return new Builder<>(stateType);
+    }
+
+    public boolean canTransition(S from, S to) {
+        Map<S, Transition<S, C>> row = table.get(from);
+        return row != null && row.containsKey(to);
+    }
+
+    /**
+     * Throws the configured rejection if the transition is not permitted
+     */
+    public void validate(S from, S to) {
+        if (!canTransition(from, to)) {
+            throw rejection.apply(from, to);
+        }
+    }
+
+    /**
+     * @return The states from which {@code to} can be reached
+     */
+    public EnumSet<S> sourcesOf(S to) {
+        return sources.get(to).clone();
+    }
+
+    /**
+     * Whether a transition has per-entity guards, which a set-based bulk update cannot evaluate
+     */
+    public boolean hasGuards(S from, S to) {
+        return canTransition(from, to) && !table.get(from).get(to).guards().isEmpty();
+    }
+
+    /**
+     * Moves the entity to {@code to}: permission check, guards, state write, actions, listeners.
+     */
+    public void fire(C context, S to) {
+        S from = stateReader.apply(context);
+        validate(from, to);
+
+        Transition<S, C> transition = table.get(from).get(to);
+        transition.guards().forEach(guard -> guard.check(context));
+
+        stateWriter.accept(context, to);
+        complete(transition, context, from, to);
+        fireListeners.forEach(listener -> listener.onTransition(context, from, to));
+    }
+
+    /**
+     * Runs actions and listeners for an entity whose state was already changed by a set-based update.
+     * Fire-only listeners are skipped: the bulk update is expected to have done their work in SQL.
+     */
+    public void afterBulkTransition(C context, S from, S to) {
+        validate(from, to);
+        complete(table.get(from).get(to), context, from, to);
+    }
+
+    private void complete(Transition<S, C> transition, C context, S from, S to) {
+        transition.actions().forEach(action -> action.execute(context, from, to));
+        listeners.forEach(listener -> listener.onTransition(context, from, to));
+    }
+
+    private static <S extends Enum<S>, T> List<T> pairHooks(Map<S, Map<S, List<T>>> hooks, S from, S to) {
+        Map<S, List<T>> byTarget = hooks.get(from);
+        return byTarget == null ? List.of() : byTarget.getOrDefault(to, List.of());
+    }
+
+    public static final class Builder<S extends Enum<S>, C> {
+
+        private final Class<S> stateType;
+        private final Map<S, EnumSet<S>> permitted;
+        private final Map<S, List<Guard<C>>> guardsByTarget;
+        private final Map<S, Map<S, List<Guard<C>>>> guardsByPair;
+        private final Map<S, List<Action<S, C>>> actionsByTarget;
+        private final Map<S, Map<S, List<Action<S, C>>>> actionsByPair;
+        private final List<Listener<S, C>> listeners = new ArrayList<>();
+        private final List<Listener<S, C>> fireListeners = new ArrayList<>();
+        private Function<C, S> stateReader;
+        private BiConsumer<C, S> stateWriter;
+        private BiFunction<S, S, ? extends RuntimeException> rejection =
+                (from, to) -> new IllegalStateException("Invalid status transition from " + from + " to " + to);
+
+        private Builder(Class<S> stateType) {
+            this.stateType = stateType;
+            this.permitted = new EnumMap<>(stateType);
+            this.guardsByTarget = new EnumMap<>(stateType);
+            this.guardsByPair = new EnumMap<>(stateType);
+            this.actionsByTarget = new EnumMap<>(stateType);
+            this.actionsByPair = new EnumMap<>(stateType);
+        }
+
+        public Builder<S, C> state(Function<C, S> reader, BiConsumer<C, S> writer) {
+            this.stateReader = reader;
+            this.stateWriter = writer;
+            return this;
+        }
+
+        @SafeVarargs
+        public final Builder<S, C> permit(S from, S... targets) {
+            EnumSet<S> row = permitted.computeIfAbsent(from, key -> EnumSet.noneOf(stateType));
+            Collections.addAll(row, targets);
+            return this;
+        }
+
+        public Builder<S, C> guardOnEnter(S to, Guard<C> guard) {
+            guardsByTarget.computeIfAbsent(to, key -> new ArrayList<>()).add(guard);
+            return this;
+        }
+
+        public Builder<S, C> guard(S from, S to, Guard<C> guard) {
+            guardsByPair.computeIfAbsent(from, key -> new EnumMap<>(stateType))
+                    .computeIfAbsent(to, key -> new ArrayList<>()).add(guard);
+            return this;
+        }
+
+        public Builder<S, C> onEnter(S to, Action<S, C> action) {
+            actionsByTarget.computeIfAbsent(to, key -> new ArrayList<>()).add(action);
+            return this;
+        }
+
+        public Builder<S, C> onTransition(S from, S to, Action<S, C> action) {
+            actionsByPair.computeIfAbsent(from, key -> new EnumMap<>(stateType))
+                    .computeIfAbsent(to, key -> new ArrayList<>()).add(action);
+            return this;
+        }
+
+        public Builder<S, C> listener(Listener<S, C> listener) {
+            listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * Registers a listener that only runs for single-entity transitions, for work a set-based
+         * update performs itself in the same statement batch (e.g. writing outbox rows)
+         */
+        public Builder<S, C> fireListener(Listener<S, C> listener) {
+            fireListeners.add(listener);
+            return this;
+        }
+
+        public Builder<S, C> rejection(BiFunction<S, S, ? extends RuntimeException> rejection) {
+            this.rejection = rejection;
+            return this;
+        }
+
+        public StateMachine<S, C> build() {
+            if (stateReader == null || stateWriter == null) {
+                throw new IllegalStateException("State accessors are required");
+            }
+            return new StateMachine<>(this);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.common.statemachine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StateMachineTest {
+
+    enum Light { RED, GREEN, YELLOW, OFF }
+
+    static class Lamp {
+        Light state = Light.RED;
+        boolean broken;
+    }
+
+    private final List<String> calls = new ArrayList<>();
+
+    private final StateMachine<Light, Lamp> machine = StateMachine.<Light, Lamp>builder(Light.class)
+            .state(lamp -> lamp.state, (lamp, state) -> lamp.state = state)
+            .permit(Light.RED, Light.GREEN, Light.OFF)
+            .permit(Light.GREEN, Light.YELLOW)
+            .permit(Light.YELLOW, Light.RED)
+            .guardOnEnter(Light.GREEN, lamp -> {
+                if (lamp.broken) {
+                    throw new IllegalArgumentException("broken");
+                }
+            })
+            .onTransition(Light.RED, Light.GREEN, (lamp, from, to) -> calls.add("action"))
+            .listener((lamp, from, to) -> calls.add("listener " + from + "->" + to))
+            .fireListener((lamp, from, to) -> calls.add("fire-listener"))
+            .build();
+
+    @Test
+    void fireRunsGuardsActionsAndAllListeners() {
+        Lamp lamp = new Lamp();
+
+        machine.fire(lamp, Light.GREEN);
+
+        assertThat(lamp.state).isEqualTo(Light.GREEN);
+        assertThat(calls).containsExactly("action", "listener RED->GREEN", "fire-listener");
+    }
+
+    @Test
+    void fireRejectsUnpermittedTransitionWithoutSideEffects() {
+        Lamp lamp = new Lamp();
+
+        assertThatThrownBy(() -> machine.fire(lamp, Light.YELLOW)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(lamp.state).isEqualTo(Light.RED);
+        assertThat(calls).isEmpty();
+    }
+
+    @Test
+    void guardVetoLeavesStateUnchanged() {
+        Lamp lamp = new Lamp();
+        lamp.broken = true;
+
+        assertThatThrownBy(() -> machine.fire(lamp, Light.GREEN)).hasMessage("broken");
+
+        assertThat(lamp.state).isEqualTo(Light.RED);
+        assertThat(calls).isEmpty();
+    }
+
+    @Test
+    void afterBulkTransitionSkipsFireOnlyListeners() {
+        Lamp lamp = new Lamp();
+        lamp.state = Light.GREEN;
+
+        machine.afterBulkTransition(lamp, Light.RED, Light.GREEN);
+
+        assertThat(calls).containsExactly("action", "listener RED->GREEN");
+    }
+
+    @Test
+    void exposesTableLookups() {
+        assertThat(machine.canTransition(Light.GREEN, Light.YELLOW)).isTrue();
+        assertThat(machine.canTransition(Light.OFF, Light.RED)).isFalse();
+        assertThat(machine.sourcesOf(Light.RED)).isEqualTo(EnumSet.of(Light.YELLOW));
+        assertThat(machine.hasGuards(Light.RED, Light.GREEN)).isTrue();
+        assertThat(machine.hasGuards(Light.RED, Light.OFF)).isFalse();
+    }
+}
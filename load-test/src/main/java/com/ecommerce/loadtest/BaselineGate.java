@@ -0,0 +1,78 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a run against the stored baseline. An endpoint regresses when its p50, p95 or p99 is
+ * more than max-regression-percent slower than in the baseline, or when its error rate exceeds
+ * max-error-percent. Endpoints missing from the baseline are reported but never fail the run;
+ * a missing baseline file fails it, unless this run is recording the baseline.
+ */
+public class BaselineGate {
+
+    private final ObjectMapper objectMapper;
+    private final LoadTestSettings settings;
+
+    public BaselineGate(ObjectMapper objectMapper, LoadTestSettings settings) {
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+    }
+
+    /**
+     * @param summaries This run's summary per endpoint
+     * @return A description of every violation; empty if the run passes
+     */
+    public List<String> check(Map<String, LatencyRecorder.EndpointSummary> summaries) throws IOException {
+        List<String> violations = new ArrayList<>();
+        summaries.forEach((endpoint, summary) -> {
+            if (summary.errorPercent() > settings.getMaxErrorPercent()) {
+                violations.add(String.format("%s: %.2f%% errors (limit %.2f%%)",
+                        endpoint, summary.errorPercent(), settings.getMaxErrorPercent()));
+            }
+        });
+
+        if (settings.isUpdateBaseline()) {
+            Files.createDirectories(settings.getBaselineFile().toAbsolutePath().getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(settings.getBaselineFile().toFile(), summaries);
+            System.out.println("Baseline written to " + settings.getBaselineFile().toAbsolutePath());
+            return violations;
+        }
+        if (!Files.exists(settings.getBaselineFile())) {
+            // Passing here would let a mistyped path or a lost file turn the gate off unnoticed
+            violations.add("No baseline at " + settings.getBaselineFile().toAbsolutePath()
+                    + "; run with -Dload-test.update-baseline=true to record one");
+            return violations;
+        }
+
+        Map<String, LatencyRecorder.EndpointSummary> baseline = objectMapper.readValue(
+                settings.getBaselineFile().toFile(), new TypeReference<>() {
+                });
+        double limit = 1 + settings.getMaxRegressionPercent() / 100;
+        summaries.forEach((endpoint, current) -> {
+            LatencyRecorder.EndpointSummary expected = baseline.get(endpoint);
+            if (expected == null) {
+                System.out.println("No baseline for " + endpoint + ", not gated");
+                return;
+            }
+            compare(violations, endpoint, "p50", current.p50(), expected.p50(), limit);
+            compare(violations, endpoint, "p95", current.p95(), expected.p95(), limit);
+            compare(violations, endpoint, "p99", current.p99(), expected.p99(), limit);
+        });
+        return violations;
+    }
+
+    private static void compare(List<String> violations, String endpoint, String percentile,
+                                double current, double expected, double limit) {
+        if (expected > 0 && current > expected * limit) {
+            violations.add(String.format("%s: %s %.1f ms vs baseline %.1f ms (+%.0f%%)",
+                    endpoint, percentile, current, expected, (current / expected - 1) * 100));
+        }
+    }
+}
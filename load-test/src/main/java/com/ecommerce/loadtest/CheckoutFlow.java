@@ -0,0 +1,97 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One shopper's visit: browse, add to cart, check out, pay and wait for confirmation. Part of the
+ * visits stop after browsing or with an abandoned cart, in the configured ratios.
+ */
+public class CheckoutFlow {
+
+    private final GatewayClient client;
+    private final LoadTestSettings settings;
+    private final List<Long> productIds;
+
+    private CheckoutFlow(GatewayClient client, LoadTestSettings settings, List<Long> productIds) {
+        this.client = client;
+        this.settings = settings;
+        this.productIds = productIds;
+    }
+
+    /**
+     * Loads the in-stock products of the first catalogue pages to shop from. Not recorded.
+     */
+    public static CheckoutFlow prepare(GatewayClient client, LoadTestSettings settings, String token) {
+        List<Long> productIds = new ArrayList<>();
+        for (int page = 0; page < settings.getProductPages(); page++) {
+            JsonNode products = client.call("setup", "GET",
+                    "/api/products?inStockOnly=true&page=" + page + "&size=" + settings.getPageSize(), null, token).body();
+            products.path("content").forEach(product -> productIds.add(product.path("id").asLong()));
+            if (products.path("last").asBoolean(true)) {
+                break;
+            }
+        }
+        if (productIds.isEmpty()) {
+            throw new IllegalStateException("No products in stock to run the checkout flow against");
+        }
+        return new CheckoutFlow(client, settings, productIds);
+    }
+
+    public Long anyProductId() {
+        return productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+    }
+
+    public void run(TestUsers.User user) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String token = user.token();
+
+        // 1. Browse a catalogue page and look at a product
+        int page = random.nextInt(settings.getProductPages());
+        client.call("GET /api/products", "GET",
+                "/api/products?page=" + page + "&size=" + settings.getPageSize(), null, token);
+        Long productId = productIds.get(random.nextInt(productIds.size()));
+        client.call("GET /api/products/{id}", "GET", "/api/products/" + productId, null, token);
+        if (random.nextDouble() < settings.getBrowseOnlyRatio()) {
+            return;
+        }
+
+        // 2. Add it to the cart
+        client.call("POST /api/carts/items", "POST", "/api/carts/items",
+                Map.of("productId", productId, "quantity", 1 + random.nextInt(2)), token);
+        if (random.nextDouble() < settings.getAbandonCartRatio()) {
+            client.call("DELETE /api/carts/clear", "DELETE", "/api/carts/clear", null, token);
+            return;
+        }
+
+        // 3. Check out; the key makes a timed-out attempt safe to retry
+        JsonNode order = client.call("POST /api/orders", "POST", "/api/orders", Map.of(
+                "notes", "load test",
+                "shippingAddress", Map.of(
+                        "fullName", "Load Test",
+                        "addressLine1", "1 Test Street",
+                        "city", "Colombo",
+                        "state", "Western",
+                        "postalCode", "00100",
+                        "country", "LK",
+                        "addressType", "SHIPPING")), token,
+                Map.of("Idempotency-Key", UUID.randomUUID().toString())).body();
+        long orderId = order.path("id").asLong();
+
+        // 4. Pay for the order
+        client.call("POST /api/orders/{id}/payment", "POST", "/api/orders/" + orderId + "/payment", Map.of(
+                "paymentMethod", "CREDIT_CARD",
+                "amount", order.path("totalAmount").decimalValue(),
+                "stripeToken", "tok_visa"), token,
+                Map.of("Idempotency-Key", UUID.randomUUID().toString()));
+
+        // 5. Read the order back as the confirmation page would. Not a notification check: order events
+        // carry no email and these addresses no phone number, so paying sends no notification
+        client.call("GET /api/orders/{id}", "GET", "/api/orders/" + orderId, null, token);
+    }
+}
@@ -0,0 +1,135 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * JSON over HTTP to the gateway, timing every request under its endpoint template
+ */
+public class GatewayClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI baseUrl;
+    private final LatencyRecorder recorder;
+
+    public record Response(int status, JsonNode body) {
+
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    /**
+     * Thrown when a request fails, ending the flow it belongs to
+     */
+    public static class RequestFailedException extends RuntimeException {
+
+        public RequestFailedException(String endpoint, int status) {
+            super(endpoint + " returned " + status);
+        }
+
+        public RequestFailedException(String endpoint, Throwable cause) {
+            super(endpoint + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    public GatewayClient(URI baseUrl, ObjectMapper objectMapper, LatencyRecorder recorder) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Sends a request and fails on any non-2xx response
+     *
+     * @param endpoint The endpoint template the latency is recorded under
+     * @param method The HTTP method
+     * @param path The concrete path and query
+     * @param body The JSON body, or null
+     * @param token The bearer token, or null
+     * @param headers Additional headers
+     * @return The parsed response
+     */
+    public Response call(String endpoint, String method, String path, Object body, String token,
+                         Map<String, String> headers) {
+        Response response = send(endpoint, method, path, body, token, headers);
+        if (!response.isSuccess()) {
+            throw new RequestFailedException(endpoint, response.status());
+        }
+        return response;
+    }
+
+    public Response call(String endpoint, String method, String path, Object body, String token) {
+        return call(endpoint, method, path, body, token, Map.of());
+    }
+
+    /**
+     * Sends a request and returns whatever came back. 4xx and 5xx responses count as errors
+     */
+    public Response send(String endpoint, String method, String path, Object body, String token,
+                         Map<String, String> headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        headers.forEach(request::header);
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(toJson(body)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            long elapsed = System.nanoTime() - start;
+            recorder.record(endpoint, elapsed, response.statusCode() >= 400);
+            return new Response(response.statusCode(), parse(response.body()));
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, true);
+            throw new RequestFailedException(endpoint, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestFailedException(endpoint, e);
+        }
+    }
+
+    private byte[] toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private JsonNode parse(byte[] body) {
+        if (body.length == 0) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return MissingNode.getInstance();
+        }
+    }
+}
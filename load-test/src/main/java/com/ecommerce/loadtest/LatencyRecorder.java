@@ -0,0 +1,86 @@
+package com.ecommerce.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects response times per endpoint and reduces them to percentiles. Samples are only kept
+ * while recording is on, so the warmup doesn't count.
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Samples> samplesByEndpoint = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    public record EndpointSummary(long requests, long errors, double p50, double p95, double p99, double max) {
+
+        public double errorPercent() {
+            return requests == 0 ? 0 : errors * 100.0 / requests;
+        }
+    }
+
+    private static class Samples {
+        private long[] micros = new long[1024];
+        private int count;
+        private long errors;
+
+        synchronized void add(long value, boolean error) {
+            if (count == micros.length) {
+                micros = Arrays.copyOf(micros, count * 2);
+            }
+            micros[count++] = value;
+            if (error) {
+                errors++;
+            }
+        }
+
+        synchronized EndpointSummary summarize() {
+            long[] sorted = Arrays.copyOf(micros, count);
+            Arrays.sort(sorted);
+            return new EndpointSummary(count, errors,
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    count == 0 ? 0 : sorted[count - 1] / 1000.0);
+        }
+
+        // Nearest-rank percentile, in milliseconds
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1] / 1000.0;
+        }
+    }
+
+    public void startRecording() {
+        recording = true;
+    }
+
+    public void stopRecording() {
+        recording = false;
+    }
+
+    /**
+     * Records one request
+     *
+     * @param endpoint The endpoint template, e.g. "GET /api/orders/{id}"
+     * @param nanos The response time
+     * @param error Whether the request failed
+     */
+    public void record(String endpoint, long nanos, boolean error) {
+        if (recording) {
+            samplesByEndpoint.computeIfAbsent(endpoint, key -> new Samples()).add(nanos / 1000, error);
+        }
+    }
+
+    /**
+     * @return The summary of every endpoint, ordered by endpoint
+     */
+    public Map<String, EndpointSummary> summarize() {
+        Map<String, EndpointSummary> summaries = new TreeMap<>();
+        samplesByEndpoint.forEach((endpoint, samples) -> summaries.put(endpoint, samples.summarize()));
+        return summaries;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives checkout flows through the gateway at a fixed arrival rate and gates the latencies
+ * against a stored baseline. Exits with 1 when the gate fails, which fails `mvn spring-boot:run`.
+ * With load-test.stub=true the flows run against an in-process {@link StubGateway} instead, which
+ * is how CI exercises the harness and the gate without the services.
+ * <p>
+ * Flows start on schedule whether or not earlier ones have finished (an open workload), so a slow
+ * system shows up as higher latency instead of quietly lowering the request rate.
+ */
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        List<String> violations = run(LoadTestSettings.load(), new ObjectMapper());
+        if (!violations.isEmpty()) {
+            System.out.println("Load test FAILED:");
+            violations.forEach(violation -> System.out.println("  " + violation));
+            System.exit(1);
+        }
+        System.out.println("Load test passed");
+        System.exit(0);
+    }
+
+    /**
+     * Runs the load test and gates it
+     *
+     * @return A description of every violation; empty if the run passes
+     */
+    public static List<String> run(LoadTestSettings settings, ObjectMapper objectMapper) throws Exception {
+        if (!settings.isStub()) {
+            return run(settings, objectMapper, settings.getBaseUrl());
+        }
+        try (StubGateway stub = StubGateway.start(objectMapper, settings.getStubLatencyMs())) {
+            return run(settings, objectMapper, stub.getBaseUrl());
+        }
+    }
+
+    private static List<String> run(LoadTestSettings settings, ObjectMapper objectMapper, URI baseUrl)
+            throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        GatewayClient client = new GatewayClient(baseUrl, objectMapper, recorder);
+
+        // 1. Sign the users in and pick the products to shop from
+        System.out.printf("Preparing %d users against %s%n", settings.getUsers(), baseUrl);
+        TestUsers users = TestUsers.signIn(client, settings);
+        TestUsers.User setupUser = users.borrow();
+        CheckoutFlow flow = CheckoutFlow.prepare(client, settings, setupUser.token());
+        users.giveBack(setupUser);
+
+        // 2. Start flows at the configured rate, each on its own virtual thread
+        AtomicLong started = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        ExecutorService flows = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(() -> {
+            TestUsers.User user = users.borrow();
+            if (user == null) {
+                // Every user is mid-flow: the system is too slow for this rate and user count
+                skipped.incrementAndGet();
+                return;
+            }
+            started.incrementAndGet();
+            flows.execute(() -> {
+                try {
+                    flow.run(user);
+                } catch (GatewayClient.RequestFailedException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    users.giveBack(user);
+                }
+            });
+        }, 0, 1_000_000_000L / settings.getRps(), TimeUnit.NANOSECONDS);
+
+        // 3. Warm up, then record for the configured duration
+        System.out.printf("Warming up for %ds at %d flows/s%n", settings.getWarmup().toSeconds(), settings.getRps());
+        Thread.sleep(settings.getWarmup().toMillis());
+        recorder.startRecording();
+        long flowsBefore = started.get();
+        System.out.printf("Recording for %ds%n", settings.getDuration().toSeconds());
+        Thread.sleep(settings.getDuration().toMillis());
+        recorder.stopRecording();
+        long recordedFlows = started.get() - flowsBefore;
+
+        scheduler.shutdownNow();
+        flows.shutdown();
+        if (!flows.awaitTermination(60, TimeUnit.SECONDS)) {
+            flows.shutdownNow();
+        }
+
+        // 4. Report and gate
+        Map<String, LatencyRecorder.EndpointSummary> summaries = recorder.summarize();
+        printSummary(summaries, recordedFlows, failed.get(), skipped.get());
+        writeReport(objectMapper, settings, summaries);
+
+        List<String> violations = new BaselineGate(objectMapper, settings).check(summaries);
+        if (skipped.get() > 0) {
+            violations.add(skipped.get() + " flows could not start because all users were busy");
+        }
+        return violations;
+    }
+
+    private static void printSummary(Map<String, LatencyRecorder.EndpointSummary> summaries,
+                                     long flows, long failed, long skipped) {
+        System.out.printf("%nFlows: %d started while recording, %d failed overall, %d skipped%n", flows, failed, skipped);
+        System.out.printf("%-34s %9s %7s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "p50 ms", "p95 ms",
+                "p99 ms", "max ms");
+        summaries.forEach((endpoint, summary) -> System.out.printf("%-34s %9d %7d %9.1f %9.1f %9.1f %9.1f%n",
+                endpoint, summary.requests(), summary.errors(), summary.p50(), summary.p95(), summary.p99(),
+                summary.max()));
+    }
+
+    private static void writeReport(ObjectMapper objectMapper, LoadTestSettings settings,
+                                    Map<String, LatencyRecorder.EndpointSummary> summaries) throws IOException {
+        Files.createDirectories(settings.getReportFile().toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(settings.getReportFile().toFile(), summaries);
+        System.out.println("Report written to " + settings.getReportFile().toAbsolutePath());
+    }
+}
@@ -0,0 +1,90 @@
+package com.ecommerce.loadtest;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Load test settings from load-test.properties, overridable with system properties
+ */
+@Getter
+public class LoadTestSettings {
+
+    private final URI baseUrl;
+    private final int rps;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int users;
+    private final String userPrefix;
+    private final String password;
+    private final int productPages;
+    private final int pageSize;
+    private final double browseOnlyRatio;
+    private final double abandonCartRatio;
+    private final Path baselineFile;
+    private final double maxRegressionPercent;
+    private final double maxErrorPercent;
+    private final boolean updateBaseline;
+    private final Path reportFile;
+    private final boolean stub;
+    private final long stubLatencyMs;
+
+    private LoadTestSettings(Properties properties) {
+        this.baseUrl = URI.create(get(properties, "base-url").replaceAll("/+$", ""));
+        this.rps = Integer.parseInt(get(properties, "rps"));
+        this.warmup = Duration.ofSeconds(Long.parseLong(get(properties, "warmup-seconds")));
+        this.duration = Duration.ofSeconds(Long.parseLong(get(properties, "duration-seconds")));
+        this.users = Integer.parseInt(get(properties, "users"));
+        this.userPrefix = get(properties, "user-prefix");
+        this.password = get(properties, "password");
+        this.productPages = Integer.parseInt(get(properties, "product-pages"));
+        this.pageSize = Integer.parseInt(get(properties, "page-size"));
+        this.browseOnlyRatio = Double.parseDouble(get(properties, "browse-only-ratio"));
+        this.abandonCartRatio = Double.parseDouble(get(properties, "abandon-cart-ratio"));
+        this.baselineFile = Path.of(get(properties, "baseline-file"));
+        this.maxRegressionPercent = Double.parseDouble(get(properties, "max-regression-percent"));
+        this.maxErrorPercent = Double.parseDouble(get(properties, "max-error-percent"));
+        this.updateBaseline = Boolean.parseBoolean(get(properties, "update-baseline"));
+        this.reportFile = Path.of(get(properties, "report-file"));
+        this.stub = Boolean.parseBoolean(get(properties, "stub"));
+        this.stubLatencyMs = Long.parseLong(get(properties, "stub.latency-ms"));
+
+        if (rps < 1 || users < 1) {
+            throw new IllegalArgumentException("load-test.rps and load-test.users must be positive");
+        }
+    }
+
+    public static LoadTestSettings load() {
+        return load(System.getProperties());
+    }
+
+    /**
+     * @param overrides Settings that take precedence over load-test.properties
+     */
+    public static LoadTestSettings load(Properties overrides) {
+        Properties properties = new Properties();
+        try (InputStream input = LoadTestSettings.class.getResourceAsStream("/load-test.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        properties.putAll(overrides);
+        return new LoadTestSettings(properties);
+    }
+
+    private static String get(Properties properties, String name) {
+        String value = properties.getProperty("load-test." + name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing setting load-test." + name);
+        }
+        return value.trim();
+    }
+}
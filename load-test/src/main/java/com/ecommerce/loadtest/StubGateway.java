@@ -0,0 +1,123 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+/**
+ * In-process stand-in for the gateway, answering every request the checkout flow makes with a
+ * canned response after a fixed delay. Lets CI run the whole load test and its baseline gate
+ * without the services, so a broken flow, recorder or gate fails the build. It measures the
+ * harness, not the services: gate real changes against a deployed gateway.
+ */
+public class StubGateway implements AutoCloseable {
+
+    private static final Pattern ID_PATH = Pattern.compile("/api/(products|orders)/\\d+");
+    private static final Pattern PAYMENT_PATH = Pattern.compile("/api/orders/\\d+/payment");
+    private static final int PRODUCTS = 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final long latencyMillis;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private StubGateway(HttpServer server, ObjectMapper objectMapper, long latencyMillis) {
+        this.server = server;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.objectMapper = objectMapper;
+        this.latencyMillis = latencyMillis;
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts a stub on a free local port
+     *
+     * @param latencyMillis How long every response is held back
+     */
+    public static StubGateway start(ObjectMapper objectMapper, long latencyMillis) {
+        // Headers and body are separate writes; without TCP_NODELAY, delayed ACKs add ~40 ms to some responses
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            StubGateway gateway = new StubGateway(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0),
+                    objectMapper, latencyMillis);
+            gateway.server.start();
+            return gateway;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public URI getBaseUrl() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            Thread.sleep(latencyMillis);
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            respond(exchange, method, path);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, String method, String path) throws IOException {
+        long id = nextId.getAndIncrement();
+        switch (method + " " + path) {
+            case "POST /api/auth/register" -> send(exchange, 201, Map.of("id", id));
+            case "POST /api/auth/login" -> send(exchange, 200, Map.of("userId", id, "accessToken", "stub-token-" + id));
+            case "GET /api/products" -> send(exchange, 200, Map.of(
+                    "content", LongStream.rangeClosed(1, PRODUCTS)
+                            .mapToObj(productId -> Map.of("id", productId)).toList(),
+                    "last", true));
+            case "POST /api/carts/items" -> send(exchange, 200, Map.of("items", List.of()));
+            case "DELETE /api/carts/clear" -> send(exchange, 204, null);
+            case "POST /api/orders" -> send(exchange, 201, Map.of("id", id, "totalAmount", 19.98));
+            default -> {
+                if ("POST".equals(method) && PAYMENT_PATH.matcher(path).matches()) {
+                    send(exchange, 201, Map.of("id", id, "status", "SUCCESS"));
+                } else if ("GET".equals(method) && ID_PATH.matcher(path).matches()) {
+                    send(exchange, 200, Map.of("id", Long.parseLong(path.substring(path.lastIndexOf('/') + 1))));
+                } else {
+                    send(exchange, 404, Map.of("message", "Not stubbed: " + method + " " + path));
+                }
+            }
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(json);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The test users. A flow borrows a user for its whole run, so no two flows share a cart.
+ */
+public class TestUsers {
+
+    private final BlockingQueue<User> available;
+
+    public record User(Long id, String username, String token) {
+    }
+
+    private TestUsers(List<User> users) {
+        this.available = new ArrayBlockingQueue<>(users.size(), false, users);
+    }
+
+    /**
+     * Registers the users that don't exist yet and logs every user in. Not recorded.
+     */
+    public static TestUsers signIn(GatewayClient client, LoadTestSettings settings) {
+        List<User> users = new ArrayList<>(settings.getUsers());
+        for (int i = 0; i < settings.getUsers(); i++) {
+            String username = settings.getUserPrefix() + i;
+            client.send("setup", "POST", "/api/auth/register", Map.of(
+                    "username", username,
+                    "email", username + "@loadtest.example.com",
+                    "password", settings.getPassword(),
+                    "firstName", "Load",
+                    "lastName", "Test " + i), null, Map.of());
+
+            JsonNode auth = client.call("setup", "POST", "/api/auth/login",
+                    Map.of("username", username, "password", settings.getPassword()), null).body();
+            users.add(new User(auth.path("userId").asLong(), username, auth.path("accessToken").asText()));
+        }
+        return new TestUsers(users);
+    }
+
+    /**
+     * @return A free user, or null if every user is in a flow
+     */
+    public User borrow() {
+        return available.poll();
+    }
+
+    public void giveBack(User user) {
+        available.add(user);
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the load test through the real gateway and services (see {@link ServicesStack}) and gates it
+ * against baseline-services.json, so a regression anywhere on the checkout path fails the build.
+ * Runs in the services profile only, since it needs Docker and the packaged services.
+ */
+class LoadTestServicesIT {
+
+    private static final int PRODUCTS = 100;
+    private static final Duration ROUTES_TIMEOUT = Duration.ofMinutes(2);
+
+    // Paths every flow goes through; each must reach its service, not the gateway's fallback
+    private static final List<String> ROUTED_PATHS = List.of(
+            "/api/auth/login", "/api/products?page=0&size=1", "/api/carts", "/api/orders");
+
+    private static ServicesStack stack;
+
+    @BeforeAll
+    static void startServices() throws Exception {
+        stack = ServicesStack.start(PRODUCTS);
+        awaitRoutes(stack.gatewayUrl());
+    }
+
+    @AfterAll
+    static void stopServices() {
+        if (stack != null) {
+            stack.close();
+        }
+    }
+
+    @Test
+    void checkoutLatenciesStayWithinTheBaseline() throws Exception {
+        // Settings from load-test.properties and -D overrides, aimed at the gateway started here
+        Properties overrides = new Properties();
+        overrides.putAll(System.getProperties());
+        overrides.setProperty("load-test.base-url", stack.gatewayUrl().toString());
+
+        List<String> violations = LoadTestApplication.run(LoadTestSettings.load(overrides), new ObjectMapper());
+
+        assertThat(violations).isEmpty();
+    }
+
+    // The gateway answers 503 from its fallback until the registry has told it where a service is
+    private static void awaitRoutes(URI gatewayUrl) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + ROUTES_TIMEOUT.toNanos();
+        for (String path : ROUTED_PATHS) {
+            HttpRequest request = HttpRequest.newBuilder(gatewayUrl.resolve(path)).GET().build();
+            while (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 500) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Gateway still can't route " + path + " after " + ROUTES_TIMEOUT);
+                }
+                Thread.sleep(1000);
+            }
+        }
+    }
+}
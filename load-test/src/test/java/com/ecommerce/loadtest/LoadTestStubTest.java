@@ -0,0 +1,65 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the whole load test against the stub gateway: the flows complete, a baseline can be
+ * recorded and passed, a slower system fails the gate, and so does a missing baseline.
+ */
+class LoadTestStubTest {
+
+    private static final long STUB_LATENCY_MS = 20;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void runPassesAgainstItsOwnBaselineAndFailsWhenSlower() throws Exception {
+        Path baseline = dir.resolve("baseline.json");
+
+        assertThat(LoadTestApplication.run(settings(baseline, STUB_LATENCY_MS, true), objectMapper)).isEmpty();
+        assertThat(baseline).exists();
+
+        assertThat(LoadTestApplication.run(settings(baseline, STUB_LATENCY_MS, false), objectMapper)).isEmpty();
+
+        List<String> violations = LoadTestApplication.run(settings(baseline, STUB_LATENCY_MS * 5, false), objectMapper);
+        assertThat(violations).anyMatch(violation -> violation.startsWith("POST /api/orders: p50"));
+    }
+
+    @Test
+    void missingBaselineFailsTheRun() throws Exception {
+        Path baseline = dir.resolve("missing.json");
+
+        List<String> violations = LoadTestApplication.run(settings(baseline, STUB_LATENCY_MS, false), objectMapper);
+
+        assertThat(violations).singleElement().asString().startsWith("No baseline at");
+        assertThat(Files.exists(baseline)).isFalse();
+    }
+
+    private LoadTestSettings settings(Path baseline, long stubLatencyMs, boolean updateBaseline) {
+        Properties overrides = new Properties();
+        overrides.setProperty("load-test.stub", "true");
+        overrides.setProperty("load-test.stub.latency-ms", String.valueOf(stubLatencyMs));
+        overrides.setProperty("load-test.users", "20");
+        overrides.setProperty("load-test.warmup-seconds", "1");
+        overrides.setProperty("load-test.duration-seconds", "3");
+        // Generous: this checks the gate's wiring, and p99 of a few dozen samples can double on a busy
+        // machine; the slowed-down run is five times slower, well past it
+        overrides.setProperty("load-test.max-regression-percent", "200");
+        overrides.setProperty("load-test.baseline-file", baseline.toString());
+        overrides.setProperty("load-test.update-baseline", String.valueOf(updateBaseline));
+        overrides.setProperty("load-test.report-file", dir.resolve("report.json").toString());
+        return LoadTestSettings.load(overrides);
+    }
+}
@@ -0,0 +1,7 @@
+-- One database per service, as in a local setup; run by the Postgres container on first start
+CREATE DATABASE ecommerce_auth;
+CREATE DATABASE ecommerce_product;
+CREATE DATABASE ecommerce_cart;
+CREATE DATABASE ecommerce_order;
+CREATE DATABASE ecommerce_payment;
+CREATE DATABASE ecommerce_notification;
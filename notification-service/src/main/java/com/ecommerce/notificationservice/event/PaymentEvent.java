@@ -16,7 +16,7 @@ public class PaymentEvent {
     private String eventType;
     private LocalDateTime timestamp;
 
-    private Long paymentId;
+    private String paymentId;
     private Long orderId;
     private String orderNumber;
     private Long userId;
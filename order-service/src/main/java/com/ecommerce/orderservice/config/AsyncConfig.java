@@ -0,0 +1,25 @@
+package com.ecommerce.orderservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+/**
+ * Enables @Async. Work runs on Boot's applicationTaskExecutor, which switches to
+ * virtual threads together with Tomcat when spring.threads.virtual.enabled is true.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * Carries the caller's security context onto async tasks so downstream clients
+     * can still forward the user's JWT. Boot applies this decorator to applicationTaskExecutor.
+     */
+    @Bean
+    public TaskDecorator securityContextTaskDecorator() {
+        return DelegatingSecurityContextRunnable::new;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.orderservice.config;
+
+import com.ecommerce.common.idgen.IdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    /**
+     * Node IDs must be unique per running instance or IDs collide, so there is no derived fallback:
+     * startup fails until one is configured.
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${id-generator.node-id:-1}") long nodeId) {
+        if (nodeId < 0 || nodeId > IdGenerator.MAX_NODE_ID) {
+            throw new IllegalStateException("id-generator.node-id (ID_GENERATOR_NODE_ID) must be set to a value " +
+                    "between 0 and " + IdGenerator.MAX_NODE_ID + " that is unique per running instance, got " + nodeId);
+        }
+        return new IdGenerator(nodeId);
+    }
+}
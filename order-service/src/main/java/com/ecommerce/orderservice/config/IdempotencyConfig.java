@@ -0,0 +1,47 @@
+package com.ecommerce.orderservice.config;
+
+import com.ecommerce.common.idempotency.IdempotencyFilter;
+import com.ecommerce.common.idempotency.IdempotencyStore;
+import com.ecommerce.orderservice.dto.ErrorResponse;
+import com.ecommerce.orderservice.security.UserPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.time.Duration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyStore idempotencyStore(StringRedisTemplate redisTemplate,
+                                             ObjectMapper objectMapper,
+                                             @Value("${spring.application.name}") String applicationName,
+                                             @Value("${idempotency.lock-ttl:30s}") Duration lockTtl,
+                                             @Value("${idempotency.response-ttl:24h}") Duration responseTtl) {
+        return new IdempotencyStore(redisTemplate, objectMapper, applicationName, lockTtl, responseTtl);
+    }
+
+    /**
+     * Registered as a servlet filter after Spring Security, so the user is known
+     */
+    @Bean
+    public IdempotencyFilter idempotencyFilter(IdempotencyStore idempotencyStore,
+                                               // Lazy: filters are created before the MVC infrastructure
+                                               @Lazy @Qualifier("requestMappingHandlerMapping")
+                                               RequestMappingHandlerMapping handlerMapping,
+                                               ObjectMapper objectMapper,
+                                               MeterRegistry meterRegistry) {
+        return new IdempotencyFilter(idempotencyStore, handlerMapping, objectMapper, meterRegistry,
+                authentication -> authentication.getPrincipal() instanceof UserPrincipal principal
+                        ? principal.getId()
+                        : null,
+                (status, message, path) -> new ErrorResponse(status.value(), status.getReasonPhrase(), message, path));
+    }
+}
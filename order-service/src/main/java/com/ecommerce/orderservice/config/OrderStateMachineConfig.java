@@ -0,0 +1,70 @@
+package com.ecommerce.orderservice.config;
+
+import com.ecommerce.common.idgen.IdGenerator;
+import com.ecommerce.common.statemachine.StateMachine;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.entity.OrderStatus;
+import com.ecommerce.orderservice.event.OrderEvent;
+import com.ecommerce.orderservice.event.OrderEventOutbox;
+import com.ecommerce.orderservice.event.OrderTransitionEvent;
+import com.ecommerce.orderservice.event.ProductSalesPublisher;
+import com.ecommerce.orderservice.event.StockAdjustmentPublisher;
+import com.ecommerce.orderservice.exception.BadRequestException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.LocalDateTime;
+
+import static com.ecommerce.orderservice.entity.OrderStatus.*;
+
+@Configuration
+public class OrderStateMachineConfig {
+
+    @Bean
+    public StateMachine<OrderStatus, Order> orderStateMachine(OrderEventOutbox orderEventOutbox,
+                                                              StockAdjustmentPublisher stockAdjustmentPublisher,
+                                                              ProductSalesPublisher productSalesPublisher,
+                                                              ApplicationEventPublisher eventPublisher,
+                                                              IdGenerator idGenerator) {
+        return StateMachine.<OrderStatus, Order>builder(OrderStatus.class)
+                .state(Order::getStatus, Order::setStatus)
+
+                // Transition table
+                .permit(CREATED, PAID, CANCELLED)
+                .permit(PAID, PROCESSING, CANCELLED)
+                .permit(PROCESSING, SHIPPED, CANCELLED)
+                .permit(SHIPPED, DELIVERED)
+
+                // Side effects
+                .onTransition(CREATED, PAID, (order, from, to) -> stockAdjustmentPublisher.commit(order))
+                .onTransition(PAID, CANCELLED, (order, from, to) -> stockAdjustmentPublisher.restock(order))
+                .onTransition(PROCESSING, CANCELLED, (order, from, to) -> stockAdjustmentPublisher.restock(order))
+                .onTransition(CREATED, PAID, (order, from, to) -> productSalesPublisher.sold(order))
+                .onTransition(PAID, CANCELLED, (order, from, to) -> productSalesPublisher.returned(order))
+                .onTransition(PROCESSING, CANCELLED, (order, from, to) -> productSalesPublisher.returned(order))
+                .onEnter(SHIPPED, (order, from, to) -> {
+                    if (order.getTrackingNumber() == null || order.getTrackingNumber().isEmpty()) {
+                        order.setTrackingNumber(idGenerator.next("TRK"));
+                    }
+                })
+
+                // Every transition is recorded in the outbox and announced in-process; bulk updates
+                // write their outbox rows in SQL (OrderOutboxRepository.insertStatusEvents)
+                .fireListener((order, from, to) -> orderEventOutbox.record(order, OrderEvent.forStatus(to)))
+                .listener((order, from, to) -> eventPublisher.publishEvent(new OrderTransitionEvent(
+                        order.getId(), order.getUserId(), from, to, order.getTotalAmount(), LocalDateTime.now())))
+
+                .rejection(OrderStateMachineConfig::rejectTransition)
+                .build();
+    }
+
+    private static BadRequestException rejectTransition(OrderStatus from, OrderStatus to) {
+        return switch (from) {
+            case DELIVERED -> new BadRequestException("Cannot change status of a delivered order");
+            case CANCELLED -> new BadRequestException("Cannot change status of a cancelled order");
+            case REFUNDED -> new BadRequestException("Cannot change status of a refunded order");
+            default -> new BadRequestException("Invalid status transition from " + from + " to " + to);
+        };
+    }
+}
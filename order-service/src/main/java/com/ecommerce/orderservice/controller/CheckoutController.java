@@ -0,0 +1,73 @@
+package com.ecommerce.orderservice.controller;
+
+import com.ecommerce.orderservice.dto.CheckoutStatusDTO;
+import com.ecommerce.orderservice.dto.OrderCreateRequest;
+import com.ecommerce.orderservice.exception.BadRequestException;
+import com.ecommerce.orderservice.security.UserPrincipal;
+import com.ecommerce.orderservice.service.CheckoutService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+
+/**
+ * Asynchronous checkout: POST returns 202 with a checkout ID straight away, and the client polls
+ * the checkout or follows its events until it is COMPLETED (with the order ID) or FAILED.
+ */
+@RestController
+@RequestMapping("/api/orders/checkouts")
+@RequiredArgsConstructor
+@Slf4j
+public class CheckoutController {
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private final CheckoutService checkoutService;
+
+    @PostMapping
+    public ResponseEntity<CheckoutStatusDTO> submitCheckout(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody OrderCreateRequest orderRequest) {
+
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+
+        Long userId = principal.getId();
+        log.debug("Submitting checkout for user ID: {}", userId);
+
+        CheckoutStatusDTO checkout = checkoutService.submit(userId, orderRequest, idempotencyKey);
+
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(checkout.getCheckoutId())
+                .toUri();
+
+        return ResponseEntity.accepted().location(location).body(checkout);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CheckoutStatusDTO> getCheckout(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable String id) {
+
+        return ResponseEntity.ok(checkoutService.getCheckout(id, principal.getId()));
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCheckout(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @PathVariable String id) {
+
+        return checkoutService.subscribe(id, principal.getId());
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.orderservice.controller;
+
+import com.ecommerce.orderservice.dto.RevenueRollupDTO;
+import com.ecommerce.orderservice.dto.StatusRollupDTO;
+import com.ecommerce.orderservice.dto.TopProductDTO;
+import com.ecommerce.orderservice.entity.RollupGranularity;
+import com.ecommerce.orderservice.exception.BadRequestException;
+import com.ecommerce.orderservice.service.OrderAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/orders/admin/analytics")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderAnalyticsController {
+
+    private static final int MAX_TOP_PRODUCTS = 100;
+
+    private final OrderAnalyticsService analyticsService;
+
+    @GetMapping("/revenue")
+    public ResponseEntity<List<RevenueRollupDTO>> getRevenue(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        validateRange(from, to);
+        return ResponseEntity.ok(analyticsService.getRevenue(granularity, from, to));
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<List<StatusRollupDTO>> getStatusCounts(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        validateRange(from, to);
+        return ResponseEntity.ok(analyticsService.getStatusCounts(granularity, from, to));
+    }
+
+    @GetMapping("/top-products")
+    public ResponseEntity<List<TopProductDTO>> getTopProducts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (to.isBefore(from)) {
+            throw new BadRequestException("'to' must not be before 'from'");
+        }
+        if (limit < 1 || limit > MAX_TOP_PRODUCTS) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_TOP_PRODUCTS);
+        }
+        return ResponseEntity.ok(analyticsService.getTopProducts(from, to, limit));
+    }
+
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> backfill(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate before) {
+
+        if (before.isAfter(LocalDate.now())) {
+            throw new BadRequestException("'before' must not be after today");
+        }
+
+        log.info("Starting order rollup backfill for buckets before {}", before);
+        analyticsService.backfill(before.atStartOfDay());
+        return ResponseEntity.accepted().body(Map.of("before", before.toString()));
+    }
+
+    private static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (to.isBefore(from)) {
+            throw new BadRequestException("'to' must not be before 'from'");
+        }
+    }
+}
@@ -1,23 +1,33 @@
 package com.ecommerce.orderservice.controller;
 
+import com.ecommerce.common.idempotency.Idempotent;
 import com.ecommerce.orderservice.dto.*;
 import com.ecommerce.orderservice.entity.OrderStatus;
 import com.ecommerce.orderservice.security.UserPrincipal;
+import com.ecommerce.orderservice.exception.BadRequestException;
+import com.ecommerce.orderservice.service.OrderAnalyticsService;
 import com.ecommerce.orderservice.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -26,8 +36,14 @@ import java.net.URI;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderAnalyticsService orderAnalyticsService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${order.best-sellers.capacity:100}")
+    private int bestSellerCapacity;
 
     @PostMapping
+    @Idempotent
     public ResponseEntity<OrderDTO> createOrder(
             @AuthenticationPrincipal UserPrincipal principal,
             @Valid @RequestBody OrderCreateRequest orderRequest) {
@@ -46,15 +62,25 @@ public class OrderController {
         return ResponseEntity.created(location).body(createdOrder);
     }
 
+    @GetMapping("/best-sellers")
+    public ResponseEntity<List<TopProductDTO>> getBestSellers(
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (limit < 1 || limit > bestSellerCapacity) {
+            throw new BadRequestException("limit must be between 1 and " + bestSellerCapacity);
+        }
+        return ResponseEntity.ok(orderAnalyticsService.getBestSellers(limit));
+    }
+
     @GetMapping("/{id}")
-    @PreAuthorize("hasRole('ADMIN') or authentication.principal.id == @orderService.getOrderById(#id).userId")
+    @PreAuthorize("hasRole('ADMIN') or @orderSecurityService.isOrderOwner(#id, authentication.principal.id)")
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long id) {
         log.debug("Getting order by ID: {}", id);
         return ResponseEntity.ok(orderService.getOrderById(id));
     }
 
     @GetMapping("/number/{orderNumber}")
-    @PreAuthorize("hasRole('ADMIN') or authentication.principal.id == @orderService.getOrderByOrderNumber(#orderNumber).userId")
+    @PreAuthorize("hasRole('ADMIN') or @orderSecurityService.isOrderNumberOwner(#orderNumber, authentication.principal.id)")
     public ResponseEntity<OrderDTO> getOrderByNumber(@PathVariable String orderNumber) {
         log.debug("Getting order by number: {}", orderNumber);
         return ResponseEntity.ok(orderService.getOrderByOrderNumber(orderNumber));
@@ -77,6 +103,24 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getUserOrders(userId, pageable));
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<Page<OrderSummaryDTO>> getUserOrderSummaries(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir) {
+
+        Long userId = principal.getId();
+        log.debug("Getting order summaries for user ID: {}", userId);
+
+        Sort.Direction direction = Sort.Direction.fromString(sortDir);
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+
+        return ResponseEntity.ok(orderService.getUserOrderSummaries(userId, status, pageable));
+    }
+
     @GetMapping("/status/{status}")
     public ResponseEntity<Page<OrderDTO>> getUserOrdersByStatus(
             @AuthenticationPrincipal UserPrincipal principal,
@@ -125,8 +169,32 @@ public class OrderController {
         return ResponseEntity.ok(updatedOrder);
     }
 
+    @PostMapping(value = "/admin/status/batch", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> bulkUpdateStatus(
+            @Valid @RequestBody BulkStatusUpdateRequest request) {
+
+        log.debug("Bulk status update of {} orders to {}", request.getOrderIds().size(), request.getStatus());
+
+        // One NDJSON line per order, flushed as each chunk commits
+        StreamingResponseBody body = outputStream -> orderService.bulkUpdateStatus(request, result -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @PostMapping("/{id}/payment")
-    @PreAuthorize("authentication.principal.id == @orderService.getOrderById(#id).userId")
+    @Idempotent
+    @PreAuthorize("@orderSecurityService.isOrderOwner(#id, authentication.principal.id)")
     public ResponseEntity<OrderDTO> processPayment(
             @PathVariable Long id,
             @Valid @RequestBody OrderPaymentRequest paymentRequest) {
@@ -139,7 +207,7 @@ public class OrderController {
     }
 
     @PostMapping("/{id}/cancel")
-    @PreAuthorize("hasRole('ADMIN') or authentication.principal.id == @orderService.getOrderById(#id).userId")
+    @PreAuthorize("hasRole('ADMIN') or @orderSecurityService.isOrderOwner(#id, authentication.principal.id)")
     public ResponseEntity<OrderDTO> cancelOrder(
             @PathVariable Long id,
             @RequestParam(required = false) String reason) {
@@ -0,0 +1,31 @@
+package com.ecommerce.orderservice.dto;
+
+import com.ecommerce.orderservice.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome for one order of a bulk status update, streamed back as one NDJSON line.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateResult {
+
+    public static final String UPDATED = "UPDATED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INVALID_TRANSITION = "INVALID_TRANSITION";
+    // Status changed between validation and update
+    public static final String CONFLICT = "CONFLICT";
+
+    private Long orderId;
+
+    private String outcome;
+
+    private OrderStatus previousStatus;
+
+    private OrderStatus status;
+
+    private String trackingNumber;
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.orderservice.dto;
+
+import com.ecommerce.orderservice.entity.CheckoutStatus;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of an asynchronous checkout. Once COMPLETED, the order can be fetched by ID.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutStatusDTO {
+
+    private String checkoutId;
+
+    private CheckoutStatus status;
+
+    private Long orderId;
+
+    private String orderNumber;
+
+    private String errorMessage;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.orderservice.dto;
+
+import com.ecommerce.orderservice.entity.OrderStatus;
+
+/**
+ * ID and status only, for validating bulk transitions without loading orders.
+ */
+public interface OrderStatusView {
+
+    Long getId();
+
+    OrderStatus getStatus();
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.orderservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockResponse {
+
+    private Long id;
+
+    private String name;
+
+    private BigDecimal price;
+
+    private Integer stockQuantity;
+
+    private Boolean active;
+}
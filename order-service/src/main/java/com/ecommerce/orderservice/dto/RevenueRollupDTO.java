@@ -0,0 +1,31 @@
+package com.ecommerce.orderservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Revenue booked within one hour or day.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueRollupDTO {
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime bucketStart;
+
+    private long paidOrders;
+
+    private BigDecimal grossRevenue;
+
+    private long cancelledOrders;
+
+    private BigDecimal reversedRevenue;
+
+    private BigDecimal netRevenue;
+}
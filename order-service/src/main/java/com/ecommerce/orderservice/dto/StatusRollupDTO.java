@@ -0,0 +1,28 @@
+package com.ecommerce.orderservice.dto;
+
+import com.ecommerce.orderservice.entity.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Orders that entered a status within one hour or day.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusRollupDTO {
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime bucketStart;
+
+    private OrderStatus status;
+
+    private long orderCount;
+
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,24 @@
+package com.ecommerce.orderservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Units and revenue of one product over a range of days, read from the product sales rollup.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopProductDTO {
+
+    private Long productId;
+
+    private String productName;
+
+    private Long quantity;
+
+    private BigDecimal revenue;
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * An asynchronous checkout: accepted with 202, turned into an order by a checkout worker.
+ * Kept in the database so the result can be polled from any instance.
+ */
+@Entity
+@Table(name = "order_checkouts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Checkout {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    // Client-supplied; the same key from the same user returns the same checkout
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CheckoutStatus status = CheckoutStatus.QUEUED;
+
+    private Long orderId;
+
+    private String orderNumber;
+
+    private String errorMessage;
+
+    // Instance whose in-memory queue holds the checkout while it is queued or processing
+    private String ownerInstance;
+
+    // Extended by the owner while it is alive; the sweeper fails unfinished checkouts past it
+    @Column(nullable = false)
+    private LocalDateTime leaseExpiresAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,12 @@
+package com.ecommerce.orderservice.entity;
+
+public enum CheckoutStatus {
+    QUEUED,
+    PROCESSING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -13,7 +13,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Back the history pages: filter by owner or status, newest first
+        @Index(name = "idx_orders_user_id_created_at", columnList = "user_id, created_at"),
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at"),
+        @Index(name = "idx_orders_order_number", columnList = "order_number")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,8 +28,9 @@ public class Order {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    // Order number visible to customers
-    @Column(nullable = false, unique = true)
+    // Order number visible to customers. The partitioned table can't enforce uniqueness on a column
+    // that doesn't include created_at, so new orders claim their number in order_numbers
+    @Column(nullable = false)
     private String orderNumber;
 
     @Column(nullable = false)
@@ -0,0 +1,38 @@
+package com.ecommerce.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * An issued order number. orders is partitioned by created_at, so it can't hold a unique constraint
+ * on order_number alone; every new order claims its number here in the transaction that inserts it.
+ */
+@Entity
+@Table(name = "order_numbers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderNumber implements Persistable<String> {
+
+    @Id
+    private String orderNumber;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public String getId() {
+        return orderNumber;
+    }
+
+    // Always inserted, never updated: a taken number fails the insert instead of being merged
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
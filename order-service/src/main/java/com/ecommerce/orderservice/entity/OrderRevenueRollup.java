@@ -0,0 +1,50 @@
+package com.ecommerce.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Revenue booked within one hour or day: payments in, cancellations of paid orders out
+ */
+@Entity
+@Table(name = "order_revenue_rollups")
+@IdClass(OrderRevenueRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRevenueRollup {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private RollupGranularity granularity;
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private long paidOrders;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal grossRevenue = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private long cancelledOrders;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal reversedRevenue = BigDecimal.ZERO;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private RollupGranularity granularity;
+        private LocalDateTime bucketStart;
+    }
+}
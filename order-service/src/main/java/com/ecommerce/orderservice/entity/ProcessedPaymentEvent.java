@@ -0,0 +1,38 @@
+package com.ecommerce.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A payment event that has been applied to its order. Written in the same transaction as the
+ * order change, so a redelivered event is recognised and skipped.
+ */
+@Entity
+@Table(name = "processed_payment_events")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedPaymentEvent implements Persistable<String> {
+
+    @Id
+    private String eventId;
+
+    @Column(nullable = false)
+    private LocalDateTime processedAt;
+
+    @Override
+    public String getId() {
+        return eventId;
+    }
+
+    // Always inserted, never updated: lets save() persist without selecting the row first
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ecommerce.orderservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A batched stock change for one order, written in the same transaction as the payment or
+ * cancellation that causes it and sent to Product Service afterwards. Deleted once Product Service
+ * has applied it, so a row only exists while the change is still owed.
+ */
+@Entity
+@Table(name = "stock_adjustments", indexes = {
+        @Index(name = "idx_stock_adjustments_status_next_attempt_at", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // One per order and action; Product Service applies each key once
+    @Column(nullable = false, unique = true)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    // JSON array of {productId, quantity} with signed quantities
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String items;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StockAdjustmentStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Claiming a row moves this past the send, so another instance only retries it if this one died
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.orderservice.entity;
+
+public enum StockAdjustmentStatus {
+    // Waiting to be sent, or to be retried after a transient failure
+    PENDING,
+    // Rejected by Product Service; kept for manual reconciliation
+    FAILED
+}
@@ -0,0 +1,18 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class OrderBulkTransitionEvent {
+
+    private List<Long> orderIds;
+
+    private OrderStatus from;
+
+    private OrderStatus to;
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.orderservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class OrderCreatedEvent {
+
+    private Long orderId;
+
+    private Long userId;
+}
@@ -0,0 +1,68 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Payload published to the order-events topic; field names match notification-service's OrderEvent.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEvent {
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_PAID = "ORDER_PAID";
+    public static final String ORDER_CANCELLED = "ORDER_CANCELLED";
+
+    private String eventId;
+    private String eventType;
+    private LocalDateTime timestamp;
+
+    private Long orderId;
+    private String orderNumber;
+    private Long userId;
+    private String email;
+    private String phoneNumber;
+    private String status;
+    private BigDecimal totalAmount;
+    private List<OrderItemEvent> items;
+    private ShippingAddressEvent shippingAddress;
+    private String trackingNumber;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OrderItemEvent {
+        private Long productId;
+        private String productName;
+        private Integer quantity;
+        private BigDecimal price;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ShippingAddressEvent {
+        private String fullName;
+        private String addressLine1;
+        private String addressLine2;
+        private String city;
+        private String state;
+        private String postalCode;
+        private String country;
+    }
+
+    /**
+     * Event type for a status change, e.g. SHIPPED becomes ORDER_SHIPPED
+     */
+    public static String forStatus(OrderStatus status) {
+        return "ORDER_" + status.name();
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.entity.OrderAddress;
+import com.ecommerce.orderservice.entity.OrderOutboxEvent;
+import com.ecommerce.orderservice.repository.OrderOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class OrderEventOutbox {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Records an order event in the outbox. Must join the transaction that changed the order,
+     * so the event exists if and only if the change committed.
+     *
+     * @param order The order after the change
+     * @param eventType The event type, e.g. ORDER_CREATED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Order order, String eventType) {
+        OrderEvent event = buildOrderEvent(order, eventType);
+
+        OrderOutboxEvent outboxEvent = new OrderOutboxEvent();
+        outboxEvent.setAggregateId(String.valueOf(order.getId()));
+        outboxEvent.setEventType(eventType);
+        outboxEvent.setPayload(toJson(event));
+
+        outboxRepository.save(outboxEvent);
+    }
+
+    private OrderEvent buildOrderEvent(Order order, String eventType) {
+        OrderEvent event = new OrderEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setEventType(eventType);
+        event.setTimestamp(LocalDateTime.now());
+        event.setOrderId(order.getId());
+        event.setOrderNumber(order.getOrderNumber());
+        event.setUserId(order.getUserId());
+        event.setStatus(order.getStatus().name());
+        event.setTotalAmount(order.getTotalAmount());
+        event.setTrackingNumber(order.getTrackingNumber());
+
+        event.setItems(order.getItems().stream()
+                .map(item -> new OrderEvent.OrderItemEvent(
+                        item.getProductId(), item.getProductName(), item.getQuantity(), item.getPrice()))
+                .collect(Collectors.toList()));
+
+        OrderAddress address = order.getShippingAddress();
+        if (address != null) {
+            event.setPhoneNumber(address.getPhoneNumber());
+            event.setShippingAddress(new OrderEvent.ShippingAddressEvent(
+                    address.getFullName(), address.getAddressLine1(), address.getAddressLine2(),
+                    address.getCity(), address.getState(), address.getPostalCode(), address.getCountry()));
+        }
+
+        return event;
+    }
+
+    private String toJson(OrderEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize order event " + event.getEventId(), e);
+        }
+    }
+}
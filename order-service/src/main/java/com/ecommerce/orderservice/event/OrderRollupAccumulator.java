@@ -0,0 +1,156 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.entity.OrderStatus;
+import com.ecommerce.orderservice.entity.RollupGranularity;
+import com.ecommerce.orderservice.repository.OrderRevenueRollupRepository;
+import com.ecommerce.orderservice.repository.OrderStatusRollupRepository;
+import com.ecommerce.orderservice.repository.ProductSalesRollupRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Folds committed order transitions into in-memory deltas and periodically adds them to the rollup
+ * tables. Many transitions in the same bucket become one upsert, so busy hours never serialize
+ * order transactions on a hot rollup row. Deltas are additive, so every instance flushes its own.
+ * Deltas not yet flushed when an instance dies are lost; the backfill job rebuilds history.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderRollupAccumulator {
+
+    private final OrderStatusRollupRepository statusRollupRepository;
+    private final OrderRevenueRollupRepository revenueRollupRepository;
+    private final ProductSalesRollupRepository productSalesRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<StatusKey, StatusDelta> statusDeltas = new ConcurrentHashMap<>();
+    private final Map<RevenueKey, RevenueDelta> revenueDeltas = new ConcurrentHashMap<>();
+    private final Queue<ProductSale> productSales = new ConcurrentLinkedQueue<>();
+
+    private record StatusKey(RollupGranularity granularity, LocalDateTime bucketStart, OrderStatus status) {
+    }
+
+    private record StatusDelta(long orderCount, BigDecimal amount) {
+        StatusDelta plus(StatusDelta other) {
+            return new StatusDelta(orderCount + other.orderCount, amount.add(other.amount));
+        }
+    }
+
+    private record RevenueKey(RollupGranularity granularity, LocalDateTime bucketStart) {
+    }
+
+    private record RevenueDelta(long paidOrders, BigDecimal grossRevenue, long cancelledOrders,
+                                BigDecimal reversedRevenue) {
+        RevenueDelta plus(RevenueDelta other) {
+            return new RevenueDelta(paidOrders + other.paidOrders, grossRevenue.add(other.grossRevenue),
+                    cancelledOrders + other.cancelledOrders, reversedRevenue.add(other.reversedRevenue));
+        }
+    }
+
+    private record ProductSale(Long orderId, LocalDate bucketDate, int sign) {
+    }
+
+    private record ProductSaleKey(LocalDate bucketDate, int sign) {
+    }
+
+    /**
+     * Records one committed transition. Payments book revenue and product sales; cancelling a paid
+     * order reverses them in the bucket of the cancellation.
+     */
+    public void record(OrderTransitionEvent event) {
+        BigDecimal amount = event.getTotalAmount() != null ? event.getTotalAmount() : BigDecimal.ZERO;
+        boolean paid = event.getTo() == OrderStatus.PAID;
+        boolean reversed = event.getTo() == OrderStatus.CANCELLED
+                && (event.getFrom() == OrderStatus.PAID || event.getFrom() == OrderStatus.PROCESSING);
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            LocalDateTime bucketStart = granularity.bucketOf(event.getOccurredAt());
+
+            statusDeltas.merge(new StatusKey(granularity, bucketStart, event.getTo()),
+                    new StatusDelta(1, amount), StatusDelta::plus);
+
+            if (paid) {
+                revenueDeltas.merge(new RevenueKey(granularity, bucketStart),
+                        new RevenueDelta(1, amount, 0, BigDecimal.ZERO), RevenueDelta::plus);
+            } else if (reversed) {
+                revenueDeltas.merge(new RevenueKey(granularity, bucketStart),
+                        new RevenueDelta(0, BigDecimal.ZERO, 1, amount), RevenueDelta::plus);
+            }
+        }
+
+        if (paid || reversed) {
+            productSales.add(new ProductSale(event.getOrderId(), event.getOccurredAt().toLocalDate(), paid ? 1 : -1));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.analytics.flush-interval-ms:1000}")
+    public void flush() {
+        // 1. Take the pending deltas; remove() hands each key's value to exactly one flusher
+        Map<StatusKey, StatusDelta> statuses = drain(statusDeltas);
+        Map<RevenueKey, RevenueDelta> revenue = drain(revenueDeltas);
+        Map<ProductSaleKey, List<Long>> sales = new HashMap<>();
+        List<ProductSale> drainedSales = new ArrayList<>();
+        for (ProductSale sale; (sale = productSales.poll()) != null; ) {
+            drainedSales.add(sale);
+            sales.computeIfAbsent(new ProductSaleKey(sale.bucketDate(), sale.sign()), key -> new ArrayList<>())
+                    .add(sale.orderId());
+        }
+
+        if (statuses.isEmpty() && revenue.isEmpty() && sales.isEmpty()) {
+            return;
+        }
+
+        // 2. Apply them as additive upserts in one transaction
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                statuses.forEach((key, delta) -> statusRollupRepository.increment(key.granularity().name(),
+                        key.bucketStart(), key.status().name(), delta.orderCount(), delta.amount()));
+                revenue.forEach((key, delta) -> revenueRollupRepository.increment(key.granularity().name(),
+                        key.bucketStart(), delta.paidOrders(), delta.grossRevenue(),
+                        delta.cancelledOrders(), delta.reversedRevenue()));
+                sales.forEach((key, orderIds) -> productSalesRollupRepository.incrementFromOrders(
+                        key.bucketDate(), orderIds, key.sign()));
+            });
+            log.debug("Flushed {} status, {} revenue and {} product sale deltas",
+                    statuses.size(), revenue.size(), drainedSales.size());
+        } catch (Exception e) {
+            // 3. Put everything back so the next flush retries it
+            log.warn("Failed to flush order rollups, retrying on next flush", e);
+            statuses.forEach((key, delta) -> statusDeltas.merge(key, delta, StatusDelta::plus));
+            revenue.forEach((key, delta) -> revenueDeltas.merge(key, delta, RevenueDelta::plus));
+            productSales.addAll(drainedSales);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static <K, V> Map<K, V> drain(Map<K, V> deltas) {
+        Map<K, V> drained = new HashMap<>();
+        for (K key : deltas.keySet()) {
+            V delta = deltas.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+        return drained;
+    }
+}
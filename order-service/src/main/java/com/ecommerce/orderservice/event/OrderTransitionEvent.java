@@ -0,0 +1,29 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * In-process notification of an order status change, emitted by the order state machine.
+ */
+@Data
+@AllArgsConstructor
+public class OrderTransitionEvent {
+
+    private Long orderId;
+
+    private Long userId;
+
+    // Null when the order was just created
+    private OrderStatus from;
+
+    private OrderStatus to;
+
+    private BigDecimal totalAmount;
+
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,30 @@
+package com.ecommerce.orderservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payload read from the payment-events topic; field names match payment-service's PaymentEvent.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEvent {
+
+    private String eventId;
+    private String eventType;
+    private LocalDateTime timestamp;
+
+    private String paymentId;
+    private String orderNumber;
+    private Long userId;
+    private String status;
+    private BigDecimal amount;
+    private String currency;
+    private String paymentMethod;
+    private String transactionId;
+}
@@ -0,0 +1,172 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.dto.TopProductDTO;
+import com.ecommerce.orderservice.repository.ProductSalesRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-product sales counters kept in memory and flushed periodically to product_sales.
+ * <p>
+ * Payments only bump LongAdders, which stripe contended updates across cells, so concurrent
+ * checkouts of the same product never serialize. The flush upserts each product's delta and
+ * gets back its new all-time totals, which feed a bounded min-heap of best sellers; readers get
+ * an immutable snapshot of that heap. The heap is reseeded from product_sales on a schedule to
+ * pick up products that only other instances have sold and to recover from cancellations
+ * pushing a product out of the top.
+ */
+@Component
+@Slf4j
+public class ProductSalesCounter {
+
+    private static final Comparator<TopProductDTO> BY_QUANTITY =
+            Comparator.comparing(TopProductDTO::getQuantity).thenComparing(TopProductDTO::getProductId,
+                    Comparator.reverseOrder());
+
+    private final ProductSalesRepository productSalesRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+
+    private final Map<Long, SalesCounter> counters = new ConcurrentHashMap<>();
+
+    // Guarded by this: the best sellers, least-selling on top of the heap
+    private final Map<Long, TopProductDTO> ranked = new HashMap<>();
+    private final PriorityQueue<TopProductDTO> rankedHeap = new PriorityQueue<>(BY_QUANTITY);
+
+    private volatile List<TopProductDTO> bestSellers = List.of();
+
+    private static class SalesCounter {
+        final LongAdder quantity = new LongAdder();
+        final LongAdder revenueCents = new LongAdder();
+        volatile String productName;
+    }
+
+    public ProductSalesCounter(ProductSalesRepository productSalesRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${order.best-sellers.capacity:100}") int capacity) {
+        this.productSalesRepository = productSalesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.capacity = capacity;
+    }
+
+    public void record(ProductSalesEvent event) {
+        for (ProductSalesEvent.Line line : event.getLines()) {
+            SalesCounter counter = counters.computeIfAbsent(line.getProductId(), id -> new SalesCounter());
+            counter.productName = line.getProductName();
+            counter.quantity.add(line.getQuantity());
+            counter.revenueCents.add(toCents(line.getRevenue()));
+        }
+    }
+
+    /**
+     * The current best sellers by units, read from the last snapshot without locking
+     *
+     * @param limit The maximum number of products, at most the configured capacity
+     */
+    public List<TopProductDTO> getBestSellers(int limit) {
+        List<TopProductDTO> snapshot = bestSellers;
+        return snapshot.subList(0, Math.min(limit, snapshot.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${order.best-sellers.flush-interval-ms:5000}")
+    public void flush() {
+        // 1. Take each product's delta; sumThenReset keeps adds that race with the reset
+        Map<Long, long[]> deltas = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        counters.forEach((productId, counter) -> {
+            long quantity = counter.quantity.sumThenReset();
+            long revenueCents = counter.revenueCents.sumThenReset();
+            if (quantity != 0 || revenueCents != 0) {
+                deltas.put(productId, new long[]{quantity, revenueCents});
+                names.put(productId, counter.productName);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // 2. Upsert them and collect the new totals
+        List<TopProductDTO> totals = new ArrayList<>(deltas.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> deltas.forEach((productId, delta) -> {
+                for (Object[] row : productSalesRepository.increment(productId, names.get(productId),
+                        delta[0], BigDecimal.valueOf(delta[1], 2))) {
+                    totals.add(new TopProductDTO(((Number) row[0]).longValue(), (String) row[1],
+                            ((Number) row[2]).longValue(), (BigDecimal) row[3]));
+                }
+            }));
+        } catch (Exception e) {
+            // Put the deltas back so the next flush retries them
+            log.warn("Failed to flush sales counters for {} products, retrying on next flush", deltas.size(), e);
+            deltas.forEach((productId, delta) -> {
+                SalesCounter counter = counters.get(productId);
+                counter.quantity.add(delta[0]);
+                counter.revenueCents.add(delta[1]);
+            });
+            return;
+        }
+
+        // 3. Fold the new totals into the best-seller heap
+        synchronized (this) {
+            totals.forEach(this::offer);
+            publishSnapshot();
+        }
+        log.debug("Flushed sales counters for {} products", totals.size());
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${order.best-sellers.reseed-interval-ms:300000}")
+    public void reseed() {
+        List<TopProductDTO> top = productSalesRepository.findTopByQuantity(PageRequest.of(0, capacity));
+        synchronized (this) {
+            ranked.clear();
+            rankedHeap.clear();
+            top.forEach(this::offer);
+            publishSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void offer(TopProductDTO total) {
+        TopProductDTO previous = ranked.remove(total.getProductId());
+        if (previous != null) {
+            rankedHeap.remove(previous);
+        } else if (ranked.size() >= capacity) {
+            if (BY_QUANTITY.compare(total, rankedHeap.peek()) <= 0) {
+                return;
+            }
+            ranked.remove(rankedHeap.poll().getProductId());
+        }
+        ranked.put(total.getProductId(), total);
+        rankedHeap.add(total);
+    }
+
+    private void publishSnapshot() {
+        List<TopProductDTO> snapshot = new ArrayList<>(rankedHeap);
+        snapshot.sort(BY_QUANTITY.reversed());
+        bestSellers = List.copyOf(snapshot);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
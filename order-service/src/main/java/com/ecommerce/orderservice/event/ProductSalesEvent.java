@@ -0,0 +1,36 @@
+package com.ecommerce.orderservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Items of an order that was paid (positive) or cancelled after payment (negative),
+ * counted towards product sales once the transition commits.
+ */
+@Data
+@AllArgsConstructor
+public class ProductSalesEvent {
+
+    private Long orderId;
+
+    private List<Line> lines;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+
+        private Long productId;
+
+        private String productName;
+
+        // Signed: negative when a paid order is cancelled
+        private int quantity;
+
+        private BigDecimal revenue;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.entity.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+public class ProductSalesPublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Counts the order's items as sold once the payment commits
+     */
+    public void sold(Order order) {
+        publish(order, 1);
+    }
+
+    /**
+     * Takes the order's items back off the sales counters once the cancellation commits
+     */
+    public void returned(Order order) {
+        publish(order, -1);
+    }
+
+    private void publish(Order order, int sign) {
+        eventPublisher.publishEvent(new ProductSalesEvent(order.getId(), order.getItems().stream()
+                .map(item -> new ProductSalesEvent.Line(item.getProductId(), item.getProductName(),
+                        sign * item.getQuantity(),
+                        sign > 0 ? item.getSubtotal() : item.getSubtotal().negate()))
+                .collect(Collectors.toList())));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecommerce.orderservice.event;
+
+import com.ecommerce.orderservice.dto.StockAdjustmentRequest;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.entity.OrderStatus;
+import com.ecommerce.orderservice.repository.StockAdjustmentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class StockAdjustmentPublisher {
+
+    private static final String COMMIT = "commit";
+    private static final String RESTOCK = "restock";
+
+    private final StockAdjustmentRepository stockAdjustmentRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Queues the sale of the order's items; StockAdjustmentSender sends it to Product Service
+     * after commit
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void commit(Order order) {
+        record(order, COMMIT, -1);
+    }
+
+    /**
+     * Queues the return of the order's items to inventory; StockAdjustmentSender sends it to
+     * Product Service after commit
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restock(Order order) {
+        record(order, RESTOCK, 1);
+    }
+
+    /**
+     * Queues the stock changes of orders moved by a set-based update, in that update's transaction.
+     * Mirrors the stock actions in OrderStateMachineConfig; the bulk fan-out runs them again later,
+     * which finds the adjustments already queued.
+     *
+     * @param orderIds The IDs of the orders the update moved
+     * @param from Their status before the update
+     * @param to Their status after the update
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBulk(Collection<Long> orderIds, OrderStatus from, OrderStatus to) {
+        if (from == OrderStatus.CREATED && to == OrderStatus.PAID) {
+            stockAdjustmentRepository.insertForOrders(orderIds, COMMIT, -1);
+        } else if ((from == OrderStatus.PAID || from == OrderStatus.PROCESSING) && to == OrderStatus.CANCELLED) {
+            stockAdjustmentRepository.insertForOrders(orderIds, RESTOCK, 1);
+        }
+    }
+
+    // Written in the order's transaction, so the adjustment exists if and only if the change committed
+    private void record(Order order, String action, int sign) {
+        List<StockAdjustmentRequest.Item> items = order.getItems().stream()
+                .map(item -> new StockAdjustmentRequest.Item(item.getProductId(), sign * item.getQuantity()))
+                .toList();
+
+        // One key per order and action, so retries and replays apply the change once
+        stockAdjustmentRepository.insertIfAbsent(idempotencyKey(order.getId(), action), order.getId(), toJson(items));
+    }
+
+    private static String idempotencyKey(Long orderId, String action) {
+        return "order-" + orderId + "-" + action;
+    }
+
+    private String toJson(List<StockAdjustmentRequest.Item> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize stock adjustment items", e);
+        }
+    }
+}
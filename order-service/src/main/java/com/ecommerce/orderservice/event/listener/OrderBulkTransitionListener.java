@@ -0,0 +1,52 @@
+package com.ecommerce.orderservice.event.listener;
+
+import com.ecommerce.common.statemachine.StateMachine;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.entity.OrderStatus;
+import com.ecommerce.orderservice.event.OrderBulkTransitionEvent;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBulkTransitionListener {
+
+    private final OrderRepository orderRepository;
+    private final StateMachine<OrderStatus, Order> orderStateMachine;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${order.bulk.fan-out-chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Runs the per-order actions and transition events for a committed bulk update, one chunk per
+     * transaction so a large batch never holds one long transaction. Outbox rows are not written
+     * here; the bulk update inserted them in its own transaction.
+     */
+    @Async
+    @TransactionalEventListener
+    public void onBulkTransition(OrderBulkTransitionEvent event) {
+        List<Long> orderIds = event.getOrderIds();
+        log.debug("Fanning out {} bulk transitions from {} to {}", orderIds.size(), event.getFrom(), event.getTo());
+
+        for (int start = 0; start < orderIds.size(); start += chunkSize) {
+            List<Long> chunk = orderIds.subList(start, Math.min(start + chunkSize, orderIds.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        orderRepository.findWithDetailsByIdIn(chunk).forEach(order ->
+                                orderStateMachine.afterBulkTransition(order, event.getFrom(), event.getTo())));
+            } catch (Exception e) {
+                log.error("Failed to fan out bulk transition for order IDs {} to {}", chunk, event.getTo(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.orderservice.event.listener;
+
+import com.ecommerce.orderservice.event.OrderCreatedEvent;
+import com.ecommerce.orderservice.service.CartServiceClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderCreatedListener {
+
+    private final CartServiceClient cartServiceClient;
+
+    /**
+     * Clears the user's cart once the order is committed, off the request thread.
+     * A failure here only leaves stale items in the cart; the order itself is already durable.
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        log.debug("Clearing cart for user ID: {} after order ID: {}", event.getUserId(), event.getOrderId());
+        cartServiceClient.clearCart(event.getUserId());
+    }
+}
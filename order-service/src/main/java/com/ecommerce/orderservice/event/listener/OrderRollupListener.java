@@ -0,0 +1,23 @@
+package com.ecommerce.orderservice.event.listener;
+
+import com.ecommerce.orderservice.event.OrderRollupAccumulator;
+import com.ecommerce.orderservice.event.OrderTransitionEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+public class OrderRollupListener {
+
+    private final OrderRollupAccumulator rollupAccumulator;
+
+    /**
+     * Counts a transition towards the analytics rollups once it is committed.
+     * Recording is an in-memory merge, so it runs inline rather than on the async executor.
+     */
+    @TransactionalEventListener
+    public void onOrderTransition(OrderTransitionEvent event) {
+        rollupAccumulator.record(event);
+    }
+}
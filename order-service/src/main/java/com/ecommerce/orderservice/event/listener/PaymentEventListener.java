@@ -0,0 +1,69 @@
+package com.ecommerce.orderservice.event.listener;
+
+import com.ecommerce.orderservice.event.PaymentEvent;
+import com.ecommerce.orderservice.service.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies payment-service's payment events to orders, one database transaction per poll.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentEventListener {
+
+    private final OrderService orderService;
+
+    @KafkaListener(topics = "${kafka.topics.payment-events}", groupId = "${spring.kafka.consumer.group-id}")
+    public void handlePaymentEvents(List<ConsumerRecord<String, PaymentEvent>> records) {
+        log.debug("Received {} payment events", records.size());
+
+        List<PaymentEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, PaymentEvent> record : records) {
+            PaymentEvent event = record.value();
+            // Unreadable payloads arrive as null from the ErrorHandlingDeserializer; retrying won't fix them
+            if (!isReadable(event)) {
+                log.warn("Skipping unreadable payment event at {}-{}@{}", record.topic(), record.partition(),
+                        record.offset());
+                continue;
+            }
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try {
+            orderService.applyPaymentEvents(events);
+            return;
+        } catch (Exception e) {
+            log.warn("Failed to apply {} payment events together, applying them one by one: {}",
+                    events.size(), e.getMessage());
+        }
+
+        // Isolate the failing event: those before it commit, and the error handler retries from it
+        for (int i = 0; i < records.size(); i++) {
+            PaymentEvent event = records.get(i).value();
+            if (!isReadable(event)) {
+                continue;
+            }
+            try {
+                orderService.applyPaymentEvents(List.of(event));
+            } catch (Exception e) {
+                throw new BatchListenerFailedException("Failed to apply payment event " + event.getEventId(), e, i);
+            }
+        }
+    }
+
+    private static boolean isReadable(PaymentEvent event) {
+        return event != null && event.getEventId() != null && event.getOrderNumber() != null;
+    }
+}
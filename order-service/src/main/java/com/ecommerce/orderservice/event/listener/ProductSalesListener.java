@@ -0,0 +1,22 @@
+package com.ecommerce.orderservice.event.listener;
+
+import com.ecommerce.orderservice.event.ProductSalesCounter;
+import com.ecommerce.orderservice.event.ProductSalesEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+public class ProductSalesListener {
+
+    private final ProductSalesCounter productSalesCounter;
+
+    /**
+     * Bumps the in-memory sales counters once the payment or cancellation is committed
+     */
+    @TransactionalEventListener
+    public void onProductSales(ProductSalesEvent event) {
+        productSalesCounter.record(event);
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.entity.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    /**
+     * Inserts an archived order without the select-before-insert that save() does for assigned IDs.
+     * An order that is already archived is left as it is.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_archive.orders " +
+            "(id, order_number, user_id, status, created_at, archived_at, payload) " +
+            "VALUES (:id, :orderNumber, :userId, :status, :createdAt, :archivedAt, :payload) " +
+            "ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    void insert(@Param("id") Long id, @Param("orderNumber") String orderNumber, @Param("userId") Long userId,
+                @Param("status") String status, @Param("createdAt") LocalDateTime createdAt,
+                @Param("archivedAt") LocalDateTime archivedAt, @Param("payload") byte[] payload);
+
+    Optional<ArchivedOrder> findByOrderNumber(String orderNumber);
+
+    @Query("SELECT a.userId FROM ArchivedOrder a WHERE a.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    @Query("SELECT a.userId FROM ArchivedOrder a WHERE a.orderNumber = :orderNumber")
+    Optional<Long> findUserIdByOrderNumber(@Param("orderNumber") String orderNumber);
+}
@@ -0,0 +1,102 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.entity.Checkout;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CheckoutRepository extends JpaRepository<Checkout, String> {
+
+    Optional<Checkout> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /**
+     * Claims a queued checkout for a worker
+     *
+     * @param id The checkout ID
+     * @return 1 if the checkout was still queued, 0 if it was swept in the meantime
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Checkout c SET c.status = com.ecommerce.orderservice.entity.CheckoutStatus.PROCESSING, " +
+            "c.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE c.id = :id AND c.status = com.ecommerce.orderservice.entity.CheckoutStatus.QUEUED")
+    int markProcessing(@Param("id") String id);
+
+    /**
+     * Records the order a checkout created. Only an unfinished checkout is completed, so a
+     * checkout the sweeper has already failed keeps its final state.
+     *
+     * @param id The checkout ID
+     * @param orderId The created order's ID
+     * @param orderNumber The created order's number
+     * @return 1 if the checkout was completed, 0 if it had already finished
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Checkout c SET c.status = com.ecommerce.orderservice.entity.CheckoutStatus.COMPLETED, " +
+            "c.orderId = :orderId, c.orderNumber = :orderNumber, c.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE c.id = :id AND c.status IN (com.ecommerce.orderservice.entity.CheckoutStatus.QUEUED, " +
+            "com.ecommerce.orderservice.entity.CheckoutStatus.PROCESSING)")
+    int markCompleted(@Param("id") String id, @Param("orderId") Long orderId,
+                      @Param("orderNumber") String orderNumber);
+
+    /**
+     * Records why a checkout failed. Only an unfinished checkout is failed.
+     *
+     * @param id The checkout ID
+     * @param errorMessage The message shown to the client
+     * @return 1 if the checkout was failed, 0 if it had already finished
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Checkout c SET c.status = com.ecommerce.orderservice.entity.CheckoutStatus.FAILED, " +
+            "c.errorMessage = :errorMessage, c.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE c.id = :id AND c.status IN (com.ecommerce.orderservice.entity.CheckoutStatus.QUEUED, " +
+            "com.ecommerce.orderservice.entity.CheckoutStatus.PROCESSING)")
+    int markFailed(@Param("id") String id, @Param("errorMessage") String errorMessage);
+
+    /**
+     * Extends the lease on every unfinished checkout an instance owns, showing that the instance
+     * and its in-memory queue are still alive
+     *
+     * @param ownerInstance The owning instance
+     * @param leaseExpiresAt The new lease expiry
+     * @return The number of checkouts renewed
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Checkout c SET c.leaseExpiresAt = :leaseExpiresAt " +
+            "WHERE c.ownerInstance = :ownerInstance " +
+            "AND c.status IN (com.ecommerce.orderservice.entity.CheckoutStatus.QUEUED, " +
+            "com.ecommerce.orderservice.entity.CheckoutStatus.PROCESSING)")
+    int renewLeases(@Param("ownerInstance") String ownerInstance,
+                    @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Fails checkouts whose owner stopped renewing their lease: the instance died, and the
+     * checkouts in its in-memory queue with it
+     *
+     * @param now The current time
+     * @param errorMessage The message shown to the client
+     * @return The number of checkouts failed
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Checkout c SET c.status = com.ecommerce.orderservice.entity.CheckoutStatus.FAILED, " +
+            "c.errorMessage = :errorMessage, c.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE c.status IN (com.ecommerce.orderservice.entity.CheckoutStatus.QUEUED, " +
+            "com.ecommerce.orderservice.entity.CheckoutStatus.PROCESSING) AND c.leaseExpiresAt < :now")
+    int failExpired(@Param("now") LocalDateTime now, @Param("errorMessage") String errorMessage);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Checkout c WHERE c.updatedAt < :before")
+    int deleteUpdatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.common.outbox.OutboxStore;
+import com.ecommerce.orderservice.entity.OrderOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long>,
+        OutboxStore<OrderOutboxEvent> {
+
+    /**
+     * Takes or renews the relay lease so only one instance publishes at a time,
+     * which keeps per-order ordering intact across nodes
+     *
+     * @return 1 if the instance holds the lease, 0 if another instance does
+     */
+    @Modifying
+    @Query(value = "INSERT INTO outbox_relay_leases (relay, owner, leased_until) " +
+            "VALUES (:relay, :owner, :leasedUntil) " +
+            "ON CONFLICT (relay) DO UPDATE SET owner = EXCLUDED.owner, leased_until = EXCLUDED.leased_until " +
+            "WHERE outbox_relay_leases.owner = EXCLUDED.owner OR outbox_relay_leases.leased_until < :now",
+            nativeQuery = true)
+    int acquireRelayLease(@Param("relay") String relay,
+                          @Param("owner") String owner,
+                          @Param("now") LocalDateTime now,
+                          @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    /**
+     * Finds the oldest unpublished events by ID, which is insert order rather than commit order;
+     * see {@link OutboxStore#findUnpublished(int)}
+     *
+     * @param limit The maximum number of events to return
+     * @return Unpublished events ordered by ID
+     */
+    @Query(value = "SELECT * FROM order_outbox WHERE published_at IS NULL ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<OrderOutboxEvent> findUnpublished(@Param("limit") int limit);
+
+    /**
+     * Set-based counterpart of {@code OrderEventOutbox.record} for orders moved by a bulk update.
+     * Builds the same JSON payload in SQL so the rows are written in the transaction of the update.
+     *
+     * @param ids The IDs of the orders the bulk update moved
+     * @param eventType The event type, e.g. ORDER_SHIPPED
+     * @return The number of outbox rows written
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_outbox (aggregate_id, event_type, payload, created_at) " +
+            "SELECT CAST(o.id AS varchar), :eventType, CAST(json_build_object(" +
+            "'eventId', CAST(gen_random_uuid() AS varchar), " +
+            "'eventType', CAST(:eventType AS varchar), " +
+            "'timestamp', to_char(localtimestamp, 'YYYY-MM-DD\"T\"HH24:MI:SS.US'), " +
+            "'orderId', o.id, 'orderNumber', o.order_number, 'userId', o.user_id, " +
+            "'email', NULL, 'phoneNumber', a.phone_number, 'status', o.status, " +
+            "'totalAmount', o.total_amount, " +
+            "'items', COALESCE((SELECT json_agg(json_build_object('productId', i.product_id, " +
+            "'productName', i.product_name, 'quantity', i.quantity, 'price', i.price) ORDER BY i.id) " +
+            "FROM order_items i WHERE i.order_id = o.id), CAST('[]' AS json)), " +
+            "'shippingAddress', CASE WHEN a.id IS NULL THEN NULL ELSE json_build_object(" +
+            "'fullName', a.full_name, 'addressLine1', a.address_line1, 'addressLine2', a.address_line2, " +
+            "'city', a.city, 'state', a.state, 'postalCode', a.postal_code, 'country', a.country) END, " +
+            "'trackingNumber', o.tracking_number) AS text), localtimestamp " +
+            "FROM orders o LEFT JOIN order_addresses a ON a.id = o.shipping_address_id " +
+            "WHERE o.id IN (:ids) ORDER BY o.id", nativeQuery = true)
+    int insertStatusEvents(@Param("ids") Collection<Long> ids, @Param("eventType") String eventType);
+
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    long countByPublishedAtIsNull();
+
+    @Query("SELECT MIN(e.createdAt) FROM OrderOutboxEvent e WHERE e.publishedAt IS NULL")
+    LocalDateTime findOldestUnpublishedCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM OrderOutboxEvent e WHERE e.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
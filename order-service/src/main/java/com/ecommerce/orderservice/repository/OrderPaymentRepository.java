@@ -2,8 +2,12 @@ package com.ecommerce.orderservice.repository;
 
 import com.ecommerce.orderservice.entity.OrderPayment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +17,8 @@ public interface OrderPaymentRepository extends JpaRepository<OrderPayment, Long
     List<OrderPayment> findByOrderId(Long orderId);
 
     Optional<OrderPayment> findByTransactionId(String transactionId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM OrderPayment p WHERE p.order.id IN :orderIds")
+    int deleteByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 }
\ No newline at end of file
@@ -1,13 +1,20 @@
 package com.ecommerce.orderservice.repository;
 
+import com.ecommerce.orderservice.dto.OrderStatusView;
+import com.ecommerce.orderservice.dto.OrderSummaryDTO;
 import com.ecommerce.orderservice.entity.Order;
 import com.ecommerce.orderservice.entity.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +25,8 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Optional<Order> findByOrderNumber(String orderNumber);
 
+    List<Order> findByOrderNumberIn(Collection<String> orderNumbers);
+
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
 
     Page<Order> findByUserIdAndStatus(Long userId, OrderStatus status, Pageable pageable);
@@ -27,4 +36,158 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     long countByStatus(OrderStatus status);
 
     long countByUserIdAndStatus(Long userId, OrderStatus status);
-}
\ No newline at end of file
+
+    /**
+     * Finds only the owner of an order, for authorization checks
+     *
+     * @param id The order ID
+     * @return The owning user's ID, if the order exists
+     */
+    @Query("SELECT o.userId FROM Order o WHERE o.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
+    /**
+     * Finds only the owner of an order by its number, for authorization checks
+     *
+     * @param orderNumber The customer-facing order number
+     * @return The owning user's ID, if the order exists
+     */
+    @Query("SELECT o.userId FROM Order o WHERE o.orderNumber = :orderNumber")
+    Optional<Long> findUserIdByOrderNumber(@Param("orderNumber") String orderNumber);
+
+    // Two-step history paging: page over IDs only (index-backed), then fetch that page's graphs
+
+    @Query(value = "SELECT o.id FROM Order o WHERE o.userId = :userId",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId")
+    Page<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = "SELECT o.id FROM Order o WHERE o.userId = :userId AND o.status = :status",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId AND o.status = :status")
+    Page<Long> findIdsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") OrderStatus status,
+                                        Pageable pageable);
+
+    @Query(value = "SELECT o.id FROM Order o WHERE o.status = :status",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status")
+    Page<Long> findIdsByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    /**
+     * Loads orders with their items and both addresses in one query.
+     * Payments are a second bag and are fetched separately by {@link #fetchPaymentsByIdIn}.
+     *
+     * @param ids The order IDs
+     * @return The orders, in no particular order
+     */
+    @Query("SELECT DISTINCT o FROM Order o " +
+            "LEFT JOIN FETCH o.items " +
+            "LEFT JOIN FETCH o.shippingAddress " +
+            "LEFT JOIN FETCH o.billingAddress " +
+            "WHERE o.id IN :ids")
+    List<Order> findWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Initializes payments on orders already loaded in the current persistence context
+     *
+     * @param ids The order IDs
+     * @return The same orders with payments initialized
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.payments WHERE o.id IN :ids")
+    List<Order> fetchPaymentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Summary projections for history screens that don't need order detail
+
+    @Query(value = "SELECT new com.ecommerce.orderservice.dto.OrderSummaryDTO(" +
+            "o.id, o.orderNumber, o.status, o.totalAmount, o.paymentStatus, o.trackingNumber, " +
+            "SIZE(o.items), o.createdAt) FROM Order o WHERE o.userId = :userId",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId")
+    Page<OrderSummaryDTO> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = "SELECT new com.ecommerce.orderservice.dto.OrderSummaryDTO(" +
+            "o.id, o.orderNumber, o.status, o.totalAmount, o.paymentStatus, o.trackingNumber, " +
+            "SIZE(o.items), o.createdAt) FROM Order o WHERE o.userId = :userId AND o.status = :status",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId AND o.status = :status")
+    Page<OrderSummaryDTO> findSummariesByUserIdAndStatus(@Param("userId") Long userId,
+                                                         @Param("status") OrderStatus status,
+                                                         Pageable pageable);
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    LocalDateTime findMinCreatedAt();
+
+    /**
+     * Oldest finished orders eligible for archival
+     *
+     * @param statuses The final statuses to archive
+     * @param cutoff Only orders created and last changed before this time, so every transition of an
+     *               archived order happened before it
+     * @param pageable Limits the batch size
+     * @return Order IDs, oldest first
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.status IN :statuses AND o.createdAt < :cutoff " +
+            "AND o.updatedAt < :cutoff ORDER BY o.createdAt, o.id")
+    List<Long> findArchivableIds(@Param("statuses") Collection<OrderStatus> statuses,
+                                 @Param("cutoff") LocalDateTime cutoff,
+                                 Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Order o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM OrderAddress a WHERE a.id IN :ids")
+    int deleteAddressesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Takes a transaction-scoped advisory lock, so scheduled jobs run on one instance at a time
+     *
+     * @param lockKey The advisory lock key
+     * @return true if the lock was acquired
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:lockKey)", nativeQuery = true)
+    boolean tryAcquireJobLock(@Param("lockKey") long lockKey);
+
+    /**
+     * Creates missing monthly partitions of a partitioned table (see the V1 migration)
+     *
+     * @param parent orders or order_payments
+     * @param firstMonth The first month to cover
+     * @param months The number of months to cover
+     * @return The number of partitions created
+     */
+    @Query(value = "SELECT create_monthly_partitions(:parent, CAST(:firstMonth AS date), :months)",
+            nativeQuery = true)
+    int createMonthlyPartitions(@Param("parent") String parent, @Param("firstMonth") LocalDate firstMonth,
+                                @Param("months") int months);
+
+    /**
+     * Drops monthly partitions that end before the given month and no longer hold any rows
+     *
+     * @param parent orders or order_payments
+     * @param beforeMonth Only partitions for months before this one
+     * @return The number of partitions dropped
+     */
+    @Query(value = "SELECT drop_empty_monthly_partitions(:parent, CAST(:beforeMonth AS date))", nativeQuery = true)
+    int dropEmptyMonthlyPartitions(@Param("parent") String parent, @Param("beforeMonth") LocalDate beforeMonth);
+
+    List<OrderStatusView> findStatusByIdIn(Collection<Long> ids);
+
+    /**
+     * Set-based status change for a chunk of orders that were validated in the given source status.
+     * Rows whose status changed in the meantime are skipped and simply not returned.
+     *
+     * @param ids The order IDs, all validated in status {@code from}
+     * @param from The status the orders were validated in
+     * @param to The target status
+     * @param trackingPrefix Prefix of the tracking number given to orders without one, or null to assign none
+     * @param notes Notes to set, or null to keep the current ones
+     * @return One [id, tracking_number] row per updated order
+     */
+    @Query(value = "UPDATE orders SET status = :to, updated_at = now(), " +
+            "notes = COALESCE(CAST(:notes AS varchar), notes), " +
+            "tracking_number = CASE WHEN CAST(:trackingPrefix AS varchar) IS NOT NULL " +
+            "AND (tracking_number IS NULL OR tracking_number = '') " +
+            "THEN CAST(:trackingPrefix AS varchar) || id " +
+            "ELSE tracking_number END " +
+            "WHERE id IN (:ids) AND status = :from RETURNING id, tracking_number", nativeQuery = true)
+    List<Object[]> updateStatusByIdIn(@Param("ids") Collection<Long> ids, @Param("from") String from,
+                                      @Param("to") String to, @Param("trackingPrefix") String trackingPrefix,
+                                      @Param("notes") String notes);
+}
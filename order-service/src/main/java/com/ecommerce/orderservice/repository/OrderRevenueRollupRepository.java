@@ -0,0 +1,74 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.entity.OrderRevenueRollup;
+import com.ecommerce.orderservice.entity.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.ecommerce.orderservice.repository.RollupBackfillSql.*;
+
+@Repository
+public interface OrderRevenueRollupRepository extends JpaRepository<OrderRevenueRollup, OrderRevenueRollup.Key> {
+
+    List<OrderRevenueRollup> findByGranularityAndBucketStartBetweenOrderByBucketStartAsc(
+            RollupGranularity granularity, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Adds to a bucket, creating it on first use
+     *
+     * @param granularity HOUR or DAY
+     * @param bucketStart The start of the bucket
+     * @param paidOrders Paid orders to add
+     * @param grossRevenue Paid order value to add
+     * @param cancelledOrders Cancelled paid orders to add
+     * @param reversedRevenue Cancelled paid order value to add
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_revenue_rollups " +
+            "(granularity, bucket_start, paid_orders, gross_revenue, cancelled_orders, reversed_revenue) " +
+            "VALUES (:granularity, :bucketStart, :paidOrders, :grossRevenue, :cancelledOrders, :reversedRevenue) " +
+            "ON CONFLICT (granularity, bucket_start) DO UPDATE SET " +
+            "paid_orders = order_revenue_rollups.paid_orders + EXCLUDED.paid_orders, " +
+            "gross_revenue = order_revenue_rollups.gross_revenue + EXCLUDED.gross_revenue, " +
+            "cancelled_orders = order_revenue_rollups.cancelled_orders + EXCLUDED.cancelled_orders, " +
+            "reversed_revenue = order_revenue_rollups.reversed_revenue + EXCLUDED.reversed_revenue",
+            nativeQuery = true)
+    void increment(@Param("granularity") String granularity, @Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("paidOrders") long paidOrders, @Param("grossRevenue") BigDecimal grossRevenue,
+                   @Param("cancelledOrders") long cancelledOrders,
+                   @Param("reversedRevenue") BigDecimal reversedRevenue);
+
+    @Modifying
+    @Query("DELETE FROM OrderRevenueRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Rebuilds the buckets of one granularity in a range from the orders. The range must have been
+     * deleted first and be aligned to whole days.
+     *
+     * @param granularity HOUR or DAY
+     * @param from The start of the range, inclusive
+     * @param to The end of the range, exclusive
+     * @return The number of buckets written
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_revenue_rollups " +
+            "(granularity, bucket_start, paid_orders, gross_revenue, cancelled_orders, reversed_revenue) " +
+            "SELECT :granularity, x.bucket_start, " +
+            "SUM(CASE WHEN x.direction = 1 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN x.direction = 1 THEN x.total_amount ELSE 0 END), " +
+            "SUM(CASE WHEN x.direction = -1 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN x.direction = -1 THEN x.total_amount ELSE 0 END) FROM (" +
+            "SELECT " + BUCKET_START + " AS bucket_start, t.direction, t.total_amount " +
+            "FROM (" + RANGE_SALES + ") t) x " +
+            "GROUP BY x.bucket_start", nativeQuery = true)
+    int rebuildFromOrders(@Param("granularity") String granularity, @Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to);
+}
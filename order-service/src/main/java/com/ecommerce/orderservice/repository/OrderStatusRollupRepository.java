@@ -0,0 +1,64 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.entity.OrderStatusRollup;
+import com.ecommerce.orderservice.entity.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.ecommerce.orderservice.repository.RollupBackfillSql.*;
+
+@Repository
+public interface OrderStatusRollupRepository extends JpaRepository<OrderStatusRollup, OrderStatusRollup.Key> {
+
+    List<OrderStatusRollup> findByGranularityAndBucketStartBetweenOrderByBucketStartAsc(
+            RollupGranularity granularity, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Adds to a bucket, creating it on first use. Concurrent writers from several instances
+     * simply add up, so no coordination is needed.
+     *
+     * @param granularity HOUR or DAY
+     * @param bucketStart The start of the bucket
+     * @param status The status the orders entered
+     * @param orderCount Orders to add
+     * @param amount Order value to add
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_status_rollups (granularity, bucket_start, status, order_count, total_amount) " +
+            "VALUES (:granularity, :bucketStart, :status, :orderCount, :amount) " +
+            "ON CONFLICT (granularity, bucket_start, status) DO UPDATE SET " +
+            "order_count = order_status_rollups.order_count + EXCLUDED.order_count, " +
+            "total_amount = order_status_rollups.total_amount + EXCLUDED.total_amount", nativeQuery = true)
+    void increment(@Param("granularity") String granularity, @Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("status") String status, @Param("orderCount") long orderCount,
+                   @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("DELETE FROM OrderStatusRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Rebuilds the buckets of one granularity in a range from the orders. The range must have been
+     * deleted first and be aligned to whole days.
+     *
+     * @param granularity HOUR or DAY
+     * @param from The start of the range, inclusive
+     * @param to The end of the range, exclusive
+     * @return The number of buckets written
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_status_rollups (granularity, bucket_start, status, order_count, total_amount) " +
+            "SELECT :granularity, x.bucket_start, x.status, COUNT(*), SUM(x.total_amount) FROM (" +
+            "SELECT " + BUCKET_START + " AS bucket_start, t.status, t.total_amount " +
+            "FROM (" + RANGE_TRANSITIONS + ") t) x " +
+            "GROUP BY x.bucket_start, x.status", nativeQuery = true)
+    int rebuildFromOrders(@Param("granularity") String granularity, @Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to);
+}
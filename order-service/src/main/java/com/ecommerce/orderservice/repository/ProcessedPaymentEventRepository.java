@@ -0,0 +1,29 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.entity.ProcessedPaymentEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+
+@Repository
+public interface ProcessedPaymentEventRepository extends JpaRepository<ProcessedPaymentEvent, String> {
+
+    /**
+     * Finds which of the given events have already been applied
+     *
+     * @param eventIds The event IDs of a batch
+     * @return The IDs among them that were processed before
+     */
+    @Query("SELECT e.eventId FROM ProcessedPaymentEvent e WHERE e.eventId IN :eventIds")
+    Set<String> findProcessedIds(@Param("eventIds") Collection<String> eventIds);
+
+    @Modifying
+    @Query("DELETE FROM ProcessedPaymentEvent e WHERE e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
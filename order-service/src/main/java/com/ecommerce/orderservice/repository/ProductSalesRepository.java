@@ -0,0 +1,42 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.dto.TopProductDTO;
+import com.ecommerce.orderservice.entity.ProductSales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface ProductSalesRepository extends JpaRepository<ProductSales, Long> {
+
+    @Query("SELECT new com.ecommerce.orderservice.dto.TopProductDTO(" +
+            "s.productId, s.productName, s.quantity, s.revenue) " +
+            "FROM ProductSales s ORDER BY s.quantity DESC, s.productId")
+    List<TopProductDTO> findTopByQuantity(Pageable pageable);
+
+    /**
+     * Adds a product's counter deltas and returns its new totals, which include what other
+     * instances have flushed
+     *
+     * @param productId The product ID
+     * @param productName The latest known product name
+     * @param quantity Units to add
+     * @param revenue Revenue to add
+     * @return One [product_id, product_name, quantity, revenue] row
+     */
+    @Query(value = "INSERT INTO product_sales (product_id, product_name, quantity, revenue, updated_at) " +
+            "VALUES (:productId, :productName, :quantity, :revenue, now()) " +
+            "ON CONFLICT (product_id) DO UPDATE SET " +
+            "product_name = EXCLUDED.product_name, " +
+            "quantity = product_sales.quantity + EXCLUDED.quantity, " +
+            "revenue = product_sales.revenue + EXCLUDED.revenue, " +
+            "updated_at = EXCLUDED.updated_at " +
+            "RETURNING product_id, product_name, quantity, revenue", nativeQuery = true)
+    List<Object[]> increment(@Param("productId") Long productId, @Param("productName") String productName,
+                             @Param("quantity") long quantity, @Param("revenue") BigDecimal revenue);
+}
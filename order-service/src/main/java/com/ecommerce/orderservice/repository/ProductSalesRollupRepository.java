@@ -0,0 +1,74 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.dto.TopProductDTO;
+import com.ecommerce.orderservice.entity.ProductSalesRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static com.ecommerce.orderservice.repository.RollupBackfillSql.*;
+
+@Repository
+public interface ProductSalesRollupRepository extends JpaRepository<ProductSalesRollup, ProductSalesRollup.Key> {
+
+    /**
+     * Ranks products by units sold over a range of days
+     *
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     * @param pageable Limits the number of products
+     * @return Best-selling products first
+     */
+    @Query("SELECT new com.ecommerce.orderservice.dto.TopProductDTO(" +
+            "p.productId, MAX(p.productName), SUM(p.quantity), SUM(p.revenue)) " +
+            "FROM ProductSalesRollup p WHERE p.bucketDate BETWEEN :from AND :to " +
+            "GROUP BY p.productId ORDER BY SUM(p.quantity) DESC, p.productId")
+    List<TopProductDTO> findTopProducts(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                        Pageable pageable);
+
+    /**
+     * Adds the items of a set of orders to one day in a single statement, aggregated in the database
+     *
+     * @param bucketDate The day the orders were paid or cancelled
+     * @param orderIds The orders whose items to add
+     * @param sign 1 for payments, -1 for cancellations of paid orders
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_rollups (bucket_date, product_id, product_name, quantity, revenue) " +
+            "SELECT :bucketDate, i.product_id, MAX(i.product_name), :sign * SUM(i.quantity), :sign * SUM(i.subtotal) " +
+            "FROM order_items i WHERE i.order_id IN (:orderIds) GROUP BY i.product_id " +
+            "ON CONFLICT (bucket_date, product_id) DO UPDATE SET " +
+            "product_name = EXCLUDED.product_name, " +
+            "quantity = product_sales_rollups.quantity + EXCLUDED.quantity, " +
+            "revenue = product_sales_rollups.revenue + EXCLUDED.revenue", nativeQuery = true)
+    void incrementFromOrders(@Param("bucketDate") LocalDate bucketDate,
+                             @Param("orderIds") Collection<Long> orderIds, @Param("sign") int sign);
+
+    @Modifying
+    @Query("DELETE FROM ProductSalesRollup r WHERE r.bucketDate >= :from AND r.bucketDate < :to")
+    int deleteRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Rebuilds the days of a range from the orders. The range must have been deleted first and be
+     * aligned to whole days.
+     *
+     * @param from The start of the range, inclusive
+     * @param to The end of the range, exclusive
+     * @return The number of product days written
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_rollups (bucket_date, product_id, product_name, quantity, revenue) " +
+            "SELECT CAST(t.occurred_at AS date), i.product_id, MAX(i.product_name), " +
+            "SUM(t.direction * i.quantity), SUM(t.direction * i.subtotal) " +
+            "FROM (" + RANGE_SALES + ") t JOIN order_items i ON i.order_id = t.order_id " +
+            "GROUP BY CAST(t.occurred_at AS date), i.product_id", nativeQuery = true)
+    int rebuildFromOrders(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
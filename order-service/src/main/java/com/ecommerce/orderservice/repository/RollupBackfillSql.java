@@ -0,0 +1,48 @@
+package com.ecommerce.orderservice.repository;
+
+/**
+ * SQL shared by the rollup rebuild queries. Orders only record when they were created, paid and
+ * last changed, so every transition is derived from those: CREATED at creation, PAID at the first
+ * successful payment, and the statuses on the way to the current one at the last change.
+ * <p>
+ * Every query is bound to a {@code [:from, :to)} range of transition times. An order can only
+ * have transitioned in the range if it was created before {@code :to} and last changed at or
+ * after {@code :from}, which keeps each range to the partitions it can touch.
+ */
+final class RollupBackfillSql {
+
+    // Orders with a transition in the range, with the time they were paid, if ever
+    static final String RANGE_ORDERS = "(SELECT o.id, o.status, o.total_amount, o.created_at, o.updated_at, " +
+            "COALESCE((SELECT MIN(p.payment_date) FROM order_payments p " +
+            "WHERE p.order_id = o.id AND p.status = 'SUCCESS'), " +
+            "CASE WHEN o.status IN ('PAID', 'PROCESSING', 'SHIPPED', 'DELIVERED') THEN o.updated_at END) AS paid_at " +
+            "FROM orders o WHERE o.created_at < :to AND o.updated_at >= :from) b";
+
+    // Every status an order entered within the range; one scan of the orders, one row per step taken
+    static final String RANGE_TRANSITIONS = "SELECT x.occurred_at, x.status, x.total_amount FROM (" +
+            "SELECT CASE s.step WHEN 1 THEN b.created_at WHEN 2 THEN b.paid_at ELSE b.updated_at END AS occurred_at, " +
+            "CASE s.step WHEN 1 THEN 'CREATED' WHEN 2 THEN 'PAID' WHEN 3 THEN 'PROCESSING' WHEN 4 THEN 'SHIPPED' " +
+            "ELSE b.status END AS status, b.total_amount " +
+            "FROM " + RANGE_ORDERS + " CROSS JOIN (SELECT 1 AS step UNION ALL SELECT 2 UNION ALL SELECT 3 " +
+            "UNION ALL SELECT 4 UNION ALL SELECT 5) s " +
+            "WHERE s.step = 1 OR (s.step = 2 AND b.paid_at IS NOT NULL) " +
+            "OR (s.step = 3 AND b.status IN ('PROCESSING', 'SHIPPED', 'DELIVERED')) " +
+            "OR (s.step = 4 AND b.status IN ('SHIPPED', 'DELIVERED')) " +
+            "OR (s.step = 5 AND b.status IN ('DELIVERED', 'CANCELLED', 'REFUNDED'))) x " +
+            "WHERE x.occurred_at >= :from AND x.occurred_at < :to";
+
+    // Payments of the range, and cancellations of paid orders in the range
+    static final String RANGE_SALES = "SELECT x.order_id, x.occurred_at, x.direction, x.total_amount FROM (" +
+            "SELECT b.id AS order_id, CASE s.step WHEN 1 THEN b.paid_at ELSE b.updated_at END AS occurred_at, " +
+            "CASE s.step WHEN 1 THEN 1 ELSE -1 END AS direction, b.total_amount " +
+            "FROM " + RANGE_ORDERS + " CROSS JOIN (SELECT 1 AS step UNION ALL SELECT 2) s " +
+            "WHERE b.paid_at IS NOT NULL AND (s.step = 1 OR b.status = 'CANCELLED')) x " +
+            "WHERE x.occurred_at >= :from AND x.occurred_at < :to";
+
+    // Bucket of a transition row aliased t, for the granularity being rebuilt
+    static final String BUCKET_START = "CASE WHEN :granularity = 'HOUR' THEN date_trunc('hour', t.occurred_at) " +
+            "ELSE date_trunc('day', t.occurred_at) END";
+
+    private RollupBackfillSql() {
+    }
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.entity.StockAdjustment;
+import com.ecommerce.orderservice.entity.StockAdjustmentStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockAdjustmentRepository extends JpaRepository<StockAdjustment, Long> {
+
+    /**
+     * Records an order's stock change unless one with its key exists, so running the same
+     * transition action twice (e.g. a bulk update and its fan-out) queues it once
+     *
+     * @return 1 if recorded, 0 if it already was
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stock_adjustments (idempotency_key, order_id, items, status, attempts, " +
+            "next_attempt_at, created_at) " +
+            "VALUES (:idempotencyKey, :orderId, :items, 'PENDING', 0, localtimestamp, localtimestamp) " +
+            "ON CONFLICT (idempotency_key) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("idempotencyKey") String idempotencyKey,
+                       @Param("orderId") Long orderId,
+                       @Param("items") String items);
+
+    /**
+     * Set-based counterpart of {@link #insertIfAbsent} for orders moved by a bulk update. Builds the
+     * same items JSON in SQL so the rows are written in the transaction of the update.
+     *
+     * @param ids The IDs of the orders the bulk update moved
+     * @param action The key suffix, e.g. restock
+     * @param sign -1 to take the items out of stock, 1 to put them back
+     * @return The number of adjustments recorded
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stock_adjustments (idempotency_key, order_id, items, status, attempts, " +
+            "next_attempt_at, created_at) " +
+            "SELECT 'order-' || o.id || '-' || :action, o.id, CAST(COALESCE((SELECT json_agg(json_build_object(" +
+            "'productId', i.product_id, 'quantity', :sign * i.quantity) ORDER BY i.id) " +
+            "FROM order_items i WHERE i.order_id = o.id), CAST('[]' AS json)) AS text), " +
+            "'PENDING', 0, localtimestamp, localtimestamp " +
+            "FROM orders o WHERE o.id IN (:ids) ORDER BY o.id " +
+            "ON CONFLICT (idempotency_key) DO NOTHING", nativeQuery = true)
+    int insertForOrders(@Param("ids") Collection<Long> ids,
+                        @Param("action") String action,
+                        @Param("sign") int sign);
+
+    /**
+     * Claims pending adjustments that are due, oldest first, by moving their next attempt past the
+     * send. SKIP LOCKED lets several instances claim disjoint rows at the same time.
+     *
+     * @param now The current time
+     * @param claimedUntil When another instance may retry them if this one dies mid-send
+     * @param limit The maximum number of adjustments to claim
+     * @return The claimed adjustments
+     */
+    @Transactional
+    @Query(value = "UPDATE stock_adjustments SET next_attempt_at = :claimedUntil, attempts = attempts + 1 " +
+            "WHERE id IN (SELECT a.id FROM stock_adjustments a " +
+            "WHERE a.status = 'PENDING' AND a.next_attempt_at <= :now " +
+            "ORDER BY a.next_attempt_at, a.id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *", nativeQuery = true)
+    List<StockAdjustment> claimDue(@Param("now") LocalDateTime now,
+                                   @Param("claimedUntil") LocalDateTime claimedUntil,
+                                   @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StockAdjustment a SET a.nextAttemptAt = :nextAttemptAt, a.lastError = :error WHERE a.id = :id")
+    int reschedule(@Param("id") Long id,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StockAdjustment a SET a.status = com.ecommerce.orderservice.entity.StockAdjustmentStatus.FAILED, " +
+            "a.lastError = :error WHERE a.id = :id")
+    int markFailed(@Param("id") Long id, @Param("error") String error);
+
+    long countByStatus(StockAdjustmentStatus status);
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.orderservice.security;
+
+import com.ecommerce.orderservice.repository.ArchivedOrderRepository;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Ownership checks for @PreAuthorize on order endpoints. Reads only the order's user_id
+ * instead of loading and mapping the whole order aggregate.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSecurityService {
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+
+    // An order never changes owner, so cached entries never go stale
+    private final Map<Long, Long> ownerById = new ConcurrentHashMap<>();
+    private final Map<String, Long> ownerByOrderNumber = new ConcurrentHashMap<>();
+
+    @Value("${order.security.owner-cache-size:10000}")
+    private int maxCacheSize;
+
+    /**
+     * Checks if the given user owns the order with the given ID
+     *
+     * @param orderId The order ID
+     * @param userId The ID of the authenticated user
+     * @return true if the order exists and belongs to the user
+     */
+    public boolean isOrderOwner(Long orderId, Long userId) {
+        Long ownerId = lookup(ownerById, orderId, id -> orderRepository.findUserIdById(id)
+                .or(() -> archivedOrderRepository.findUserIdById(id)));
+        log.debug("Checking if user ID {} owns order ID {}", userId, orderId);
+        return ownerId != null && ownerId.equals(userId);
+    }
+
+    /**
+     * Checks if the given user owns the order with the given order number
+     *
+     * @param orderNumber The customer-facing order number
+     * @param userId The ID of the authenticated user
+     * @return true if the order exists and belongs to the user
+     */
+    public boolean isOrderNumberOwner(String orderNumber, Long userId) {
+        Long ownerId = lookup(ownerByOrderNumber, orderNumber, number -> orderRepository.findUserIdByOrderNumber(number)
+                .or(() -> archivedOrderRepository.findUserIdByOrderNumber(number)));
+        log.debug("Checking if user ID {} owns order number {}", userId, orderNumber);
+        return ownerId != null && ownerId.equals(userId);
+    }
+
+    private <K> Long lookup(Map<K, Long> cache, K key, Function<K, Optional<Long>> loader) {
+        Long ownerId = cache.get(key);
+        if (ownerId != null) {
+            return ownerId;
+        }
+
+        // Missing orders are not cached; the check simply fails
+        ownerId = loader.apply(key).orElse(null);
+        if (ownerId != null) {
+            // Crude bound: start over rather than track recency on every hit
+            if (cache.size() >= maxCacheSize) {
+                cache.clear();
+            }
+            cache.put(key, ownerId);
+        }
+        return ownerId;
+    }
+}
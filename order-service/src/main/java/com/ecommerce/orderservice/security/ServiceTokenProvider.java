@@ -0,0 +1,75 @@
+package com.ecommerce.orderservice.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Signs the token Order Service presents as itself rather than as a user: for calls that need the
+ * SERVICE role, like stock adjustments, and for work with no user behind it, like Kafka consumers.
+ * Signed with the shared jwt.secret, so every service verifies it like a user token.
+ */
+@Component
+public class ServiceTokenProvider {
+
+    public static final String SERVICE_ROLE = "ROLE_SERVICE";
+
+    private final SecretKey key;
+    private final String subject;
+    private final Duration ttl;
+    private final Clock clock;
+
+    private volatile IssuedToken current;
+
+    private record IssuedToken(String token, Instant renewAt) {
+    }
+
+    public ServiceTokenProvider(@Value("${jwt.secret}") String jwtSecret,
+                                @Value("${spring.application.name}") String applicationName,
+                                @Value("${jwt.service-token-ttl:5m}") Duration ttl) {
+        this(jwtSecret, applicationName, ttl, Clock.systemUTC());
+    }
+
+    ServiceTokenProvider(String jwtSecret, String applicationName, Duration ttl, Clock clock) {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.subject = applicationName;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Get a service token, reusing the current one until most of its lifetime has passed
+     *
+     * @return A signed JWT with the SERVICE role
+     */
+    public String getToken() {
+        IssuedToken token = current;
+        Instant now = clock.instant();
+        if (token == null || !now.isBefore(token.renewAt())) {
+            // Concurrent renewals just sign an extra token; no need to lock
+            token = issue(now);
+            current = token;
+        }
+        return token.token();
+    }
+
+    private IssuedToken issue(Instant now) {
+        Instant expiresAt = now.plus(ttl);
+        String token = Jwts.builder()
+                .subject(subject)
+                .claim("roles", SERVICE_ROLE)
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(expiresAt))
+                .signWith(key)
+                .compact();
+        // Renew with a fifth of the lifetime left, so a token never expires in flight
+        return new IssuedToken(token, expiresAt.minus(ttl.dividedBy(5)));
+    }
+}
@@ -2,6 +2,8 @@ package com.ecommerce.orderservice.service;
 
 import com.ecommerce.orderservice.dto.CartResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface CartServiceClient {
 
     /**
@@ -12,6 +14,14 @@ public interface CartServiceClient {
      */
     CartResponse getCartByUserId(Long userId);
 
+    /**
+     * Gets the cart for a specific user on the async executor
+     *
+     * @param userId The ID of the user
+     * @return A future completing with the user's cart data
+     */
+    CompletableFuture<CartResponse> getCartByUserIdAsync(Long userId);
+
     /**
      * Clears all items from a user's cart
      *
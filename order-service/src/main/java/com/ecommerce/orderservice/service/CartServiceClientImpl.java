@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -15,6 +16,7 @@ import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -73,6 +75,12 @@ public class CartServiceClientImpl implements CartServiceClient {
         }
     }
 
+    @Override
+    @Async
+    public CompletableFuture<CartResponse> getCartByUserIdAsync(Long userId) {
+        return CompletableFuture.completedFuture(getCartByUserId(userId));
+    }
+
     @Override
     public void clearCart(Long userId) {
         try {
@@ -0,0 +1,37 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.dto.CheckoutStatusDTO;
+import com.ecommerce.orderservice.dto.OrderCreateRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface CheckoutService {
+
+    /**
+     * Queues a checkout for the user's cart and returns at once. A worker creates the order.
+     *
+     * @param userId The user ID
+     * @param orderRequest The order details
+     * @param idempotencyKey Optional client key; resubmitting it returns the original checkout
+     * @return The queued (or previously submitted) checkout
+     * @throws com.ecommerce.orderservice.exception.ServiceUnavailableException if the queue is full
+     */
+    CheckoutStatusDTO submit(Long userId, OrderCreateRequest orderRequest, String idempotencyKey);
+
+    /**
+     * Get a checkout of the user
+     *
+     * @param checkoutId The checkout ID
+     * @param userId The user ID
+     * @return The checkout's current state
+     */
+    CheckoutStatusDTO getCheckout(String checkoutId, Long userId);
+
+    /**
+     * Streams a checkout's state changes as server-sent events until it completes or fails
+     *
+     * @param checkoutId The checkout ID
+     * @param userId The user ID
+     * @return The emitter, already sent the current state
+     */
+    SseEmitter subscribe(String checkoutId, Long userId);
+}
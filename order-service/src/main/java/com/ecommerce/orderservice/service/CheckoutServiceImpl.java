@@ -0,0 +1,335 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.common.idgen.IdGenerator;
+import com.ecommerce.orderservice.dto.CheckoutStatusDTO;
+import com.ecommerce.orderservice.dto.OrderCreateRequest;
+import com.ecommerce.orderservice.dto.OrderDTO;
+import com.ecommerce.orderservice.entity.Checkout;
+import com.ecommerce.orderservice.entity.CheckoutStatus;
+import com.ecommerce.orderservice.exception.BadRequestException;
+import com.ecommerce.orderservice.exception.ResourceNotFoundException;
+import com.ecommerce.orderservice.exception.ServiceUnavailableException;
+import com.ecommerce.orderservice.repository.CheckoutRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Checkouts are written as QUEUED rows and handed to a fixed pool of workers behind a bounded
+ * queue, so a spike fills the queue instead of tying up request threads on Cart and Product
+ * Service calls, and the pool size caps the load checkouts put on those services. Once the queue
+ * is full, submissions get 503 with Retry-After rather than being queued without limit. The
+ * worker runs createOrder with the submitting user's security context and records the outcome
+ * on the row, which clients poll or follow over SSE.
+ * <p>
+ * The queue lives in memory, so each unfinished checkout is leased to the instance that queued
+ * it. The instance renews its leases while it runs; the sweeper fails only checkouts whose lease
+ * ran out, never ones still waiting in a live instance's queue.
+ * <p>
+ * The pool is deliberately not a bean: any Executor bean would replace Boot's applicationTaskExecutor.
+ */
+@Service
+@Slf4j
+public class CheckoutServiceImpl implements CheckoutService {
+
+    private static final String GENERIC_FAILURE = "Checkout failed, please try again";
+    private static final String INTERRUPTED_FAILURE = "Checkout was interrupted; check your orders before retrying";
+
+    private final CheckoutRepository checkoutRepository;
+    private final OrderService orderService;
+    private final ThreadPoolTaskExecutor checkoutExecutor;
+    private final IdGenerator idGenerator;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Timer processingTimer;
+
+    // Owner of the checkouts queued here; a restarted instance starts with a new one
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Open SSE streams on this instance, by checkout ID
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    @Value("${order.checkout.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    @Value("${order.checkout.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${order.checkout.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${order.checkout.sse-timeout-ms:60000}")
+    private long sseTimeoutMs;
+
+    private static class Subscription {
+        final SseEmitter emitter;
+        volatile CheckoutStatus lastSent;
+
+        Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public CheckoutServiceImpl(CheckoutRepository checkoutRepository,
+                               OrderService orderService,
+                               IdGenerator idGenerator,
+                               TaskDecorator securityContextTaskDecorator,
+                               MeterRegistry meterRegistry,
+                               @Value("${order.checkout.workers:8}") int workers,
+                               @Value("${order.checkout.queue-capacity:1000}") int queueCapacity) {
+        this.checkoutRepository = checkoutRepository;
+        this.orderService = orderService;
+        this.idGenerator = idGenerator;
+
+        this.checkoutExecutor = new ThreadPoolTaskExecutor();
+        checkoutExecutor.setThreadNamePrefix("checkout-");
+        checkoutExecutor.setCorePoolSize(workers);
+        checkoutExecutor.setMaxPoolSize(workers);
+        checkoutExecutor.setQueueCapacity(queueCapacity);
+        // Workers call Cart and Product Service with the submitting user's JWT
+        checkoutExecutor.setTaskDecorator(securityContextTaskDecorator);
+        // Let queued checkouts finish on shutdown; anything cut off is failed once its lease runs out
+        checkoutExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        checkoutExecutor.setAwaitTerminationSeconds(30);
+        checkoutExecutor.initialize();
+
+        this.acceptedCounter = Counter.builder("order.checkout.accepted")
+                .description("Checkouts queued for a worker")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("order.checkout.rejected")
+                .description("Checkouts turned away because the queue was full")
+                .register(meterRegistry);
+        this.processingTimer = Timer.builder("order.checkout.processing")
+                .description("Time for a worker to turn a checkout into an order")
+                .register(meterRegistry);
+        Gauge.builder("order.checkout.queue", checkoutExecutor,
+                        executor -> executor.getThreadPoolExecutor().getQueue().size())
+                .description("Checkouts waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkoutExecutor.shutdown();
+    }
+
+    @Override
+    public CheckoutStatusDTO submit(Long userId, OrderCreateRequest orderRequest, String idempotencyKey) {
+        // 1. A retried submission gets the checkout it already created
+        if (idempotencyKey != null) {
+            Checkout existing = checkoutRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .orElse(null);
+            if (existing != null) {
+                log.debug("Returning existing checkout {} for idempotency key", existing.getId());
+                return mapToDTO(existing);
+            }
+        }
+
+        // 2. Record the checkout before queueing it, so the worker and pollers can always find it
+        Checkout checkout = new Checkout();
+        checkout.setId(idGenerator.next("CHK"));
+        checkout.setUserId(userId);
+        checkout.setIdempotencyKey(idempotencyKey);
+        checkout.setStatus(CheckoutStatus.QUEUED);
+        checkout.setOwnerInstance(instanceId);
+        checkout.setLeaseExpiresAt(leaseExpiry());
+        try {
+            checkout = checkoutRepository.saveAndFlush(checkout);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent submission with the same key won the insert
+            return checkoutRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .map(this::mapToDTO)
+                    .orElseThrow(() -> e);
+        }
+
+        // 3. Queue it; a full queue is back-pressure, not a lost checkout
+        String checkoutId = checkout.getId();
+        try {
+            checkoutExecutor.execute(() -> process(checkoutId, userId, orderRequest));
+        } catch (TaskRejectedException e) {
+            checkoutRepository.deleteById(checkoutId);
+            rejectedCounter.increment();
+            log.warn("Checkout queue is full, rejecting checkout for user ID: {}", userId);
+            throw new ServiceUnavailableException("Too many checkouts in progress, please retry shortly",
+                    retryAfterSeconds);
+        }
+
+        acceptedCounter.increment();
+        log.info("Queued checkout {} for user ID: {}", checkoutId, userId);
+        return mapToDTO(checkout);
+    }
+
+    @Override
+    public CheckoutStatusDTO getCheckout(String checkoutId, Long userId) {
+        return mapToDTO(findOwnedCheckout(checkoutId, userId));
+    }
+
+    @Override
+    public SseEmitter subscribe(String checkoutId, Long userId) {
+        Checkout checkout = findOwnedCheckout(checkoutId, userId);
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscription subscription = new Subscription(emitter);
+        if (!send(subscription, mapToDTO(checkout)) || checkout.getStatus().isFinal()) {
+            return emitter;
+        }
+
+        subscriptions.computeIfAbsent(checkoutId, id -> new CopyOnWriteArrayList<>()).add(subscription);
+        Runnable unsubscribe = () -> subscriptions.computeIfPresent(checkoutId, (id, list) -> {
+            list.remove(subscription);
+            return list.isEmpty() ? null : list;
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    /**
+     * Pushes state changes to open SSE streams. Covers checkouts processed by other instances;
+     * checkouts processed here are also pushed as soon as the worker finishes.
+     */
+    @Scheduled(fixedDelayString = "${order.checkout.sse-poll-interval-ms:1000}")
+    public void pushUpdates() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        checkoutRepository.findAllById(subscriptions.keySet()).forEach(checkout -> notify(mapToDTO(checkout)));
+    }
+
+    /**
+     * Extends the leases on checkouts queued or processing here, so the sweeper leaves them alone
+     */
+    @Scheduled(fixedDelayString = "${order.checkout.lease-renew-interval-ms:30000}")
+    public void renewLeases() {
+        checkoutRepository.renewLeases(instanceId, leaseExpiry());
+    }
+
+    /**
+     * Fails checkouts whose lease ran out because their instance went away, and removes
+     * checkouts past retention
+     */
+    @Scheduled(fixedDelayString = "${order.checkout.sweep-interval-ms:60000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = checkoutRepository.failExpired(now, INTERRUPTED_FAILURE);
+        int purged = checkoutRepository.deleteUpdatedBefore(now.minusHours(retentionHours));
+        if (failed > 0 || purged > 0) {
+            log.info("Failed {} checkouts with expired leases and purged {} old ones", failed, purged);
+        }
+    }
+
+    private void process(String checkoutId, Long userId, OrderCreateRequest orderRequest) {
+        // 1. Claim the checkout; 0 means the sweeper already failed it
+        if (checkoutRepository.markProcessing(checkoutId) == 0) {
+            log.warn("Checkout {} is no longer queued, skipping", checkoutId);
+            return;
+        }
+        notifyLocal(checkoutId);
+
+        // 2. Create the order and record the outcome
+        Timer.Sample sample = Timer.start();
+        try {
+            OrderDTO order = orderService.createOrder(userId, orderRequest);
+            if (checkoutRepository.markCompleted(checkoutId, order.getId(), order.getOrderNumber()) == 0) {
+                // Only happens if the lease lapsed mid-checkout (e.g. a long database outage)
+                log.error("Checkout {} created order {} but had already been failed", checkoutId,
+                        order.getOrderNumber());
+            } else {
+                log.info("Checkout {} created order {}", checkoutId, order.getOrderNumber());
+            }
+        } catch (BadRequestException | ResourceNotFoundException e) {
+            // The customer can act on these (empty cart, product out of stock, ...)
+            checkoutRepository.markFailed(checkoutId, e.getMessage());
+            log.info("Checkout {} failed: {}", checkoutId, e.getMessage());
+        } catch (Exception e) {
+            checkoutRepository.markFailed(checkoutId, GENERIC_FAILURE);
+            log.error("Checkout {} failed", checkoutId, e);
+        } finally {
+            sample.stop(processingTimer);
+        }
+        notifyLocal(checkoutId);
+    }
+
+    private LocalDateTime leaseExpiry() {
+        return LocalDateTime.now().plusNanos(leaseMs * 1_000_000);
+    }
+
+    private void notifyLocal(String checkoutId) {
+        if (subscriptions.containsKey(checkoutId)) {
+            checkoutRepository.findById(checkoutId).ifPresent(checkout -> notify(mapToDTO(checkout)));
+        }
+    }
+
+    private void notify(CheckoutStatusDTO status) {
+        List<Subscription> subscribers = subscriptions.get(status.getCheckoutId());
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscription subscription : subscribers) {
+            if (subscription.lastSent != status.getStatus()) {
+                send(subscription, status);
+            }
+        }
+    }
+
+    // Sends one state to a stream and closes it once the checkout is final
+    private boolean send(Subscription subscription, CheckoutStatusDTO status) {
+        try {
+            // Worker threads and the poller may send to the same stream
+            synchronized (subscription) {
+                subscription.emitter.send(SseEmitter.event()
+                        .name("checkout")
+                        .data(status, MediaType.APPLICATION_JSON));
+                subscription.lastSent = status.getStatus();
+            }
+            if (status.getStatus().isFinal()) {
+                subscription.emitter.complete();
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; completeWithError triggers the unsubscribe callback
+            subscription.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private Checkout findOwnedCheckout(String checkoutId, Long userId) {
+        return checkoutRepository.findById(checkoutId)
+                .filter(checkout -> checkout.getUserId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Checkout", "id", checkoutId));
+    }
+
+    private CheckoutStatusDTO mapToDTO(Checkout checkout) {
+        return new CheckoutStatusDTO(
+                checkout.getId(),
+                checkout.getStatus(),
+                checkout.getOrderId(),
+                checkout.getOrderNumber(),
+                checkout.getErrorMessage(),
+                checkout.getCreatedAt(),
+                checkout.getUpdatedAt()
+        );
+    }
+}
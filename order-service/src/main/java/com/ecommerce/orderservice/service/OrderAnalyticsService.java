@@ -0,0 +1,65 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.dto.RevenueRollupDTO;
+import com.ecommerce.orderservice.dto.StatusRollupDTO;
+import com.ecommerce.orderservice.dto.TopProductDTO;
+import com.ecommerce.orderservice.entity.RollupGranularity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderAnalyticsService {
+
+    /**
+     * Revenue booked per hour or day, read from the revenue rollup
+     *
+     * @param granularity HOUR or DAY
+     * @param from The first bucket, inclusive
+     * @param to The last bucket, inclusive
+     * @return One row per bucket with activity, oldest first
+     */
+    List<RevenueRollupDTO> getRevenue(RollupGranularity granularity, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Orders that entered each status per hour or day, read from the status rollup
+     *
+     * @param granularity HOUR or DAY
+     * @param from The first bucket, inclusive
+     * @param to The last bucket, inclusive
+     * @return One row per bucket and status with activity, oldest first
+     */
+    List<StatusRollupDTO> getStatusCounts(RollupGranularity granularity, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Best-selling products by units over a range of days, read from the product sales rollup
+     *
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     * @param limit The maximum number of products
+     * @return Best-selling products first
+     */
+    List<TopProductDTO> getTopProducts(LocalDate from, LocalDate to, int limit);
+
+    /**
+     * All-time best sellers by units, served from the in-memory ranking maintained by the sales counters
+     *
+     * @param limit The maximum number of products
+     * @return Best-selling products first
+     */
+    List<TopProductDTO> getBestSellers(int limit);
+
+    /**
+     * Rebuilds every rollup bucket before the given day from the orders, replacing what the buckets
+     * hold, so history from before the rollups existed is counted and running it again changes
+     * nothing. Buckets from that day on are left to live accumulation. Runs in the background.
+     * Orders only record creation, payment and their last change, so statuses passed on the way
+     * to the current one are counted at the time of the last change. Months before the archive
+     * cutoff (order.archive.after-months) are never rebuilt: their finished orders may have moved
+     * to the archive, which doesn't keep what the rollups are computed from.
+     *
+     * @param before A midnight no earlier than the day live accumulation started and no later than
+     *               today, so every rebuilt day is over and its live deltas are flushed
+     */
+    void backfill(LocalDateTime before);
+}
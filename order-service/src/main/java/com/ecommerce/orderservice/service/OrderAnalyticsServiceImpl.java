@@ -0,0 +1,145 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.dto.RevenueRollupDTO;
+import com.ecommerce.orderservice.dto.StatusRollupDTO;
+import com.ecommerce.orderservice.dto.TopProductDTO;
+import com.ecommerce.orderservice.entity.RollupGranularity;
+import com.ecommerce.orderservice.event.ProductSalesCounter;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.repository.OrderRevenueRollupRepository;
+import com.ecommerce.orderservice.repository.OrderStatusRollupRepository;
+import com.ecommerce.orderservice.repository.ProductSalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderAnalyticsServiceImpl implements OrderAnalyticsService {
+
+    private final OrderRevenueRollupRepository revenueRollupRepository;
+    private final OrderStatusRollupRepository statusRollupRepository;
+    private final ProductSalesRollupRepository productSalesRollupRepository;
+    private final OrderRepository orderRepository;
+    private final ProductSalesCounter productSalesCounter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    @Value("${order.archive.enabled:true}")
+    private boolean archiveEnabled;
+
+    @Value("${order.archive.after-months:12}")
+    private int archiveAfterMonths;
+
+    @Override
+    public List<RevenueRollupDTO> getRevenue(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        log.debug("Getting {} revenue from {} to {}", granularity, from, to);
+        return revenueRollupRepository
+                .findByGranularityAndBucketStartBetweenOrderByBucketStartAsc(
+                        granularity, granularity.bucketOf(from), to)
+                .stream()
+                .map(rollup -> new RevenueRollupDTO(rollup.getBucketStart(), rollup.getPaidOrders(),
+                        rollup.getGrossRevenue(), rollup.getCancelledOrders(), rollup.getReversedRevenue(),
+                        rollup.getGrossRevenue().subtract(rollup.getReversedRevenue())))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<StatusRollupDTO> getStatusCounts(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        log.debug("Getting {} status counts from {} to {}", granularity, from, to);
+        return statusRollupRepository
+                .findByGranularityAndBucketStartBetweenOrderByBucketStartAsc(
+                        granularity, granularity.bucketOf(from), to)
+                .stream()
+                .map(rollup -> new StatusRollupDTO(rollup.getBucketStart(), rollup.getStatus(),
+                        rollup.getOrderCount(), rollup.getTotalAmount()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<TopProductDTO> getTopProducts(LocalDate from, LocalDate to, int limit) {
+        log.debug("Getting top {} products from {} to {}", limit, from, to);
+        return productSalesRollupRepository.findTopProducts(from, to, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<TopProductDTO> getBestSellers(int limit) {
+        return productSalesCounter.getBestSellers(limit);
+    }
+
+    @Override
+    @Async
+    public void backfill(LocalDateTime before) {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            log.warn("Rollup backfill already running, ignoring request for buckets before {}", before);
+            return;
+        }
+
+        log.info("Rebuilding order rollups before {}", before);
+        LocalDateTime from = null;
+        try {
+            LocalDateTime firstOrder = orderRepository.findMinCreatedAt();
+            if (firstOrder == null || !firstOrder.isBefore(before)) {
+                log.info("No orders created before {}, nothing to rebuild", before);
+                return;
+            }
+
+            // Archived orders are no longer in the live tables, so months they changed in keep the
+            // rollups they have rather than being rebuilt without them
+            LocalDateTime start = firstOrder.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            LocalDateTime horizon = archiveHorizon();
+            if (horizon != null && start.isBefore(horizon)) {
+                log.info("Keeping the rollups of archived months before {}", horizon);
+                start = horizon;
+            }
+
+            // One calendar month per transaction, matching the orders partitions; readers see either
+            // the old or the rebuilt month, never a half-deleted one
+            for (from = start; from.isBefore(before); from = from.plusMonths(1)) {
+                LocalDateTime rangeFrom = from;
+                LocalDateTime rangeTo = from.plusMonths(1).isBefore(before) ? from.plusMonths(1) : before;
+                Integer rows = transactionTemplate.execute(status -> rebuild(rangeFrom, rangeTo));
+                log.debug("Rebuilt {} rollup rows from {} to {}", rows, rangeFrom, rangeTo);
+            }
+            log.info("Finished rebuilding order rollups before {}", before);
+        } catch (Exception e) {
+            log.error("Rollup backfill failed in the month starting {}", from, e);
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    // Same cutoff as OrderMaintenanceJob: every archived order was created and last changed before it
+    private LocalDateTime archiveHorizon() {
+        return archiveEnabled
+                ? LocalDate.now().withDayOfMonth(1).minusMonths(archiveAfterMonths).atStartOfDay()
+                : null;
+    }
+
+    private int rebuild(LocalDateTime from, LocalDateTime to) {
+        // 1. Drop whatever the range holds, whether live deltas, an earlier backfill or a partial run
+        statusRollupRepository.deleteRange(from, to);
+        revenueRollupRepository.deleteRange(from, to);
+        productSalesRollupRepository.deleteRange(from.toLocalDate(), to.toLocalDate());
+
+        // 2. Recompute it from the orders, so running the backfill again gives the same rollups
+        int rows = productSalesRollupRepository.rebuildFromOrders(from, to);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            rows += statusRollupRepository.rebuildFromOrders(granularity.name(), from, to);
+            rows += revenueRollupRepository.rebuildFromOrders(granularity.name(), from, to);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.dto.OrderDTO;
+import com.ecommerce.orderservice.entity.ArchivedOrder;
+import com.ecommerce.orderservice.repository.ArchivedOrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes finished orders in the order_archive schema as gzip-compressed JSON.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderArchiveStore {
+
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Archives an order. Must join the transaction that deletes it from the live tables,
+     * so an order is always in exactly one place.
+     *
+     * @param order The order as returned by the API
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void store(OrderDTO order) {
+        archivedOrderRepository.insert(order.getId(), order.getOrderNumber(), order.getUserId(),
+                order.getStatus().name(), order.getCreatedAt(), LocalDateTime.now(), compress(order));
+    }
+
+    public Optional<OrderDTO> findById(Long id) {
+        return archivedOrderRepository.findById(id).map(this::decompress);
+    }
+
+    public Optional<OrderDTO> findByOrderNumber(String orderNumber) {
+        return archivedOrderRepository.findByOrderNumber(orderNumber).map(this::decompress);
+    }
+
+    private byte[] compress(OrderDTO order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, order);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive order " + order.getId(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private OrderDTO decompress(ArchivedOrder archived) {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(archived.getPayload()))) {
+            return objectMapper.readValue(gzip, OrderDTO.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived order " + archived.getId(), e);
+        }
+    }
+}
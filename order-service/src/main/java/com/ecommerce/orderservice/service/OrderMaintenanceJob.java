@@ -0,0 +1,100 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.repository.ProcessedPaymentEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of orders and order_payments ahead of time and moves finished
+ * orders to the archive, dropping old partitions once they are empty. Also forgets applied
+ * payment events once they are too old to be redelivered.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderMaintenanceJob {
+
+    private static final List<String> PARTITIONED_TABLES = List.of("orders", "order_payments");
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final ProcessedPaymentEventRepository processedPaymentEventRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${order.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${order.archive.enabled:true}")
+    private boolean archiveEnabled;
+
+    @Value("${order.archive.after-months:12}")
+    private int archiveAfterMonths;
+
+    @Value("${order.archive.batch-size:200}")
+    private int archiveBatchSize;
+
+    @Value("${order.payment-events.retention-hours:168}")
+    private long paymentEventRetentionHours;
+
+    @Scheduled(cron = "${order.partitions.cron:0 0 2 * * *}")
+    public void createPartitions() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        for (String table : PARTITIONED_TABLES) {
+            Integer created = transactionTemplate.execute(status ->
+                    orderRepository.createMonthlyPartitions(table, currentMonth, monthsAhead + 1));
+            if (created != null && created > 0) {
+                log.info("Created {} monthly partitions of {}", created, table);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${order.archive.cron:0 30 2 * * *}")
+    public void archiveFinishedOrders() {
+        if (!archiveEnabled) {
+            return;
+        }
+
+        // Whole months only, so the partitions of archived months end up empty (an order finished after
+        // the cutoff keeps its partition until a later run archives it). The rollup backfill never
+        // rebuilds months before the same cutoff, since archived orders can't be counted again
+        LocalDate cutoffMonth = LocalDate.now().withDayOfMonth(1).minusMonths(archiveAfterMonths);
+        LocalDateTime cutoff = cutoffMonth.atStartOfDay();
+        log.info("Archiving delivered and cancelled orders created and last changed before {}", cutoff);
+
+        // One transaction per batch, so the job never holds long locks or a huge persistence context
+        long total = 0;
+        int archived;
+        while ((archived = orderService.archiveOrders(cutoff, archiveBatchSize)) > 0) {
+            total += archived;
+            log.debug("Archived {} orders so far", total);
+        }
+        log.info("Archived {} orders", total);
+
+        for (String table : PARTITIONED_TABLES) {
+            Integer dropped = transactionTemplate.execute(status ->
+                    orderRepository.dropEmptyMonthlyPartitions(table, cutoffMonth));
+            if (dropped != null && dropped > 0) {
+                log.info("Dropped {} empty monthly partitions of {}", dropped, table);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${order.payment-events.purge-cron:0 45 * * * *}")
+    public void purgeProcessedPaymentEvents() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(paymentEventRetentionHours);
+        Integer deleted = transactionTemplate.execute(status ->
+                processedPaymentEventRepository.deleteProcessedBefore(cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} processed payment events", deleted);
+        }
+    }
+}
@@ -2,9 +2,14 @@ package com.ecommerce.orderservice.service;
 
 import com.ecommerce.orderservice.dto.*;
 import com.ecommerce.orderservice.entity.OrderStatus;
+import com.ecommerce.orderservice.event.PaymentEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface OrderService {
 
     OrderDTO createOrder(Long userId, OrderCreateRequest orderRequest);
@@ -19,9 +24,41 @@ public interface OrderService {
 
     Page<OrderDTO> getAllOrdersByStatus(OrderStatus status, Pageable pageable);
 
+    Page<OrderSummaryDTO> getUserOrderSummaries(Long userId, OrderStatus status, Pageable pageable);
+
     OrderDTO updateOrderStatus(Long id, OrderStatusUpdateRequest statusUpdateRequest);
 
+    /**
+     * Moves a list of orders to one status in chunks, validating each transition from a projection
+     * and applying it with set-based updates. Results are handed over as each chunk commits.
+     *
+     * @param request The order IDs, target status and optional notes
+     * @param resultConsumer Receives one result per distinct order ID
+     */
+    void bulkUpdateStatus(BulkStatusUpdateRequest request, Consumer<BulkStatusUpdateResult> resultConsumer);
+
     OrderDTO processPayment(Long id, OrderPaymentRequest paymentRequest);
 
+    /**
+     * Applies payment-service's payment events to their orders in one transaction, in the given
+     * order. Events applied before are skipped, so redelivered batches are harmless.
+     *
+     * @param events The events in topic order
+     * @return The number of events applied
+     */
+    int applyPaymentEvents(List<PaymentEvent> events);
+
+    /**
+     * Moves one batch of delivered and cancelled orders created and last changed before the cutoff
+     * to the archive schema and deletes them, with their items, payments and addresses, from the
+     * live tables. Archived orders stay readable through {@link #getOrderById} and
+     * {@link #getOrderByOrderNumber}.
+     *
+     * @param cutoff Only orders created and last changed before this time are archived
+     * @param batchSize The maximum number of orders to archive
+     * @return The number of orders archived; 0 when there is nothing left or another instance is archiving
+     */
+    int archiveOrders(LocalDateTime cutoff, int batchSize);
+
     OrderDTO cancelOrder(Long id, String reason);
 }
@@ -1,83 +1,166 @@
 package com.ecommerce.orderservice.service;
 
 
+import com.ecommerce.common.idgen.IdGenerator;
+import com.ecommerce.common.statemachine.StateMachine;
 import com.ecommerce.orderservice.dto.*;
 import com.ecommerce.orderservice.entity.*;
+import com.ecommerce.orderservice.event.OrderBulkTransitionEvent;
+import com.ecommerce.orderservice.event.OrderCreatedEvent;
+import com.ecommerce.orderservice.event.OrderEvent;
+import com.ecommerce.orderservice.event.OrderEventOutbox;
+import com.ecommerce.orderservice.event.OrderTransitionEvent;
+import com.ecommerce.orderservice.event.PaymentEvent;
+import com.ecommerce.orderservice.event.StockAdjustmentPublisher;
 import com.ecommerce.orderservice.exception.BadRequestException;
 import com.ecommerce.orderservice.exception.ResourceNotFoundException;
+import com.ecommerce.orderservice.repository.OrderItemRepository;
+import com.ecommerce.orderservice.repository.OrderNumberRepository;
+import com.ecommerce.orderservice.repository.OrderOutboxRepository;
+import com.ecommerce.orderservice.repository.OrderPaymentRepository;
 import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.repository.ProcessedPaymentEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    // Arbitrary but stable key for pg_try_advisory_xact_lock
+    private static final long ARCHIVE_LOCK_KEY = 0x61726368697665L;
+
+    private static final Set<OrderStatus> ARCHIVABLE_STATUSES = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
     private final OrderRepository orderRepository;
     private final CartServiceClient cartServiceClient;
     private final ProductServiceClient productServiceClient;
     private final PaymentService paymentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderEventOutbox orderEventOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final StateMachine<OrderStatus, Order> orderStateMachine;
+    private final IdGenerator idGenerator;
+    private final OrderArchiveStore orderArchiveStore;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderNumberRepository orderNumberRepository;
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final OrderPaymentRepository orderPaymentRepository;
+    private final ProcessedPaymentEventRepository processedPaymentEventRepository;
+    private final StockAdjustmentPublisher stockAdjustmentPublisher;
+
+    @Value("${order.bulk.update-chunk-size:1000}")
+    private int bulkUpdateChunkSize;
 
     @Override
-    @Transactional
     public OrderDTO createOrder(Long userId, OrderCreateRequest orderRequest) {
         log.debug("Creating order for user ID: {}", userId);
 
-        // 1. Get the user's cart
-        CartResponse cart = cartServiceClient.getCartByUserId(userId);
-
-        // 2. Check if cart is empty
-        if (cart.getItems() == null || cart.getItems().isEmpty()) {
-            throw new BadRequestException("Cannot create order with an empty cart");
-        }
-
-        // 3. Create a new order
+        // Not @Transactional: the remote calls below must not hold a DB connection open.
+        // The only write is the transaction in step 6.
+
+        // 1. Fetch the cart and, as soon as it arrives, price/stock-check all its products in one call
+        CompletableFuture<CartResponse> cartFuture = cartServiceClient.getCartByUserIdAsync(userId);
+        CompletableFuture<Map<Long, ProductStockResponse>> stockFuture = cartFuture
+                .thenCompose(cart -> cart.getItems() == null || cart.getItems().isEmpty()
+                        ? CompletableFuture.completedFuture(List.<ProductStockResponse>of())
+                        : productServiceClient.getProductStockAsync(cart.getItems().stream()
+                                .map(CartItemResponse::getProductId)
+                                .collect(Collectors.toSet())))
+                .thenApply(products -> products.stream()
+                        .collect(Collectors.toMap(ProductStockResponse::getId, Function.identity())));
+
+        // 2. Build the order shell while the remote calls are in flight
         Order order = new Order();
         order.setUserId(userId);
-        order.setOrderNumber(generateOrderNumber());
+        order.setOrderNumber(idGenerator.next("ORD"));
         order.setStatus(OrderStatus.CREATED);
         order.setNotes(orderRequest.getNotes());
 
-        // 4. Set shipping address
         OrderAddress shippingAddress = mapToOrderAddress(orderRequest.getShippingAddress());
         order.setShippingAddress(shippingAddress);
 
-        // 5. Set billing address (use shipping address if not provided)
+        // Use shipping address as billing address if not provided
         OrderAddress billingAddress = orderRequest.getBillingAddress() != null
                 ? mapToOrderAddress(orderRequest.getBillingAddress())
                 : mapToOrderAddress(orderRequest.getShippingAddress());
         billingAddress.setAddressType("BILLING");
         order.setBillingAddress(billingAddress);
 
-        // 6. Add items from cart to order
+        // 3. Wait for the cart and the stock snapshot
+        CartResponse cart = await(cartFuture);
+        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+            throw new BadRequestException("Cannot create order with an empty cart");
+        }
+        Map<Long, ProductStockResponse> products = await(stockFuture);
+
+        // 4. Add items, verifying availability and taking the current price from Product Service
         for (CartItemResponse cartItem : cart.getItems()) {
+            ProductStockResponse product = products.get(cartItem.getProductId());
+            if (product == null || !Boolean.TRUE.equals(product.getActive())) {
+                throw new BadRequestException("Product is no longer available: " + cartItem.getProductName());
+            }
+            if (product.getStockQuantity() != null && product.getStockQuantity() < cartItem.getQuantity()) {
+                throw new BadRequestException("Insufficient stock for product: " + cartItem.getProductName());
+            }
+            if (cartItem.getPrice() == null || product.getPrice().compareTo(cartItem.getPrice()) != 0) {
+                log.debug("Price for product ID: {} changed from {} to {}",
+                        product.getId(), cartItem.getPrice(), product.getPrice());
+            }
+
             OrderItem orderItem = new OrderItem();
             orderItem.setProductId(cartItem.getProductId());
-            orderItem.setProductName(cartItem.getProductName());
+            orderItem.setProductName(product.getName());
             orderItem.setProductImage(cartItem.getProductImage());
             orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPrice(cartItem.getPrice());
+            orderItem.setPrice(product.getPrice());
             orderItem.setOrder(order);
             order.getItems().add(orderItem);
         }
 
-        // 7. Calculate totals
+        // 5. Calculate totals
         order.recalculateAmounts();
 
-        // 8. Save the order
-        Order savedOrder = orderRepository.save(order);
+        // 6. Claim the order number, save the order (items and addresses cascade) and its outbox event
+        // in one transaction; a number already taken fails the insert and rolls everything back
+        Order savedOrder = transactionTemplate.execute(status -> {
+            orderNumberRepository.save(new OrderNumber(order.getOrderNumber(), LocalDateTime.now()));
+            Order saved = orderRepository.save(order);
+            orderEventOutbox.record(saved, OrderEvent.ORDER_CREATED);
+            eventPublisher.publishEvent(new OrderTransitionEvent(saved.getId(), userId, null,
+                    OrderStatus.CREATED, saved.getTotalAmount(), LocalDateTime.now()));
+            return saved;
+        });
 
-        // 9. Clear the cart
-        cartServiceClient.clearCart(userId);
+        // 7. Clear the cart after commit, off the request thread
+        eventPublisher.publishEvent(new OrderCreatedEvent(savedOrder.getId(), userId));
 
         return mapToDTO(savedOrder);
     }
@@ -85,37 +168,48 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public OrderDTO getOrderById(Long id) {
         log.debug("Getting order by ID: {}", id);
-        Order order = findOrderById(id);
-        return mapToDTO(order);
+        return orderRepository.findById(id)
+                .map(this::mapToDTO)
+                .or(() -> orderArchiveStore.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "id", id));
     }
 
     @Override
     public OrderDTO getOrderByOrderNumber(String orderNumber) {
         log.debug("Getting order by order number: {}", orderNumber);
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        return orderRepository.findByOrderNumber(orderNumber)
+                .map(this::mapToDTO)
+                .or(() -> orderArchiveStore.findByOrderNumber(orderNumber))
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "orderNumber", orderNumber));
-        return mapToDTO(order);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getUserOrders(Long userId, Pageable pageable) {
         log.debug("Getting orders for user ID: {}", userId);
-        return orderRepository.findByUserId(userId, pageable)
-                .map(this::mapToDTO);
+        return loadOrderPage(orderRepository.findIdsByUserId(userId, pageable));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getUserOrdersByStatus(Long userId, OrderStatus status, Pageable pageable) {
         log.debug("Getting orders for user ID: {} with status: {}", userId, status);
-        return orderRepository.findByUserIdAndStatus(userId, status, pageable)
-                .map(this::mapToDTO);
+        return loadOrderPage(orderRepository.findIdsByUserIdAndStatus(userId, status, pageable));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getAllOrdersByStatus(OrderStatus status, Pageable pageable) {
         log.debug("Getting all orders with status: {}", status);
-        return orderRepository.findByStatus(status, pageable)
-                .map(this::mapToDTO);
+        return loadOrderPage(orderRepository.findIdsByStatus(status, pageable));
+    }
+
+    @Override
+    public Page<OrderSummaryDTO> getUserOrderSummaries(Long userId, OrderStatus status, Pageable pageable) {
+        log.debug("Getting order summaries for user ID: {} with status: {}", userId, status);
+        return status == null
+                ? orderRepository.findSummariesByUserId(userId, pageable)
+                : orderRepository.findSummariesByUserIdAndStatus(userId, status, pageable);
     }
 
     @Override
@@ -125,21 +219,13 @@ public class OrderServiceImpl implements OrderService {
 
         Order order = findOrderById(id);
 
-        // Validate status transition
-        validateStatusTransition(order.getStatus(), statusUpdateRequest.getStatus());
-
-        // Update status
-        order.setStatus(statusUpdateRequest.getStatus());
-
         // Update notes if provided
         if (statusUpdateRequest.getNotes() != null && !statusUpdateRequest.getNotes().isEmpty()) {
             order.setNotes(statusUpdateRequest.getNotes());
         }
 
-        // If status is SHIPPED, generate a tracking number if not already present
-        if (statusUpdateRequest.getStatus() == OrderStatus.SHIPPED && (order.getTrackingNumber() == null || order.getTrackingNumber().isEmpty())) {
-            order.setTrackingNumber(generateTrackingNumber());
-        }
+        // Validate and apply the transition (tracking number, restock and events are state machine actions)
+        orderStateMachine.fire(order, statusUpdateRequest.getStatus());
 
         // Save the updated order
         Order updatedOrder = orderRepository.save(order);
@@ -147,6 +233,20 @@ public class OrderServiceImpl implements OrderService {
         return mapToDTO(updatedOrder);
     }
 
+    @Override
+    public void bulkUpdateStatus(BulkStatusUpdateRequest request, Consumer<BulkStatusUpdateResult> resultConsumer) {
+        List<Long> orderIds = request.getOrderIds().stream().distinct().collect(Collectors.toList());
+        log.debug("Bulk status update of {} orders to {}", orderIds.size(), request.getStatus());
+
+        // One transaction per chunk: results stream out as each chunk commits
+        for (int start = 0; start < orderIds.size(); start += bulkUpdateChunkSize) {
+            List<Long> chunk = orderIds.subList(start, Math.min(start + bulkUpdateChunkSize, orderIds.size()));
+            List<BulkStatusUpdateResult> results = transactionTemplate.execute(status ->
+                    updateStatusChunk(chunk, request.getStatus(), request.getNotes()));
+            results.forEach(resultConsumer);
+        }
+    }
+
     @Override
     @Transactional
     public OrderDTO processPayment(Long id, OrderPaymentRequest paymentRequest) {
@@ -174,20 +274,91 @@ public class OrderServiceImpl implements OrderService {
         // Add payment to order
         order.addPayment(payment);
 
-        // Update order status
-        order.setStatus(OrderStatus.PAID);
+        // Update order status; the transition queues the batched stock commit and the ORDER_PAID event
         order.setPaymentMethod(paymentRequest.getPaymentMethod());
         order.setPaymentStatus("PAID");
+        orderStateMachine.fire(order, OrderStatus.PAID);
 
         // Save the updated order
         Order updatedOrder = orderRepository.save(order);
 
-        // Update product stock (in a real implementation, this would be done via events)
-        for (OrderItem item : order.getItems()) {
-            productServiceClient.updateProductStock(item.getProductId(), -item.getQuantity());
+        return mapToDTO(updatedOrder);
+    }
+
+    @Override
+    @Transactional
+    public int applyPaymentEvents(List<PaymentEvent> events) {
+        // 1. Drop events applied before, and duplicates within the batch
+        Set<String> processed = processedPaymentEventRepository.findProcessedIds(
+                events.stream().map(PaymentEvent::getEventId).toList());
+        Map<String, PaymentEvent> pending = new LinkedHashMap<>();
+        for (PaymentEvent event : events) {
+            if (!processed.contains(event.getEventId())) {
+                pending.putIfAbsent(event.getEventId(), event);
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
         }
 
-        return mapToDTO(updatedOrder);
+        // 2. Load every order of the batch in one query. Numbers are unique through order_numbers, but
+        // one matching several orders must skip its events, not fail every batch it is redelivered in
+        Map<String, Order> orders = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (Order order : orderRepository.findByOrderNumberIn(
+                pending.values().stream().map(PaymentEvent::getOrderNumber).collect(Collectors.toSet()))) {
+            if (orders.putIfAbsent(order.getOrderNumber(), order) != null) {
+                ambiguous.add(order.getOrderNumber());
+            }
+        }
+        ambiguous.forEach(orders::remove);
+
+        // 3. Apply the events in topic order, so later events of an order win
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderPayment> payments = new ArrayList<>();
+        List<ProcessedPaymentEvent> applied = new ArrayList<>(pending.size());
+        for (PaymentEvent event : pending.values()) {
+            applied.add(new ProcessedPaymentEvent(event.getEventId(), now));
+
+            if (ambiguous.contains(event.getOrderNumber())) {
+                log.error("Ignoring payment event {} for order number {}, which matches more than one order",
+                        event.getEventId(), event.getOrderNumber());
+                continue;
+            }
+
+            Order order = orders.get(event.getOrderNumber());
+            if (order == null) {
+                log.warn("Ignoring payment event {} for unknown order {}", event.getEventId(), event.getOrderNumber());
+                continue;
+            }
+
+            String paymentStatus = mapPaymentStatus(event.getStatus());
+            order.setPaymentStatus(paymentStatus);
+
+            // A successful payment pays a new order; the transition queues the stock commit and ORDER_PAID
+            if ("PAID".equals(paymentStatus) && order.getStatus() == OrderStatus.CREATED) {
+                OrderPayment payment = new OrderPayment();
+                payment.setOrder(order);
+                payment.setPaymentMethod(event.getPaymentMethod() != null ? event.getPaymentMethod() : "UNKNOWN");
+                payment.setTransactionId(event.getTransactionId() != null
+                        ? event.getTransactionId() : event.getPaymentId());
+                payment.setAmount(event.getAmount());
+                payment.setStatus("SUCCESS");
+                payment.setPaymentDate(event.getTimestamp() != null ? event.getTimestamp() : now);
+                payments.add(payment);
+
+                order.setPaymentMethod(payment.getPaymentMethod());
+                orderStateMachine.fire(order, OrderStatus.PAID);
+            }
+        }
+
+        // 4. Write everything, and remember the events, in this one transaction
+        orderRepository.saveAll(orders.values());
+        orderPaymentRepository.saveAll(payments);
+        processedPaymentEventRepository.saveAll(applied);
+
+        log.debug("Applied {} payment events to {} orders", applied.size(), orders.size());
+        return applied.size();
     }
 
     @Override
@@ -202,19 +373,10 @@ public class OrderServiceImpl implements OrderService {
             throw new BadRequestException("Cannot cancel order with status: " + order.getStatus());
         }
 
-        // If order was already paid, create a refund (in a real implementation)
-        if (order.getStatus() == OrderStatus.PAID || order.getStatus() == OrderStatus.PROCESSING) {
-            // Process refund logic would go here
-
-            // Return items to inventory
-            for (OrderItem item : order.getItems()) {
-                productServiceClient.updateProductStock(item.getProductId(), item.getQuantity());
-            }
-        }
-
-        // Update order status
-        order.setStatus(OrderStatus.CANCELLED);
+        // Update order status. Paid orders are returned to inventory by the state machine;
+        // a refund would also be issued here in a real implementation
         order.setNotes(reason);
+        orderStateMachine.fire(order, OrderStatus.CANCELLED);
 
         // Save the updated order
         Order updatedOrder = orderRepository.save(order);
@@ -222,8 +384,122 @@ public class OrderServiceImpl implements OrderService {
         return mapToDTO(updatedOrder);
     }
 
+    @Override
+    public int archiveOrders(LocalDateTime cutoff, int batchSize) {
+        Integer archived = transactionTemplate.execute(status -> {
+            // Another instance is archiving; it will pick up this batch
+            if (!orderRepository.tryAcquireJobLock(ARCHIVE_LOCK_KEY)) {
+                return 0;
+            }
+
+            // 1. Load the batch with everything the API returns
+            List<Long> ids = orderRepository.findArchivableIds(ARCHIVABLE_STATUSES, cutoff,
+                    PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            List<Order> orders = orderRepository.findWithDetailsByIdIn(ids);
+            orderRepository.fetchPaymentsByIdIn(ids);
+
+            // 2. Write it to the archive
+            List<Long> addressIds = new ArrayList<>();
+            for (Order order : orders) {
+                orderArchiveStore.store(mapToDTO(order));
+                Stream.of(order.getShippingAddress(), order.getBillingAddress())
+                        .filter(Objects::nonNull)
+                        .forEach(address -> addressIds.add(address.getId()));
+            }
+
+            // 3. Delete it from the live tables, children first
+            orderItemRepository.deleteByOrderIdIn(ids);
+            orderPaymentRepository.deleteByOrderIdIn(ids);
+            orderRepository.deleteByIdIn(ids);
+            if (!addressIds.isEmpty()) {
+                orderRepository.deleteAddressesByIdIn(addressIds);
+            }
+            return ids.size();
+        });
+        return archived != null ? archived : 0;
+    }
+
     // Helper methods
 
+    private List<BulkStatusUpdateResult> updateStatusChunk(List<Long> orderIds, OrderStatus to, String notes) {
+        List<BulkStatusUpdateResult> results = new ArrayList<>(orderIds.size());
+
+        // 1. Validate every transition in memory from an ID/status projection
+        Map<Long, OrderStatus> currentStatus = orderRepository.findStatusByIdIn(orderIds).stream()
+                .collect(Collectors.toMap(OrderStatusView::getId, OrderStatusView::getStatus));
+
+        Map<OrderStatus, List<Long>> idsBySource = new EnumMap<>(OrderStatus.class);
+        for (Long orderId : orderIds) {
+            OrderStatus from = currentStatus.get(orderId);
+            if (from == null) {
+                results.add(new BulkStatusUpdateResult(orderId, BulkStatusUpdateResult.NOT_FOUND, null, null, null));
+            } else if (!orderStateMachine.canTransition(from, to) || orderStateMachine.hasGuards(from, to)) {
+                results.add(new BulkStatusUpdateResult(orderId, BulkStatusUpdateResult.INVALID_TRANSITION, from, from, null));
+            } else {
+                idsBySource.computeIfAbsent(from, key -> new ArrayList<>()).add(orderId);
+            }
+        }
+
+        // 2. One set-based UPDATE per source status; SHIPPED tracking numbers are generated in SQL
+        idsBySource.forEach((from, ids) -> {
+            Map<Long, String> trackingById = new HashMap<>();
+            for (Object[] row : orderRepository.updateStatusByIdIn(ids, from.name(), to.name(),
+                    trackingPrefix(to), notes)) {
+                trackingById.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+
+            for (Long orderId : ids) {
+                results.add(trackingById.containsKey(orderId)
+                        ? new BulkStatusUpdateResult(orderId, BulkStatusUpdateResult.UPDATED, from, to, trackingById.get(orderId))
+                        : new BulkStatusUpdateResult(orderId, BulkStatusUpdateResult.CONFLICT, from, null, null));
+            }
+
+            // 3. Outbox rows and stock adjustments are written set-based in this chunk's transaction;
+            // per-order actions and in-process events fan out asynchronously after it commits
+            if (!trackingById.isEmpty()) {
+                orderOutboxRepository.insertStatusEvents(trackingById.keySet(), OrderEvent.forStatus(to));
+                stockAdjustmentPublisher.recordBulk(trackingById.keySet(), from, to);
+                eventPublisher.publishEvent(new OrderBulkTransitionEvent(new ArrayList<>(trackingById.keySet()), from, to));
+            }
+        });
+
+        return results;
+    }
+
+    // Orders shipped in one set-based UPDATE share a generated batch ID and are told apart by order ID
+    private String trackingPrefix(OrderStatus to) {
+        return to == OrderStatus.SHIPPED ? idGenerator.next("TRK") + "-" : null;
+    }
+
+    // Second step of history paging: a fixed number of queries per page instead of several per order
+    private Page<OrderDTO> loadOrderPage(Page<Long> idPage) {
+        if (idPage.isEmpty()) {
+            return idPage.map(id -> null);
+        }
+
+        Map<Long, Order> ordersById = orderRepository.findWithDetailsByIdIn(idPage.getContent()).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        orderRepository.fetchPaymentsByIdIn(idPage.getContent());
+
+        // Keep the page's sort order
+        return idPage.map(id -> mapToDTO(ordersById.get(id)));
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Surface the client's own exception so GlobalExceptionHandler maps it as before
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     private Order findOrderById(Long id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "id", id));
@@ -326,49 +602,18 @@ public class OrderServiceImpl implements OrderService {
         return paymentDTO;
     }
 
-    private String generateOrderNumber() {
-        // Format: ORD-YYYYMMDDHHmm-XXXX where XXXX is a random alphanumeric string
-        String timestamp = LocalDateTime.now().toString().replaceAll("[^0-9]", "").substring(0, 12);
-        String random = RandomStringUtils.randomAlphanumeric(4).toUpperCase();
-        return "ORD-" + timestamp + "-" + random;
-    }
-
-    private String generateTrackingNumber() {
-        // Format: TRK-XXXXXXXXXXXX where X is a random alphanumeric character
-        return "TRK-" + RandomStringUtils.randomAlphanumeric(12).toUpperCase();
-    }
-
-    private void validateStatusTransition(OrderStatus currentStatus, OrderStatus newStatus) {
-        // This is a simplified validation - in a real system, you'd have a more sophisticated state machine
-        switch (currentStatus) {
-            case CREATED:
-                if (newStatus != OrderStatus.PAID && newStatus != OrderStatus.CANCELLED) {
-                    throw new BadRequestException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case PAID:
-                if (newStatus != OrderStatus.PROCESSING && newStatus != OrderStatus.CANCELLED) {
-                    throw new BadRequestException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case PROCESSING:
-                if (newStatus != OrderStatus.SHIPPED && newStatus != OrderStatus.CANCELLED) {
-                    throw new BadRequestException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case SHIPPED:
-                if (newStatus != OrderStatus.DELIVERED) {
-                    throw new BadRequestException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case DELIVERED:
-                throw new BadRequestException("Cannot change status of a delivered order");
-            case CANCELLED:
-                throw new BadRequestException("Cannot change status of a cancelled order");
-            case REFUNDED:
-                throw new BadRequestException("Cannot change status of a refunded order");
-            default:
-                throw new BadRequestException("Unknown order status: " + currentStatus);
+    // Order payment status for a payment-service payment status
+    private static String mapPaymentStatus(String paymentStatus) {
+        if (paymentStatus == null) {
+            return "PENDING";
         }
+        return switch (paymentStatus) {
+            case "COMPLETED" -> "PAID";
+            case "FAILED" -> "FAILED";
+            case "CANCELLED" -> "CANCELLED";
+            case "REFUNDED" -> "REFUNDED";
+            case "PARTIALLY_REFUNDED" -> "PARTIALLY_REFUNDED";
+            default -> "PENDING";
+        };
     }
-}
\ No newline at end of file
+}
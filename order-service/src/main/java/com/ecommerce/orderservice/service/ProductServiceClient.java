@@ -1,7 +1,29 @@
 package com.ecommerce.orderservice.service;
 
+import com.ecommerce.orderservice.dto.ProductStockResponse;
+import com.ecommerce.orderservice.dto.StockAdjustmentRequest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 public interface ProductServiceClient {
 
-    boolean updateProductStock(Long productId, int quantity);
-}
+    /**
+     * Applies a batch of stock changes in one call. The request's idempotency key makes resending
+     * it safe, so callers retry on failure.
+     *
+     * @param request The adjustments for one order
+     * @throws org.springframework.web.reactive.function.client.WebClientResponseException If Product
+     *         Service answered with an error; a 4xx means it rejected the batch and resending won't help
+     */
+    void adjustStock(StockAdjustmentRequest request);
 
+    /**
+     * Fetches current price and stock for a batch of products in a single call
+     *
+     * @param productIds The IDs of the products
+     * @return A future completing with the snapshots of the products that exist
+     */
+    CompletableFuture<List<ProductStockResponse>> getProductStockAsync(Set<Long> productIds);
+}
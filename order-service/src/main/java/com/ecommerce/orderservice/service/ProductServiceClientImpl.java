@@ -1,10 +1,23 @@
 package com.ecommerce.orderservice.service;
 
+import com.ecommerce.orderservice.dto.ProductStockResponse;
+import com.ecommerce.orderservice.dto.StockAdjustmentRequest;
+import com.ecommerce.orderservice.security.ServiceTokenProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -12,33 +25,71 @@ import org.springframework.web.reactive.function.client.WebClient;
 public class ProductServiceClientImpl implements ProductServiceClient {
 
     private final WebClient.Builder webClientBuilder;
+    private final ServiceTokenProvider serviceTokenProvider;
 
     @Value("${service.product-service.url}")
     private String productServiceUrl;
 
     @Override
-    public boolean updateProductStock(Long productId, int quantity) {
-        try {
-            log.debug("Updating stock for product ID: {} by quantity: {}", productId, quantity);
-
-            // Skip for testing if mock mode is enabled
-            if (Boolean.getBoolean("mockServices")) {
-                log.debug("Mock mode enabled, returning success for stock update");
-                return true;
-            }
-
-            // In a real implementation, we would call the Product Service's stock update API
-            // For now, we'll return true to simulate success
-            return true;
-        } catch (Exception e) {
-            log.error("Error updating stock for product ID: {}", productId, e);
-            return false;
+    public void adjustStock(StockAdjustmentRequest request) {
+        log.debug("Adjusting stock with key: {} for {} products",
+                request.getIdempotencyKey(), request.getItems().size());
+
+        // Skip for testing if mock mode is enabled
+        if (Boolean.getBoolean("mockServices")) {
+            log.debug("Mock mode enabled, skipping stock adjustment");
+            return;
         }
+
+        // Needs the SERVICE role, and often runs with no user at all (payment events from Kafka)
+        String token = serviceTokenProvider.getToken();
+
+        // No retries here: the stock adjustment sender resends failed batches with backoff
+        webClientBuilder.build()
+                .post()
+                .uri(productServiceUrl + "/api/products/stock/adjustments")
+                .headers(headers -> headers.setBearerAuth(token))
+                .bodyValue(request)
+                .retrieve()
+                .toBodilessEntity()
+                .block();
+    }
+
+    @Override
+    @Async
+    public CompletableFuture<List<ProductStockResponse>> getProductStockAsync(Set<Long> productIds) {
+        log.debug("Fetching stock for product IDs: {}", productIds);
+
+        // Skip for testing if mock mode is enabled
+        if (Boolean.getBoolean("mockServices")) {
+            log.debug("Mock mode enabled, returning mock stock snapshots");
+            return CompletableFuture.completedFuture(productIds.stream().map(this::getMockStock).toList());
+        }
+
+        // No graceful degradation here: an order must not be placed against unverified prices or stock
+        List<ProductStockResponse> products = webClientBuilder.build()
+                .get()
+                .uri(productServiceUrl + "/api/products/stock",
+                        uriBuilder -> uriBuilder.queryParam("ids", productIds.toArray()).build())
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> {
+                    log.error("Error from Product Service: {}", response.statusCode());
+                    return Mono.error(new RuntimeException("Product Service is unavailable"));
+                })
+                .bodyToMono(new ParameterizedTypeReference<List<ProductStockResponse>>() {})
+                .block();
+
+        return CompletableFuture.completedFuture(products != null ? products : new ArrayList<>());
     }
 
-    // Helper method to get current token (implement this or pass token from security context)
-    private String getCurrentToken() {
-        // This is a placeholder - implement proper token retrieval
-        return ""; // Empty token for now
+    // Mock stock snapshot for testing, matching the Cart Service's mock product
+    private ProductStockResponse getMockStock(Long productId) {
+        ProductStockResponse mockStock = new ProductStockResponse();
+        mockStock.setId(productId);
+        mockStock.setName("Product " + productId);
+        mockStock.setPrice(BigDecimal.valueOf(9.99));
+        mockStock.setStockQuantity(100);
+        mockStock.setActive(true);
+        return mockStock;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,151 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.dto.StockAdjustmentRequest;
+import com.ecommerce.orderservice.entity.StockAdjustment;
+import com.ecommerce.orderservice.repository.StockAdjustmentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sends the stock adjustments queued in stock_adjustments to Product Service. Each poll claims a
+ * batch of due rows in a short transaction and sends them without holding a connection:
+ * <ul>
+ *   <li>applied adjustments are deleted;</li>
+ *   <li>adjustments Product Service rejects (e.g. not enough stock) are kept as FAILED for
+ *       reconciliation, since resending won't change the answer;</li>
+ *   <li>anything else (5xx, timeouts, Product Service down) is retried with exponential backoff.</li>
+ * </ul>
+ * An instance that dies mid-send leaves its claimed rows to be retried once the claim runs out;
+ * Product Service applies each idempotency key once, so a resend is harmless.
+ */
+@Component
+@Slf4j
+public class StockAdjustmentSender {
+
+    // Client errors that may well succeed on resend
+    private static final Set<HttpStatus> RETRYABLE_CLIENT_ERRORS = Set.of(
+            HttpStatus.UNAUTHORIZED, HttpStatus.FORBIDDEN, HttpStatus.REQUEST_TIMEOUT, HttpStatus.TOO_MANY_REQUESTS);
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final TypeReference<List<StockAdjustmentRequest.Item>> ITEMS = new TypeReference<>() {};
+
+    private final StockAdjustmentRepository stockAdjustmentRepository;
+    private final ProductServiceClient productServiceClient;
+    private final ObjectMapper objectMapper;
+
+    private final Counter appliedCounter;
+    private final Counter retriedCounter;
+    private final Counter rejectedCounter;
+
+    @Value("${order.stock-adjustments.batch-size:50}")
+    private int batchSize;
+
+    @Value("${order.stock-adjustments.claim-ms:60000}")
+    private long claimMs;
+
+    @Value("${order.stock-adjustments.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${order.stock-adjustments.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    public StockAdjustmentSender(StockAdjustmentRepository stockAdjustmentRepository,
+                                 ProductServiceClient productServiceClient,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.stockAdjustmentRepository = stockAdjustmentRepository;
+        this.productServiceClient = productServiceClient;
+        this.objectMapper = objectMapper;
+
+        this.appliedCounter = Counter.builder("order.stock-adjustments.applied")
+                .description("Stock adjustments Product Service applied")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("order.stock-adjustments.retried")
+                .description("Stock adjustment sends that failed and were scheduled for a retry")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("order.stock-adjustments.rejected")
+                .description("Stock adjustments Product Service rejected, left for reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${order.stock-adjustments.poll-interval-ms:1000}")
+    public void sendDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockAdjustment> claimed = stockAdjustmentRepository.claimDue(now, now.plus(Duration.ofMillis(claimMs)), batchSize);
+        if (!claimed.isEmpty()) {
+            log.debug("Sending {} stock adjustments", claimed.size());
+            claimed.forEach(this::send);
+        }
+    }
+
+    private void send(StockAdjustment adjustment) {
+        try {
+            productServiceClient.adjustStock(toRequest(adjustment));
+        } catch (WebClientResponseException e) {
+            if (isRejection(e)) {
+                reject(adjustment, e.getStatusCode() + " " + e.getResponseBodyAsString());
+            } else {
+                retryLater(adjustment, e);
+            }
+            return;
+        } catch (Exception e) {
+            retryLater(adjustment, e);
+            return;
+        }
+
+        stockAdjustmentRepository.deleteById(adjustment.getId());
+        appliedCounter.increment();
+        log.debug("Applied stock adjustment {} for order ID: {}", adjustment.getIdempotencyKey(), adjustment.getOrderId());
+    }
+
+    // Product Service answered that the batch can't be applied as it is
+    private static boolean isRejection(WebClientResponseException e) {
+        return e.getStatusCode().is4xxClientError()
+                && !RETRYABLE_CLIENT_ERRORS.contains(HttpStatus.resolve(e.getStatusCode().value()));
+    }
+
+    private void reject(StockAdjustment adjustment, String error) {
+        stockAdjustmentRepository.markFailed(adjustment.getId(), truncate(error));
+        rejectedCounter.increment();
+        log.error("Stock adjustment {} for order ID: {} was rejected ({}) and needs manual reconciliation",
+                adjustment.getIdempotencyKey(), adjustment.getOrderId(), error);
+    }
+
+    private void retryLater(StockAdjustment adjustment, Exception e) {
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(adjustment.getAttempts()));
+        stockAdjustmentRepository.reschedule(adjustment.getId(), nextAttemptAt, truncate(e.toString()));
+        retriedCounter.increment();
+        log.warn("Stock adjustment {} for order ID: {} failed on attempt {}, retrying at {}",
+                adjustment.getIdempotencyKey(), adjustment.getOrderId(), adjustment.getAttempts(), nextAttemptAt, e);
+    }
+
+    // Doubles with every attempt, up to the maximum; attempts is at least 1 once a row is claimed
+    private Duration backoff(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        return Duration.ofMillis(Math.min(initialBackoffMs << doublings, maxBackoffMs));
+    }
+
+    private StockAdjustmentRequest toRequest(StockAdjustment adjustment) throws JsonProcessingException {
+        List<StockAdjustmentRequest.Item> items = objectMapper.readValue(adjustment.getItems(), ITEMS);
+        return new StockAdjustmentRequest(adjustment.getIdempotencyKey(), items);
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
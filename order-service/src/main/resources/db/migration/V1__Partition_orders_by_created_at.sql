@@ -0,0 +1,167 @@
+-- Range-partition orders and order_payments by created_at, one partition per month.
+-- Runs on an empty database (Hibernate creates the remaining tables afterwards) and on one whose
+-- tables were created by ddl-auto, in which case the rows are copied into the partitioned tables.
+--
+-- A partitioned table's primary key and unique constraints must include the partition key, so:
+--   * primary keys become (id, created_at); ids still come from the same sequences
+--   * order_number is indexed, not unique; order numbers come from the Snowflake ID generator
+--   * order_items and order_payments no longer have a foreign key to orders
+
+-- Creates the monthly partitions <parent>_YYYYMM for `months` months starting at first_month
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent text, first_month date, months int)
+RETURNS int AS $$
+DECLARE
+    month_start date;
+    partition_name text;
+    created int := 0;
+BEGIN
+    FOR i IN 0 .. months - 1 LOOP
+        month_start := (date_trunc('month', first_month) + make_interval(months => i))::date;
+        partition_name := parent || '_' || to_char(month_start, 'YYYYMM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, parent, month_start, (month_start + interval '1 month')::date);
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Drops the monthly partitions of parent that end before before_month and hold no rows
+CREATE OR REPLACE FUNCTION drop_empty_monthly_partitions(parent text, before_month date)
+RETURNS int AS $$
+DECLARE
+    partition_name text;
+    is_empty boolean;
+    dropped int := 0;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = parent::regclass
+          AND c.relname ~ ('^' || parent || '_[0-9]{6}$')
+          AND to_date(right(c.relname, 6), 'YYYYMM') < date_trunc('month', before_month)
+    LOOP
+        EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I)', partition_name) INTO is_empty;
+        IF is_empty THEN
+            EXECUTE format('DROP TABLE %I', partition_name);
+            dropped := dropped + 1;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Move existing unpartitioned tables out of the way, keeping their id sequences
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        ALTER TABLE orders RENAME TO orders_unpartitioned;
+        ALTER INDEX orders_pkey RENAME TO orders_unpartitioned_pkey;
+        ALTER SEQUENCE orders_id_seq OWNED BY NONE;
+        DROP INDEX IF EXISTS idx_orders_user_id_created_at;
+        DROP INDEX IF EXISTS idx_orders_status_created_at;
+    END IF;
+    IF to_regclass('order_payments') IS NOT NULL THEN
+        ALTER TABLE order_payments RENAME TO order_payments_unpartitioned;
+        ALTER INDEX order_payments_pkey RENAME TO order_payments_unpartitioned_pkey;
+        ALTER SEQUENCE order_payments_id_seq OWNED BY NONE;
+    END IF;
+END $$;
+
+CREATE SEQUENCE IF NOT EXISTS orders_id_seq;
+CREATE SEQUENCE IF NOT EXISTS order_payments_id_seq;
+
+CREATE TABLE orders (
+    id                  BIGINT         NOT NULL DEFAULT nextval('orders_id_seq'),
+    order_number        VARCHAR(255)   NOT NULL,
+    user_id             BIGINT         NOT NULL,
+    status              VARCHAR(255)   NOT NULL,
+    total_amount        NUMERIC(10, 2) NOT NULL,
+    subtotal            NUMERIC(10, 2) NOT NULL,
+    tax                 NUMERIC(10, 2) NOT NULL,
+    shipping_cost       NUMERIC(10, 2) NOT NULL,
+    payment_method      VARCHAR(255),
+    payment_status      VARCHAR(255),
+    tracking_number     VARCHAR(255),
+    notes               VARCHAR(255),
+    shipping_address_id BIGINT,
+    billing_address_id  BIGINT,
+    created_at          TIMESTAMP(6)   NOT NULL,
+    updated_at          TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE orders_id_seq OWNED BY orders.id;
+
+CREATE TABLE order_payments (
+    id              BIGINT         NOT NULL DEFAULT nextval('order_payments_id_seq'),
+    order_id        BIGINT         NOT NULL,
+    payment_method  VARCHAR(255)   NOT NULL,
+    transaction_id  VARCHAR(255),
+    amount          NUMERIC(10, 2) NOT NULL,
+    status          VARCHAR(255)   NOT NULL,
+    payment_date    TIMESTAMP(6),
+    created_at      TIMESTAMP(6)   NOT NULL,
+    updated_at      TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE order_payments_id_seq OWNED BY order_payments.id;
+
+-- Catches rows outside the monthly partitions; the maintenance job keeps months ahead so it stays empty
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_payments_default PARTITION OF order_payments DEFAULT;
+
+-- Partitions from the oldest existing row up to three months ahead, then copy the rows over
+DO $$
+DECLARE
+    current_month date := date_trunc('month', now())::date;
+    first_month date;
+BEGIN
+    first_month := current_month;
+    IF to_regclass('orders_unpartitioned') IS NOT NULL THEN
+        SELECT COALESCE(date_trunc('month', min(created_at))::date, current_month)
+        INTO first_month FROM orders_unpartitioned;
+    END IF;
+    IF to_regclass('order_payments_unpartitioned') IS NOT NULL THEN
+        SELECT LEAST(first_month, COALESCE(date_trunc('month', min(created_at))::date, current_month))
+        INTO first_month FROM order_payments_unpartitioned;
+    END IF;
+
+    PERFORM create_monthly_partitions('orders', first_month,
+            (extract(year FROM age(current_month, first_month)) * 12
+                + extract(month FROM age(current_month, first_month)))::int + 4);
+    PERFORM create_monthly_partitions('order_payments', first_month,
+            (extract(year FROM age(current_month, first_month)) * 12
+                + extract(month FROM age(current_month, first_month)))::int + 4);
+
+    IF to_regclass('orders_unpartitioned') IS NOT NULL THEN
+        INSERT INTO orders (id, order_number, user_id, status, total_amount, subtotal, tax, shipping_cost,
+                            payment_method, payment_status, tracking_number, notes,
+                            shipping_address_id, billing_address_id, created_at, updated_at)
+        SELECT id, order_number, user_id, status, total_amount, subtotal, tax, shipping_cost,
+               payment_method, payment_status, tracking_number, notes,
+               shipping_address_id, billing_address_id, created_at, updated_at
+        FROM orders_unpartitioned;
+        -- Also drops the foreign keys from order_items and order_payments
+        DROP TABLE orders_unpartitioned CASCADE;
+    END IF;
+
+    IF to_regclass('order_payments_unpartitioned') IS NOT NULL THEN
+        INSERT INTO order_payments (id, order_id, payment_method, transaction_id, amount, status,
+                                    payment_date, created_at, updated_at)
+        SELECT id, order_id, payment_method, transaction_id, amount, status,
+               payment_date, created_at, updated_at
+        FROM order_payments_unpartitioned;
+        DROP TABLE order_payments_unpartitioned;
+    END IF;
+END $$;
+
+-- Indexes on the parents are created on every partition, including future ones
+CREATE INDEX idx_orders_user_id_created_at ON orders (user_id, created_at);
+CREATE INDEX idx_orders_status_created_at ON orders (status, created_at);
+CREATE INDEX idx_orders_order_number ON orders (order_number);
+CREATE INDEX idx_order_payments_order_id ON order_payments (order_id);
@@ -0,0 +1,19 @@
+-- Cold storage for finished orders moved out of the partitioned tables by the archival job.
+-- Each row is the gzip-compressed JSON of the full order; the searchable columns are kept alongside.
+CREATE SCHEMA IF NOT EXISTS order_archive;
+
+CREATE TABLE order_archive.orders (
+    id           BIGINT       PRIMARY KEY,
+    order_number VARCHAR(255) NOT NULL,
+    user_id      BIGINT       NOT NULL,
+    status       VARCHAR(255) NOT NULL,
+    created_at   TIMESTAMP(6) NOT NULL,
+    archived_at  TIMESTAMP(6) NOT NULL,
+    payload      BYTEA        NOT NULL
+);
+
+-- The payload is already compressed; don't let TOAST try again
+ALTER TABLE order_archive.orders ALTER COLUMN payload SET STORAGE EXTERNAL;
+
+CREATE UNIQUE INDEX idx_archived_orders_order_number ON order_archive.orders (order_number);
+CREATE INDEX idx_archived_orders_user_id_created_at ON order_archive.orders (user_id, created_at);
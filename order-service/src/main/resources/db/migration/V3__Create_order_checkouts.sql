@@ -0,0 +1,17 @@
+-- Asynchronous checkouts, polled by clients until the worker has created the order
+CREATE TABLE order_checkouts (
+    id              VARCHAR(64)  PRIMARY KEY,
+    user_id         BIGINT       NOT NULL,
+    idempotency_key VARCHAR(255),
+    status          VARCHAR(32)  NOT NULL,
+    order_id        BIGINT,
+    order_number    VARCHAR(255),
+    error_message   VARCHAR(255),
+    created_at      TIMESTAMP(6) NOT NULL,
+    updated_at      TIMESTAMP(6) NOT NULL
+);
+
+-- Rows without a key never conflict: NULLs are distinct
+CREATE UNIQUE INDEX idx_order_checkouts_user_id_idempotency_key ON order_checkouts (user_id, idempotency_key);
+-- Backs the sweeper for interrupted and expired checkouts
+CREATE INDEX idx_order_checkouts_status_updated_at ON order_checkouts (status, updated_at);
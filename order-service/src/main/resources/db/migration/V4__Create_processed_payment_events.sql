@@ -0,0 +1,8 @@
+-- Payment events already applied to orders; the consumer skips redelivered events found here
+CREATE TABLE processed_payment_events (
+    event_id     VARCHAR(64)  PRIMARY KEY,
+    processed_at TIMESTAMP(6) NOT NULL
+);
+
+-- Backs the purge of entries older than any redelivery
+CREATE INDEX idx_processed_payment_events_processed_at ON processed_payment_events (processed_at);
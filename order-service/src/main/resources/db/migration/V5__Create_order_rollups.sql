@@ -0,0 +1,45 @@
+-- Analytics rollups, maintained by OrderRollupAccumulator and rebuilt by the backfill job.
+-- IF NOT EXISTS: databases run with ddl-auto may already have them from the entities.
+
+-- Orders that entered a status, per hour and per day
+CREATE TABLE IF NOT EXISTS order_status_rollups (
+    granularity   VARCHAR(10)    NOT NULL,
+    bucket_start  TIMESTAMP(6)   NOT NULL,
+    status        VARCHAR(20)    NOT NULL,
+    order_count   BIGINT         NOT NULL,
+    total_amount  NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (granularity, bucket_start, status)
+);
+
+-- Paid and reversed revenue, per hour and per day
+CREATE TABLE IF NOT EXISTS order_revenue_rollups (
+    granularity      VARCHAR(10)    NOT NULL,
+    bucket_start     TIMESTAMP(6)   NOT NULL,
+    paid_orders      BIGINT         NOT NULL,
+    gross_revenue    NUMERIC(14, 2) NOT NULL,
+    cancelled_orders BIGINT         NOT NULL,
+    reversed_revenue NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (granularity, bucket_start)
+);
+
+-- Units and revenue of paid order items, per product and day
+CREATE TABLE IF NOT EXISTS product_sales_rollups (
+    bucket_date  DATE           NOT NULL,
+    product_id   BIGINT         NOT NULL,
+    product_name VARCHAR(255)   NOT NULL,
+    quantity     BIGINT         NOT NULL,
+    revenue      NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (bucket_date, product_id)
+);
+
+-- All-time units and revenue per product, flushed from ProductSalesCounter
+CREATE TABLE IF NOT EXISTS product_sales (
+    product_id   BIGINT         PRIMARY KEY,
+    product_name VARCHAR(255)   NOT NULL,
+    quantity     BIGINT         NOT NULL,
+    revenue      NUMERIC(14, 2) NOT NULL,
+    updated_at   TIMESTAMP(6)   NOT NULL
+);
+
+-- Backs the reseed of the best-seller ranking
+CREATE INDEX IF NOT EXISTS idx_product_sales_quantity ON product_sales (quantity);
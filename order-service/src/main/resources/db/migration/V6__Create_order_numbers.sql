@@ -0,0 +1,14 @@
+-- Order numbers, unique across all partitions of orders and the archive. A partitioned table's
+-- unique constraints must include the partition key, so orders can't enforce this itself; every
+-- new order claims its number here in the transaction that inserts it.
+CREATE TABLE order_numbers (
+    order_number VARCHAR(255) PRIMARY KEY,
+    created_at   TIMESTAMP(6) NOT NULL
+);
+
+-- Register the numbers already issued. A duplicate already in orders fails this migration and has
+-- to be resolved by hand first.
+INSERT INTO order_numbers (order_number, created_at)
+SELECT order_number, created_at FROM orders
+UNION ALL
+SELECT order_number, created_at FROM order_archive.orders;
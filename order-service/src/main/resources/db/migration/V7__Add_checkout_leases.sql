@@ -0,0 +1,14 @@
+-- Queued and processing checkouts are owned by the instance whose in-memory queue holds them.
+-- The owner keeps extending the lease while it is alive; the sweeper only fails checkouts whose
+-- lease ran out, so a long queue on a live instance is never failed underneath it.
+ALTER TABLE order_checkouts ADD COLUMN owner_instance VARCHAR(64);
+ALTER TABLE order_checkouts ADD COLUMN lease_expires_at TIMESTAMP(6);
+
+-- Existing checkouts have no owner to renew them: give them the old staleness window
+UPDATE order_checkouts SET lease_expires_at = updated_at + INTERVAL '5 minutes';
+ALTER TABLE order_checkouts ALTER COLUMN lease_expires_at SET NOT NULL;
+
+-- Backs lease renewal by the owner and the sweeper for expired leases
+CREATE INDEX idx_order_checkouts_owner_instance_status ON order_checkouts (owner_instance, status);
+DROP INDEX idx_order_checkouts_status_updated_at;
+CREATE INDEX idx_order_checkouts_status_lease_expires_at ON order_checkouts (status, lease_expires_at);
@@ -0,0 +1,8 @@
+-- The instance relaying the outbox to Kafka, and until when. The relay takes or renews the lease in
+-- a short transaction on every poll and publishes without holding a connection; another instance
+-- takes over once the lease has expired.
+CREATE TABLE IF NOT EXISTS outbox_relay_leases (
+    relay        VARCHAR(50)  PRIMARY KEY,
+    owner        VARCHAR(64)  NOT NULL,
+    leased_until TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,18 @@
+-- Stock changes owed to Product Service, written in the transaction that pays or cancels the order.
+-- A sender claims due rows, sends them and deletes them once applied; transient failures are
+-- retried with backoff, and changes Product Service rejects stay as FAILED for reconciliation.
+CREATE TABLE IF NOT EXISTS stock_adjustments (
+    id              BIGSERIAL     PRIMARY KEY,
+    idempotency_key VARCHAR(255)  NOT NULL UNIQUE,
+    order_id        BIGINT        NOT NULL,
+    items           TEXT          NOT NULL,
+    status          VARCHAR(20)   NOT NULL,
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at TIMESTAMP(6)  NOT NULL,
+    last_error      VARCHAR(255),
+    created_at      TIMESTAMP(6)  NOT NULL
+);
+
+-- Backs the sender's poll for due PENDING rows
+CREATE INDEX IF NOT EXISTS idx_stock_adjustments_status_next_attempt_at
+    ON stock_adjustments (status, next_attempt_at);
@@ -0,0 +1,90 @@
+package com.ecommerce.orderservice.repository;
+
+import com.ecommerce.orderservice.entity.Checkout;
+import com.ecommerce.orderservice.entity.CheckoutStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The sweeper fails only checkouts whose owner stopped renewing their lease, and a finished
+ * checkout is never completed or failed again.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class CheckoutRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 1, 12, 0);
+
+    @Autowired
+    private CheckoutRepository checkoutRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void sweepLeavesCheckoutsQueuedOnALiveInstance() {
+        // Queued long ago on a live instance, but its lease was renewed
+        persistCheckout("CHK-LIVE", "live", CheckoutStatus.QUEUED, NOW.minusMinutes(1));
+        persistCheckout("CHK-DEAD-QUEUED", "dead", CheckoutStatus.QUEUED, NOW.minusMinutes(1));
+        persistCheckout("CHK-DEAD-PROCESSING", "dead", CheckoutStatus.PROCESSING, NOW.minusMinutes(1));
+        persistCheckout("CHK-DONE", "dead", CheckoutStatus.COMPLETED, NOW.minusMinutes(1));
+
+        assertThat(checkoutRepository.renewLeases("live", NOW.plusMinutes(2))).isEqualTo(1);
+        int failed = checkoutRepository.failExpired(NOW, "interrupted");
+        entityManager.clear();
+
+        assertThat(failed).isEqualTo(2);
+        assertThat(statusOf("CHK-LIVE")).isEqualTo(CheckoutStatus.QUEUED);
+        assertThat(statusOf("CHK-DEAD-QUEUED")).isEqualTo(CheckoutStatus.FAILED);
+        assertThat(statusOf("CHK-DEAD-PROCESSING")).isEqualTo(CheckoutStatus.FAILED);
+        assertThat(statusOf("CHK-DONE")).isEqualTo(CheckoutStatus.COMPLETED);
+    }
+
+    @Test
+    void finishedCheckoutsKeepTheirOutcome() {
+        persistCheckout("CHK-FAILED", "dead", CheckoutStatus.FAILED, NOW.minusMinutes(1));
+        persistCheckout("CHK-COMPLETED", "live", CheckoutStatus.COMPLETED, NOW.plusMinutes(1));
+
+        assertThat(checkoutRepository.markCompleted("CHK-FAILED", 1L, "ORD-1")).isZero();
+        assertThat(checkoutRepository.markFailed("CHK-COMPLETED", "late failure")).isZero();
+        entityManager.clear();
+
+        Checkout failed = checkoutRepository.findById("CHK-FAILED").orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(CheckoutStatus.FAILED);
+        assertThat(failed.getOrderId()).isNull();
+        assertThat(statusOf("CHK-COMPLETED")).isEqualTo(CheckoutStatus.COMPLETED);
+    }
+
+    @Test
+    void unfinishedCheckoutsCanBeCompleted() {
+        persistCheckout("CHK-PROCESSING", "live", CheckoutStatus.PROCESSING, NOW.plusMinutes(1));
+
+        assertThat(checkoutRepository.markCompleted("CHK-PROCESSING", 1L, "ORD-1")).isEqualTo(1);
+        entityManager.clear();
+
+        assertThat(statusOf("CHK-PROCESSING")).isEqualTo(CheckoutStatus.COMPLETED);
+    }
+
+    private void persistCheckout(String id, String owner, CheckoutStatus status, LocalDateTime leaseExpiresAt) {
+        Checkout checkout = new Checkout();
+        checkout.setId(id);
+        checkout.setUserId(1L);
+        checkout.setStatus(status);
+        checkout.setOwnerInstance(owner);
+        checkout.setLeaseExpiresAt(leaseExpiresAt);
+        entityManager.persistAndFlush(checkout);
+    }
+
+    private CheckoutStatus statusOf(String id) {
+        return checkoutRepository.findById(id).orElseThrow().getStatus();
+    }
+}
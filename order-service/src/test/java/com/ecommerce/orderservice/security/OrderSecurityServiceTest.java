@@ -0,0 +1,81 @@
+package com.ecommerce.orderservice.security;
+
+import com.ecommerce.orderservice.entity.Order;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ownership checks cost one user_id projection query the first time an order is checked and
+ * none after that, and never load the order aggregate.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(OrderSecurityService.class)
+class OrderSecurityServiceTest {
+
+    private static final long OWNER_ID = 42L;
+
+    @Autowired
+    private OrderSecurityService orderSecurityService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        order = new Order();
+        order.setOrderNumber("ORD-1001");
+        order.setUserId(OWNER_ID);
+        entityManager.persistAndFlush(order);
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void checkByIdRunsOneProjectionQueryThenHitsTheCache() {
+        assertThat(orderSecurityService.isOrderOwner(order.getId(), OWNER_ID)).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        // The next request for the same order, by its owner or anyone else
+        assertThat(orderSecurityService.isOrderOwner(order.getId(), OWNER_ID)).isTrue();
+        assertThat(orderSecurityService.isOrderOwner(order.getId(), OWNER_ID + 1)).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void checkByOrderNumberRunsOneProjectionQueryThenHitsTheCache() {
+        assertThat(orderSecurityService.isOrderNumberOwner("ORD-1001", OWNER_ID)).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        assertThat(orderSecurityService.isOrderNumberOwner("ORD-1001", OWNER_ID)).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void missingOrderFailsTheCheckWithoutThrowing() {
+        assertThat(orderSecurityService.isOrderOwner(-1L, OWNER_ID)).isFalse();
+        assertThat(orderSecurityService.isOrderNumberOwner("ORD-MISSING", OWNER_ID)).isFalse();
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.orderservice.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The service token is accepted by the same JWT filter every service runs, with the SERVICE role
+ * that Product Service requires for stock adjustments, and needs no user in the security context.
+ */
+class ServiceTokenProviderTest {
+
+    private static final String SECRET = "a-test-secret-that-is-at-least-256-bits-long";
+    private static final Instant NOW = Instant.parse("2026-06-01T12:00:00Z");
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenAuthenticatesWithTheServiceRole() throws Exception {
+        ServiceTokenProvider provider = new ServiceTokenProvider(SECRET, "order-service", Duration.ofMinutes(5),
+                Clock.systemUTC());
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtSecret", SECRET);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/products/stock/adjustments");
+        request.addHeader("Authorization", "Bearer " + provider.getToken());
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly(ServiceTokenProvider.SERVICE_ROLE);
+        assertThat(((UserPrincipal) authentication.getPrincipal()).getUsername()).isEqualTo("order-service");
+    }
+
+    @Test
+    void reusesTheTokenUntilItIsNearExpiry() {
+        MutableClock clock = new MutableClock(NOW);
+        ServiceTokenProvider provider = new ServiceTokenProvider(SECRET, "order-service", Duration.ofMinutes(5), clock);
+
+        String first = provider.getToken();
+        clock.now = NOW.plus(Duration.ofMinutes(3));
+        assertThat(provider.getToken()).isEqualTo(first);
+
+        clock.now = NOW.plus(Duration.ofMinutes(4));
+        assertThat(provider.getToken()).isNotEqualTo(first);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.entity.ArchivedOrder;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.entity.OrderItem;
+import com.ecommerce.orderservice.entity.OrderPayment;
+import com.ecommerce.orderservice.entity.OrderRevenueRollup;
+import com.ecommerce.orderservice.entity.OrderStatus;
+import com.ecommerce.orderservice.entity.OrderStatusRollup;
+import com.ecommerce.orderservice.entity.RollupGranularity;
+import com.ecommerce.orderservice.event.ProductSalesCounter;
+import com.ecommerce.orderservice.repository.OrderRevenueRollupRepository;
+import com.ecommerce.orderservice.repository.OrderStatusRollupRepository;
+import com.ecommerce.orderservice.repository.ProductSalesRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * The backfill replaces every bucket before its cutoff with values recomputed from the orders,
+ * so it can be run again without counting anything twice and never touches live buckets or the
+ * buckets of months whose orders may have been archived.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(OrderAnalyticsServiceImpl.class)
+class OrderAnalyticsBackfillTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 5, 1, 0, 0);
+
+    @Autowired
+    private OrderAnalyticsServiceImpl analyticsService;
+
+    @Autowired
+    private OrderStatusRollupRepository statusRollupRepository;
+
+    @Autowired
+    private OrderRevenueRollupRepository revenueRollupRepository;
+
+    @Autowired
+    private ProductSalesRollupRepository productSalesRollupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private ProductSalesCounter productSalesCounter;
+
+    @BeforeEach
+    void setUp() {
+        // Archiving starts counted from today; tests that need it place its cutoff themselves
+        ReflectionTestUtils.setField(analyticsService, "archiveEnabled", false);
+
+        // Delivered, paid the day it was created
+        persistOrder("ORD-1", OrderStatus.DELIVERED, "100.00", 1L, 2,
+                LocalDateTime.of(2026, 3, 10, 9, 15), LocalDateTime.of(2026, 3, 10, 9, 30),
+                LocalDateTime.of(2026, 3, 12, 14, 0));
+        // Paid in the next month, then cancelled
+        persistOrder("ORD-2", OrderStatus.CANCELLED, "50.00", 2L, 1,
+                LocalDateTime.of(2026, 3, 31, 23, 30), LocalDateTime.of(2026, 4, 1, 0, 10),
+                LocalDateTime.of(2026, 4, 2, 10, 0));
+        // Never paid
+        persistOrder("ORD-3", OrderStatus.CREATED, "20.00", 3L, 1,
+                LocalDateTime.of(2026, 4, 5, 8, 0), null, LocalDateTime.of(2026, 4, 5, 8, 0));
+
+        // Live deltas already flushed into a rebuilt day, and into a day after the cutoff
+        entityManager.persist(new OrderStatusRollup(RollupGranularity.DAY, LocalDateTime.of(2026, 3, 10, 0, 0),
+                OrderStatus.CREATED, 5, new BigDecimal("500.00")));
+        entityManager.persist(new OrderStatusRollup(RollupGranularity.DAY, CUTOFF,
+                OrderStatus.CREATED, 7, new BigDecimal("70.00")));
+        entityManager.persist(new OrderRevenueRollup(RollupGranularity.DAY, LocalDateTime.of(2026, 3, 10, 0, 0),
+                5, new BigDecimal("500.00"), 0, BigDecimal.ZERO));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void rebuildsStatusesRevenueAndProductSalesFromOrders() {
+        analyticsService.backfill(CUTOFF);
+        entityManager.clear();
+
+        assertStatusDays();
+        assertRevenueDays();
+        assertProductDays();
+    }
+
+    @Test
+    void runningTwiceGivesTheSameRollups() {
+        analyticsService.backfill(CUTOFF);
+        analyticsService.backfill(CUTOFF);
+        entityManager.clear();
+
+        assertStatusDays();
+        assertRevenueDays();
+        assertProductDays();
+    }
+
+    @Test
+    void hourBucketsMatchTheTransitionTimes() {
+        analyticsService.backfill(CUTOFF);
+        entityManager.clear();
+
+        assertThat(statusRollupRepository.findAll())
+                .filteredOn(rollup -> rollup.getGranularity() == RollupGranularity.HOUR)
+                .extracting(rollup -> rollup.getBucketStart(), rollup -> rollup.getStatus(), rollup -> rollup.getOrderCount())
+                .contains(
+                        tuple(LocalDateTime.of(2026, 3, 10, 9, 0), OrderStatus.CREATED, 1L),
+                        tuple(LocalDateTime.of(2026, 3, 10, 9, 0), OrderStatus.PAID, 1L),
+                        tuple(LocalDateTime.of(2026, 4, 1, 0, 0), OrderStatus.PAID, 1L));
+    }
+
+    @Test
+    void archivedMonthsKeepTheirRollups() {
+        // Archive cutoff at the start of April: March's finished orders may be gone from the live tables
+        ReflectionTestUtils.setField(analyticsService, "archiveEnabled", true);
+        ReflectionTestUtils.setField(analyticsService, "archiveAfterMonths",
+                (int) ChronoUnit.MONTHS.between(YearMonth.of(2026, 4), YearMonth.now()));
+
+        // Delivered in March and archived since; only the live rollups recorded it
+        entityManager.persist(new ArchivedOrder(100L, "ORD-ARCHIVED", 1L, OrderStatus.DELIVERED,
+                LocalDateTime.of(2026, 3, 3, 11, 0), LocalDateTime.of(2026, 4, 2, 2, 30), new byte[] {0}));
+        entityManager.persist(new OrderStatusRollup(RollupGranularity.DAY, LocalDateTime.of(2026, 3, 3, 0, 0),
+                OrderStatus.DELIVERED, 1, new BigDecimal("80.00")));
+        entityManager.persist(new OrderRevenueRollup(RollupGranularity.DAY, LocalDateTime.of(2026, 3, 3, 0, 0),
+                1, new BigDecimal("80.00"), 0, BigDecimal.ZERO));
+        entityManager.flush();
+        entityManager.clear();
+
+        analyticsService.backfill(CUTOFF);
+        entityManager.clear();
+
+        // March is left as it was, April is rebuilt from the orders
+        assertThat(statusRollupRepository.findAll())
+                .filteredOn(rollup -> rollup.getGranularity() == RollupGranularity.DAY)
+                .extracting(rollup -> rollup.getBucketStart().toLocalDate(), rollup -> rollup.getStatus(),
+                        rollup -> rollup.getOrderCount())
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2026, 3, 3), OrderStatus.DELIVERED, 1L),
+                        tuple(LocalDate.of(2026, 3, 10), OrderStatus.CREATED, 5L),
+                        tuple(LocalDate.of(2026, 4, 1), OrderStatus.PAID, 1L),
+                        tuple(LocalDate.of(2026, 4, 2), OrderStatus.CANCELLED, 1L),
+                        tuple(LocalDate.of(2026, 4, 5), OrderStatus.CREATED, 1L),
+                        tuple(CUTOFF.toLocalDate(), OrderStatus.CREATED, 7L));
+        assertThat(revenueRollupRepository.findAll())
+                .filteredOn(rollup -> rollup.getGranularity() == RollupGranularity.DAY)
+                .extracting(rollup -> rollup.getBucketStart().toLocalDate(), rollup -> rollup.getPaidOrders(),
+                        rollup -> rollup.getGrossRevenue().intValueExact())
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2026, 3, 3), 1L, 80),
+                        tuple(LocalDate.of(2026, 3, 10), 5L, 500),
+                        tuple(LocalDate.of(2026, 4, 1), 1L, 50),
+                        tuple(LocalDate.of(2026, 4, 2), 0L, 0));
+    }
+
+    private void assertStatusDays() {
+        assertThat(statusRollupRepository.findAll())
+                .filteredOn(rollup -> rollup.getGranularity() == RollupGranularity.DAY)
+                .extracting(rollup -> rollup.getBucketStart().toLocalDate(), rollup -> rollup.getStatus(),
+                        rollup -> rollup.getOrderCount())
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2026, 3, 10), OrderStatus.CREATED, 1L),
+                        tuple(LocalDate.of(2026, 3, 10), OrderStatus.PAID, 1L),
+                        tuple(LocalDate.of(2026, 3, 12), OrderStatus.PROCESSING, 1L),
+                        tuple(LocalDate.of(2026, 3, 12), OrderStatus.SHIPPED, 1L),
+                        tuple(LocalDate.of(2026, 3, 12), OrderStatus.DELIVERED, 1L),
+                        tuple(LocalDate.of(2026, 3, 31), OrderStatus.CREATED, 1L),
+                        tuple(LocalDate.of(2026, 4, 1), OrderStatus.PAID, 1L),
+                        tuple(LocalDate.of(2026, 4, 2), OrderStatus.CANCELLED, 1L),
+                        tuple(LocalDate.of(2026, 4, 5), OrderStatus.CREATED, 1L),
+                        // Live bucket on the cutoff day is left alone
+                        tuple(CUTOFF.toLocalDate(), OrderStatus.CREATED, 7L));
+    }
+
+    private void assertRevenueDays() {
+        assertThat(revenueRollupRepository.findAll())
+                .filteredOn(rollup -> rollup.getGranularity() == RollupGranularity.DAY)
+                .extracting(rollup -> rollup.getBucketStart().toLocalDate(), rollup -> rollup.getPaidOrders(),
+                        rollup -> rollup.getGrossRevenue().intValueExact(), rollup -> rollup.getCancelledOrders(),
+                        rollup -> rollup.getReversedRevenue().intValueExact())
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2026, 3, 10), 1L, 100, 0L, 0),
+                        tuple(LocalDate.of(2026, 4, 1), 1L, 50, 0L, 0),
+                        tuple(LocalDate.of(2026, 4, 2), 0L, 0, 1L, 50));
+    }
+
+    private void assertProductDays() {
+        assertThat(productSalesRollupRepository.findAll())
+                .extracting(rollup -> rollup.getBucketDate(), rollup -> rollup.getProductId(), rollup -> rollup.getQuantity())
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2026, 3, 10), 1L, 2L),
+                        tuple(LocalDate.of(2026, 4, 1), 2L, 1L),
+                        tuple(LocalDate.of(2026, 4, 2), 2L, -1L));
+    }
+
+    private void persistOrder(String orderNumber, OrderStatus status, String total, Long productId, int quantity,
+                              LocalDateTime createdAt, LocalDateTime paidAt, LocalDateTime updatedAt) {
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        order.setUserId(1L);
+        order.setStatus(status);
+
+        OrderItem item = new OrderItem();
+        item.setProductId(productId);
+        item.setProductName("Product " + productId);
+        item.setQuantity(quantity);
+        item.setPrice(new BigDecimal(total).divide(BigDecimal.valueOf(quantity)));
+        item.setSubtotal(new BigDecimal(total));
+        order.addItem(item);
+
+        if (paidAt != null) {
+            OrderPayment payment = new OrderPayment();
+            payment.setPaymentMethod("CARD");
+            payment.setAmount(new BigDecimal(total));
+            payment.setStatus("SUCCESS");
+            payment.setPaymentDate(paidAt);
+            order.addPayment(payment);
+        }
+
+        entityManager.persistAndFlush(order);
+
+        // Timestamps and totals are set by the entity on insert, so override them afterwards
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE orders SET total_amount = :total, created_at = :createdAt, " +
+                        "updated_at = :updatedAt WHERE id = :id")
+                .setParameter("total", new BigDecimal(total))
+                .setParameter("createdAt", createdAt)
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("id", order.getId())
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.dto.StockAdjustmentRequest;
+import com.ecommerce.orderservice.entity.StockAdjustment;
+import com.ecommerce.orderservice.entity.StockAdjustmentStatus;
+import com.ecommerce.orderservice.repository.StockAdjustmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * A queued stock adjustment is only deleted once Product Service has applied it. Transient failures
+ * keep it pending with a growing backoff, and a rejection keeps it as FAILED for reconciliation.
+ */
+class StockAdjustmentSenderTest {
+
+    private final StockAdjustmentRepository repository = mock(StockAdjustmentRepository.class);
+    private final ProductServiceClient productServiceClient = mock(ProductServiceClient.class);
+    private final StockAdjustmentSender sender = new StockAdjustmentSender(repository, productServiceClient,
+            new ObjectMapper(), new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sender, "batchSize", 50);
+        ReflectionTestUtils.setField(sender, "claimMs", 60000L);
+        ReflectionTestUtils.setField(sender, "initialBackoffMs", 1000L);
+        ReflectionTestUtils.setField(sender, "maxBackoffMs", 300000L);
+    }
+
+    @Test
+    void appliedAdjustmentsAreDeleted() {
+        given(repository.claimDue(any(), any(), anyInt())).willReturn(List.of(adjustment(7L, 1)));
+
+        sender.sendDue();
+
+        ArgumentCaptor<StockAdjustmentRequest> request = ArgumentCaptor.forClass(StockAdjustmentRequest.class);
+        verify(productServiceClient).adjustStock(request.capture());
+        assertThat(request.getValue().getIdempotencyKey()).isEqualTo("order-42-commit");
+        assertThat(request.getValue().getItems()).containsExactly(
+                new StockAdjustmentRequest.Item(3L, -2), new StockAdjustmentRequest.Item(5L, -1));
+        verify(repository).deleteById(7L);
+    }
+
+    @Test
+    void serverErrorsAndUnreachableProductServiceAreRetriedWithBackoff() {
+        given(repository.claimDue(any(), any(), anyInt())).willReturn(List.of(adjustment(7L, 1)));
+        willThrow(WebClientResponseException.create(503, "Service Unavailable", null, null, null))
+                .given(productServiceClient).adjustStock(any());
+
+        sender.sendDue();
+
+        assertRescheduledAfter(7L, 1000);
+
+        // Fourth attempt: 1s doubled three times
+        given(repository.claimDue(any(), any(), anyInt())).willReturn(List.of(adjustment(8L, 4)));
+        willThrow(new WebClientRequestException(new ConnectException("Connection refused"),
+                HttpMethod.POST, URI.create("http://product-service"), new HttpHeaders()))
+                .given(productServiceClient).adjustStock(any());
+
+        sender.sendDue();
+
+        assertRescheduledAfter(8L, 8000);
+        verify(repository, never()).deleteById(any());
+        verify(repository, never()).markFailed(any(), anyString());
+    }
+
+    @Test
+    void backoffIsCapped() {
+        given(repository.claimDue(any(), any(), anyInt())).willReturn(List.of(adjustment(7L, 40)));
+        willThrow(WebClientResponseException.create(500, "Internal Server Error", null, null, null))
+                .given(productServiceClient).adjustStock(any());
+
+        sender.sendDue();
+
+        assertRescheduledAfter(7L, 300000);
+    }
+
+    @Test
+    void rejectedAdjustmentsAreKeptForReconciliation() {
+        given(repository.claimDue(any(), any(), anyInt())).willReturn(List.of(adjustment(7L, 1)));
+        willThrow(WebClientResponseException.create(HttpStatus.BAD_REQUEST.value(), "Bad Request", null,
+                "Insufficient stock for product ID: 3".getBytes(), null))
+                .given(productServiceClient).adjustStock(any());
+
+        sender.sendDue();
+
+        ArgumentCaptor<String> error = ArgumentCaptor.forClass(String.class);
+        verify(repository).markFailed(eq(7L), error.capture());
+        assertThat(error.getValue()).contains("400").contains("Insufficient stock");
+        verify(repository, never()).deleteById(any());
+        verify(repository, never()).reschedule(any(), any(), anyString());
+    }
+
+    @Test
+    void anExpiredServiceTokenIsRetriedRatherThanRejected() {
+        given(repository.claimDue(any(), any(), anyInt())).willReturn(List.of(adjustment(7L, 1)));
+        willThrow(WebClientResponseException.create(HttpStatus.UNAUTHORIZED.value(), "Unauthorized", null, null, null))
+                .given(productServiceClient).adjustStock(any());
+
+        sender.sendDue();
+
+        assertRescheduledAfter(7L, 1000);
+        verify(repository, never()).markFailed(any(), anyString());
+    }
+
+    private void assertRescheduledAfter(Long id, long backoffMs) {
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).reschedule(eq(id), nextAttemptAt.capture(), anyString());
+        assertThat(nextAttemptAt.getValue())
+                .isCloseTo(LocalDateTime.now().plus(Duration.ofMillis(backoffMs)), within(1, ChronoUnit.SECONDS));
+    }
+
+    private static StockAdjustment adjustment(Long id, int attempts) {
+        return new StockAdjustment(id, "order-42-commit", 42L,
+                "[{\"productId\":3,\"quantity\":-2},{\"productId\":5,\"quantity\":-1}]",
+                StockAdjustmentStatus.PENDING, attempts, LocalDateTime.now(), null, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.paymentservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Enables @Async. Work runs on Boot's applicationTaskExecutor, which switches to
+ * virtual threads together with Tomcat when spring.threads.virtual.enabled is true.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.paymentservice.config;
+
+import com.ecommerce.common.statemachine.StateMachine;
+import com.ecommerce.paymentservice.entity.Payment;
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import com.ecommerce.paymentservice.event.PaymentEvent;
+import com.ecommerce.paymentservice.event.PaymentEventOutbox;
+import com.ecommerce.paymentservice.event.PaymentTransitionEvent;
+import com.ecommerce.paymentservice.exception.PaymentProcessingException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.LocalDateTime;
+
+import static com.ecommerce.paymentservice.entity.PaymentStatus.*;
+
+@Configuration
+public class PaymentStateMachineConfig {
+
+    @Bean
+    public StateMachine<PaymentStatus, Payment> paymentStateMachine(PaymentEventOutbox paymentEventOutbox,
+                                                                    ApplicationEventPublisher eventPublisher) {
+        return StateMachine.<PaymentStatus, Payment>builder(PaymentStatus.class)
+                .state(Payment::getStatus, Payment::setStatus)
+
+                // Transition table
+                .permit(PENDING, PROCESSING, COMPLETED, FAILED, CANCELLED)
+                .permit(PROCESSING, COMPLETED, FAILED, CANCELLED)
+                .permit(COMPLETED, REFUNDED, PARTIALLY_REFUNDED)
+                .permit(PARTIALLY_REFUNDED, REFUNDED)
+
+                // Side effects
+                .onEnter(COMPLETED, (payment, from, to) -> {
+                    if (payment.getProcessedAt() == null) {
+                        payment.setProcessedAt(LocalDateTime.now());
+                    }
+                })
+
+                // Settled payments are recorded in the outbox for the Order Service; all are announced in-process
+                .listener((payment, from, to) -> {
+                    String eventType = PaymentEvent.forStatus(to);
+                    if (eventType != null) {
+                        paymentEventOutbox.record(payment, eventType);
+                    }
+                })
+                .listener((payment, from, to) -> eventPublisher.publishEvent(new PaymentTransitionEvent(
+                        payment.getPaymentId(), payment.getOrderId(), from, to, LocalDateTime.now())))
+
+                .rejection(PaymentStateMachineConfig::rejectTransition)
+                .build();
+    }
+
+    private static PaymentProcessingException rejectTransition(PaymentStatus from, PaymentStatus to) {
+        return switch (from) {
+            case FAILED, CANCELLED, REFUNDED -> new PaymentProcessingException("Cannot change status from " + from);
+            default -> new PaymentProcessingException("Invalid status transition from " + from + " to " + to);
+        };
+    }
+}
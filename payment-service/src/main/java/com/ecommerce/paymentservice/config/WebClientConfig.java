@@ -1,14 +1,36 @@
 package com.ecommerce.paymentservice.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    @Value("${service.client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${service.client.response-timeout:5s}")
+    private Duration responseTimeout;
+
+    /**
+     * Downstream calls are made with block(), so every request thread waits on them.
+     * Bounding connect and response time keeps a slow dependency from parking
+     * request threads (platform or virtual) indefinitely.
+     */
     @Bean
     public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,10 @@
 package com.ecommerce.paymentservice.controller;
 
+import com.ecommerce.common.idempotency.Idempotent;
 import com.ecommerce.paymentservice.dto.*;
 import com.ecommerce.paymentservice.entity.PaymentStatus;
 import com.ecommerce.paymentservice.security.UserPrincipal;
+import com.ecommerce.paymentservice.service.PaymentExportService;
 import com.ecommerce.paymentservice.service.PaymentService;
 import com.ecommerce.paymentservice.service.RefundService;
 import jakarta.validation.Valid;
@@ -12,14 +14,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -29,8 +39,10 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final RefundService refundService;
+    private final PaymentExportService paymentExportService;
 
     @PostMapping
+    @Idempotent
     public ResponseEntity<PaymentResponseDTO> createPayment(
             @AuthenticationPrincipal UserPrincipal principal,
             @Valid @RequestBody PaymentRequestDTO paymentRequest) {
@@ -49,6 +61,7 @@ public class PaymentController {
     }
 
     @PostMapping("/{paymentId}/process")
+    @Idempotent
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<PaymentResponseDTO> processPayment(
             @PathVariable String paymentId,
@@ -118,6 +131,33 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) List<PaymentStatus> status,
+            @RequestParam(required = false) String currency,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+
+        log.debug("Exporting payments from: {} to: {} with status: {} and currency: {} as {}",
+                from, to, status, currency, format);
+
+        PaymentExportFilter filter = new PaymentExportFilter(from, to, status, currency);
+        String filename = "payments-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + "." + format.getFileExtension() + (gzip ? ".gz" : "");
+
+        // Written on an async request thread after the headers go out, straight from the database cursor
+        StreamingResponseBody body = out -> paymentExportService.exportPayments(filter, format, gzip, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
     @PutMapping("/{paymentId}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<PaymentResponseDTO> updatePaymentStatus(
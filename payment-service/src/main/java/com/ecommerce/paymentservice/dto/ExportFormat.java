@@ -0,0 +1,21 @@
+package com.ecommerce.paymentservice.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Output formats of the payment report export
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    /** Header line followed by one comma separated line per row, RFC 4180 quoting */
+    CSV("text/csv", "csv"),
+
+    /** One JSON object per line */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String fileExtension;
+}
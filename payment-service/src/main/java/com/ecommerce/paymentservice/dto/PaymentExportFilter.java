@@ -0,0 +1,28 @@
+package com.ecommerce.paymentservice.dto;
+
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Which payments a report export covers; a null or empty field doesn't restrict the export
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentExportFilter {
+
+    /** Payments created at or after this */
+    private LocalDateTime from;
+
+    /** Payments created before this */
+    private LocalDateTime to;
+
+    private List<PaymentStatus> statuses;
+
+    private String currency;
+}
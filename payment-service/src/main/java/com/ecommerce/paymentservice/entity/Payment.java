@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -13,7 +14,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_order_id", columnList = "order_id"),
+        @Index(name = "idx_payments_payment_intent_id", columnList = "payment_intent_id"),
+        @Index(name = "idx_payments_status_id", columnList = "status, id"),
+        @Index(name = "idx_payments_created_at_id", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,6 +41,17 @@ public class Payment {
     @Column(precision = 10, scale = 2, nullable = false)
     private BigDecimal amount;
 
+    // Running refund totals, changed only by the guarded updates in PaymentRepository so that
+    // concurrent refunds can't take the payment past its amount. Completed refunds:
+    @ColumnDefault("0")
+    @Column(precision = 10, scale = 2, nullable = false, insertable = false, updatable = false)
+    private BigDecimal refundedAmount = BigDecimal.ZERO;
+
+    // Refunds submitted to Stripe and not finished yet, reserved until they complete or fail
+    @ColumnDefault("0")
+    @Column(precision = 10, scale = 2, nullable = false, insertable = false, updatable = false)
+    private BigDecimal pendingRefundAmount = BigDecimal.ZERO;
+
     @Column(nullable = false, length = 3)
     private String currency;
 
@@ -0,0 +1,31 @@
+package com.ecommerce.paymentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One partition of the reconciliation work (payments whose database ID modulo the partition count
+ * equals the partition number) and the instance holding it. An instance only reconciles partitions
+ * it holds a live lease on; the lease of an instance that died expires.
+ */
+@Entity
+@Table(name = "payment_reconciliation_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationLease {
+
+    @Id
+    private Integer partitionNo;
+
+    private String owner;
+
+    private LocalDateTime leasedUntil;
+
+    // Partitions reconciled longest ago are leased first
+    private LocalDateTime lastRunAt;
+}
@@ -0,0 +1,63 @@
+package com.ecommerce.paymentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A verified Stripe webhook event waiting in the inbox. The Stripe event ID is the key, so
+ * redeliveries of an event are stored once.
+ */
+@Entity
+@Table(name = "stripe_webhook_events", indexes = {
+        @Index(name = "idx_stripe_webhook_events_status_next_attempt_at", columnList = "status, nextAttemptAt"),
+        @Index(name = "idx_stripe_webhook_events_ordering_key_status", columnList = "orderingKey, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookEvent {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String type;
+
+    // Events with the same key (the payment intent) are processed one at a time, oldest first
+    @Column(nullable = false)
+    private String orderingKey;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WebhookEventStatus status = WebhookEventStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Set while a worker holds the event; an expired lease makes it claimable again
+    private LocalDateTime leasedUntil;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // When Stripe created the event, which orders events of the same payment
+    @Column(nullable = false)
+    private LocalDateTime stripeCreatedAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+}
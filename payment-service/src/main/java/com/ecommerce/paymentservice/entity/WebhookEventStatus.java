@@ -0,0 +1,8 @@
+package com.ecommerce.paymentservice.entity;
+
+public enum WebhookEventStatus {
+    PENDING,
+    PROCESSED,
+    // Gave up after the maximum number of attempts; kept for inspection and replay
+    FAILED
+}
@@ -0,0 +1,50 @@
+package com.ecommerce.paymentservice.event;
+
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payload published to the payment-events topic; field names match notification-service's PaymentEvent.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEvent {
+
+    public static final String PAYMENT_RECEIVED = "PAYMENT_RECEIVED";
+    public static final String PAYMENT_FAILED = "PAYMENT_FAILED";
+    public static final String PAYMENT_CANCELLED = "PAYMENT_CANCELLED";
+    public static final String PAYMENT_REFUNDED = "PAYMENT_REFUNDED";
+
+    private String eventId;
+    private String eventType;
+    private LocalDateTime timestamp;
+
+    private String paymentId;
+    // The order number, which is what payments call their orderId
+    private String orderNumber;
+    private Long userId;
+    private String status;
+    private BigDecimal amount;
+    private String currency;
+    private String paymentMethod;
+    private String transactionId;
+
+    /**
+     * Event type announcing a payment entering the given status, or null if other services aren't told
+     */
+    public static String forStatus(PaymentStatus status) {
+        return switch (status) {
+            case COMPLETED -> PAYMENT_RECEIVED;
+            case FAILED -> PAYMENT_FAILED;
+            case CANCELLED -> PAYMENT_CANCELLED;
+            case REFUNDED, PARTIALLY_REFUNDED -> PAYMENT_REFUNDED;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.paymentservice.event;
+
+import com.ecommerce.paymentservice.entity.Payment;
+import com.ecommerce.paymentservice.entity.PaymentOutboxEvent;
+import com.ecommerce.paymentservice.repository.PaymentOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+public class PaymentEventOutbox {
+
+    private final PaymentOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Records a payment event in the outbox. Must join the transaction that changed the payment,
+     * so the event exists if and only if the change committed.
+     *
+     * @param payment The payment after the change
+     * @param eventType The event type, e.g. PAYMENT_RECEIVED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Payment payment, String eventType) {
+        PaymentEvent event = new PaymentEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setEventType(eventType);
+        event.setTimestamp(LocalDateTime.now());
+        event.setPaymentId(payment.getPaymentId());
+        event.setOrderNumber(payment.getOrderId());
+        event.setUserId(payment.getUserId());
+        event.setStatus(payment.getStatus().name());
+        event.setAmount(payment.getAmount());
+        event.setCurrency(payment.getCurrency());
+        event.setPaymentMethod(payment.getPaymentMethod() != null ? payment.getPaymentMethod().name() : null);
+        event.setTransactionId(payment.getChargeId());
+
+        PaymentOutboxEvent outboxEvent = new PaymentOutboxEvent();
+        outboxEvent.setAggregateId(payment.getOrderId());
+        outboxEvent.setEventType(eventType);
+        outboxEvent.setPayload(toJson(event));
+
+        outboxRepository.save(outboxEvent);
+    }
+
+    private String toJson(PaymentEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize payment event " + event.getEventId(), e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.paymentservice.event;
+
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * In-process notification of a payment status change, emitted by the payment state machine.
+ */
+@Data
+@AllArgsConstructor
+public class PaymentTransitionEvent {
+
+    private String paymentId;
+
+    private String orderId;
+
+    private PaymentStatus from;
+
+    private PaymentStatus to;
+
+    private LocalDateTime occurredAt;
+}
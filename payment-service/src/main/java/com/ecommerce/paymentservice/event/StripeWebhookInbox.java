@@ -0,0 +1,236 @@
+package com.ecommerce.paymentservice.event;
+
+import com.ecommerce.paymentservice.entity.WebhookEvent;
+import com.ecommerce.paymentservice.entity.WebhookEventStatus;
+import com.ecommerce.paymentservice.repository.WebhookEventRepository;
+import com.ecommerce.paymentservice.service.StripeService;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.model.StripeObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inbox for Stripe webhooks. Receiving a webhook only verifies its signature and stores the raw
+ * event, keyed by the Stripe event ID so redeliveries are dropped, and Stripe gets its 200 at once.
+ * Workers drain the inbox in batches: events of the same payment intent are applied one at a time
+ * in the order Stripe created them, failures are retried with exponential backoff, and events that
+ * keep failing are parked as FAILED.
+ */
+@Component
+@Slf4j
+public class StripeWebhookInbox {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final StripeService stripeService;
+    private final ExecutorService workers;
+
+    private final Counter receivedCounter;
+    private final Counter duplicateCounter;
+    private final Counter processedCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer processingTimer;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    @Value("${payment.webhook.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payment.webhook.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${payment.webhook.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${payment.webhook.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${payment.webhook.retry-max-ms:600000}")
+    private long retryMaxMs;
+
+    @Value("${payment.webhook.retention-hours:168}")
+    private long retentionHours;
+
+    public StripeWebhookInbox(WebhookEventRepository webhookEventRepository,
+                              StripeService stripeService,
+                              MeterRegistry meterRegistry,
+                              @Value("${payment.webhook.workers:4}") int workerCount) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.stripeService = stripeService;
+        this.workers = Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().name("webhook-", 0).factory());
+
+        this.receivedCounter = Counter.builder("payment.webhook.received")
+                .description("Verified webhook events stored in the inbox")
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("payment.webhook.duplicate")
+                .description("Redelivered webhook events dropped by the inbox")
+                .register(meterRegistry);
+        this.processedCounter = Counter.builder("payment.webhook.processed")
+                .description("Webhook events applied to payments")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("payment.webhook.retried")
+                .description("Webhook event attempts that failed and were scheduled for retry")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("payment.webhook.failed")
+                .description("Webhook events given up on after the maximum attempts")
+                .register(meterRegistry);
+        this.processingTimer = Timer.builder("payment.webhook.processing")
+                .description("Time to apply one webhook event")
+                .register(meterRegistry);
+        Gauge.builder("payment.webhook.pending", pendingEvents, AtomicLong::get)
+                .description("Webhook events waiting in the inbox")
+                .register(meterRegistry);
+        Gauge.builder("payment.webhook.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest webhook event waiting in the inbox")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verifies a webhook and stores its event for the workers
+     *
+     * @param payload The raw webhook payload
+     * @param signature The Stripe-Signature header
+     * @return true if the event is new, false if it was already in the inbox
+     * @throws com.ecommerce.paymentservice.exception.PaymentProcessingException if the signature is invalid
+     */
+    public boolean accept(String payload, String signature) {
+        Event event = stripeService.constructWebhookEvent(payload, signature);
+
+        LocalDateTime createdAt = event.getCreated() != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochSecond(event.getCreated()), ZoneId.systemDefault())
+                : LocalDateTime.now();
+        int inserted = webhookEventRepository.insertIfAbsent(event.getId(), event.getType(), orderingKey(event),
+                payload, createdAt, LocalDateTime.now());
+
+        if (inserted == 0) {
+            duplicateCounter.increment();
+            log.debug("Dropping redelivered webhook event: {}", event.getId());
+            return false;
+        }
+        receivedCounter.increment();
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.webhook.poll-interval-ms:500}")
+    public void drain() {
+        // 1. Lease a batch: at most one event per payment intent, each the oldest pending for it
+        LocalDateTime now = LocalDateTime.now();
+        List<String> ids = webhookEventRepository.claimBatch(now, now.plusSeconds(leaseSeconds), batchSize);
+
+        // 2. Apply them in parallel; they belong to different payments
+        if (!ids.isEmpty()) {
+            List<Callable<Void>> tasks = webhookEventRepository.findAllById(ids).stream()
+                    .sorted(Comparator.comparing(WebhookEvent::getStripeCreatedAt))
+                    .<Callable<Void>>map(event -> () -> {
+                        process(event);
+                        return null;
+                    })
+                    .toList();
+            try {
+                workers.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                // Unfinished events are picked up again when their lease expires
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        // 3. Refresh the backlog gauges
+        pendingEvents.set(webhookEventRepository.countByStatus(WebhookEventStatus.PENDING));
+        LocalDateTime oldest = webhookEventRepository.findOldestPendingReceivedAt();
+        lagMillis.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()));
+    }
+
+    @Scheduled(cron = "${payment.webhook.purge-cron:0 15 * * * *}")
+    public void purgeProcessed() {
+        int deleted = webhookEventRepository.deleteProcessedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            log.info("Purged {} processed webhook events", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void process(WebhookEvent webhookEvent) {
+        Timer.Sample sample = Timer.start();
+        try {
+            // Handlers are idempotent, so a crash between applying and marking only causes a harmless replay
+            stripeService.handleWebhookEvent(stripeService.parseWebhookEvent(webhookEvent.getPayload()));
+            webhookEventRepository.markProcessed(webhookEvent.getId(), LocalDateTime.now());
+            processedCounter.increment();
+        } catch (Exception e) {
+            int attempt = webhookEvent.getAttempts() + 1;
+            String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage());
+            if (attempt >= maxAttempts) {
+                // Parking the event lets later events of the same payment proceed
+                webhookEventRepository.markAttemptFailed(webhookEvent.getId(), WebhookEventStatus.FAILED,
+                        LocalDateTime.now(), error);
+                failedCounter.increment();
+                log.error("Giving up on webhook event {} ({}) after {} attempts",
+                        webhookEvent.getId(), webhookEvent.getType(), attempt, e);
+            } else {
+                LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(attempt));
+                webhookEventRepository.markAttemptFailed(webhookEvent.getId(), WebhookEventStatus.PENDING,
+                        nextAttemptAt, error);
+                retriedCounter.increment();
+                log.warn("Webhook event {} ({}) failed on attempt {}, retrying at {}: {}",
+                        webhookEvent.getId(), webhookEvent.getType(), attempt, nextAttemptAt, e.getMessage());
+            }
+        } finally {
+            sample.stop(processingTimer);
+        }
+    }
+
+    // Exponential backoff with +/-20% jitter so failed events don't retry in lockstep
+    private Duration backoff(int attempt) {
+        long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 30));
+        long jitter = (long) (delay * 0.2 * (ThreadLocalRandom.current().nextDouble() * 2 - 1));
+        return Duration.ofMillis(Math.max(retryBaseMs, delay + jitter));
+    }
+
+    // Events are ordered per payment intent; events without one only need ordering with themselves
+    private static String orderingKey(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        String paymentIntentId = null;
+        if (object instanceof PaymentIntent paymentIntent) {
+            paymentIntentId = paymentIntent.getId();
+        } else if (object instanceof Charge charge) {
+            paymentIntentId = charge.getPaymentIntent();
+        } else if (object instanceof Refund refund) {
+            paymentIntentId = refund.getPaymentIntent();
+        }
+        return paymentIntentId != null ? paymentIntentId : event.getId();
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.paymentservice.gateway;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Shapes of simulated gateway latency, parameterised by median and 99th percentile
+ */
+public enum LatencyDistribution {
+
+    /** Always the median */
+    FIXED,
+
+    /** Exponential with the given median; the p99 follows at about 6.6 times the median */
+    EXPONENTIAL,
+
+    /** Log-normal through the given median and p99, the usual shape of remote call latency */
+    LOG_NORMAL;
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    public long sampleMillis(long medianMs, long p99Ms) {
+        if (medianMs <= 0) {
+            return 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (this) {
+            case FIXED -> medianMs;
+            case EXPONENTIAL -> Math.round(-Math.log(1 - random.nextDouble()) * medianMs / Math.log(2));
+            case LOG_NORMAL -> {
+                double sigma = Math.max(0, Math.log((double) Math.max(p99Ms, medianMs) / medianMs) / Z_99);
+                yield Math.round(medianMs * Math.exp(sigma * random.nextGaussian()));
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.paymentservice.gateway;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentConfirmParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+
+/**
+ * The Stripe API calls made by {@link com.ecommerce.paymentservice.service.StripeService}.
+ * <p>
+ * Selected with {@code payment.gateway}: {@code stripe} (default) calls the Stripe API,
+ * {@code simulator} runs an in-process stand-in so payment flows can be tested and
+ * benchmarked without network access.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Creates a payment intent
+     *
+     * @param params The intent parameters
+     * @param options Request options, carrying the idempotency key
+     * @return The created payment intent
+     */
+    PaymentIntent createPaymentIntent(PaymentIntentCreateParams params, RequestOptions options) throws StripeException;
+
+    /**
+     * Confirms a payment intent
+     *
+     * @param paymentIntentId The payment intent ID
+     * @param params The confirmation parameters, carrying the payment method
+     * @return The confirmed payment intent
+     */
+    PaymentIntent confirmPaymentIntent(String paymentIntentId, PaymentIntentConfirmParams params) throws StripeException;
+
+    /**
+     * Retrieves a payment intent
+     *
+     * @param paymentIntentId The payment intent ID
+     * @return The payment intent
+     */
+    PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException;
+
+    /**
+     * Cancels a payment intent
+     *
+     * @param paymentIntentId The payment intent ID
+     * @return The cancelled payment intent
+     */
+    PaymentIntent cancelPaymentIntent(String paymentIntentId) throws StripeException;
+
+    /**
+     * Retrieves a charge
+     *
+     * @param chargeId The charge ID
+     * @return The charge
+     */
+    Charge retrieveCharge(String chargeId) throws StripeException;
+
+    /**
+     * Creates a refund
+     *
+     * @param params The refund parameters
+     * @param options Request options, carrying the idempotency key
+     * @return The created refund
+     */
+    Refund createRefund(RefundCreateParams params, RequestOptions options) throws StripeException;
+
+    /**
+     * Retrieves a refund
+     *
+     * @param refundId The refund ID
+     * @return The refund
+     */
+    Refund retrieveRefund(String refundId) throws StripeException;
+}
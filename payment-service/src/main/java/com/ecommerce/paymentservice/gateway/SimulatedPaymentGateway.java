@@ -0,0 +1,545 @@
+package com.ecommerce.paymentservice.gateway;
+
+import com.google.gson.JsonObject;
+import com.stripe.Stripe;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.CardException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.ApiResource;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.Webhook;
+import com.stripe.param.PaymentIntentConfirmParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.util.retry.Retry;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-in for Stripe, so payment flows can be load-tested with no network.
+ * <p>
+ * Intents, charges and refunds live in memory and go through Stripe's states. Every call sleeps
+ * for a sampled latency and can fail: before taking effect (a Stripe 500) or after, with the
+ * response lost (a connection error), which exercises idempotency keys and reconciliation.
+ * Confirmations succeed, are declined or require 3D Secure, which a simulated customer completes
+ * later. The Stripe test payment methods force an outcome ({@code pm_card_visa},
+ * {@code pm_card_chargeDeclined}, {@code pm_card_threeDSecure2Required}); any other payment
+ * method gets one at the configured rates. Outcomes are also sent as webhooks, signed with
+ * {@code payment.stripe.webhook-secret}, to the service's own webhook endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "simulator")
+@Slf4j
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private enum Outcome { SUCCEED, DECLINE, THREE_DS }
+
+    private static final class SimulatedIntent {
+        final String id = "pi_sim_" + randomId();
+        final String clientSecret = id + "_secret_" + randomId();
+        final long created = Instant.now().getEpochSecond();
+        final long amount;
+        final String currency;
+        final String description;
+        final Map<String, String> metadata;
+        String status = "requires_payment_method";
+        String paymentMethod;
+        String latestCharge;
+        String errorCode;
+        String errorMessage;
+        String cancellationReason;
+
+        SimulatedIntent(long amount, String currency, String description, Map<String, String> metadata) {
+            this.amount = amount;
+            this.currency = currency;
+            this.description = description;
+            this.metadata = metadata != null ? Map.copyOf(metadata) : Map.of();
+        }
+    }
+
+    private static final class SimulatedCharge {
+        final String id = "ch_sim_" + randomId();
+        final long created = Instant.now().getEpochSecond();
+        final SimulatedIntent intent;
+        long amountRefunded;
+
+        SimulatedCharge(SimulatedIntent intent) {
+            this.intent = intent;
+        }
+    }
+
+    private record SimulatedRefund(String id, long created, SimulatedCharge charge, long amount, String reason,
+                                   Map<String, String> metadata) {
+    }
+
+    private final Map<String, SimulatedIntent> intents = new ConcurrentHashMap<>();
+    private final Map<String, SimulatedCharge> charges = new ConcurrentHashMap<>();
+    private final Map<String, SimulatedRefund> refunds = new ConcurrentHashMap<>();
+    // Idempotency key -> ID of the object its first request created
+    private final Map<String, String> idempotencyKeys = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(2, Thread.ofPlatform().name("gateway-simulator-", 0).daemon().factory());
+    private final WebClient webClient;
+
+    @Value("${payment.simulator.latency.distribution:LOG_NORMAL}")
+    private LatencyDistribution latencyDistribution;
+
+    @Value("${payment.simulator.latency.median-ms:150}")
+    private long latencyMedianMs;
+
+    @Value("${payment.simulator.latency.p99-ms:800}")
+    private long latencyP99Ms;
+
+    @Value("${payment.simulator.api-error-rate:0}")
+    private double apiErrorRate;
+
+    @Value("${payment.simulator.connection-error-rate:0}")
+    private double connectionErrorRate;
+
+    @Value("${payment.simulator.decline-rate:0.02}")
+    private double declineRate;
+
+    @Value("${payment.simulator.three-ds.rate:0.05}")
+    private double threeDsRate;
+
+    @Value("${payment.simulator.three-ds.success-rate:0.9}")
+    private double threeDsSuccessRate;
+
+    @Value("${payment.simulator.three-ds.completion-ms:3000}")
+    private long threeDsCompletionMs;
+
+    @Value("${payment.simulator.webhook.enabled:true}")
+    private boolean webhooksEnabled;
+
+    @Value("${payment.simulator.webhook.url}")
+    private String webhookUrl;
+
+    @Value("${payment.simulator.webhook.delay-ms:200}")
+    private long webhookDelayMs;
+
+    @Value("${payment.stripe.webhook-secret}")
+    private String webhookSecret;
+
+    @Value("${payment.simulator.retention-minutes:60}")
+    private long retentionMinutes;
+
+    public SimulatedPaymentGateway(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.clone().build();
+        log.warn("Payments go to the in-process gateway simulator; no real charges are made");
+    }
+
+    @Override
+    public PaymentIntent createPaymentIntent(PaymentIntentCreateParams params, RequestOptions options) throws StripeException {
+        beforeCall();
+        String id = idempotent("payment_intent", options, () -> {
+            SimulatedIntent intent = new SimulatedIntent(params.getAmount(), params.getCurrency(),
+                    params.getDescription(), params.getMetadata());
+            intents.put(intent.id, intent);
+            return intent.id;
+        });
+        SimulatedIntent intent = intents.get(id);
+        afterCall();
+        return toPaymentIntent(intent);
+    }
+
+    @Override
+    public PaymentIntent confirmPaymentIntent(String paymentIntentId, PaymentIntentConfirmParams params) throws StripeException {
+        beforeCall();
+        SimulatedIntent intent = getIntent(paymentIntentId);
+        synchronized (intent) {
+            if (!"requires_payment_method".equals(intent.status) && !"requires_confirmation".equals(intent.status)) {
+                throw unexpectedState("payment_intent", intent.id, intent.status);
+            }
+            intent.paymentMethod = params.getPaymentMethod();
+            intent.errorCode = null;
+            intent.errorMessage = null;
+
+            switch (outcomeFor(intent.paymentMethod)) {
+                case SUCCEED -> succeed(intent);
+                case DECLINE -> {
+                    decline(intent, "card_declined", "Your card was declined.");
+                    afterCall();
+                    throw new CardException("Your card was declined.", requestId(), "card_declined",
+                            "payment_method", "generic_decline", null, 402, null);
+                }
+                case THREE_DS -> {
+                    intent.status = "requires_action";
+                    scheduler.schedule(() -> completeThreeDs(intent), threeDsCompletionMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        afterCall();
+        return toPaymentIntent(intent);
+    }
+
+    @Override
+    public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
+        beforeCall();
+        SimulatedIntent intent = getIntent(paymentIntentId);
+        afterCall();
+        return toPaymentIntent(intent);
+    }
+
+    @Override
+    public PaymentIntent cancelPaymentIntent(String paymentIntentId) throws StripeException {
+        beforeCall();
+        SimulatedIntent intent = getIntent(paymentIntentId);
+        synchronized (intent) {
+            if ("succeeded".equals(intent.status) || "canceled".equals(intent.status)) {
+                throw unexpectedState("payment_intent", intent.id, intent.status);
+            }
+            intent.status = "canceled";
+            intent.cancellationReason = "requested_by_customer";
+            emit("payment_intent.canceled", intentJson(intent));
+        }
+        afterCall();
+        return toPaymentIntent(intent);
+    }
+
+    @Override
+    public Charge retrieveCharge(String chargeId) throws StripeException {
+        beforeCall();
+        SimulatedCharge charge = charges.get(chargeId);
+        if (charge == null) {
+            throw missing("charge", chargeId);
+        }
+        afterCall();
+        return ApiResource.GSON.fromJson(chargeJson(charge), Charge.class);
+    }
+
+    @Override
+    public Refund createRefund(RefundCreateParams params, RequestOptions options) throws StripeException {
+        beforeCall();
+        SimulatedCharge charge = charges.get(params.getCharge());
+        if (charge == null) {
+            throw missing("charge", params.getCharge());
+        }
+
+        String id;
+        synchronized (charge.intent) {
+            id = idempotent("refund", options, () -> {
+                long amount = params.getAmount() != null ? params.getAmount() : charge.intent.amount - charge.amountRefunded;
+                if (amount <= 0 || charge.amountRefunded + amount > charge.intent.amount) {
+                    return null;
+                }
+                charge.amountRefunded += amount;
+                @SuppressWarnings("unchecked")
+                Map<String, String> metadata = params.getMetadata() instanceof Map<?, ?> map
+                        ? Map.copyOf((Map<String, String>) map) : Map.of();
+                SimulatedRefund refund = new SimulatedRefund("re_sim_" + randomId(), Instant.now().getEpochSecond(),
+                        charge, amount, params.getReason() != null ? params.getReason().getValue() : null, metadata);
+                refunds.put(refund.id(), refund);
+                emit("charge.refunded", chargeJson(charge));
+                return refund.id();
+            });
+        }
+        if (id == null) {
+            throw new InvalidRequestException("Refund amount is greater than the unrefunded amount on charge "
+                    + charge.id, "amount", requestId(), "amount_too_large", 400, null);
+        }
+        SimulatedRefund refund = refunds.get(id);
+        afterCall();
+        return ApiResource.GSON.fromJson(refundJson(refund), Refund.class);
+    }
+
+    @Override
+    public Refund retrieveRefund(String refundId) throws StripeException {
+        beforeCall();
+        SimulatedRefund refund = refunds.get(refundId);
+        if (refund == null) {
+            throw missing("refund", refundId);
+        }
+        afterCall();
+        return ApiResource.GSON.fromJson(refundJson(refund), Refund.class);
+    }
+
+    // Keeps a long benchmark from growing the heap without bound
+    @Scheduled(fixedDelayString = "${payment.simulator.purge-interval-ms:60000}")
+    public void purge() {
+        long cutoff = Instant.now().minus(Duration.ofMinutes(retentionMinutes)).getEpochSecond();
+        intents.values().removeIf(intent -> intent.created < cutoff);
+        charges.values().removeIf(charge -> charge.created < cutoff);
+        refunds.values().removeIf(refund -> refund.created() < cutoff);
+        idempotencyKeys.values().removeIf(id -> !intents.containsKey(id) && !refunds.containsKey(id));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Call simulation
+
+    // Latency, then maybe a Stripe-side failure before the call takes effect
+    private void beforeCall() throws StripeException {
+        long latencyMs = latencyDistribution.sampleMillis(latencyMedianMs, latencyP99Ms);
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiConnectionException("Interrupted while waiting for the simulated gateway", e);
+            }
+        }
+        if (ThreadLocalRandom.current().nextDouble() < apiErrorRate) {
+            throw new ApiException("Simulated gateway error", requestId(), "api_error", 500, null);
+        }
+    }
+
+    // Maybe lose the response of a call that already took effect
+    private void afterCall() throws StripeException {
+        if (ThreadLocalRandom.current().nextDouble() < connectionErrorRate) {
+            throw new ApiConnectionException("Simulated connection error: response lost");
+        }
+    }
+
+    private Outcome outcomeFor(String paymentMethod) {
+        if (paymentMethod != null) {
+            if (paymentMethod.contains("Declined")) {
+                return Outcome.DECLINE;
+            }
+            if (paymentMethod.contains("threeDSecure") || paymentMethod.contains("authenticationRequired")) {
+                return Outcome.THREE_DS;
+            }
+            if (paymentMethod.equals("pm_card_visa")) {
+                return Outcome.SUCCEED;
+            }
+        }
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < declineRate) {
+            return Outcome.DECLINE;
+        }
+        return roll < declineRate + threeDsRate ? Outcome.THREE_DS : Outcome.SUCCEED;
+    }
+
+    // Called with the intent's lock held
+    private void succeed(SimulatedIntent intent) {
+        SimulatedCharge charge = new SimulatedCharge(intent);
+        charges.put(charge.id, charge);
+        intent.latestCharge = charge.id;
+        intent.status = "succeeded";
+        emit("payment_intent.succeeded", intentJson(intent));
+    }
+
+    // Called with the intent's lock held
+    private void decline(SimulatedIntent intent, String code, String message) {
+        intent.status = "requires_payment_method";
+        intent.errorCode = code;
+        intent.errorMessage = message;
+        emit("payment_intent.payment_failed", intentJson(intent));
+    }
+
+    private void completeThreeDs(SimulatedIntent intent) {
+        synchronized (intent) {
+            if (!"requires_action".equals(intent.status)) {
+                return;
+            }
+            if (ThreadLocalRandom.current().nextDouble() < threeDsSuccessRate) {
+                succeed(intent);
+            } else {
+                decline(intent, "payment_intent_authentication_failure",
+                        "The provided payment method has failed authentication.");
+            }
+        }
+    }
+
+    private interface Creator {
+        String create() throws StripeException;
+    }
+
+    // Runs creator once per idempotency key and returns the ID it created
+    private String idempotent(String type, RequestOptions options, Creator creator) throws StripeException {
+        String key = options != null ? options.getIdempotencyKey() : null;
+        if (key == null) {
+            return creator.create();
+        }
+        String existing = idempotencyKeys.get(type + ":" + key);
+        if (existing != null) {
+            return existing;
+        }
+        String id = creator.create();
+        if (id == null) {
+            return null;
+        }
+        String raced = idempotencyKeys.putIfAbsent(type + ":" + key, id);
+        return raced != null ? raced : id;
+    }
+
+    private SimulatedIntent getIntent(String paymentIntentId) throws StripeException {
+        SimulatedIntent intent = intents.get(paymentIntentId);
+        if (intent == null) {
+            throw missing("payment_intent", paymentIntentId);
+        }
+        return intent;
+    }
+
+    private static InvalidRequestException missing(String type, String id) {
+        return new InvalidRequestException("No such " + type + ": '" + id + "'", "id", requestId(),
+                "resource_missing", 404, null);
+    }
+
+    private static InvalidRequestException unexpectedState(String type, String id, String status) {
+        return new InvalidRequestException("This " + type + " " + id + " is in status " + status
+                + " and can't be changed this way", null, requestId(), type + "_unexpected_state", 400, null);
+    }
+
+    private static String requestId() {
+        return "req_sim_" + randomId();
+    }
+
+    private static String randomId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+    }
+
+    // Webhooks
+
+    private void emit(String type, JsonObject object) {
+        if (!webhooksEnabled) {
+            return;
+        }
+        JsonObject data = new JsonObject();
+        data.add("object", object);
+
+        JsonObject event = new JsonObject();
+        event.addProperty("id", "evt_sim_" + randomId());
+        event.addProperty("object", "event");
+        // Without a matching API version the webhook handlers can't deserialize the object
+        event.addProperty("api_version", Stripe.API_VERSION);
+        event.addProperty("created", Instant.now().getEpochSecond());
+        event.addProperty("livemode", false);
+        event.addProperty("pending_webhooks", 1);
+        event.addProperty("type", type);
+        event.add("data", data);
+
+        String payload = event.toString();
+        scheduler.schedule(() -> deliver(type, payload),
+                latencyDistribution.sampleMillis(webhookDelayMs, webhookDelayMs * 4), TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver(String type, String payload) {
+        String signature;
+        try {
+            long timestamp = Webhook.Util.getTimeNow();
+            signature = "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(webhookSecret, timestamp + "." + payload);
+        } catch (GeneralSecurityException e) {
+            log.error("Failed to sign simulated webhook: {}", e.getMessage());
+            return;
+        }
+
+        // Retried like Stripe does, but briefly; the service deduplicates redeliveries
+        webClient.post()
+                .uri(webhookUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Stripe-Signature", signature)
+                .bodyValue(payload)
+                .retrieve()
+                .toBodilessEntity()
+                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
+                .subscribe(
+                        response -> log.debug("Delivered simulated {} webhook", type),
+                        e -> log.warn("Failed to deliver simulated {} webhook: {}", type, e.getMessage()));
+    }
+
+    // Stripe's JSON representations, parsed by stripe-java the same way as real responses
+
+    private static JsonObject intentJson(SimulatedIntent intent) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", intent.id);
+        json.addProperty("object", "payment_intent");
+        json.addProperty("amount", intent.amount);
+        json.addProperty("amount_received", "succeeded".equals(intent.status) ? intent.amount : 0);
+        json.addProperty("currency", intent.currency);
+        json.addProperty("status", intent.status);
+        json.addProperty("client_secret", intent.clientSecret);
+        json.addProperty("created", intent.created);
+        json.addProperty("description", intent.description);
+        json.addProperty("livemode", false);
+        json.addProperty("payment_method", intent.paymentMethod);
+        json.addProperty("latest_charge", intent.latestCharge);
+        json.addProperty("cancellation_reason", intent.cancellationReason);
+        json.add("metadata", metadataJson(intent.metadata));
+        if (intent.errorCode != null) {
+            JsonObject error = new JsonObject();
+            error.addProperty("type", "card_error");
+            error.addProperty("code", intent.errorCode);
+            error.addProperty("message", intent.errorMessage);
+            json.add("last_payment_error", error);
+        }
+        if ("requires_action".equals(intent.status)) {
+            JsonObject nextAction = new JsonObject();
+            nextAction.addProperty("type", "use_stripe_sdk");
+            json.add("next_action", nextAction);
+        }
+        return json;
+    }
+
+    private static JsonObject chargeJson(SimulatedCharge charge) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", charge.id);
+        json.addProperty("object", "charge");
+        json.addProperty("amount", charge.intent.amount);
+        json.addProperty("amount_captured", charge.intent.amount);
+        json.addProperty("amount_refunded", charge.amountRefunded);
+        json.addProperty("currency", charge.intent.currency);
+        json.addProperty("created", charge.created);
+        json.addProperty("captured", true);
+        json.addProperty("paid", true);
+        json.addProperty("refunded", charge.amountRefunded >= charge.intent.amount);
+        json.addProperty("status", "succeeded");
+        json.addProperty("livemode", false);
+        json.addProperty("payment_intent", charge.intent.id);
+        json.addProperty("payment_method", charge.intent.paymentMethod);
+        json.addProperty("receipt_url", "https://pay.stripe.com/receipts/simulated/" + charge.id);
+        return json;
+    }
+
+    private static JsonObject refundJson(SimulatedRefund refund) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", refund.id());
+        json.addProperty("object", "refund");
+        json.addProperty("amount", refund.amount());
+        json.addProperty("charge", refund.charge().id);
+        json.addProperty("currency", refund.charge().intent.currency);
+        json.addProperty("created", refund.created());
+        json.addProperty("payment_intent", refund.charge().intent.id);
+        json.addProperty("reason", refund.reason());
+        json.addProperty("status", "succeeded");
+        json.add("metadata", metadataJson(refund.metadata()));
+        return json;
+    }
+
+    private static JsonObject metadataJson(Map<String, String> metadata) {
+        JsonObject json = new JsonObject();
+        metadata.forEach(json::addProperty);
+        return json;
+    }
+
+    private static PaymentIntent toPaymentIntent(SimulatedIntent intent) {
+        synchronized (intent) {
+            return ApiResource.GSON.fromJson(intentJson(intent), PaymentIntent.class);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.paymentservice.gateway;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentConfirmParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calls the Stripe API through the static stripe-java resources, authenticated with the key set in
+ * {@link com.ecommerce.paymentservice.config.StripeConfig}
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripeApiGateway implements PaymentGateway {
+
+    @Override
+    public PaymentIntent createPaymentIntent(PaymentIntentCreateParams params, RequestOptions options) throws StripeException {
+        return PaymentIntent.create(params, options);
+    }
+
+    @Override
+    public PaymentIntent confirmPaymentIntent(String paymentIntentId, PaymentIntentConfirmParams params) throws StripeException {
+        return PaymentIntent.retrieve(paymentIntentId).confirm(params);
+    }
+
+    @Override
+    public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
+        return PaymentIntent.retrieve(paymentIntentId);
+    }
+
+    @Override
+    public PaymentIntent cancelPaymentIntent(String paymentIntentId) throws StripeException {
+        return PaymentIntent.retrieve(paymentIntentId).cancel();
+    }
+
+    @Override
+    public Charge retrieveCharge(String chargeId) throws StripeException {
+        return Charge.retrieve(chargeId);
+    }
+
+    @Override
+    public Refund createRefund(RefundCreateParams params, RequestOptions options) throws StripeException {
+        return Refund.create(params, options);
+    }
+
+    @Override
+    public Refund retrieveRefund(String refundId) throws StripeException {
+        return Refund.retrieve(refundId);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.common.outbox.OutboxStore;
+import com.ecommerce.paymentservice.entity.PaymentOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutboxEvent, Long>,
+        OutboxStore<PaymentOutboxEvent> {
+
+    /**
+     * Takes or renews the relay lease so only one instance publishes at a time,
+     * which keeps per-payment ordering intact across nodes
+     *
+     * @return 1 if the instance holds the lease, 0 if another instance does
+     */
+    @Modifying
+    @Query(value = "INSERT INTO outbox_relay_leases (relay, owner, leased_until) " +
+            "VALUES (:relay, :owner, :leasedUntil) " +
+            "ON CONFLICT (relay) DO UPDATE SET owner = EXCLUDED.owner, leased_until = EXCLUDED.leased_until " +
+            "WHERE outbox_relay_leases.owner = EXCLUDED.owner OR outbox_relay_leases.leased_until < :now",
+            nativeQuery = true)
+    int acquireRelayLease(@Param("relay") String relay,
+                          @Param("owner") String owner,
+                          @Param("now") LocalDateTime now,
+                          @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    /**
+     * Finds the oldest unpublished events by ID, which is insert order rather than commit order;
+     * see {@link OutboxStore#findUnpublished(int)}
+     *
+     * @param limit The maximum number of events to return
+     * @return Unpublished events ordered by ID
+     */
+    @Query(value = "SELECT * FROM payment_outbox WHERE published_at IS NULL ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<PaymentOutboxEvent> findUnpublished(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE PaymentOutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    long countByPublishedAtIsNull();
+
+    @Query("SELECT MIN(e.createdAt) FROM PaymentOutboxEvent e WHERE e.publishedAt IS NULL")
+    LocalDateTime findOldestUnpublishedCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM PaymentOutboxEvent e WHERE e.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -4,10 +4,17 @@ import com.ecommerce.paymentservice.entity.Payment;
 import com.ecommerce.paymentservice.entity.PaymentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,10 +23,85 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     Optional<Payment> findByPaymentId(String paymentId);
 
+    /**
+     * Loads a payment and locks its row until the transaction ends, serializing the saga steps
+     * and webhook updates that move the same payment
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.paymentId = :paymentId")
+    Optional<Payment> findByPaymentIdForUpdate(@Param("paymentId") String paymentId);
+
+    /**
+     * Reserves part of a payment for a refund in one guarded statement. Nothing is reserved if the
+     * payment isn't in a refundable status or the refund would take its refunds, completed and in
+     * flight, past the amount paid, so concurrent refunds can't over-refund.
+     *
+     * @param paymentId The payment ID
+     * @param amount The refund amount
+     * @param statuses The refundable payment statuses
+     * @return 1 if the amount was reserved, 0 otherwise
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.pendingRefundAmount = p.pendingRefundAmount + :amount " +
+            "WHERE p.paymentId = :paymentId AND p.status IN :statuses " +
+            "AND p.refundedAmount + p.pendingRefundAmount + :amount <= p.amount")
+    int reserveRefund(@Param("paymentId") String paymentId, @Param("amount") BigDecimal amount,
+                      @Param("statuses") Collection<PaymentStatus> statuses);
+
+    /**
+     * Moves a completed refund's amount from reserved to refunded, guarded so the refunded total
+     * never exceeds the amount paid
+     *
+     * @param id The payment's database ID
+     * @param amount The refund amount
+     * @return 1 if the totals were updated, 0 if the guard failed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.refundedAmount = p.refundedAmount + :amount, " +
+            "p.pendingRefundAmount = p.pendingRefundAmount - :amount " +
+            "WHERE p.id = :id AND p.refundedAmount + :amount <= p.amount")
+    int completeRefund(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Releases the reservation of a refund that failed
+     *
+     * @param id The payment's database ID
+     * @param amount The refund amount
+     * @return The number of payments updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.pendingRefundAmount = p.pendingRefundAmount - :amount WHERE p.id = :id")
+    int releaseRefund(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Finds only the owner of a payment, for authorization checks
+     *
+     * @param paymentId The payment ID
+     * @return The owning user's ID, if the payment exists
+     */
+    @Query("SELECT p.userId FROM Payment p WHERE p.paymentId = :paymentId")
+    Optional<Long> findUserIdByPaymentId(@Param("paymentId") String paymentId);
+
+    /**
+     * Finds only the owner of an order's payment, for authorization checks
+     *
+     * @param orderId The order ID
+     * @return The owning user's ID, if the order has a payment
+     */
+    @Query("SELECT DISTINCT p.userId FROM Payment p WHERE p.orderId = :orderId")
+    Optional<Long> findUserIdByOrderId(@Param("orderId") String orderId);
+
     Optional<Payment> findByOrderId(String orderId);
 
     Optional<Payment> findByPaymentIntentId(String paymentIntentId);
 
+    /**
+     * Loads the payment of a payment intent and locks its row until the transaction ends
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.paymentIntentId = :paymentIntentId")
+    Optional<Payment> findByPaymentIntentIdForUpdate(@Param("paymentIntentId") String paymentIntentId);
+
     Page<Payment> findByUserId(Long userId, Pageable pageable);
 
     Page<Payment> findByUserIdAndStatus(Long userId, PaymentStatus status, Pageable pageable);
@@ -27,4 +109,48 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByStatus(PaymentStatus status);
 
     List<Payment> findByStatusAndCreatedAtBefore(PaymentStatus status, LocalDateTime time);
+
+    /**
+     * Loads payments and locks their rows in ID order, so concurrent batches can't deadlock
+     *
+     * @param paymentIds The payment IDs
+     * @return The payments that exist, ordered by database ID
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.paymentId IN :paymentIds ORDER BY p.id")
+    List<Payment> findByPaymentIdInForUpdate(@Param("paymentIds") Collection<String> paymentIds);
+
+    /**
+     * Pages through payments untouched in a status since the cutoff, restricted to the given
+     * partitions of the database ID (id modulo the partition count)
+     *
+     * @param status The payment status
+     * @param before Only payments last updated before this time
+     * @param afterId Only payments with a larger database ID; the last ID of the previous chunk
+     * @param partitions The number of partitions
+     * @param partitionNos The partitions to read
+     * @param pageable The chunk size; sorting is by ID
+     * @return The next chunk, ordered by database ID
+     */
+    @Query("SELECT p FROM Payment p WHERE p.status = :status AND p.updatedAt < :before AND p.id > :afterId " +
+            "AND MOD(p.id, :partitions) IN :partitionNos ORDER BY p.id")
+    List<Payment> findStaleChunk(@Param("status") PaymentStatus status,
+                                 @Param("before") LocalDateTime before,
+                                 @Param("afterId") long afterId,
+                                 @Param("partitions") int partitions,
+                                 @Param("partitionNos") Collection<Integer> partitionNos,
+                                 Pageable pageable);
+
+    /**
+     * Pages through PENDING payments created before the cutoff that never got a payment intent,
+     * restricted to the given partitions like {@link #findStaleChunk}
+     */
+    @Query("SELECT p FROM Payment p WHERE p.status = com.ecommerce.paymentservice.entity.PaymentStatus.PENDING " +
+            "AND p.paymentIntentId IS NULL AND p.createdAt < :before AND p.id > :afterId " +
+            "AND MOD(p.id, :partitions) IN :partitionNos ORDER BY p.id")
+    List<Payment> findUnfinishedChunk(@Param("before") LocalDateTime before,
+                                      @Param("afterId") long afterId,
+                                      @Param("partitions") int partitions,
+                                      @Param("partitionNos") Collection<Integer> partitionNos,
+                                      Pageable pageable);
 }
\ No newline at end of file
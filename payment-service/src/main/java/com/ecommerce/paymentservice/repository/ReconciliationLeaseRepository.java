@@ -0,0 +1,79 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.entity.ReconciliationLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReconciliationLeaseRepository extends JpaRepository<ReconciliationLease, Integer> {
+
+    /**
+     * Creates the lease rows of partitions that don't have one yet
+     *
+     * @param partitions The number of partitions
+     * @return The number of rows created
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO payment_reconciliation_leases (partition_no) " +
+            "SELECT generate_series(0, :partitions - 1) ON CONFLICT (partition_no) DO NOTHING", nativeQuery = true)
+    int createPartitions(@Param("partitions") int partitions);
+
+    /**
+     * Leases free partitions, those reconciled longest ago first. SKIP LOCKED lets several
+     * instances claim disjoint partitions at the same time.
+     *
+     * @param owner The claiming instance
+     * @param now The current time
+     * @param leasedUntil When the leases expire if the instance dies
+     * @param partitions The number of partitions; rows of a larger former count are ignored
+     * @param limit The maximum number of partitions to lease
+     * @return The leased partition numbers
+     */
+    @Transactional
+    @Query(value = "UPDATE payment_reconciliation_leases SET owner = :owner, leased_until = :leasedUntil " +
+            "WHERE partition_no IN (SELECT l.partition_no FROM payment_reconciliation_leases l " +
+            "WHERE l.partition_no < :partitions AND (l.leased_until IS NULL OR l.leased_until < :now) " +
+            "ORDER BY l.last_run_at NULLS FIRST, l.partition_no " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING partition_no", nativeQuery = true)
+    List<Integer> claim(@Param("owner") String owner,
+                        @Param("now") LocalDateTime now,
+                        @Param("leasedUntil") LocalDateTime leasedUntil,
+                        @Param("partitions") int partitions,
+                        @Param("limit") int limit);
+
+    /**
+     * Extends leases still held by the instance
+     *
+     * @return The number of leases extended; fewer than requested means some had expired and may
+     * have been taken over
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReconciliationLease l SET l.leasedUntil = :leasedUntil " +
+            "WHERE l.owner = :owner AND l.partitionNo IN :partitionNos AND l.leasedUntil >= :now")
+    int renew(@Param("owner") String owner,
+              @Param("partitionNos") Collection<Integer> partitionNos,
+              @Param("now") LocalDateTime now,
+              @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    /**
+     * Gives up leases still held by the instance and records when their partitions were reconciled
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReconciliationLease l SET l.owner = NULL, l.leasedUntil = NULL, l.lastRunAt = :now " +
+            "WHERE l.owner = :owner AND l.partitionNo IN :partitionNos")
+    int release(@Param("owner") String owner,
+                @Param("partitionNos") Collection<Integer> partitionNos,
+                @Param("now") LocalDateTime now);
+}
@@ -5,9 +5,13 @@ import com.ecommerce.paymentservice.entity.RefundStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +22,15 @@ public interface RefundRepository extends JpaRepository<Refund, Long> {
 
     Optional<Refund> findByRefundIntentId(String refundIntentId);
 
+    /**
+     * Finds only the owner of a refund's payment, for authorization checks
+     *
+     * @param refundId The refund ID
+     * @return The owning user's ID, if the refund exists
+     */
+    @Query("SELECT r.payment.userId FROM Refund r WHERE r.refundId = :refundId")
+    Optional<Long> findUserIdByRefundId(@Param("refundId") String refundId);
+
     Page<Refund> findByPaymentId(Long paymentId, Pageable pageable);
 
     List<Refund> findByPayment_PaymentId(String paymentId);
@@ -27,4 +40,55 @@ public interface RefundRepository extends JpaRepository<Refund, Long> {
     List<Refund> findByStatus(RefundStatus status);
 
     List<Refund> findByStatusAndCreatedAtBefore(RefundStatus status, LocalDateTime time);
+
+    /**
+     * Pages through refunds in a status since before the cutoff, restricted to the given partitions
+     * of their payment's database ID, so a payment and its refunds fall in the same partition
+     *
+     * @param status The refund status
+     * @param before Only refunds created before this time
+     * @param afterId Only refunds with a larger database ID; the last ID of the previous chunk
+     * @param partitions The number of partitions
+     * @param partitionNos The partitions to read
+     * @param pageable The chunk size; sorting is by ID
+     * @return The next chunk with their payments, ordered by database ID
+     */
+    @Query("SELECT r FROM Refund r JOIN FETCH r.payment p WHERE r.status = :status AND r.createdAt < :before " +
+            "AND r.id > :afterId AND MOD(p.id, :partitions) IN :partitionNos ORDER BY r.id")
+    List<Refund> findStaleChunk(@Param("status") RefundStatus status,
+                                @Param("before") LocalDateTime before,
+                                @Param("afterId") long afterId,
+                                @Param("partitions") int partitions,
+                                @Param("partitionNos") Collection<Integer> partitionNos,
+                                Pageable pageable);
+
+    /**
+     * Completes a refund if it is still PROCESSING; only one of concurrent attempts wins
+     *
+     * @param refundId The refund ID
+     * @param refundIntentId Stripe's refund ID
+     * @param processedAt The completion time
+     * @return 1 if this call completed the refund, 0 if it had already left PROCESSING
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Refund r SET r.status = com.ecommerce.paymentservice.entity.RefundStatus.COMPLETED, " +
+            "r.refundIntentId = :refundIntentId, r.processedAt = :processedAt, r.updatedAt = :processedAt " +
+            "WHERE r.refundId = :refundId AND r.status = com.ecommerce.paymentservice.entity.RefundStatus.PROCESSING")
+    int markCompleted(@Param("refundId") String refundId, @Param("refundIntentId") String refundIntentId,
+                      @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * Fails a refund if it is still PROCESSING; only one of concurrent attempts wins
+     *
+     * @param refundId The refund ID
+     * @param errorMessage Why it failed
+     * @param failedAt The failure time
+     * @return 1 if this call failed the refund, 0 if it had already left PROCESSING
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Refund r SET r.status = com.ecommerce.paymentservice.entity.RefundStatus.FAILED, " +
+            "r.errorMessage = :errorMessage, r.updatedAt = :failedAt " +
+            "WHERE r.refundId = :refundId AND r.status = com.ecommerce.paymentservice.entity.RefundStatus.PROCESSING")
+    int markFailed(@Param("refundId") String refundId, @Param("errorMessage") String errorMessage,
+                   @Param("failedAt") LocalDateTime failedAt);
 }
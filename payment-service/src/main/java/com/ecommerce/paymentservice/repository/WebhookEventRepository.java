@@ -0,0 +1,92 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.entity.WebhookEvent;
+import com.ecommerce.paymentservice.entity.WebhookEventStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, String> {
+
+    /**
+     * Stores an event unless one with the same Stripe event ID is already in the inbox
+     *
+     * @return 1 if the event was stored, 0 if it is a redelivery
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stripe_webhook_events (id, type, ordering_key, payload, status, attempts, " +
+            "next_attempt_at, stripe_created_at, received_at) " +
+            "VALUES (:id, :type, :orderingKey, :payload, 'PENDING', 0, :now, :stripeCreatedAt, :now) " +
+            "ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("type") String type,
+                       @Param("orderingKey") String orderingKey,
+                       @Param("payload") String payload,
+                       @Param("stripeCreatedAt") LocalDateTime stripeCreatedAt,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Leases a batch of due events. Only the oldest pending event of each ordering key is
+     * eligible, so events for one payment are never processed concurrently or out of order.
+     * SKIP LOCKED lets several instances claim disjoint batches.
+     *
+     * @param now The current time
+     * @param leasedUntil When the lease expires if the worker dies
+     * @param batchSize The maximum number of events
+     * @return The IDs of the leased events
+     */
+    @Transactional
+    @Query(value = "UPDATE stripe_webhook_events SET leased_until = :leasedUntil WHERE id IN (" +
+            "SELECT e.id FROM stripe_webhook_events e " +
+            "WHERE e.status = 'PENDING' AND e.next_attempt_at <= :now " +
+            "AND (e.leased_until IS NULL OR e.leased_until < :now) " +
+            "AND NOT EXISTS (SELECT 1 FROM stripe_webhook_events p " +
+            "WHERE p.ordering_key = e.ordering_key AND p.status = 'PENDING' " +
+            "AND (p.stripe_created_at, p.received_at, p.id) < (e.stripe_created_at, e.received_at, e.id)) " +
+            "ORDER BY e.stripe_created_at, e.received_at " +
+            "LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id", nativeQuery = true)
+    List<String> claimBatch(@Param("now") LocalDateTime now,
+                            @Param("leasedUntil") LocalDateTime leasedUntil,
+                            @Param("batchSize") int batchSize);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.ecommerce.paymentservice.entity.WebhookEventStatus.PROCESSED, " +
+            "e.attempts = e.attempts + 1, e.processedAt = :now, e.leasedUntil = NULL, e.lastError = NULL " +
+            "WHERE e.id = :id")
+    int markProcessed(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /**
+     * Records a failed attempt and when to try again, or gives up with status FAILED
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = :status, e.attempts = e.attempts + 1, " +
+            "e.nextAttemptAt = :nextAttemptAt, e.leasedUntil = NULL, e.lastError = :error WHERE e.id = :id")
+    int markAttemptFailed(@Param("id") String id,
+                          @Param("status") WebhookEventStatus status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("error") String error);
+
+    long countByStatus(WebhookEventStatus status);
+
+    @Query("SELECT MIN(e.receivedAt) FROM WebhookEvent e " +
+            "WHERE e.status = com.ecommerce.paymentservice.entity.WebhookEventStatus.PENDING")
+    LocalDateTime findOldestPendingReceivedAt();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WebhookEvent e " +
+            "WHERE e.status = com.ecommerce.paymentservice.entity.WebhookEventStatus.PROCESSED " +
+            "AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.paymentservice.security;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Owners looked up by the access checks of the current request, so an expression that checks the
+ * same payment, refund or order more than once queries it once
+ */
+@Component
+@RequestScope
+public class PaymentOwnerCache {
+
+    private final Map<String, Optional<Long>> paymentOwners = new HashMap<>();
+    private final Map<String, Optional<Long>> refundOwners = new HashMap<>();
+    private final Map<String, Optional<Long>> orderOwners = new HashMap<>();
+
+    public Optional<Long> paymentOwner(String paymentId, Function<String, Optional<Long>> loader) {
+        return paymentOwners.computeIfAbsent(paymentId, loader);
+    }
+
+    public Optional<Long> refundOwner(String refundId, Function<String, Optional<Long>> loader) {
+        return refundOwners.computeIfAbsent(refundId, loader);
+    }
+
+    public Optional<Long> orderOwner(String orderId, Function<String, Optional<Long>> loader) {
+        return orderOwners.computeIfAbsent(orderId, loader);
+    }
+}
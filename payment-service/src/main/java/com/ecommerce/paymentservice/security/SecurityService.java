@@ -1,7 +1,5 @@
 package com.ecommerce.paymentservice.security;
 
-import com.ecommerce.paymentservice.entity.Payment;
-import com.ecommerce.paymentservice.entity.Refund;
 import com.ecommerce.paymentservice.repository.PaymentRepository;
 import com.ecommerce.paymentservice.repository.RefundRepository;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +11,10 @@ import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
+/**
+ * Ownership checks for @PreAuthorize on payment endpoints. Reads only the owner's user ID, once per
+ * request, instead of loading the payment the endpoint is about to load anyway.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -20,6 +22,7 @@ public class SecurityService {
 
     private final PaymentRepository paymentRepository;
     private final RefundRepository refundRepository;
+    private final PaymentOwnerCache ownerCache;
 
     /**
      * Checks if the currently authenticated user can access a payment
@@ -39,10 +42,8 @@ public class SecurityService {
         if (authentication.getPrincipal() instanceof UserPrincipal) {
             UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
 
-            Optional<Payment> paymentOpt = paymentRepository.findByPaymentId(paymentId);
-            if (paymentOpt.isPresent()) {
-                return paymentOpt.get().getUserId().equals(principal.getId());
-            }
+            Optional<Long> ownerId = ownerCache.paymentOwner(paymentId, paymentRepository::findUserIdByPaymentId);
+            return ownerId.isPresent() && ownerId.get().equals(principal.getId());
         }
 
         return false;
@@ -66,10 +67,8 @@ public class SecurityService {
         if (authentication.getPrincipal() instanceof UserPrincipal) {
             UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
 
-            Optional<Refund> refundOpt = refundRepository.findByRefundId(refundId);
-            if (refundOpt.isPresent()) {
-                return refundOpt.get().getPayment().getUserId().equals(principal.getId());
-            }
+            Optional<Long> ownerId = ownerCache.refundOwner(refundId, refundRepository::findUserIdByRefundId);
+            return ownerId.isPresent() && ownerId.get().equals(principal.getId());
         }
 
         return false;
@@ -93,10 +92,8 @@ public class SecurityService {
         if (authentication.getPrincipal() instanceof UserPrincipal) {
             UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
 
-            Optional<Payment> paymentOpt = paymentRepository.findByOrderId(orderId);
-            if (paymentOpt.isPresent()) {
-                return paymentOpt.get().getUserId().equals(principal.getId());
-            }
+            Optional<Long> ownerId = ownerCache.orderOwner(orderId, paymentRepository::findUserIdByOrderId);
+            return ownerId.isPresent() && ownerId.get().equals(principal.getId());
         }
 
         return false;
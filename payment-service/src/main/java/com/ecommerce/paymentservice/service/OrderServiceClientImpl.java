@@ -1,8 +1,6 @@
 package com.ecommerce.paymentservice.service;
 
 import com.ecommerce.paymentservice.dto.OrderDTO;
-import com.ecommerce.paymentservice.dto.OrderPaymentUpdateRequest;
-import com.ecommerce.paymentservice.dto.PaymentResponseDTO;
 import com.ecommerce.paymentservice.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -65,42 +63,6 @@ public class OrderServiceClientImpl implements OrderServiceClient {
         }
     }
 
-    @Override
-    public boolean updateOrderPaymentStatus(String orderId, PaymentResponseDTO paymentResponse) {
-        try {
-            log.debug("Updating payment status for order ID: {}", orderId);
-
-            String token = getCurrentToken();
-
-            // Create request object
-            OrderPaymentUpdateRequest request = new OrderPaymentUpdateRequest();
-            request.setPaymentId(paymentResponse.getPaymentId());
-            request.setStatus(mapPaymentStatus(paymentResponse.getStatus().name()));
-            request.setTransactionId(paymentResponse.getChargeId());
-            request.setAmount(paymentResponse.getAmount());
-
-            webClientBuilder.build()
-                    .put()
-                    .uri(orderServiceUrl + "/api/orders/" + orderId + "/payment-status")
-                    .headers(headers -> {
-                        if (!token.isEmpty()) {
-                            headers.setBearerAuth(token);
-                        }
-                    })
-                    .bodyValue(request)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .block();
-
-            log.debug("Successfully updated payment status for order ID: {}", orderId);
-            return true;
-
-        } catch (Exception e) {
-            log.error("Error updating payment status for order ID: {}", orderId, e);
-            return false;
-        }
-    }
-
     // Helper method to get token from security context
     private String getCurrentToken() {
         try {
@@ -121,15 +83,4 @@ public class OrderServiceClientImpl implements OrderServiceClient {
         }
     }
 
-    // Helper method to map payment status to order payment status
-    private String mapPaymentStatus(String paymentStatus) {
-        return switch (paymentStatus) {
-            case "COMPLETED" -> "PAID";
-            case "FAILED" -> "FAILED";
-            case "CANCELLED" -> "CANCELLED";
-            case "REFUNDED" -> "REFUNDED";
-            case "PARTIALLY_REFUNDED" -> "PARTIALLY_REFUNDED";
-            default -> "PENDING";
-        };
-    }
 }
\ No newline at end of file
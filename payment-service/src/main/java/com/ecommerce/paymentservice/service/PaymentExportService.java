@@ -0,0 +1,26 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.ExportFormat;
+import com.ecommerce.paymentservice.dto.PaymentExportFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface PaymentExportService {
+
+    /**
+     * Writes the payments matching the filter, joined with their refunds, to the stream.
+     * Payments come in creation order with one row per refund, or a single row without
+     * refund columns when there are none. Rows are read through a database cursor and
+     * written as they arrive, so memory use doesn't grow with the size of the export.
+     *
+     * @param filter Which payments to export
+     * @param format The output format
+     * @param gzip Whether to gzip the output
+     * @param out The stream to write to; left open
+     * @return The number of rows written
+     * @throws IOException if writing to the stream fails, e.g. because the client went away
+     */
+    long exportPayments(PaymentExportFilter filter, ExportFormat format, boolean gzip, OutputStream out)
+            throws IOException;
+}
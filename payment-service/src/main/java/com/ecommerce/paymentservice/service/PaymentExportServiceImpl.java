@@ -0,0 +1,251 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.ExportFormat;
+import com.ecommerce.paymentservice.dto.PaymentExportFilter;
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+public class PaymentExportServiceImpl implements PaymentExportService {
+
+    // Output column names, in the order of the query's select list
+    private static final String[] COLUMNS = {
+            "payment_id", "order_id", "user_id", "amount", "refunded_amount", "currency", "status",
+            "payment_method", "payment_intent_id", "charge_id", "created_at", "processed_at",
+            "refund_id", "refund_amount", "refund_status", "refund_reason", "refund_created_at", "refund_processed_at"
+    };
+
+    private static final String EXPORT_QUERY = """
+            SELECT p.payment_id, p.order_id, p.user_id, p.amount, p.refunded_amount, p.currency, p.status,
+                   p.payment_method, p.payment_intent_id, p.charge_id, p.created_at, p.processed_at,
+                   r.refund_id, r.amount, r.status, r.reason, r.created_at, r.processed_at
+            FROM payments p
+            LEFT JOIN refunds r ON r.payment_id = p.id
+            """;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate exportJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter rowCounter;
+
+    public PaymentExportServiceImpl(DataSource dataSource,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${payment.export.fetch-size:1000}") int fetchSize) {
+        // Its own template: a fetch size makes the Postgres driver read through a cursor
+        // inside the transaction instead of loading the whole result
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+
+        this.rowCounter = Counter.builder("payment.export.rows")
+                .description("Rows written by payment report exports")
+                .register(meterRegistry);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportPayments(PaymentExportFilter filter, ExportFormat format, boolean gzip, OutputStream out)
+            throws IOException {
+        long startedAt = System.currentTimeMillis();
+
+        // 1. Build the query from the filter
+        List<Object> args = new ArrayList<>();
+        String sql = EXPORT_QUERY + whereClause(filter, args) + " ORDER BY p.created_at, p.id, r.id";
+
+        // 2. Buffer, and compress if asked, in front of the response
+        GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzipStream != null ? gzipStream : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowWriter rowWriter = format == ExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        // 3. Write each row as the cursor hands it over
+        long[] rows = {0};
+        try {
+            rowWriter.start();
+            exportJdbcTemplate.query(sql, rs -> {
+                try {
+                    rowWriter.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, args.toArray());
+            rowWriter.finish();
+            writer.flush();
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            rowCounter.increment(rows[0]);
+        }
+
+        log.info("Exported {} payment rows as {} in {} ms", rows[0], format, System.currentTimeMillis() - startedAt);
+        return rows[0];
+    }
+
+    private String whereClause(PaymentExportFilter filter, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.getFrom() != null) {
+            conditions.add("p.created_at >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            conditions.add("p.created_at < ?");
+            args.add(Timestamp.valueOf(filter.getTo()));
+        }
+        if (filter.getStatuses() != null && !filter.getStatuses().isEmpty()) {
+            StringJoiner placeholders = new StringJoiner(", ", "p.status IN (", ")");
+            for (PaymentStatus status : filter.getStatuses()) {
+                placeholders.add("?");
+                args.add(status.name());
+            }
+            conditions.add(placeholders.toString());
+        }
+        if (filter.getCurrency() != null && !filter.getCurrency().isBlank()) {
+            conditions.add("p.currency = ?");
+            args.add(filter.getCurrency().toUpperCase());
+        }
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+    }
+
+    // Timestamps as ISO local date-times, like the JSON API
+    private static Object exportValue(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        return value;
+    }
+
+    private interface RowWriter {
+
+        void start() throws IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = exportValue(rs.getObject(i + 1));
+                if (value instanceof BigDecimal amount) {
+                    writer.write(amount.toPlainString());
+                } else if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        private void writeField(String field) throws IOException {
+            boolean quote = field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                    || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private boolean empty = true;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            // The writer belongs to the caller, and flushing per row would defeat the buffering
+            this.generator = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            this.generator.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Object value = exportValue(rs.getObject(i + 1));
+                generator.writeFieldName(COLUMNS[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal amount) {
+                    generator.writeNumber(amount);
+                } else if (value instanceof Long number) {
+                    generator.writeNumber(number);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            empty = false;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!empty) {
+                generator.writeRaw('\n');
+            }
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.ecommerce.paymentservice.service;
+
+import com.stripe.model.PaymentIntent;
+
+/**
+ * A payment intent as the provider reports it, with the receipt URL of its charge when it succeeded
+ *
+ * @param paymentIntent The payment intent
+ * @param receiptUrl The charge's receipt URL, or null if there is no charge or it couldn't be fetched
+ */
+public record PaymentIntentState(PaymentIntent paymentIntent, String receiptUrl) {
+}
@@ -0,0 +1,303 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.PaymentResponseDTO;
+import com.ecommerce.paymentservice.entity.Payment;
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import com.ecommerce.paymentservice.entity.Refund;
+import com.ecommerce.paymentservice.entity.RefundStatus;
+import com.ecommerce.paymentservice.repository.PaymentRepository;
+import com.ecommerce.paymentservice.repository.ReconciliationLeaseRepository;
+import com.ecommerce.paymentservice.repository.RefundRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Settles payments and refunds left stuck by requests that died between the database and Stripe:
+ * PENDING payments whose intent was never recorded, PROCESSING payments whose confirmation gave no
+ * answer and PROCESSING refunds.
+ * <p>
+ * The work is split into partitions of the payment ID. Each run an instance leases free partitions
+ * and reads their stale rows in chunks; the gateway is queried for a whole chunk concurrently, within
+ * a rate limit, and the fixes of a chunk are applied in one transaction, which also records the
+ * payment events. Leases expire, so the partitions of an instance that died are taken over.
+ */
+@Component
+@Slf4j
+public class PaymentReconciliationJob {
+
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final RefundRepository refundRepository;
+    private final ReconciliationLeaseRepository leaseRepository;
+    private final ExecutorService gatewayCalls = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore gatewayPermits;
+    private final AtomicLong nextGatewayCallAt = new AtomicLong(System.nanoTime());
+    private final String owner = instanceName();
+
+    private final Counter checkedCounter;
+    private final Counter fixedCounter;
+    private final Counter gatewayErrorCounter;
+    private final Timer runTimer;
+
+    @Value("${payment.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payment.reconciliation.setup-timeout-seconds:600}")
+    private long setupTimeoutSeconds;
+
+    @Value("${payment.reconciliation.stale-after-seconds:120}")
+    private long staleAfterSeconds;
+
+    @Value("${payment.reconciliation.abandon-after-hours:24}")
+    private long abandonAfterHours;
+
+    @Value("${payment.reconciliation.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${payment.reconciliation.rate-limit-per-second:20}")
+    private int rateLimitPerSecond;
+
+    @Value("${payment.reconciliation.partitions:16}")
+    private int partitions;
+
+    @Value("${payment.reconciliation.leases-per-run:8}")
+    private int leasesPerRun;
+
+    @Value("${payment.reconciliation.lease-seconds:300}")
+    private long leaseSeconds;
+
+    public PaymentReconciliationJob(PaymentService paymentService,
+                                    PaymentRepository paymentRepository,
+                                    RefundRepository refundRepository,
+                                    ReconciliationLeaseRepository leaseRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${payment.reconciliation.max-concurrency:8}") int maxConcurrency) {
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.refundRepository = refundRepository;
+        this.leaseRepository = leaseRepository;
+        this.gatewayPermits = new Semaphore(maxConcurrency);
+
+        this.checkedCounter = Counter.builder("payment.reconciliation.checked")
+                .description("Stale payments and refunds looked at by the reconciliation job")
+                .register(meterRegistry);
+        this.fixedCounter = Counter.builder("payment.reconciliation.fixed")
+                .description("Stale payments and refunds the reconciliation job settled")
+                .register(meterRegistry);
+        this.gatewayErrorCounter = Counter.builder("payment.reconciliation.gateway.errors")
+                .description("Gateway calls of the reconciliation job that failed and wait for the next run")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("payment.reconciliation.run")
+                .description("Time of one reconciliation run over the leased partitions")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${payment.reconciliation.interval-ms:60000}",
+            fixedDelayString = "${payment.reconciliation.interval-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+
+        // 1. Lease partitions no other instance is working on
+        LocalDateTime now = LocalDateTime.now();
+        leaseRepository.createPartitions(partitions);
+        List<Integer> leased = leaseRepository.claim(owner, now, now.plusSeconds(leaseSeconds), partitions, leasesPerRun);
+        if (leased.isEmpty()) {
+            return;
+        }
+        log.debug("Reconciling partitions {} of {}", leased, partitions);
+
+        runTimer.record(() -> {
+            try {
+                // 2. Each kind of stale row in chunks, stopping if a lease was lost
+                boolean held = forEachChunk(leased,
+                        afterId -> paymentRepository.findUnfinishedChunk(now.minusSeconds(setupTimeoutSeconds),
+                                afterId, partitions, leased, PageRequest.of(0, chunkSize)),
+                        Payment::getId, this::failUnfinished)
+                        && forEachChunk(leased,
+                        afterId -> paymentRepository.findStaleChunk(PaymentStatus.PROCESSING,
+                                now.minusSeconds(staleAfterSeconds), afterId, partitions, leased,
+                                PageRequest.of(0, chunkSize)),
+                        Payment::getId, chunk -> reconcileProcessing(chunk, now))
+                        && forEachChunk(leased,
+                        afterId -> refundRepository.findStaleChunk(RefundStatus.PROCESSING,
+                                now.minusSeconds(staleAfterSeconds), afterId, partitions, leased,
+                                PageRequest.of(0, chunkSize)),
+                        Refund::getId, this::retryRefunds);
+                if (!held) {
+                    log.warn("Lost the lease of some of partitions {}, stopping this run", leased);
+                }
+            } finally {
+                // 3. Hand the partitions back for whichever instance runs next
+                leaseRepository.release(owner, leased, LocalDateTime.now());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gatewayCalls.shutdownNow();
+    }
+
+    // PENDING payments that never got a payment intent can't be paid; fail them together
+    private void failUnfinished(List<Payment> chunk) {
+        checkedCounter.increment(chunk.size());
+        int failed = paymentService.failUnfinishedPayments(chunk.stream().map(Payment::getPaymentId).toList());
+        fixedCounter.increment(failed);
+        if (failed > 0) {
+            log.info("Failed {} payments whose setup did not finish", failed);
+        }
+    }
+
+    // PROCESSING payments: take Stripe's answer, and cancel those the customer abandoned
+    private void reconcileProcessing(List<Payment> chunk, LocalDateTime now) {
+        checkedCounter.increment(chunk.size());
+
+        // 1. Look up the whole chunk at Stripe concurrently
+        Map<String, PaymentIntentState> states = callGateway(chunk, payment -> payment.getPaymentIntentId() != null,
+                Payment::getPaymentId, payment -> paymentService.lookUpPaymentIntent(payment.getPaymentIntentId()));
+
+        // 2. Apply every answer in one transaction
+        List<PaymentResponseDTO> changed = paymentService.reconcilePayments(states);
+        fixedCounter.increment(changed.size());
+        changed.forEach(payment -> log.info("Reconciled payment {} to {}", payment.getPaymentId(), payment.getStatus()));
+
+        // 3. Cancel the ones Stripe still waits on after the customer is long gone
+        List<String> settled = changed.stream().map(PaymentResponseDTO::getPaymentId).toList();
+        Map<String, PaymentResponseDTO> cancelled = callGateway(chunk,
+                payment -> states.containsKey(payment.getPaymentId())
+                        && !settled.contains(payment.getPaymentId())
+                        && payment.getUpdatedAt().isBefore(now.minusHours(abandonAfterHours)),
+                Payment::getPaymentId, payment -> {
+                    log.info("Cancelling payment {} abandoned in PROCESSING", payment.getPaymentId());
+                    return paymentService.cancelPayment(payment.getPaymentId());
+                });
+        fixedCounter.increment(cancelled.size());
+    }
+
+    // PROCESSING refunds: retry them with the same idempotency key; each completes in its own transaction
+    private void retryRefunds(List<Refund> chunk) {
+        checkedCounter.increment(chunk.size());
+        Map<String, ?> retried = callGateway(chunk, refund -> true, Refund::getRefundId,
+                refund -> paymentService.reconcileRefund(refund.getRefundId()));
+        fixedCounter.increment(retried.size());
+    }
+
+    /**
+     * Pages through stale rows by ID, renewing the leases after every chunk
+     *
+     * @return false if a lease was lost and the run must stop
+     */
+    private <T> boolean forEachChunk(List<Integer> leased, LongFunction<List<T>> loader, ToLongFunction<T> idOf,
+                                     Consumer<List<T>> handler) {
+        long afterId = 0;
+        List<T> chunk;
+        while (!(chunk = loader.apply(afterId)).isEmpty()) {
+            handler.accept(chunk);
+            afterId = idOf.applyAsLong(chunk.get(chunk.size() - 1));
+
+            LocalDateTime now = LocalDateTime.now();
+            if (leaseRepository.renew(owner, leased, now, now.plusSeconds(leaseSeconds)) < leased.size()) {
+                return false;
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs one gateway call per selected item on virtual threads, at most max-concurrency at a
+     * time and no more than rate-limit-per-second overall. A failed call is logged and left for
+     * the next run.
+     *
+     * @return The results of the calls that succeeded, keyed by the items' keys
+     */
+    private <T, K, R> Map<K, R> callGateway(List<T> items, Predicate<T> selected, Function<T, K> keyOf,
+                                          Function<T, R> call) {
+        Map<K, Future<R>> calls = new LinkedHashMap<>();
+        for (T item : items) {
+            if (selected.test(item)) {
+                calls.put(keyOf.apply(item), gatewayCalls.submit(limited(() -> call.apply(item))));
+            }
+        }
+
+        Map<K, R> results = new HashMap<>();
+        for (Map.Entry<K, Future<R>> entry : calls.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                gatewayErrorCounter.increment();
+                log.warn("Failed to reconcile {}: {}", entry.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                calls.values().forEach(pending -> pending.cancel(true));
+                break;
+            }
+        }
+        return results;
+    }
+
+    private <R> Callable<R> limited(Callable<R> call) {
+        return () -> {
+            awaitRateLimit();
+            gatewayPermits.acquire();
+            try {
+                return call.call();
+            } finally {
+                gatewayPermits.release();
+            }
+        };
+    }
+
+    // Spaces calls evenly at the configured rate, across all calls of the job
+    private void awaitRateLimit() throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rateLimitPerSecond);
+        long now = System.nanoTime();
+        long slot = Math.max(nextGatewayCallAt.getAndAccumulate(now, (next, time) -> Math.max(next, time) + interval), now);
+        TimeUnit.NANOSECONDS.sleep(slot - now);
+    }
+
+    // Unique per running instance, readable in the lease table
+    private static String instanceName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
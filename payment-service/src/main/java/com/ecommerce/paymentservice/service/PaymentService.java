@@ -6,6 +6,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 public interface PaymentService {
 
@@ -112,11 +115,57 @@ public interface PaymentService {
     BigDecimal getAvailableRefundAmount(String paymentId);
 
     /**
-     * Processes a webhook event from a payment provider
+     * Accepts a webhook event from a payment provider. The signature is verified and the event is
+     * queued for asynchronous processing; redeliveries of an accepted event are ignored.
      *
      * @param payload The webhook payload
      * @param signature The webhook signature
-     * @return True if processing was successful
+     * @return True if the event was accepted (including redeliveries)
      */
     boolean processWebhook(String payload, String signature);
-}
\ No newline at end of file
+
+    /**
+     * Settles a payment left PROCESSING by an interrupted or inconclusive confirmation, using the
+     * payment intent's current state at the provider
+     *
+     * @param paymentId The payment ID
+     * @return The payment, still PROCESSING if the provider hasn't settled it either
+     */
+    PaymentResponseDTO reconcilePayment(String paymentId);
+
+    /**
+     * Looks up a payment intent and, if it succeeded, its charge's receipt at the provider. Opens no
+     * database transaction.
+     *
+     * @param paymentIntentId The payment intent ID
+     * @return The payment intent's current state
+     */
+    PaymentIntentState lookUpPaymentIntent(String paymentIntentId);
+
+    /**
+     * Applies the provider's state of a chunk of payment intents to their PROCESSING payments in one
+     * transaction, recording the payment events of every change. Payments settled meanwhile are left alone.
+     *
+     * @param intentStates Payment intent states keyed by payment ID
+     * @return The payments whose status changed
+     */
+    List<PaymentResponseDTO> reconcilePayments(Map<String, PaymentIntentState> intentStates);
+
+    /**
+     * Fails PENDING payments that never got a payment intent, in one transaction. Payments that got
+     * an intent or moved on meanwhile are left alone.
+     *
+     * @param paymentIds The payment IDs
+     * @return The number of payments failed
+     */
+    int failUnfinishedPayments(Collection<String> paymentIds);
+
+    /**
+     * Retries a refund left PROCESSING by an interrupted or inconclusive provider call. The retry
+     * reuses the original idempotency key, so the provider refunds at most once.
+     *
+     * @param refundId The refund ID
+     * @return The refund
+     */
+    RefundResponseDTO reconcileRefund(String refundId);
+}
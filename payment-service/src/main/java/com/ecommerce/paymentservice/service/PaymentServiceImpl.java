@@ -1,27 +1,36 @@
 package com.ecommerce.paymentservice.service;
 
+import com.ecommerce.common.idgen.IdGenerator;
+import com.ecommerce.common.statemachine.StateMachine;
 import com.ecommerce.paymentservice.dto.*;
 import com.ecommerce.paymentservice.entity.Payment;
 import com.ecommerce.paymentservice.entity.PaymentStatus;
 import com.ecommerce.paymentservice.entity.Refund;
+import com.ecommerce.paymentservice.entity.RefundStatus;
+import com.ecommerce.paymentservice.event.StripeWebhookInbox;
+import com.ecommerce.paymentservice.exception.PaymentGatewayException;
 import com.ecommerce.paymentservice.exception.PaymentProcessingException;
 import com.ecommerce.paymentservice.exception.ResourceNotFoundException;
 import com.ecommerce.paymentservice.repository.PaymentRepository;
 import com.ecommerce.paymentservice.repository.RefundRepository;
+import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.model.PaymentIntent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,10 +38,18 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PaymentServiceImpl implements PaymentService {
 
+    private static final List<PaymentStatus> REFUNDABLE_STATUSES =
+            List.of(PaymentStatus.COMPLETED, PaymentStatus.PARTIALLY_REFUNDED);
+
+
     private final PaymentRepository paymentRepository;
     private final RefundRepository refundRepository;
     private final StripeService stripeService;
     private final OrderServiceClient orderServiceClient;
+    private final StateMachine<PaymentStatus, Payment> paymentStateMachine;
+    private final IdGenerator idGenerator;
+    private final StripeWebhookInbox stripeWebhookInbox;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${payment.default-currency:USD}")
     private String defaultCurrency;
@@ -44,7 +61,6 @@ public class PaymentServiceImpl implements PaymentService {
     private String cancelUrl;
 
     @Override
-    @Transactional
     public PaymentResponseDTO createPayment(Long userId, PaymentRequestDTO paymentRequest) {
         log.debug("Creating payment for order ID: {}, amount: {}", paymentRequest.getOrderId(), paymentRequest.getAmount());
 
@@ -53,7 +69,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         // 2. Create payment entity
         Payment payment = new Payment();
-        payment.setPaymentId(generatePaymentId());
+        payment.setPaymentId(idGenerator.next("PAY"));
         payment.setOrderId(paymentRequest.getOrderId());
         payment.setUserId(userId);
         payment.setAmount(paymentRequest.getAmount());
@@ -66,121 +82,106 @@ public class PaymentServiceImpl implements PaymentService {
         payment.setPaymentMethod(paymentRequest.getPaymentMethod());
         payment.setMetadata(paymentRequest.getMetadata());
 
-        // 3. Save payment
-        Payment savedPayment = paymentRepository.save(payment);
-        log.debug("Saved payment with ID: {}", savedPayment.getPaymentId());
+        // 3. Save payment in its own transaction; a crash before step 5 leaves a PENDING payment
+        // without an intent, which the reconciliation job fails
+        Payment savedPayment = transactionTemplate.execute(status -> paymentRepository.save(payment));
+        String paymentId = savedPayment.getPaymentId();
+        log.debug("Saved payment with ID: {}", paymentId);
 
-        // 4. Create payment intent with Stripe
+        // 4. Create payment intent with Stripe, outside any transaction
+        PaymentIntent paymentIntent;
         try {
             // Set success and cancel URLs if not provided
             if (paymentRequest.getSuccessUrl() == null) {
-                paymentRequest.setSuccessUrl(successUrl + "?paymentId=" + savedPayment.getPaymentId());
+                paymentRequest.setSuccessUrl(successUrl + "?paymentId=" + paymentId);
             }
 
             if (paymentRequest.getCancelUrl() == null) {
-                paymentRequest.setCancelUrl(cancelUrl + "?paymentId=" + savedPayment.getPaymentId());
+                paymentRequest.setCancelUrl(cancelUrl + "?paymentId=" + paymentId);
             }
 
-            PaymentIntent paymentIntent = stripeService.createPaymentIntent(paymentRequest);
-
-            // 5. Update payment with payment intent ID
-            savedPayment.setPaymentIntentId(paymentIntent.getId());
-            savedPayment = paymentRepository.save(savedPayment);
-
-            // 6. Return response
-            PaymentResponseDTO response = mapToPaymentResponse(savedPayment);
-            response.setClientSecret(paymentIntent.getClientSecret());
-
-            return response;
+            // Keyed by payment, so a retried create returns the same intent
+            paymentIntent = stripeService.createPaymentIntent(paymentRequest, paymentId);
 
         } catch (Exception e) {
-            // Update payment status to FAILED
-            savedPayment.setStatus(PaymentStatus.FAILED);
-            savedPayment.setErrorMessage(e.getMessage());
-            paymentRepository.save(savedPayment);
+            // An intent created despite the error is never confirmed, so it can't charge
+            transactionTemplate.executeWithoutResult(status -> {
+                Payment locked = getPaymentEntityForUpdate(paymentId);
+                if (paymentStateMachine.canTransition(locked.getStatus(), PaymentStatus.FAILED)) {
+                    paymentStateMachine.fire(locked, PaymentStatus.FAILED);
+                }
+                locked.setErrorMessage(e.getMessage());
+                paymentRepository.save(locked);
+            });
 
             throw new PaymentProcessingException("Failed to create payment: " + e.getMessage(), e);
         }
+
+        // 5. Update payment with payment intent ID
+        PaymentResponseDTO response = transactionTemplate.execute(status -> {
+            Payment locked = getPaymentEntityForUpdate(paymentId);
+            locked.setPaymentIntentId(paymentIntent.getId());
+            locked = paymentRepository.save(locked);
+            if (locked.getStatus() != PaymentStatus.PENDING) {
+                // Failed by the reconciliation job while Stripe was answering
+                throw new PaymentProcessingException("Payment is no longer in PENDING state");
+            }
+            return mapToPaymentResponse(locked);
+        });
+
+        // 6. Return response
+        response.setClientSecret(paymentIntent.getClientSecret());
+        return response;
     }
 
     @Override
-    @Transactional
     public PaymentResponseDTO processPayment(String paymentId, String paymentMethodId) {
         log.debug("Processing payment ID: {} with payment method: {}", paymentId, paymentMethodId);
 
-        // 1. Find payment
-        Payment payment = getPaymentEntity(paymentId);
-
-        if (payment.getStatus() != PaymentStatus.PENDING) {
-            throw new PaymentProcessingException("Payment is not in PENDING state");
-        }
-
-        try {
-            // 2. Update payment status
-            payment.setStatus(PaymentStatus.PROCESSING);
-            paymentRepository.save(payment);
-
-            // 3. Confirm payment intent with Stripe
-            PaymentIntent paymentIntent = stripeService.confirmPaymentIntent(
-                    payment.getPaymentIntentId(),
-                    paymentMethodId
-            );
-
-            // 4. Handle payment result
-            if ("succeeded".equals(paymentIntent.getStatus())) {
-                // Payment succeeded
-                payment.setStatus(PaymentStatus.COMPLETED);
-                payment.setProcessedAt(LocalDateTime.now());
-
-                // Get charge information
-                if (paymentIntent.getLatestCharge() != null) {
-                    String chargeId = paymentIntent.getLatestCharge();
-                    Charge charge = null;
-                    try {
-                        charge = stripeService.retrieveCharge(chargeId);
-                        payment.setChargeId(chargeId);
-                        payment.setReceiptUrl(charge.getReceiptUrl());
-                    } catch (Exception e) {
-                        log.error("Error retrieving charge details: {}", e.getMessage());
-                        // Still set the charge ID even if we couldn't get the receipt URL
-                        payment.setChargeId(chargeId);
-                    }
-                }
+        // 1. Move the payment to PROCESSING; from here on only this call, a webhook or the
+        // reconciliation job settles it, and none of them holds a database transaction across Stripe
+        String paymentIntentId = transactionTemplate.execute(status -> {
+            Payment payment = getPaymentEntityForUpdate(paymentId);
 
-            } else if ("requires_action".equals(paymentIntent.getStatus())) {
-                // 3D Secure or other action required
-                // No status change, client needs to handle next actions
-
-            } else {
-                // Payment failed or other status
-                payment.setStatus(PaymentStatus.FAILED);
-
-                if (paymentIntent.getLastPaymentError() != null) {
-                    payment.setErrorCode(paymentIntent.getLastPaymentError().getCode());
-                    payment.setErrorMessage(paymentIntent.getLastPaymentError().getMessage());
-                }
+            if (payment.getStatus() != PaymentStatus.PENDING) {
+                throw new PaymentProcessingException("Payment is not in PENDING state");
             }
-
-            // 5. Save updated payment
-            payment = paymentRepository.save(payment);
-
-            // 6. Update order status if payment is completed
-            if (payment.getStatus() == PaymentStatus.COMPLETED) {
-                PaymentResponseDTO paymentResponse = mapToPaymentResponse(payment);
-                orderServiceClient.updateOrderPaymentStatus(payment.getOrderId(), paymentResponse);
+            if (payment.getPaymentIntentId() == null) {
+                throw new PaymentProcessingException("Payment has no payment intent");
             }
 
-            // 7. Return response
-            return mapToPaymentResponse(payment);
+            paymentStateMachine.fire(payment, PaymentStatus.PROCESSING);
+            paymentRepository.save(payment);
+            return payment.getPaymentIntentId();
+        });
 
+        // 2. Confirm payment intent with Stripe
+        PaymentIntent paymentIntent;
+        try {
+            paymentIntent = stripeService.confirmPaymentIntent(paymentIntentId, paymentMethodId);
         } catch (Exception e) {
-            // Update payment status to FAILED
-            payment.setStatus(PaymentStatus.FAILED);
-            payment.setErrorMessage(e.getMessage());
-            paymentRepository.save(payment);
+            if (isOutcomeUnknown(e)) {
+                // Stripe may have charged; leave it PROCESSING for the reconciliation job to look up
+                log.warn("Outcome of confirming payment {} is unknown, leaving it for reconciliation: {}",
+                        paymentId, e.getMessage());
+                throw new PaymentGatewayException("Payment outcome is not known yet: " + e.getMessage(), e);
+            }
+
+            // Update payment status to FAILED, unless it already reached a state FAILED can't follow
+            transactionTemplate.executeWithoutResult(status -> {
+                Payment payment = getPaymentEntityForUpdate(paymentId);
+                if (paymentStateMachine.canTransition(payment.getStatus(), PaymentStatus.FAILED)) {
+                    paymentStateMachine.fire(payment, PaymentStatus.FAILED);
+                }
+                payment.setErrorMessage(e.getMessage());
+                paymentRepository.save(payment);
+            });
 
             throw new PaymentProcessingException("Failed to process payment: " + e.getMessage(), e);
         }
+
+        // 3. Apply the result; the Order Service hears about it from the payment events
+        return applyPaymentIntent(paymentId, paymentIntent);
     }
 
     @Override
@@ -213,131 +214,83 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    @Transactional
     public PaymentResponseDTO updatePaymentStatus(String paymentId, PaymentStatus status) {
         log.debug("Updating payment ID: {} to status: {}", paymentId, status);
 
-        Payment payment = getPaymentEntity(paymentId);
-
-        // Validate status transition
-        validateStatusTransition(payment.getStatus(), status);
-
-        payment.setStatus(status);
-
-        if (status == PaymentStatus.COMPLETED) {
-            payment.setProcessedAt(LocalDateTime.now());
-        }
+        return transactionTemplate.execute(tx -> {
+            Payment payment = getPaymentEntityForUpdate(paymentId);
 
-        payment = paymentRepository.save(payment);
+            // Validate and apply the transition (processedAt is a state machine action;
+            // the payment event for the Order Service is recorded with it)
+            paymentStateMachine.fire(payment, status);
 
-        // Update order status if payment status changes
-        if (status == PaymentStatus.COMPLETED || status == PaymentStatus.FAILED ||
-                status == PaymentStatus.CANCELLED || status == PaymentStatus.REFUNDED) {
-
-            PaymentResponseDTO paymentResponse = mapToPaymentResponse(payment);
-            orderServiceClient.updateOrderPaymentStatus(payment.getOrderId(), paymentResponse);
-        }
-
-        return mapToPaymentResponse(payment);
+            return mapToPaymentResponse(paymentRepository.save(payment));
+        });
     }
 
     @Override
-    @Transactional
     public PaymentResponseDTO cancelPayment(String paymentId) {
         log.debug("Cancelling payment ID: {}", paymentId);
 
         Payment payment = getPaymentEntity(paymentId);
 
-        if (payment.getStatus() != PaymentStatus.PENDING && payment.getStatus() != PaymentStatus.PROCESSING) {
+        if (!paymentStateMachine.canTransition(payment.getStatus(), PaymentStatus.CANCELLED)) {
             throw new PaymentProcessingException("Payment cannot be cancelled in " + payment.getStatus() + " state");
         }
 
+        // Cancel payment intent with Stripe if exists; cancelling twice is rejected by Stripe,
+        // but then the intent is cancelled either way
         try {
-            // Cancel payment intent with Stripe if exists
             if (payment.getPaymentIntentId() != null) {
                 stripeService.cancelPaymentIntent(payment.getPaymentIntentId());
             }
-
-            // Update payment status
-            payment.setStatus(PaymentStatus.CANCELLED);
-            payment = paymentRepository.save(payment);
-
-            // Update order status
-            PaymentResponseDTO paymentResponse = mapToPaymentResponse(payment);
-            orderServiceClient.updateOrderPaymentStatus(payment.getOrderId(), paymentResponse);
-
-            return paymentResponse;
-
         } catch (Exception e) {
             throw new PaymentProcessingException("Failed to cancel payment: " + e.getMessage(), e);
         }
+
+        // Update payment status, re-checked under the lock in case it settled meanwhile
+        return transactionTemplate.execute(status -> {
+            Payment locked = getPaymentEntityForUpdate(paymentId);
+            if (!paymentStateMachine.canTransition(locked.getStatus(), PaymentStatus.CANCELLED)) {
+                throw new PaymentProcessingException("Payment cannot be cancelled in " + locked.getStatus() + " state");
+            }
+            paymentStateMachine.fire(locked, PaymentStatus.CANCELLED);
+            return mapToPaymentResponse(paymentRepository.save(locked));
+        });
     }
 
     @Override
-    @Transactional
     public RefundResponseDTO createRefund(RefundRequestDTO refundRequest) {
         log.debug("Creating refund for payment ID: {}, amount: {}", refundRequest.getPaymentId(), refundRequest.getAmount());
 
-        Payment payment = getPaymentEntity(refundRequest.getPaymentId());
-
-        // Validate payment status
-        if (payment.getStatus() != PaymentStatus.COMPLETED) {
-            throw new PaymentProcessingException("Payment must be in COMPLETED state to refund");
-        }
-
-        // Validate refund amount
-        BigDecimal availableAmount = getAvailableRefundAmount(refundRequest.getPaymentId());
-        if (refundRequest.getAmount().compareTo(availableAmount) > 0) {
-            throw new PaymentProcessingException("Refund amount exceeds available amount");
-        }
-
-        // Create refund entity
-        Refund refund = new Refund();
-        refund.setRefundId(generateRefundId());
-        refund.setPayment(payment);
-        refund.setAmount(refundRequest.getAmount());
-        refund.setReason(refundRequest.getReason());
-        refund.setStatus(com.ecommerce.paymentservice.entity.RefundStatus.PENDING);
-        refund.setMetadata(refundRequest.getMetadata());
-
-        // Save refund
-        Refund savedRefund = refundRepository.save(refund);
-        log.debug("Saved refund with ID: {}", savedRefund.getRefundId());
-
-        try {
-            // Process refund with Stripe
-            com.stripe.model.Refund stripeRefund = stripeService.createRefund(
-                    refundRequest, payment.getChargeId());
-
-            // Update refund with Stripe refund ID
-            savedRefund.setRefundIntentId(stripeRefund.getId());
-            savedRefund.setStatus(com.ecommerce.paymentservice.entity.RefundStatus.COMPLETED);
-            savedRefund.setProcessedAt(LocalDateTime.now());
-            savedRefund = refundRepository.save(savedRefund);
-
-            // Update payment status
-            if (availableAmount.subtract(refundRequest.getAmount()).compareTo(BigDecimal.ZERO) <= 0) {
-                payment.setStatus(PaymentStatus.REFUNDED);
-            } else {
-                payment.setStatus(PaymentStatus.PARTIALLY_REFUNDED);
+        // 1. Reserve the amount with one guarded update and save the refund as PROCESSING. The
+        // reservation holds while the refund is in flight, so concurrent refunds can't exceed the payment.
+        Refund savedRefund = transactionTemplate.execute(status -> {
+            boolean reserved = paymentRepository.reserveRefund(refundRequest.getPaymentId(),
+                    refundRequest.getAmount(), REFUNDABLE_STATUSES) == 1;
+            Payment payment = getPaymentEntity(refundRequest.getPaymentId());
+
+            if (!reserved) {
+                // Validate payment status
+                if (!REFUNDABLE_STATUSES.contains(payment.getStatus())) {
+                    throw new PaymentProcessingException("Payment must be in COMPLETED state to refund");
+                }
+                throw new PaymentProcessingException("Refund amount exceeds available amount");
             }
 
-            payment = paymentRepository.save(payment);
-
-            // Update order status
-            PaymentResponseDTO paymentResponse = mapToPaymentResponse(payment);
-            orderServiceClient.updateOrderPaymentStatus(payment.getOrderId(), paymentResponse);
-
-            return mapToRefundResponse(savedRefund);
-
-        } catch (Exception e) {
-            // Update refund status to FAILED
-            savedRefund.setStatus(com.ecommerce.paymentservice.entity.RefundStatus.FAILED);
-            savedRefund.setErrorMessage(e.getMessage());
-            refundRepository.save(savedRefund);
+            // Create refund entity
+            Refund refund = new Refund();
+            refund.setRefundId(idGenerator.next("REF"));
+            refund.setPayment(payment);
+            refund.setAmount(refundRequest.getAmount());
+            refund.setReason(refundRequest.getReason());
+            refund.setStatus(RefundStatus.PROCESSING);
+            refund.setMetadata(refundRequest.getMetadata());
+            return refundRepository.save(refund);
+        });
+        log.debug("Saved refund with ID: {}", savedRefund.getRefundId());
 
-            throw new PaymentProcessingException("Failed to process refund: " + e.getMessage(), e);
-        }
+        return submitRefund(savedRefund.getRefundId(), refundRequest, savedRefund.getPayment().getChargeId());
     }
 
     @Override
@@ -365,29 +318,254 @@ public class PaymentServiceImpl implements PaymentService {
 
         Payment payment = getPaymentEntity(paymentId);
 
-        if (payment.getStatus() != PaymentStatus.COMPLETED &&
-                payment.getStatus() != PaymentStatus.PARTIALLY_REFUNDED) {
+        if (!REFUNDABLE_STATUSES.contains(payment.getStatus())) {
             return BigDecimal.ZERO;
         }
 
-        // Calculate total refunded amount
-        BigDecimal refundedAmount = payment.getRefunds().stream()
-                .filter(r -> r.getStatus() == com.ecommerce.paymentservice.entity.RefundStatus.COMPLETED)
-                .map(Refund::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Calculate available amount
-        return payment.getAmount().subtract(refundedAmount);
+        // Refunds still being processed count as taken
+        return payment.getAmount()
+                .subtract(payment.getRefundedAmount())
+                .subtract(payment.getPendingRefundAmount());
     }
 
     @Override
     public boolean processWebhook(String payload, String signature) {
         log.debug("Processing webhook with signature: {}", signature);
-        return stripeService.processWebhookEvent(payload, signature);
+        // Only verified and stored here; the inbox workers apply it
+        stripeWebhookInbox.accept(payload, signature);
+        return true;
+    }
+
+    @Override
+    public PaymentResponseDTO reconcilePayment(String paymentId) {
+        log.debug("Reconciling payment ID: {}", paymentId);
+
+        Payment payment = getPaymentEntity(paymentId);
+        if (payment.getStatus() != PaymentStatus.PROCESSING) {
+            return transactionTemplate.execute(status -> mapToPaymentResponse(getPaymentEntity(paymentId)));
+        }
+
+        PaymentIntent paymentIntent = stripeService.retrievePaymentIntent(payment.getPaymentIntentId());
+        PaymentResponseDTO response = applyPaymentIntent(paymentId, paymentIntent);
+        if (response.getStatus() != PaymentStatus.PROCESSING) {
+            log.info("Reconciled payment {} to {}", paymentId, response.getStatus());
+        }
+        return response;
+    }
+
+    @Override
+    public RefundResponseDTO reconcileRefund(String refundId) {
+        log.debug("Reconciling refund ID: {}", refundId);
+
+        Refund refund = transactionTemplate.execute(status -> {
+            Refund loaded = getRefundEntity(refundId);
+            Hibernate.initialize(loaded.getPayment());
+            return loaded;
+        });
+        if (refund.getStatus() != RefundStatus.PROCESSING) {
+            return mapToRefundResponse(refund);
+        }
+
+        // Same parameters and idempotency key as the first attempt, so Stripe answers with the
+        // refund it already made instead of refunding twice
+        Payment payment = refund.getPayment();
+        RefundRequestDTO refundRequest = new RefundRequestDTO(
+                payment.getPaymentId(), refund.getAmount(), refund.getReason(), refund.getMetadata());
+
+        RefundResponseDTO response = submitRefund(refundId, refundRequest, payment.getChargeId());
+        log.info("Reconciled refund {} to {}", refundId, response.getStatus());
+        return response;
+    }
+
+    @Override
+    public PaymentIntentState lookUpPaymentIntent(String paymentIntentId) {
+        return withReceipt(stripeService.retrievePaymentIntent(paymentIntentId));
+    }
+
+    @Override
+    public List<PaymentResponseDTO> reconcilePayments(Map<String, PaymentIntentState> intentStates) {
+        if (intentStates.isEmpty()) {
+            return List.of();
+        }
+
+        return transactionTemplate.execute(status -> {
+            // Locked in ID order, so concurrent chunks can't deadlock
+            List<Payment> payments = paymentRepository.findByPaymentIdInForUpdate(intentStates.keySet());
+            List<PaymentResponseDTO> changed = new ArrayList<>();
+            for (Payment payment : payments) {
+                PaymentStatus before = payment.getStatus();
+                applyIntentState(payment, intentStates.get(payment.getPaymentId()));
+                if (payment.getStatus() != before) {
+                    changed.add(mapToPaymentResponse(payment));
+                }
+            }
+            paymentRepository.saveAll(payments);
+            return changed;
+        });
+    }
+
+    @Override
+    public int failUnfinishedPayments(Collection<String> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return 0;
+        }
+
+        Integer failed = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Payment payment : paymentRepository.findByPaymentIdInForUpdate(paymentIds)) {
+                // Got its payment intent after all, or moved on
+                if (payment.getStatus() != PaymentStatus.PENDING || payment.getPaymentIntentId() != null) {
+                    continue;
+                }
+                payment.setErrorMessage("Payment setup did not finish");
+                paymentStateMachine.fire(payment, PaymentStatus.FAILED);
+                paymentRepository.save(payment);
+                count++;
+            }
+            return count;
+        });
+        return failed != null ? failed : 0;
     }
 
     // Helper methods
 
+    /**
+     * Submits a PROCESSING refund to Stripe and records the result. An unknown outcome leaves the
+     * refund PROCESSING, keeping its amount reserved until the reconciliation job retries it.
+     */
+    private RefundResponseDTO submitRefund(String refundId, RefundRequestDTO refundRequest, String chargeId) {
+        // 2. Process refund with Stripe, keyed by refund so retries never refund twice
+        com.stripe.model.Refund stripeRefund;
+        try {
+            stripeRefund = stripeService.createRefund(refundRequest, chargeId, refundId);
+        } catch (Exception e) {
+            if (isOutcomeUnknown(e)) {
+                log.warn("Outcome of refund {} is unknown, leaving it for reconciliation: {}", refundId, e.getMessage());
+                throw new PaymentGatewayException("Refund outcome is not known yet: " + e.getMessage(), e);
+            }
+            failRefund(refundId, e.getMessage());
+            throw new PaymentProcessingException("Failed to process refund: " + e.getMessage(), e);
+        }
+
+        if ("failed".equals(stripeRefund.getStatus()) || "canceled".equals(stripeRefund.getStatus())) {
+            failRefund(refundId, stripeRefund.getFailureReason());
+            throw new PaymentProcessingException("Failed to process refund: " + stripeRefund.getFailureReason());
+        }
+
+        // 3. Complete the refund, move its amount from reserved to refunded and the payment to
+        // (partially) refunded. A retry that lost the race to complete it changes nothing.
+        return transactionTemplate.execute(status -> {
+            if (refundRepository.markCompleted(refundId, stripeRefund.getId(), LocalDateTime.now()) == 1) {
+                Refund completed = getRefundEntity(refundId);
+                Long paymentDbId = completed.getPayment().getId();
+                if (paymentRepository.completeRefund(paymentDbId, completed.getAmount()) == 0) {
+                    throw new IllegalStateException("Refund " + refundId + " would exceed the payment amount");
+                }
+
+                // The update above holds the payment's row lock, so the totals read here are current
+                Payment payment = paymentRepository.findById(paymentDbId).orElseThrow();
+                PaymentStatus target = payment.getRefundedAmount().compareTo(payment.getAmount()) >= 0
+                        ? PaymentStatus.REFUNDED : PaymentStatus.PARTIALLY_REFUNDED;
+                if (payment.getStatus() != target && paymentStateMachine.canTransition(payment.getStatus(), target)) {
+                    paymentStateMachine.fire(payment, target);
+                    paymentRepository.save(payment);
+                }
+            }
+            return mapToRefundResponse(getRefundEntity(refundId));
+        });
+    }
+
+    private void failRefund(String refundId, String errorMessage) {
+        // Releases the reserved amount, once, whoever fails the refund first
+        transactionTemplate.executeWithoutResult(status -> {
+            if (refundRepository.markFailed(refundId, errorMessage, LocalDateTime.now()) == 1) {
+                Refund refund = getRefundEntity(refundId);
+                paymentRepository.releaseRefund(refund.getPayment().getId(), refund.getAmount());
+            }
+        });
+    }
+
+    /**
+     * Applies the state of a payment intent to a PROCESSING payment in its own transaction
+     */
+    private PaymentResponseDTO applyPaymentIntent(String paymentId, PaymentIntent paymentIntent) {
+        // Charge details are fetched before the transaction is opened
+        PaymentIntentState intentState = withReceipt(paymentIntent);
+
+        return transactionTemplate.execute(status -> {
+            Payment payment = getPaymentEntityForUpdate(paymentId);
+            applyIntentState(payment, intentState);
+            return mapToPaymentResponse(paymentRepository.save(payment));
+        });
+    }
+
+    private PaymentIntentState withReceipt(PaymentIntent paymentIntent) {
+        String chargeId = "succeeded".equals(paymentIntent.getStatus()) ? paymentIntent.getLatestCharge() : null;
+        String receiptUrl = null;
+        if (chargeId != null) {
+            try {
+                Charge charge = stripeService.retrieveCharge(chargeId);
+                receiptUrl = charge.getReceiptUrl();
+            } catch (Exception e) {
+                // Still set the charge ID even if we couldn't get the receipt URL
+                log.error("Error retrieving charge details: {}", e.getMessage());
+            }
+        }
+        return new PaymentIntentState(paymentIntent, receiptUrl);
+    }
+
+    /**
+     * Moves a locked PROCESSING payment to the status of its payment intent. Intents still waiting
+     * on the customer or the bank leave it PROCESSING, as does a payment settled meanwhile by a
+     * webhook or the reconciliation job.
+     */
+    private void applyIntentState(Payment payment, PaymentIntentState intentState) {
+        if (payment.getStatus() != PaymentStatus.PROCESSING) {
+            return;
+        }
+
+        PaymentIntent paymentIntent = intentState.paymentIntent();
+        switch (paymentIntent.getStatus()) {
+            case "succeeded" -> {
+                // Set before the transition, which records the payment event
+                payment.setChargeId(paymentIntent.getLatestCharge());
+                payment.setReceiptUrl(intentState.receiptUrl());
+                paymentStateMachine.fire(payment, PaymentStatus.COMPLETED);
+            }
+            // 3D Secure, other customer action or an asynchronous payment method;
+            // no status change, the client or a webhook moves it on
+            case "requires_action", "requires_confirmation", "processing" -> {
+            }
+            case "canceled" -> paymentStateMachine.fire(payment, PaymentStatus.CANCELLED);
+            default -> {
+                // Payment failed or other status
+                if (paymentIntent.getLastPaymentError() != null) {
+                    payment.setErrorCode(paymentIntent.getLastPaymentError().getCode());
+                    payment.setErrorMessage(paymentIntent.getLastPaymentError().getMessage());
+                }
+
+                paymentStateMachine.fire(payment, PaymentStatus.FAILED);
+            }
+        }
+    }
+
+    /**
+     * Whether a failed Stripe call may still have taken effect: the connection broke, or Stripe
+     * failed on its side. Errors Stripe answered with a 4xx definitely changed nothing.
+     */
+    private static boolean isOutcomeUnknown(Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof StripeException stripeException && stripeException.getStatusCode() != null) {
+            return stripeException.getStatusCode() >= 500;
+        }
+        return true;
+    }
+
+    private Payment getPaymentEntityForUpdate(String paymentId) {
+        return paymentRepository.findByPaymentIdForUpdate(paymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with ID: " + paymentId));
+    }
+
     private Payment getPaymentEntity(String paymentId) {
         return paymentRepository.findByPaymentId(paymentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found with ID: " + paymentId));
@@ -441,52 +619,4 @@ public class PaymentServiceImpl implements PaymentService {
         response.setProcessedAt(refund.getProcessedAt());
         return response;
     }
-
-    private String generatePaymentId() {
-        return "PAY-" + UUID.randomUUID().toString().substring(0, 8) + "-" +
-                RandomStringUtils.randomAlphanumeric(4).toUpperCase();
-    }
-
-    private String generateRefundId() {
-        return "REF-" + UUID.randomUUID().toString().substring(0, 8) + "-" +
-                RandomStringUtils.randomAlphanumeric(4).toUpperCase();
-    }
-
-    private void validateStatusTransition(PaymentStatus currentStatus, PaymentStatus newStatus) {
-        // This is a simplified validation - in a real system, you'd have a more sophisticated state machine
-        switch (currentStatus) {
-            case PENDING:
-                if (newStatus != PaymentStatus.PROCESSING &&
-                        newStatus != PaymentStatus.COMPLETED &&
-                        newStatus != PaymentStatus.FAILED &&
-                        newStatus != PaymentStatus.CANCELLED) {
-                    throw new PaymentProcessingException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case PROCESSING:
-                if (newStatus != PaymentStatus.COMPLETED &&
-                        newStatus != PaymentStatus.FAILED &&
-                        newStatus != PaymentStatus.CANCELLED) {
-                    throw new PaymentProcessingException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case COMPLETED:
-                if (newStatus != PaymentStatus.REFUNDED &&
-                        newStatus != PaymentStatus.PARTIALLY_REFUNDED) {
-                    throw new PaymentProcessingException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case PARTIALLY_REFUNDED:
-                if (newStatus != PaymentStatus.REFUNDED) {
-                    throw new PaymentProcessingException("Invalid status transition from " + currentStatus + " to " + newStatus);
-                }
-                break;
-            case FAILED:
-            case CANCELLED:
-            case REFUNDED:
-                throw new PaymentProcessingException("Cannot change status from " + currentStatus);
-            default:
-                throw new PaymentProcessingException("Unknown payment status: " + currentStatus);
-        }
-    }
 }
@@ -3,6 +3,7 @@ package com.ecommerce.paymentservice.service;
 import com.ecommerce.paymentservice.dto.PaymentRequestDTO;
 import com.ecommerce.paymentservice.dto.RefundRequestDTO;
 import com.stripe.model.Charge;
+import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
 
@@ -15,9 +16,10 @@ public interface StripeService {
      * Creates a payment intent with Stripe
      *
      * @param paymentRequest The payment request containing amount and metadata
+     * @param idempotencyKey Stripe idempotency key; retrying with it returns the same intent
      * @return The created payment intent
      */
-    PaymentIntent createPaymentIntent(PaymentRequestDTO paymentRequest);
+    PaymentIntent createPaymentIntent(PaymentRequestDTO paymentRequest, String idempotencyKey);
 
     /**
      * Confirms a payment intent with Stripe
@@ -59,16 +61,19 @@ public interface StripeService {
      * @param amount The amount to refund
      * @param reason The reason for the refund
      * @param metadata Additional metadata
+     * @param idempotencyKey Stripe idempotency key; retrying with it returns the same refund
      * @return The created refund
      */
-    Refund createRefund(String chargeId, BigDecimal amount, String reason, Map<String, String> metadata);
+    Refund createRefund(String chargeId, BigDecimal amount, String reason, Map<String, String> metadata,
+                        String idempotencyKey);
     /**
      * Creates a refund in Stripe
      *
      * @param refundRequest The refund request containing chargeId, amount, and reason
+     * @param idempotencyKey Stripe idempotency key; retrying with it returns the same refund
      * @return The created refund
      */
-    Refund createRefund(RefundRequestDTO refundRequest, String chargeId);
+    Refund createRefund(RefundRequestDTO refundRequest, String chargeId, String idempotencyKey);
 
     /**
      * Retrieves a refund from Stripe
@@ -79,11 +84,28 @@ public interface StripeService {
     Refund retrieveRefund(String refundId);
 
     /**
-     * Validates and processes a webhook event from Stripe
+     * Verifies a webhook's signature and parses its event
      *
      * @param payload The webhook payload
      * @param sigHeader The signature header
-     * @return True if the webhook was processed successfully
+     * @return The verified event
+     * @throws com.ecommerce.paymentservice.exception.PaymentProcessingException if the signature is invalid
      */
-    boolean processWebhookEvent(String payload, String sigHeader);
+    Event constructWebhookEvent(String payload, String sigHeader);
+
+    /**
+     * Parses the payload of a webhook whose signature was verified when it was received
+     *
+     * @param payload The stored webhook payload
+     * @return The event
+     */
+    Event parseWebhookEvent(String payload);
+
+    /**
+     * Applies a webhook event to our payments. Safe to call again for the same event.
+     *
+     * @param event The verified event
+     * @throws RuntimeException if the event could not be applied and should be retried
+     */
+    void handleWebhookEvent(Event event);
 }
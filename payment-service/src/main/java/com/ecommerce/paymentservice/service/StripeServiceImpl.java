@@ -1,16 +1,21 @@
 package com.ecommerce.paymentservice.service;
 
+import com.ecommerce.common.statemachine.StateMachine;
 import com.ecommerce.paymentservice.dto.PaymentRequestDTO;
 import com.ecommerce.paymentservice.dto.RefundRequestDTO;
 import com.ecommerce.paymentservice.entity.Payment;
 import com.ecommerce.paymentservice.entity.PaymentStatus;
 import com.ecommerce.paymentservice.exception.PaymentGatewayException;
 import com.ecommerce.paymentservice.exception.PaymentProcessingException;
+import com.ecommerce.paymentservice.gateway.PaymentGateway;
 import com.ecommerce.paymentservice.repository.PaymentRepository;
 import com.stripe.Stripe;
+import com.google.gson.JsonParseException;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.*;
+import com.stripe.net.ApiResource;
+import com.stripe.net.RequestOptions;
 import com.stripe.net.Webhook;
 import com.stripe.param.PaymentIntentConfirmParams;
 import com.stripe.param.PaymentIntentCreateParams;
@@ -19,6 +24,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -31,7 +37,10 @@ import java.util.Optional;
 @Slf4j
 public class StripeServiceImpl implements StripeService {
 
+    private final PaymentGateway paymentGateway;
     private final PaymentRepository paymentRepository;
+    private final StateMachine<PaymentStatus, Payment> paymentStateMachine;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${payment.stripe.webhook-secret}")
     private String webhookSecret;
@@ -40,7 +49,7 @@ public class StripeServiceImpl implements StripeService {
     private String defaultCurrency;
 
     @Override
-    public PaymentIntent createPaymentIntent(PaymentRequestDTO paymentRequest) {
+    public PaymentIntent createPaymentIntent(PaymentRequestDTO paymentRequest, String idempotencyKey) {
         try {
             log.debug("Creating payment intent for amount: {}", paymentRequest.getAmount());
 
@@ -70,7 +79,7 @@ public class StripeServiceImpl implements StripeService {
                     );
 
             // Create the PaymentIntent
-            PaymentIntent paymentIntent = PaymentIntent.create(paramsBuilder.build());
+            PaymentIntent paymentIntent = paymentGateway.createPaymentIntent(paramsBuilder.build(), idempotent(idempotencyKey));
             log.debug("Created payment intent: {}", paymentIntent.getId());
 
             return paymentIntent;
@@ -86,13 +95,11 @@ public class StripeServiceImpl implements StripeService {
         try {
             log.debug("Confirming payment intent: {} with payment method: {}", paymentIntentId, paymentMethodId);
 
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-
             PaymentIntentConfirmParams params = PaymentIntentConfirmParams.builder()
                     .setPaymentMethod(paymentMethodId)
                     .build();
 
-            PaymentIntent confirmedIntent = paymentIntent.confirm(params);
+            PaymentIntent confirmedIntent = paymentGateway.confirmPaymentIntent(paymentIntentId, params);
             log.debug("Confirmed payment intent: {}, status: {}", confirmedIntent.getId(), confirmedIntent.getStatus());
 
             return confirmedIntent;
@@ -108,7 +115,7 @@ public class StripeServiceImpl implements StripeService {
         try {
             log.debug("Retrieving payment intent: {}", paymentIntentId);
 
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
+            PaymentIntent paymentIntent = paymentGateway.retrievePaymentIntent(paymentIntentId);
             log.debug("Retrieved payment intent: {}, status: {}", paymentIntent.getId(), paymentIntent.getStatus());
 
             return paymentIntent;
@@ -124,8 +131,7 @@ public class StripeServiceImpl implements StripeService {
         try {
             log.debug("Cancelling payment intent: {}", paymentIntentId);
 
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-            PaymentIntent cancelledIntent = paymentIntent.cancel();
+            PaymentIntent cancelledIntent = paymentGateway.cancelPaymentIntent(paymentIntentId);
 
             log.debug("Cancelled payment intent: {}, status: {}", cancelledIntent.getId(), cancelledIntent.getStatus());
 
@@ -142,7 +148,7 @@ public class StripeServiceImpl implements StripeService {
         try {
             log.debug("Retrieving charge: {}", chargeId);
 
-            Charge charge = Charge.retrieve(chargeId);
+            Charge charge = paymentGateway.retrieveCharge(chargeId);
             log.debug("Retrieved charge: {}, status: {}", charge.getId(), charge.getStatus());
 
             return charge;
@@ -154,7 +160,8 @@ public class StripeServiceImpl implements StripeService {
     }
 
     @Override
-    public Refund createRefund(String chargeId, BigDecimal amount, String reason, Map<String, String> metadata) {
+    public Refund createRefund(String chargeId, BigDecimal amount, String reason, Map<String, String> metadata,
+                               String idempotencyKey) {
         try {
             log.debug("Creating refund for charge: {}, amount: {}", chargeId, amount);
 
@@ -182,7 +189,7 @@ public class StripeServiceImpl implements StripeService {
                 paramsBuilder.putAllMetadata(metadata);
             }
 
-            Refund refund = Refund.create(paramsBuilder.build());
+            Refund refund = paymentGateway.createRefund(paramsBuilder.build(), idempotent(idempotencyKey));
             log.debug("Created refund: {}, status: {}", refund.getId(), refund.getStatus());
 
             return refund;
@@ -193,7 +200,7 @@ public class StripeServiceImpl implements StripeService {
         }
     }
     @Override
-    public Refund createRefund(RefundRequestDTO refundRequest, String chargeId) {
+    public Refund createRefund(RefundRequestDTO refundRequest, String chargeId, String idempotencyKey) {
         Map<String, String> metadata = new HashMap<>();
 
         if (refundRequest.getMetadata() != null && !refundRequest.getMetadata().isEmpty()) {
@@ -204,7 +211,8 @@ public class StripeServiceImpl implements StripeService {
                 chargeId,
                 refundRequest.getAmount(),
                 refundRequest.getReason(),
-                metadata
+                metadata,
+                idempotencyKey
         );
     }
 
@@ -213,7 +221,7 @@ public class StripeServiceImpl implements StripeService {
         try {
             log.debug("Retrieving refund: {}", refundId);
 
-            Refund refund = Refund.retrieve(refundId);
+            Refund refund = paymentGateway.retrieveRefund(refundId);
             log.debug("Retrieved refund: {}, status: {}", refund.getId(), refund.getStatus());
 
             return refund;
@@ -225,128 +233,144 @@ public class StripeServiceImpl implements StripeService {
     }
 
     @Override
-    public boolean processWebhookEvent(String payload, String sigHeader) {
+    public Event constructWebhookEvent(String payload, String sigHeader) {
         if (sigHeader == null || payload == null) {
             throw new PaymentProcessingException("Missing payload or signature header");
         }
 
         try {
-            log.debug("Processing webhook with signature: {}", sigHeader);
-
             // Verify the event using the webhook secret
             Event event = Webhook.constructEvent(payload, sigHeader, webhookSecret);
-            log.debug("Webhook event type: {}", event.getType());
-
-            // Handle specific event types
-            switch (event.getType()) {
-                case "payment_intent.succeeded":
-                    handlePaymentIntentSucceeded(event);
-                    break;
-
-                case "payment_intent.payment_failed":
-                    handlePaymentIntentFailed(event);
-                    break;
-
-                case "charge.refunded":
-                    handleChargeRefunded(event);
-                    break;
-
-                default:
-                    log.debug("Unhandled event type: {}", event.getType());
-                    break;
-            }
-
-            return true;
+            log.debug("Webhook event: {}, type: {}", event.getId(), event.getType());
+            return event;
 
         } catch (SignatureVerificationException e) {
             log.error("Invalid signature in webhook: {}", e.getMessage(), e);
             throw new PaymentProcessingException("Invalid webhook signature: " + e.getMessage(), e);
-        } catch (Exception e) {
-            log.error("Error processing webhook: {}", e.getMessage(), e);
-            throw new PaymentProcessingException("Failed to process webhook: " + e.getMessage(), e);
+        } catch (JsonParseException e) {
+            log.error("Malformed webhook payload: {}", e.getMessage());
+            throw new PaymentProcessingException("Malformed webhook payload", e);
         }
     }
 
-    // Helper method to update payment status when a payment succeeds
+    @Override
+    public Event parseWebhookEvent(String payload) {
+        return ApiResource.GSON.fromJson(payload, Event.class);
+    }
+
+    @Override
+    public void handleWebhookEvent(Event event) {
+        // Handle specific event types
+        switch (event.getType()) {
+            case "payment_intent.succeeded":
+                handlePaymentIntentSucceeded(event);
+                break;
+
+            case "payment_intent.payment_failed":
+                handlePaymentIntentFailed(event);
+                break;
+
+            case "charge.refunded":
+                handleChargeRefunded(event);
+                break;
+
+            default:
+                log.debug("Unhandled event type: {}", event.getType());
+                break;
+        }
+    }
+
+    // Helper method to update payment status when a payment succeeds.
+    // Failures propagate so the webhook inbox retries the event.
     private void handlePaymentIntentSucceeded(Event event) {
-        try {
-            PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer().getObject().get();
+        PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer().getObject().orElse(null);
 
-            if (paymentIntent == null) {
-                log.error("Failed to deserialize payment intent from webhook");
-                return;
+        if (paymentIntent == null) {
+            log.error("Failed to deserialize payment intent from webhook");
+            return;
+        }
+
+        String paymentIntentId = paymentIntent.getId();
+        log.debug("Payment succeeded for intent: {}", paymentIntentId);
+
+        // Get the charge (there should be only one for a PaymentIntent) before locking the payment
+        String chargeId = paymentIntent.getLatestCharge();
+        String receiptUrl = null;
+        if (chargeId != null) {
+            try {
+                receiptUrl = paymentGateway.retrieveCharge(chargeId).getReceiptUrl();
+            } catch (Exception e) {
+                // Still set the charge ID even if we couldn't get the receipt URL
+                log.error("Error retrieving charge: {}", e.getMessage());
             }
+        }
+        String chargeReceiptUrl = receiptUrl;
 
-            String paymentIntentId = paymentIntent.getId();
-            log.debug("Payment succeeded for intent: {}", paymentIntentId);
-
-            // Find the payment in our database
-            Optional<Payment> paymentOpt = paymentRepository.findByPaymentIntentId(paymentIntentId);
-
-            if (paymentOpt.isPresent()) {
-                Payment payment = paymentOpt.get();
-                payment.setStatus(PaymentStatus.COMPLETED);
-
-                // Get the first charge (there should be only one for a PaymentIntent)
-                if (paymentIntent.getLatestCharge() != null) {
-                    String chargeId = paymentIntent.getLatestCharge();
-                    try {
-                        Charge charge = Charge.retrieve(chargeId);
-                        payment.setChargeId(chargeId);
-                        payment.setReceiptUrl(charge.getReceiptUrl());
-                    } catch (Exception e) {
-                        log.error("Error retrieving charge: {}", e.getMessage());
-                        // Still set the charge ID even if we couldn't get the receipt URL
-                        payment.setChargeId(chargeId);
-                    }
-                }
+        // The transition records the payment event, so it shares a transaction with the update
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<Payment> paymentOpt = paymentRepository.findByPaymentIntentIdForUpdate(paymentIntentId);
 
-                paymentRepository.save(payment);
-                log.debug("Updated payment status to COMPLETED for payment ID: {}", payment.getPaymentId());
-            } else {
+            if (paymentOpt.isEmpty()) {
                 log.warn("Payment not found for intent ID: {}", paymentIntentId);
+                return;
             }
+            Payment payment = paymentOpt.get();
 
-        } catch (Exception e) {
-            log.error("Error handling payment intent succeeded event: {}", e.getMessage(), e);
-        }
+            // Redelivered or out-of-order webhook: the payment has already moved on
+            if (!paymentStateMachine.canTransition(payment.getStatus(), PaymentStatus.COMPLETED)) {
+                log.debug("Ignoring success webhook for payment ID: {} in status {}",
+                        payment.getPaymentId(), payment.getStatus());
+                return;
+            }
+            if (chargeId != null) {
+                payment.setChargeId(chargeId);
+                payment.setReceiptUrl(chargeReceiptUrl);
+            }
+            paymentStateMachine.fire(payment, PaymentStatus.COMPLETED);
+
+            paymentRepository.save(payment);
+            log.debug("Updated payment status to COMPLETED for payment ID: {}", payment.getPaymentId());
+        });
     }
 
     // Helper method to update payment status when a payment fails
     private void handlePaymentIntentFailed(Event event) {
-        try {
-            PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer().getObject().get();
+        PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer().getObject().orElse(null);
 
-            if (paymentIntent == null) {
-                log.error("Failed to deserialize payment intent from webhook");
-                return;
-            }
+        if (paymentIntent == null) {
+            log.error("Failed to deserialize payment intent from webhook");
+            return;
+        }
 
-            String paymentIntentId = paymentIntent.getId();
-            log.debug("Payment failed for intent: {}", paymentIntentId);
+        String paymentIntentId = paymentIntent.getId();
+        log.debug("Payment failed for intent: {}", paymentIntentId);
 
-            // Find the payment in our database
-            Optional<Payment> paymentOpt = paymentRepository.findByPaymentIntentId(paymentIntentId);
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<Payment> paymentOpt = paymentRepository.findByPaymentIntentIdForUpdate(paymentIntentId);
 
-            if (paymentOpt.isPresent()) {
-                Payment payment = paymentOpt.get();
-                payment.setStatus(PaymentStatus.FAILED);
+            if (paymentOpt.isEmpty()) {
+                log.warn("Payment not found for intent ID: {}", paymentIntentId);
+                return;
+            }
+            Payment payment = paymentOpt.get();
 
-                // Get error information if available
-                if (paymentIntent.getLastPaymentError() != null) {
-                    payment.setErrorCode(paymentIntent.getLastPaymentError().getCode());
-                    payment.setErrorMessage(paymentIntent.getLastPaymentError().getMessage());
-                }
+            // Redelivered or out-of-order webhook: the payment has already moved on
+            if (!paymentStateMachine.canTransition(payment.getStatus(), PaymentStatus.FAILED)) {
+                log.debug("Ignoring failure webhook for payment ID: {} in status {}",
+                        payment.getPaymentId(), payment.getStatus());
+                return;
+            }
 
-                paymentRepository.save(payment);
-                log.debug("Updated payment status to FAILED for payment ID: {}", payment.getPaymentId());
-            } else {
-                log.warn("Payment not found for intent ID: {}", paymentIntentId);
+            // Get error information if available
+            if (paymentIntent.getLastPaymentError() != null) {
+                payment.setErrorCode(paymentIntent.getLastPaymentError().getCode());
+                payment.setErrorMessage(paymentIntent.getLastPaymentError().getMessage());
             }
+            paymentStateMachine.fire(payment, PaymentStatus.FAILED);
 
-        } catch (Exception e) {
-            log.error("Error handling payment intent failed event: {}", e.getMessage(), e);
-        }
+            paymentRepository.save(payment);
+            log.debug("Updated payment status to FAILED for payment ID: {}", payment.getPaymentId());
+        });
     }
 
     // Helper method to handle refund events
@@ -356,6 +380,13 @@ public class StripeServiceImpl implements StripeService {
         // or PARTIALLY_REFUNDED based on the refund amount
     }
 
+    // Lets a retried create (e.g. by the reconciliation job) return the original object instead of a duplicate
+    private static RequestOptions idempotent(String idempotencyKey) {
+        return idempotencyKey != null
+                ? RequestOptions.builder().setIdempotencyKey(idempotencyKey).build()
+                : RequestOptions.getDefault();
+    }
+
     // Helper method to convert BigDecimal amount to cents for Stripe
     private long convertToCents(BigDecimal amount) {
         return amount.multiply(new BigDecimal("100")).setScale(0, RoundingMode.HALF_UP).longValue();
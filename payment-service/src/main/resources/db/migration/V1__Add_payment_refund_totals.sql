@@ -0,0 +1,22 @@
+-- Running refund totals on payments, kept by guarded updates instead of summing refunds on every call.
+-- On an empty database Hibernate creates the columns afterwards; on one created by ddl-auto they are
+-- added here and filled from the existing refunds.
+DO $$
+BEGIN
+    IF to_regclass('payments') IS NOT NULL THEN
+        ALTER TABLE payments ADD COLUMN IF NOT EXISTS refunded_amount NUMERIC(10, 2) NOT NULL DEFAULT 0;
+        ALTER TABLE payments ADD COLUMN IF NOT EXISTS pending_refund_amount NUMERIC(10, 2) NOT NULL DEFAULT 0;
+
+        IF to_regclass('refunds') IS NOT NULL THEN
+            UPDATE payments p
+            SET refunded_amount = r.completed,
+                pending_refund_amount = r.pending
+            FROM (SELECT payment_id,
+                         COALESCE(SUM(amount) FILTER (WHERE status = 'COMPLETED'), 0) AS completed,
+                         COALESCE(SUM(amount) FILTER (WHERE status IN ('PENDING', 'PROCESSING')), 0) AS pending
+                  FROM refunds
+                  GROUP BY payment_id) r
+            WHERE p.id = r.payment_id;
+        END IF;
+    END IF;
+END $$;
@@ -0,0 +1,14 @@
+-- Lookups by order (order pages, access checks) and by payment intent (Stripe webhooks and
+-- reconciliation), and a payment's refunds. The entities declare the same indexes, so on an empty
+-- database Hibernate creates them with the tables instead.
+DO $$
+BEGIN
+    IF to_regclass('payments') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_payments_order_id ON payments (order_id);
+        CREATE INDEX IF NOT EXISTS idx_payments_payment_intent_id ON payments (payment_intent_id);
+    END IF;
+
+    IF to_regclass('refunds') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_refunds_payment_id ON refunds (payment_id);
+    END IF;
+END $$;
@@ -0,0 +1,12 @@
+-- The reconciliation job pages through payments and refunds of one status in ID order. The entities
+-- declare the same indexes, so on an empty database Hibernate creates them with the tables instead.
+DO $$
+BEGIN
+    IF to_regclass('payments') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_payments_status_id ON payments (status, id);
+    END IF;
+
+    IF to_regclass('refunds') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_refunds_status_id ON refunds (status, id);
+    END IF;
+END $$;
@@ -0,0 +1,8 @@
+-- The payment report export filters by creation date and returns payments in creation order. The
+-- entity declares the same index, so on an empty database Hibernate creates it with the table instead.
+DO $$
+BEGIN
+    IF to_regclass('payments') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_payments_created_at_id ON payments (created_at, id);
+    END IF;
+END $$;
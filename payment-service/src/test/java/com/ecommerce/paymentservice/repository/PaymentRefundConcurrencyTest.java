@@ -0,0 +1,164 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.entity.Payment;
+import com.ecommerce.paymentservice.entity.PaymentMethod;
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent partial refunds of the same payments, together asking for more than was paid, each in
+ * its own transactions as PaymentServiceImpl runs them: reserve, then complete or release. The
+ * guarded updates must never let a payment be over-refunded, and its totals must match the refunds
+ * that went through.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+// Every refund commits on its own thread, so the test can't run inside one transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentRefundConcurrencyTest {
+
+    private static final List<PaymentStatus> REFUNDABLE_STATUSES =
+            List.of(PaymentStatus.COMPLETED, PaymentStatus.PARTIALLY_REFUNDED);
+    private static final BigDecimal PAYMENT_AMOUNT = new BigDecimal("100.00");
+    // Six of these fit in a payment; ten per payment ask for 150% of it
+    private static final BigDecimal REFUND_AMOUNT = new BigDecimal("15.00");
+    private static final int PAYMENTS = 10;
+    private static final int REFUNDS_PER_PAYMENT = 10;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<Payment> payments = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < PAYMENTS; i++) {
+            payments.add(transactionTemplate.execute(status -> paymentRepository.saveAndFlush(newPayment())));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentRepository.deleteAll(payments);
+    }
+
+    @Test
+    void concurrentRefundsNeverExceedThePaymentAndTotalsAddUp() throws Exception {
+        Map<Long, AtomicInteger> completed = new ConcurrentHashMap<>();
+        Map<Long, AtomicInteger> released = new ConcurrentHashMap<>();
+        AtomicInteger attempt = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> refunds = new ArrayList<>();
+        try {
+            for (Payment payment : payments) {
+                completed.put(payment.getId(), new AtomicInteger());
+                released.put(payment.getId(), new AtomicInteger());
+                for (int i = 0; i < REFUNDS_PER_PAYMENT; i++) {
+                    refunds.add(executor.submit(() -> {
+                        start.await();
+                        // 1. Reserve the amount in its own transaction, as before calling Stripe
+                        Integer reserved = transactionTemplate.execute(status -> paymentRepository.reserveRefund(
+                                payment.getPaymentId(), REFUND_AMOUNT, REFUNDABLE_STATUSES));
+                        if (reserved == 0) {
+                            return null;
+                        }
+                        // 2. Every fourth refund fails at Stripe and releases its reservation
+                        if (attempt.incrementAndGet() % 4 == 0) {
+                            transactionTemplate.execute(status ->
+                                    paymentRepository.releaseRefund(payment.getId(), REFUND_AMOUNT));
+                            released.get(payment.getId()).incrementAndGet();
+                        } else {
+                            Integer done = transactionTemplate.execute(status ->
+                                    paymentRepository.completeRefund(payment.getId(), REFUND_AMOUNT));
+                            assertThat(done).isEqualTo(1);
+                            completed.get(payment.getId()).incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> refund : refunds) {
+                refund.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int maxRefunds = PAYMENT_AMOUNT.divideToIntegralValue(REFUND_AMOUNT).intValue();
+        for (Payment payment : payments) {
+            Payment stored = paymentRepository.findById(payment.getId()).orElseThrow();
+            int completedRefunds = completed.get(payment.getId()).get();
+
+            assertThat(stored.getRefundedAmount()).isLessThanOrEqualTo(stored.getAmount());
+            assertThat(stored.getRefundedAmount())
+                    .isEqualByComparingTo(REFUND_AMOUNT.multiply(BigDecimal.valueOf(completedRefunds)));
+            assertThat(stored.getPendingRefundAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+            assertThat(completedRefunds).isLessThanOrEqualTo(maxRefunds);
+            // Released reservations free room for later refunds, so a payment can still fill up
+            assertThat(completedRefunds + released.get(payment.getId()).get()).isGreaterThanOrEqualTo(maxRefunds);
+        }
+    }
+
+    @Test
+    void refundsOfAPaymentThatIsNotRefundableReserveNothing() {
+        Payment pending = transactionTemplate.execute(status -> {
+            Payment payment = newPayment();
+            payment.setStatus(PaymentStatus.PROCESSING);
+            return paymentRepository.saveAndFlush(payment);
+        });
+        payments.add(pending);
+
+        Integer reserved = transactionTemplate.execute(status ->
+                paymentRepository.reserveRefund(pending.getPaymentId(), REFUND_AMOUNT, REFUNDABLE_STATUSES));
+
+        assertThat(reserved).isZero();
+        assertThat(paymentRepository.findById(pending.getId()).orElseThrow().getPendingRefundAmount())
+                .isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    private static Payment newPayment() {
+        Payment payment = new Payment();
+        payment.setPaymentId("PAY-" + UUID.randomUUID());
+        payment.setOrderId("1");
+        payment.setUserId(1L);
+        payment.setAmount(PAYMENT_AMOUNT);
+        payment.setCurrency("USD");
+        payment.setStatus(PaymentStatus.COMPLETED);
+        payment.setPaymentMethod(PaymentMethod.CREDIT_CARD);
+        return payment;
+    }
+}
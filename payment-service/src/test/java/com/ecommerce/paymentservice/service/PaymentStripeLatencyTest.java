@@ -0,0 +1,182 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.config.IdGeneratorConfig;
+import com.ecommerce.paymentservice.config.PaymentStateMachineConfig;
+import com.ecommerce.paymentservice.dto.OrderDTO;
+import com.ecommerce.paymentservice.dto.PaymentRequestDTO;
+import com.ecommerce.paymentservice.dto.PaymentResponseDTO;
+import com.ecommerce.paymentservice.entity.PaymentMethod;
+import com.ecommerce.paymentservice.entity.PaymentStatus;
+import com.ecommerce.paymentservice.event.PaymentEventOutbox;
+import com.ecommerce.paymentservice.event.StripeWebhookInbox;
+import com.ecommerce.paymentservice.repository.PaymentOutboxRepository;
+import com.ecommerce.paymentservice.repository.PaymentRepository;
+import com.stripe.model.PaymentIntent;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+
+/**
+ * Payments created and confirmed while every Stripe call takes two seconds. With three times as
+ * many payments in flight as there are pooled connections, and a connection timeout shorter than
+ * one Stripe call, they all only go through if no connection is held while Stripe answers.
+ */
+@DataJpaTest(properties = {
+        // Own database, so this context's create-drop doesn't touch the one other tests share
+        "spring.datasource.url=jdbc:h2:mem:payment-latency;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.hikari.maximum-pool-size=" + PaymentStripeLatencyTest.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=1000",
+        "payment.stripe.success-url=http://localhost/success",
+        "payment.stripe.cancel-url=http://localhost/cancel"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({PaymentServiceImpl.class, PaymentStateMachineConfig.class, PaymentEventOutbox.class,
+        IdGeneratorConfig.class})
+// Every payment runs on its own thread, so the test can't run inside one transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentStripeLatencyTest {
+
+    static final int POOL_SIZE = 4;
+    private static final int PAYMENTS = POOL_SIZE * 3;
+    private static final long STRIPE_LATENCY_MS = 2000;
+
+    @Autowired
+    private PaymentServiceImpl paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentOutboxRepository outboxRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockBean
+    private StripeService stripeService;
+
+    @MockBean
+    private OrderServiceClient orderServiceClient;
+
+    @MockBean
+    private StripeWebhookInbox stripeWebhookInbox;
+
+    private final AtomicInteger stripeCallsInTransaction = new AtomicInteger();
+    private final CountDownLatch allCreatingIntents = new CountDownLatch(PAYMENTS);
+
+    @BeforeEach
+    void setUp() {
+        given(orderServiceClient.getOrderById(anyString()))
+                .willAnswer(invocation -> new OrderDTO(1L, invocation.getArgument(0), 1L, "CREATED",
+                        new BigDecimal("25.00"), null, "CREDIT_CARD", null));
+
+        willAnswer(invocation -> {
+            allCreatingIntents.countDown();
+            return slowStripeCall(paymentIntent("pi_" + invocation.getArgument(1), "requires_confirmation"));
+        }).given(stripeService).createPaymentIntent(any(PaymentRequestDTO.class), anyString());
+
+        willAnswer(invocation -> slowStripeCall(paymentIntent(invocation.getArgument(0), "succeeded")))
+                .given(stripeService).confirmPaymentIntent(anyString(), anyString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void slowStripeCallsDoNotHoldPooledConnections() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(PAYMENTS);
+        List<Future<PaymentResponseDTO>> payments = new ArrayList<>();
+        long startedAt = System.nanoTime();
+        try {
+            for (int i = 0; i < PAYMENTS; i++) {
+                String orderId = "ORD-" + i;
+                payments.add(executor.submit(() -> {
+                    start.await();
+                    PaymentResponseDTO created = paymentService.createPayment(1L, paymentRequest(orderId));
+                    return paymentService.processPayment(created.getPaymentId(), "pm_card_visa");
+                }));
+            }
+            start.countDown();
+
+            // Every payment is now waiting on Stripe, and none of them keeps a connection meanwhile
+            assertThat(allCreatingIntents.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections())
+                    .isZero();
+
+            for (Future<PaymentResponseDTO> payment : payments) {
+                assertThat(payment.get(30, TimeUnit.SECONDS).getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+        assertThat(stripeCallsInTransaction).hasValue(0);
+        // Two Stripe calls per payment, all payments at once; queueing on the pool would take three times as long
+        assertThat(elapsed).isLessThan(Duration.ofMillis(STRIPE_LATENCY_MS * 2 * 2));
+        assertThat(paymentRepository.findAll())
+                .hasSize(PAYMENTS)
+                .allSatisfy(payment -> assertThat(payment.getStatus()).isEqualTo(PaymentStatus.COMPLETED));
+    }
+
+    private PaymentIntent slowStripeCall(PaymentIntent result) throws InterruptedException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            stripeCallsInTransaction.incrementAndGet();
+        }
+        Thread.sleep(STRIPE_LATENCY_MS);
+        return result;
+    }
+
+    private static PaymentIntent paymentIntent(String id, String status) {
+        PaymentIntent paymentIntent = new PaymentIntent();
+        paymentIntent.setId(id);
+        paymentIntent.setStatus(status);
+        paymentIntent.setClientSecret(id + "_secret");
+        return paymentIntent;
+    }
+
+    private static PaymentRequestDTO paymentRequest(String orderId) {
+        PaymentRequestDTO request = new PaymentRequestDTO();
+        request.setOrderId(orderId);
+        request.setAmount(new BigDecimal("25.00"));
+        request.setCurrency("USD");
+        request.setPaymentMethod(PaymentMethod.CREDIT_CARD);
+        return request;
+    }
+}
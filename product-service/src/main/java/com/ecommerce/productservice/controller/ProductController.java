@@ -2,7 +2,9 @@ package com.ecommerce.productservice.controller;
 
 import com.ecommerce.productservice.dto.ProductCreateDTO;
 import com.ecommerce.productservice.dto.ProductDTO;
+import com.ecommerce.productservice.dto.ProductStockDTO;
 import com.ecommerce.productservice.dto.ProductUpdateDTO;
+import com.ecommerce.productservice.dto.StockAdjustmentRequest;
 import com.ecommerce.productservice.service.ProductService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +20,8 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -63,6 +67,19 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/stock")
+    public ResponseEntity<List<ProductStockDTO>> getProductStock(@RequestParam Set<Long> ids) {
+        return ResponseEntity.ok(productService.getProductStock(ids));
+    }
+
+    // Batch stock commit/restock from order-service (service token) or an admin; idempotent on the request's key
+    @PostMapping("/stock/adjustments")
+    @PreAuthorize("hasRole('SERVICE') or hasRole('ADMIN')")
+    public ResponseEntity<Void> adjustStock(@Valid @RequestBody StockAdjustmentRequest request) {
+        productService.adjustStock(request);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
         return ResponseEntity.ok(productService.getProductById(id));
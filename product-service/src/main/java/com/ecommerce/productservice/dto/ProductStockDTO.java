@@ -0,0 +1,26 @@
+package com.ecommerce.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Price and stock snapshot used by checkout to re-verify cart items in one call.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockDTO {
+
+    private Long id;
+
+    private String name;
+
+    private BigDecimal price;
+
+    private Integer stockQuantity;
+
+    private Boolean active;
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.productservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustmentRequest {
+
+    // Replays with the same key are acknowledged without touching stock again
+    @NotBlank(message = "Idempotency key is required")
+    private String idempotencyKey;
+
+    @NotEmpty(message = "At least one adjustment is required")
+    @Valid
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+
+        // Signed delta: negative commits a sale, positive restocks
+        @NotNull(message = "Quantity is required")
+        private Integer quantity;
+    }
+}
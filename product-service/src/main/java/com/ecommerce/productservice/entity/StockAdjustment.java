@@ -0,0 +1,30 @@
+package com.ecommerce.productservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record of an applied batch stock adjustment, keyed by the caller's idempotency key.
+ */
+@Entity
+@Table(name = "stock_adjustments")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustment {
+
+    @Id
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private int itemCount;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.productservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of the product fields other services denormalize (name, image, price, availability).
+ * Published keyed by product ID so consumers see changes for a product in order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductEvent {
+
+    public static final String PRODUCT_UPDATED = "PRODUCT_UPDATED";
+    public static final String PRODUCT_DELETED = "PRODUCT_DELETED";
+
+    private String eventId;
+    private String eventType;
+    private LocalDateTime timestamp;
+
+    private Long productId;
+    private String name;
+    private String imageUrl;
+    private BigDecimal price;
+    private Integer stockQuantity;
+    private boolean available;
+}
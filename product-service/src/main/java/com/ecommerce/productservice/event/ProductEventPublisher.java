@@ -0,0 +1,35 @@
+package com.ecommerce.productservice.event;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Forwards product events to Kafka once the transaction that produced them has committed,
+ * so consumers never see a price or availability change that was rolled back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductEventPublisher {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.topics.product-events}")
+    private String productEventsTopic;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(ProductEvent event) {
+        log.debug("Publishing {} for product ID: {}", event.getEventType(), event.getProductId());
+
+        kafkaTemplate.send(productEventsTopic, String.valueOf(event.getProductId()), event)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish {} for product ID: {}", event.getEventType(), event.getProductId(), ex);
+                    }
+                });
+    }
+}
@@ -1,13 +1,16 @@
 package com.ecommerce.productservice.repository;
 
+import com.ecommerce.productservice.dto.ProductStockDTO;
 import com.ecommerce.productservice.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -36,4 +39,16 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     // Find products by SKU
     Product findBySku(String sku);
+
+    // Price and stock snapshot for a batch of products, without loading images or attributes
+    @Query("SELECT new com.ecommerce.productservice.dto.ProductStockDTO(p.id, p.name, p.price, p.stockQuantity, p.active) " +
+            "FROM Product p WHERE p.id IN :ids")
+    List<ProductStockDTO> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Atomic relative stock change that never takes stock below zero (0 rows when it would);
+    // products without tracked stock (null) match but are left as they are
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :delta WHERE p.id = :id " +
+            "AND (p.stockQuantity IS NULL OR p.stockQuantity + :delta >= 0)")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta);
 }
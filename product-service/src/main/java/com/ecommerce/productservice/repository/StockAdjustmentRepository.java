@@ -0,0 +1,7 @@
+package com.ecommerce.productservice.repository;
+
+import com.ecommerce.productservice.entity.StockAdjustment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StockAdjustmentRepository extends JpaRepository<StockAdjustment, String> {
+}
@@ -3,11 +3,15 @@ package com.ecommerce.productservice.service;
 
 import com.ecommerce.productservice.dto.ProductCreateDTO;
 import com.ecommerce.productservice.dto.ProductDTO;
+import com.ecommerce.productservice.dto.ProductStockDTO;
 import com.ecommerce.productservice.dto.ProductUpdateDTO;
+import com.ecommerce.productservice.dto.StockAdjustmentRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
 
 public interface ProductService {
 
@@ -32,5 +36,9 @@ public interface ProductService {
     ProductDTO updateStock(Long id, Integer quantity);
 
     ProductDTO getProductBySku(String sku);
+
+    List<ProductStockDTO> getProductStock(Set<Long> ids);
+
+    boolean adjustStock(StockAdjustmentRequest request);
 }
 
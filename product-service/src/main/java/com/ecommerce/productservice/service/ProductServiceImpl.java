@@ -3,26 +3,39 @@ package com.ecommerce.productservice.service;
 import com.ecommerce.productservice.dto.ProductCreateDTO;
 import com.ecommerce.productservice.dto.ProductDTO;
 import com.ecommerce.productservice.dto.ProductImageDTO;
+import com.ecommerce.productservice.dto.ProductStockDTO;
 import com.ecommerce.productservice.dto.ProductUpdateDTO;
+import com.ecommerce.productservice.dto.StockAdjustmentRequest;
 import com.ecommerce.productservice.entity.Category;
 import com.ecommerce.productservice.entity.Product;
 import com.ecommerce.productservice.entity.ProductAttribute;
 import com.ecommerce.productservice.entity.ProductImage;
+import com.ecommerce.productservice.entity.StockAdjustment;
+import com.ecommerce.productservice.event.ProductEvent;
+import com.ecommerce.productservice.exception.BadRequestException;
 import com.ecommerce.productservice.exception.ResourceNotFoundException;
 import com.ecommerce.productservice.repository.CategoryRepository;
 import com.ecommerce.productservice.repository.ProductRepository;
+import com.ecommerce.productservice.repository.StockAdjustmentRepository;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,6 +45,8 @@ public class ProductServiceImpl implements ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ModelMapper modelMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockAdjustmentRepository stockAdjustmentRepository;
 
     @Override
     @Cacheable(value = "products", key = "#id")
@@ -42,6 +57,13 @@ public class ProductServiceImpl implements ProductService {
         return mapToDTO(product);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductStockDTO> getProductStock(Set<Long> ids) {
+        // Read straight from the table: checkout must not see a stale cached price or stock level
+        return productRepository.findStockByIdIn(ids);
+    }
+
     @Override
     @Cacheable(value = "products", key = "'all_' + #pageable.pageNumber + '_' + #pageable.pageSize")
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
@@ -139,6 +161,7 @@ public class ProductServiceImpl implements ProductService {
     public ProductDTO updateProduct(Long id, ProductUpdateDTO productDTO) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+        ProductEvent before = buildProductEvent(product, ProductEvent.PRODUCT_UPDATED);
 
         // Update basic properties if provided
         if (productDTO.getName() != null) {
@@ -205,6 +228,7 @@ public class ProductServiceImpl implements ProductService {
 
         // Save and return
         Product updatedProduct = productRepository.save(product);
+        publishIfChanged(before, updatedProduct);
         return mapToDTO(updatedProduct);
     }
 
@@ -217,6 +241,14 @@ public class ProductServiceImpl implements ProductService {
         }
 
         productRepository.deleteById(id);
+
+        ProductEvent event = new ProductEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setEventType(ProductEvent.PRODUCT_DELETED);
+        event.setTimestamp(LocalDateTime.now());
+        event.setProductId(id);
+        event.setAvailable(false);
+        eventPublisher.publishEvent(event);
     }
 
     @Override
@@ -226,12 +258,88 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
 
+        ProductEvent before = buildProductEvent(product, ProductEvent.PRODUCT_UPDATED);
+
         product.setStockQuantity(quantity);
         Product updatedProduct = productRepository.save(product);
+        publishIfChanged(before, updatedProduct);
 
         return mapToDTO(updatedProduct);
     }
 
+    @Override
+    @Transactional
+    @CacheEvict(value = "products", allEntries = true)
+    public boolean adjustStock(StockAdjustmentRequest request) {
+        // Replayed request: already applied, acknowledge without changing stock again
+        if (stockAdjustmentRepository.existsById(request.getIdempotencyKey())) {
+            return false;
+        }
+        // Flushed first so a concurrent duplicate fails on the primary key before any stock moves
+        stockAdjustmentRepository.saveAndFlush(
+                new StockAdjustment(request.getIdempotencyKey(), request.getItems().size(), null));
+
+        // Merge lines per product and apply in ID order so concurrent batches lock rows consistently
+        Map<Long, Integer> deltas = request.getItems().stream()
+                .collect(Collectors.toMap(StockAdjustmentRequest.Item::getProductId,
+                        StockAdjustmentRequest.Item::getQuantity, Integer::sum, TreeMap::new));
+
+        Map<Long, ProductEvent> before = productRepository.findAllById(deltas.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId,
+                        product -> buildProductEvent(product, ProductEvent.PRODUCT_UPDATED)));
+
+        // Any line short of stock fails the whole batch, rolling back the lines before it and the key
+        deltas.forEach((productId, delta) -> {
+            if (productRepository.adjustStock(productId, delta) == 0 && productRepository.existsById(productId)) {
+                throw new BadRequestException("Insufficient stock for product ID: " + productId);
+            }
+        });
+
+        // Reload the adjusted rows so availability changes still reach carts
+        for (Product product : productRepository.findAllById(deltas.keySet())) {
+            publishIfChanged(before.get(product.getId()), product);
+        }
+
+        return true;
+    }
+
+    // Publishes a product event when a field that carts denormalize has changed
+    private void publishIfChanged(ProductEvent before, Product product) {
+        ProductEvent after = buildProductEvent(product, ProductEvent.PRODUCT_UPDATED);
+
+        boolean changed = !Objects.equals(before.getName(), after.getName())
+                || !Objects.equals(before.getImageUrl(), after.getImageUrl())
+                || before.getPrice() == null || before.getPrice().compareTo(after.getPrice()) != 0
+                || before.isAvailable() != after.isAvailable();
+
+        if (changed) {
+            eventPublisher.publishEvent(after);
+        }
+    }
+
+    private ProductEvent buildProductEvent(Product product, String eventType) {
+        ProductEvent event = new ProductEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setEventType(eventType);
+        event.setTimestamp(LocalDateTime.now());
+        event.setProductId(product.getId());
+        event.setName(product.getName());
+        event.setPrice(product.getPrice());
+        event.setStockQuantity(product.getStockQuantity());
+        event.setAvailable(product.isActive()
+                && (product.getStockQuantity() == null || product.getStockQuantity() > 0));
+
+        if (product.getImages() != null && !product.getImages().isEmpty()) {
+            event.setImageUrl(product.getImages().stream()
+                    .filter(ProductImage::isPrimary)
+                    .findFirst()
+                    .orElse(product.getImages().get(0))
+                    .getUrl());
+        }
+
+        return event;
+    }
+
     // Helper method to map Product entity to ProductDTO
     private ProductDTO mapToDTO(Product product) {
         ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);